@@ -0,0 +1,214 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.lang;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 一种通过下标而不是哈希查找的线程局部变量。
+ *
+ * <p>每个 {@code FastThreadLocal} 实例在创建时被分配一个唯一的稠密下标，
+ * 每个线程的值保存在该线程持有的一个数组中该下标处。因此 {@link #get} 和
+ * {@link #set} 只需一次数组访问，不需要像 {@link ThreadLocal} 那样计算哈希、
+ * 线性探测或清理陈旧条目。
+ *
+ * <p>作为代价，与 {@link ThreadLocal} 相比有以下不同：
+ * <ul>
+ * <li>下标不会被回收。每个实例在其生命周期内（以及之后）都占用每个访问过它的线程的数组中的一个槽位，
+ * 因此 {@code FastThreadLocal} 应当是长生命周期的，通常作为静态字段，而不应按请求创建。
+ * <li>线程对值持有强引用。即使 {@code FastThreadLocal} 实例本身不再可达，
+ * 值也要到线程终止、调用 {@link #remove} 或 {@link #removeAll} 时才会被释放。
+ * 线程池中的线程在任务结束时应当调用 {@link #removeAll}，以免值泄漏到后续任务中。
+ * <li>值不会被子线程继承。
+ * </ul>
+ *
+ * <p>线程终止时，其所有 {@code FastThreadLocal} 值都被丢弃。
+ *
+ * @param <T> 线程局部变量的值类型
+ * @see ThreadLocal
+ * @since 1.8
+ */
+public class FastThreadLocal<T> {
+
+    /** 表示槽位未设置的标记；与 null 值区分 */
+    private static final Object UNSET = new Object();
+
+    /** 下一个要分配的下标 */
+    private static final AtomicInteger nextIndex = new AtomicInteger();
+
+    /** 数组的最大长度；某些 VM 在数组中保留一些头字 */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /** 每个线程的数组的初始长度 */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /** 此线程局部变量在每个线程的数组中的下标 */
+    private final int index;
+
+    /**
+     * 创建一个线程局部变量。
+     *
+     * @throws IllegalStateException 如果已创建的实例过多
+     * @see #withInitial(java.util.function.Supplier)
+     */
+    public FastThreadLocal() {
+        int i = nextIndex.getAndIncrement();
+        if (i < 0 || i >= MAX_ARRAY_SIZE) {
+            nextIndex.set(MAX_ARRAY_SIZE);
+            throw new IllegalStateException("too many FastThreadLocal instances");
+        }
+        index = i;
+    }
+
+    /**
+     * 创建一个线程局部变量。变量的初始值由调用 {@code Supplier} 的 {@code get} 方法确定。
+     *
+     * @param <S> 线程局部变量的值类型
+     * @param supplier 用于确定初始值的供应商
+     * @return 一个新的线程局部变量
+     * @throws NullPointerException 如果指定的供应商为 null
+     */
+    public static <S> FastThreadLocal<S> withInitial(Supplier<? extends S> supplier) {
+        return new SuppliedFastThreadLocal<>(supplier);
+    }
+
+    /**
+     * 返回此线程局部变量的当前线程的“初始值”。此方法在线程第一次使用 {@link #get}
+     * 方法访问变量时调用，除非线程之前调用了 {@link #set} 方法。
+     *
+     * <p>此实现简单地返回 {@code null}。
+     *
+     * @return 此线程局部变量的初始值
+     */
+    protected T initialValue() {
+        return null;
+    }
+
+    /**
+     * 返回当前线程的此线程局部变量的副本中的值。如果变量对当前线程没有值，则首先通过调用
+     * {@link #initialValue} 方法进行初始化。
+     *
+     * @return 当前线程的此线程局部变量的值
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        Object[] a = Thread.currentThread().fastThreadLocals;
+        Object v;
+        if (a != null && index < a.length && (v = a[index]) != UNSET)
+            return (T) v;
+        return setInitialValue();
+    }
+
+    /**
+     * 调用 initialValue 并存储其结果。
+     */
+    private T setInitialValue() {
+        T value = initialValue();
+        store(value);
+        return value;
+    }
+
+    /**
+     * 将当前线程的此线程局部变量的副本设置为指定值。
+     *
+     * @param value 要存储在当前线程的此线程局部变量副本中的值
+     */
+    public void set(T value) {
+        store(value);
+    }
+
+    /**
+     * set 的实现；setInitialValue 也使用它，以免受子类覆盖 set 的影响。
+     */
+    private void store(Object value) {
+        Thread t = Thread.currentThread();
+        Object[] a = t.fastThreadLocals;
+        if (a == null || index >= a.length)
+            a = expand(t, a);
+        a[index] = value;
+    }
+
+    /**
+     * 如果当前线程的此线程局部变量的副本中有值，即使该值为 {@code null}，也返回 {@code true}。
+     *
+     * @return 如果当前线程在此线程局部变量中有关联的值，则返回 {@code true}
+     */
+    public boolean isSet() {
+        Object[] a = Thread.currentThread().fastThreadLocals;
+        return a != null && index < a.length && a[index] != UNSET;
+    }
+
+    /**
+     * 删除当前线程的此线程局部变量的值。如果当前线程随后 {@linkplain #get 读取}
+     * 此线程局部变量，其值将通过调用其 {@link #initialValue} 方法重新初始化。
+     */
+    public void remove() {
+        Object[] a = Thread.currentThread().fastThreadLocals;
+        if (a != null && index < a.length)
+            a[index] = UNSET;
+    }
+
+    /**
+     * 删除当前线程的所有 {@code FastThreadLocal} 值。线程终止时会自动执行此操作；
+     * 复用线程的执行器应在每个任务结束时调用此方法。
+     */
+    public static void removeAll() {
+        Thread.currentThread().fastThreadLocals = null;
+    }
+
+    /**
+     * 为线程分配或扩大数组，使其能容纳此实例的下标。新槽位被设置为 UNSET。
+     */
+    private Object[] expand(Thread t, Object[] a) {
+        int oldLength = (a == null) ? 0 : a.length;
+        int n = Math.max(oldLength, INITIAL_CAPACITY);
+        while (n <= index)
+            n = (n > (MAX_ARRAY_SIZE >>> 1)) ? MAX_ARRAY_SIZE : n << 1;
+        Object[] b = (a == null) ? new Object[n] : Arrays.copyOf(a, n);
+        Arrays.fill(b, oldLength, n, UNSET);
+        t.fastThreadLocals = b;
+        return b;
+    }
+
+    /**
+     * 从指定的 {@code Supplier} 获取初始值的 FastThreadLocal 扩展。
+     */
+    static final class SuppliedFastThreadLocal<T> extends FastThreadLocal<T> {
+
+        private final Supplier<? extends T> supplier;
+
+        SuppliedFastThreadLocal(Supplier<? extends T> supplier) {
+            this.supplier = Objects.requireNonNull(supplier);
+        }
+
+        @Override
+        protected T initialValue() {
+            return supplier.get();
+        }
+    }
+}
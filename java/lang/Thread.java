@@ -157,6 +157,9 @@ class Thread implements Runnable {
      */
     ThreadLocal.ThreadLocalMap inheritableThreadLocals = null;
 
+    /* 与该线程相关的 FastThreadLocal 值，按下标访问。此数组由 FastThreadLocal 类维护。 */
+    Object[] fastThreadLocals = null;
+
     /*
      * 该线程请求的堆栈大小，如果创建者未指定堆栈大小，则为 0。VM 可以根据需要处理这个数字；某些 VM 可能会忽略它。
      */
@@ -626,6 +629,7 @@ class Thread implements Runnable {
         /* 加速释放某些资源 */
         threadLocals = null;
         inheritableThreadLocals = null;
+        fastThreadLocals = null;
         inheritedAccessControlContext = null;
         blocker = null;
         uncaughtExceptionHandler = null;
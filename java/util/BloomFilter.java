@@ -0,0 +1,283 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collector;
+
+/**
+ * 用固定的内存测试元素是否可能被记录过的 Bloom 过滤器。
+ *
+ * <p>过滤器是一个 {@code numBits} 位的 {@link BitSet}。记录一个元素时，由元素的哈希值选择
+ * {@code numHashes} 个位并设置它们；如果一个元素的所有这些位都已设置，则 {@link #mightContain}
+ * 返回 {@code true}。因此 {@code mightContain} 对记录过的元素总是返回 {@code true}，
+ * 对没有记录过的元素可能错误地返回 {@code true}（假阳性），但从不错误地返回 {@code false}。
+ * {@link #withExpectedInsertions} 按预期的元素数和假阳性率选择位数和哈希函数数。
+ *
+ * <p>两个位数和哈希函数数相同的过滤器可以用 {@link #combine} 合并，结果与把两个过滤器的元素记录到同一个过滤器中完全相同。
+ * 因此此类可以用作并行流的 {@linkplain java.util.stream.Stream#collect(Collector) 聚合}的目标，例如：
+ * <pre> {@code
+ * BloomFilter seen = events.parallelStream()
+ *                          .map(Event::getUserId)
+ *                          .collect(Collectors.toBloomFilter(10_000_000, 0.01));
+ * }</pre>
+ *
+ * <p>元素由 {@code hashCode()} 区分（{@code Long} 由它的值区分，其他原始类型的包装类还按类型区分，
+ * 例如 {@code Integer} 1 和 {@code Long} 1 是不同的元素）。
+ *
+ * @implNote 本实现不是线程安全的。但是，可以在并行流上安全地使用
+ * {@link java.util.stream.Collectors#toBloomFilter(long, double) Collectors.toBloomFilter()}，
+ * 因为每个叶任务记录到自己的过滤器中，然后合并。
+ *
+ * @see HyperLogLog
+ * @see CountMinSketch
+ * @since 1.8
+ */
+public class BloomFilter implements Consumer<Object>, LongConsumer {
+
+    private final int numBits;
+    private final int numHashes;
+    private final BitSet bits;
+
+    /**
+     * 构造一个具有给定位数和哈希函数数的空过滤器。
+     *
+     * @param numBits 位数
+     * @param numHashes 每个元素设置的位数
+     * @throws IllegalArgumentException 如果 {@code numBits} 或 {@code numHashes} 不是正数
+     */
+    public BloomFilter(int numBits, int numHashes) {
+        if (numBits <= 0)
+            throw new IllegalArgumentException("Illegal number of bits: " + numBits);
+        if (numHashes <= 0)
+            throw new IllegalArgumentException("Illegal number of hash functions: " + numHashes);
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.bits = new BitSet(numBits);
+    }
+
+    /**
+     * 返回一个空过滤器，记录 {@code expectedInsertions} 个不同的元素后，它的假阳性率约为 {@code fpp}。
+     * 位数和哈希函数数分别由 {@link #optimalNumBits} 和 {@link #optimalNumHashes} 选择。
+     *
+     * @param expectedInsertions 预期的不同元素数
+     * @param fpp 预期的假阳性率，在 (0, 1) 中
+     * @return 一个空过滤器
+     * @throws IllegalArgumentException 如果 {@code expectedInsertions} 不是正数，
+     *         或者 {@code fpp} 不在 (0, 1) 中
+     */
+    public static BloomFilter withExpectedInsertions(long expectedInsertions, double fpp) {
+        int numBits = optimalNumBits(expectedInsertions, fpp);
+        return new BloomFilter(numBits, optimalNumHashes(expectedInsertions, numBits));
+    }
+
+    /**
+     * 返回记录 {@code expectedInsertions} 个不同的元素后假阳性率约为 {@code fpp} 所需的位数，
+     * 即 -n&middot;ln(fpp)/(ln 2)<sup>2</sup>，n 为 {@code expectedInsertions}，
+     * 至少为 64，至多为 {@code Integer.MAX_VALUE}。
+     *
+     * @param expectedInsertions 预期的不同元素数
+     * @param fpp 预期的假阳性率，在 (0, 1) 中
+     * @return 位数
+     * @throws IllegalArgumentException 如果 {@code expectedInsertions} 不是正数，
+     *         或者 {@code fpp} 不在 (0, 1) 中
+     */
+    public static int optimalNumBits(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0L)
+            throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+        if (!(fpp > 0.0d && fpp < 1.0d))
+            throw new IllegalArgumentException("Illegal false positive probability: " + fpp);
+        double ln2 = Math.log(2.0d);
+        double m = Math.ceil(-expectedInsertions * Math.log(fpp) / (ln2 * ln2));
+        return (int) Math.min(Math.max(m, 64.0d), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 返回记录 {@code expectedInsertions} 个不同的元素时，使 {@code numBits} 位的过滤器的
+     * 假阳性率最小的哈希函数数，即 (numBits/n)&middot;ln 2，至少为 1，至多为 64。
+     *
+     * @param expectedInsertions 预期的不同元素数
+     * @param numBits 位数
+     * @return 哈希函数数
+     * @throws IllegalArgumentException 如果 {@code expectedInsertions} 或 {@code numBits} 不是正数
+     */
+    public static int optimalNumHashes(long expectedInsertions, int numBits) {
+        if (expectedInsertions <= 0L)
+            throw new IllegalArgumentException("Illegal expected insertions: " + expectedInsertions);
+        if (numBits <= 0)
+            throw new IllegalArgumentException("Illegal number of bits: " + numBits);
+        long k = Math.round((double) numBits / expectedInsertions * Math.log(2.0d));
+        return (int) Math.min(Math.max(k, 1L), 64L);
+    }
+
+    /**
+     * 记录一个元素。
+     *
+     * @param o 元素，可以为 {@code null}
+     */
+    @Override
+    public void accept(Object o) {
+        add(o);
+    }
+
+    /**
+     * 记录一个 {@code long} 值。
+     *
+     * @param value 值
+     */
+    @Override
+    public void accept(long value) {
+        add(value);
+    }
+
+    /**
+     * 记录一个元素。
+     *
+     * @param o 元素，可以为 {@code null}
+     * @return 如果过滤器因此改变，即此元素一定没有被记录过，则为 {@code true}
+     */
+    public boolean add(Object o) {
+        return addHash(SketchSupport.hash(o));
+    }
+
+    /**
+     * 记录一个 {@code long} 值。
+     *
+     * @param value 值
+     * @return 如果过滤器因此改变，即此值一定没有被记录过，则为 {@code true}
+     */
+    public boolean add(long value) {
+        return addHash(SketchSupport.hash(value));
+    }
+
+    private boolean addHash(long h) {
+        boolean changed = false;
+        for (int i = 0; i < numHashes; ++i) {
+            int b = SketchSupport.index(h, i, numBits);
+            if (!bits.get(b)) {
+                bits.set(b);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 如果元素可能被记录过，则返回 {@code true}；如果元素一定没有被记录过，则返回 {@code false}。
+     *
+     * @param o 元素，可以为 {@code null}
+     * @return 如果元素可能被记录过，则为 {@code true}
+     */
+    public boolean mightContain(Object o) {
+        return containsHash(SketchSupport.hash(o));
+    }
+
+    /**
+     * 如果 {@code long} 值可能被记录过，则返回 {@code true}；如果一定没有被记录过，则返回 {@code false}。
+     *
+     * @param value 值
+     * @return 如果值可能被记录过，则为 {@code true}
+     */
+    public boolean mightContain(long value) {
+        return containsHash(SketchSupport.hash(value));
+    }
+
+    private boolean containsHash(long h) {
+        for (int i = 0; i < numHashes; ++i)
+            if (!bits.get(SketchSupport.index(h, i, numBits)))
+                return false;
+        return true;
+    }
+
+    /**
+     * 将另一个 {@code BloomFilter} 的状态合并到当前实例中。
+     *
+     * @param other 另一个 {@code BloomFilter}
+     * @throws NullPointerException 如果 {@code other} 为 null
+     * @throws IllegalArgumentException 如果两个过滤器的位数或哈希函数数不同
+     */
+    public void combine(BloomFilter other) {
+        if (other.numBits != numBits || other.numHashes != numHashes)
+            throw new IllegalArgumentException("Incompatible filters: " + numBits + "/" + numHashes +
+                                               " != " + other.numBits + "/" + other.numHashes);
+        bits.or(other.bits);
+    }
+
+    /**
+     * 返回位数。
+     *
+     * @return 位数
+     */
+    public final int getNumBits() {
+        return numBits;
+    }
+
+    /**
+     * 返回每个元素设置的位数。
+     *
+     * @return 哈希函数数
+     */
+    public final int getNumHashes() {
+        return numHashes;
+    }
+
+    /**
+     * 按已设置的位的比例返回当前的假阳性率的估计值。
+     *
+     * @return 假阳性率的估计值
+     */
+    public double getExpectedFpp() {
+        return Math.pow((double) bits.cardinality() / numBits, numHashes);
+    }
+
+    /**
+     * 按已设置的位数返回记录的不同元素数的估计值。
+     *
+     * @return 不同元素数的估计值；如果所有位都已设置，则为 {@code Long.MAX_VALUE}
+     */
+    public long getApproximateElementCount() {
+        int set = bits.cardinality();
+        if (set == numBits)
+            return Long.MAX_VALUE;
+        return Math.round(-(double) numBits / numHashes * Math.log1p(-(double) set / numBits));
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     *
+     * 返回一个非空的字符串表示，适用于调试。确切的表示格式未指定，可能会在不同实现和版本之间有所不同。
+     */
+    public String toString() {
+        return String.format(
+            "%s{numBits=%d, numHashes=%d, expectedFpp=%f}",
+            this.getClass().getSimpleName(),
+            getNumBits(),
+            getNumHashes(),
+            getExpectedFpp());
+    }
+}
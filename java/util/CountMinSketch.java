@@ -0,0 +1,264 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collector;
+
+/**
+ * 用固定的内存估计元素出现次数的 Count-Min 草图，可用于找出频繁出现的元素（heavy hitters）。
+ *
+ * <p>草图是一个 {@code depth} 行 {@code width} 列的计数器矩阵。记录一个元素时，
+ * 由元素的哈希值在每一行中选择一个计数器并增加它；估计一个元素的次数时取这些计数器的最小值。
+ * 估计值从不小于实际次数；以至少 1 - e<sup>-depth</sup> 的概率，它不超过实际次数加上
+ * e/width 乘以记录的总次数（e 为自然对数的底）。{@link #withErrorBounds} 按给定的误差和概率选择矩阵的大小。
+ *
+ * <p>两个大小相同的草图可以用 {@link #combine} 合并，结果与把两个草图的元素记录到同一个草图中完全相同。
+ * 因此此类可以用作并行流的 {@linkplain java.util.stream.Stream#collect(Collector) 聚合}的目标，例如：
+ * <pre> {@code
+ * CountMinSketch cms = events.parallelStream()
+ *                            .map(Event::getPage)
+ *                            .collect(Collectors.toCountMinSketch(5, 2048));
+ * long views = cms.estimateCount("/index.html");
+ * }</pre>
+ *
+ * <p>元素由 {@code hashCode()} 区分（{@code Long} 由它的值区分，其他原始类型的包装类还按类型区分，
+ * 例如 {@code Integer} 1 和 {@code Long} 1 是不同的元素）。
+ *
+ * @implNote 本实现不是线程安全的。但是，可以在并行流上安全地使用
+ * {@link java.util.stream.Collectors#toCountMinSketch(int, int) Collectors.toCountMinSketch()}，
+ * 因为每个叶任务记录到自己的草图中，然后合并。
+ *
+ * <p>本实现不检查计数器的溢出。
+ *
+ * @see HyperLogLog
+ * @see BloomFilter
+ * @since 1.8
+ */
+public class CountMinSketch implements Consumer<Object>, LongConsumer {
+
+    private final int depth;
+    private final int width;
+    /** 按行存储的计数器，第 i 行第 j 列在 {@code i * width + j} */
+    private final long[] counts;
+    private long totalCount;
+
+    /**
+     * 构造一个具有给定行数和列数的空草图。
+     *
+     * @param depth 行数，即每个元素使用的计数器数
+     * @param width 列数
+     * @throws IllegalArgumentException 如果 {@code depth} 或 {@code width} 不是正数，
+     *         或者计数器数超过最大数组大小
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0 || (long) depth * width > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Illegal dimensions: " + depth + " x " + width);
+        this.depth = depth;
+        this.width = width;
+        this.counts = new long[depth * width];
+    }
+
+    /**
+     * 返回一个空草图，以至少 {@code 1 - delta} 的概率，它的估计值不超过实际次数加上
+     * {@code epsilon} 乘以记录的总次数。草图有 ceil(ln(1/delta)) 行和 ceil(e/epsilon) 列。
+     *
+     * @param epsilon 相对于总次数的误差，在 (0, 1) 中
+     * @param delta 误差超过 {@code epsilon} 的概率，在 (0, 1) 中
+     * @return 一个空草图
+     * @throws IllegalArgumentException 如果 {@code epsilon} 或 {@code delta} 不在 (0, 1) 中，
+     *         或者计数器数超过最大数组大小
+     */
+    public static CountMinSketch withErrorBounds(double epsilon, double delta) {
+        if (!(epsilon > 0.0d && epsilon < 1.0d))
+            throw new IllegalArgumentException("Illegal epsilon: " + epsilon);
+        if (!(delta > 0.0d && delta < 1.0d))
+            throw new IllegalArgumentException("Illegal delta: " + delta);
+        return new CountMinSketch((int) Math.ceil(Math.log(1.0d / delta)),
+                                  (int) Math.min(Math.ceil(Math.E / epsilon), Integer.MAX_VALUE));
+    }
+
+    /**
+     * 记录一个元素出现一次。
+     *
+     * @param o 元素，可以为 {@code null}
+     */
+    @Override
+    public void accept(Object o) {
+        addHash(SketchSupport.hash(o), 1L);
+    }
+
+    /**
+     * 记录一个 {@code long} 值出现一次。
+     *
+     * @param value 值
+     */
+    @Override
+    public void accept(long value) {
+        addHash(SketchSupport.hash(value), 1L);
+    }
+
+    /**
+     * 记录一个元素出现给定的次数。
+     *
+     * @param o 元素，可以为 {@code null}
+     * @param count 次数
+     * @throws IllegalArgumentException 如果 {@code count} 为负数
+     */
+    public void add(Object o, long count) {
+        if (count < 0L)
+            throw new IllegalArgumentException("Negative count: " + count);
+        addHash(SketchSupport.hash(o), count);
+    }
+
+    /**
+     * 记录一个 {@code long} 值出现给定的次数。
+     *
+     * @param value 值
+     * @param count 次数
+     * @throws IllegalArgumentException 如果 {@code count} 为负数
+     */
+    public void add(long value, long count) {
+        if (count < 0L)
+            throw new IllegalArgumentException("Negative count: " + count);
+        addHash(SketchSupport.hash(value), count);
+    }
+
+    private void addHash(long h, long count) {
+        long[] c = counts;
+        int w = width;
+        for (int i = 0, row = 0; i < depth; ++i, row += w)
+            c[row + SketchSupport.index(h, i, w)] += count;
+        totalCount += count;
+    }
+
+    /**
+     * 返回一个元素出现次数的估计值。估计值不小于实际次数。
+     *
+     * @param o 元素，可以为 {@code null}
+     * @return 出现次数的估计值
+     */
+    public long estimateCount(Object o) {
+        return estimateHash(SketchSupport.hash(o));
+    }
+
+    /**
+     * 返回一个 {@code long} 值出现次数的估计值。估计值不小于实际次数。
+     *
+     * @param value 值
+     * @return 出现次数的估计值
+     */
+    public long estimateCount(long value) {
+        return estimateHash(SketchSupport.hash(value));
+    }
+
+    private long estimateHash(long h) {
+        long[] c = counts;
+        int w = width;
+        long min = Long.MAX_VALUE;
+        for (int i = 0, row = 0; i < depth; ++i, row += w)
+            min = Math.min(min, c[row + SketchSupport.index(h, i, w)]);
+        return min;
+    }
+
+    /**
+     * 将另一个 {@code CountMinSketch} 的状态合并到当前实例中。
+     *
+     * @param other 另一个 {@code CountMinSketch}
+     * @throws NullPointerException 如果 {@code other} 为 null
+     * @throws IllegalArgumentException 如果两个草图的行数或列数不同
+     */
+    public void combine(CountMinSketch other) {
+        if (other.depth != depth || other.width != width)
+            throw new IllegalArgumentException("Dimension mismatch: " + depth + " x " + width +
+                                               " != " + other.depth + " x " + other.width);
+        long[] c = counts, o = other.counts;
+        for (int i = 0; i < c.length; ++i)
+            c[i] += o[i];
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * 返回记录的总次数。
+     *
+     * @return 记录的总次数
+     */
+    public final long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 返回行数。
+     *
+     * @return 行数
+     */
+    public final int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 返回列数。
+     *
+     * @return 列数
+     */
+    public final int getWidth() {
+        return width;
+    }
+
+    /**
+     * 返回相对于总次数的误差 e/width。
+     *
+     * @return 相对于总次数的误差
+     */
+    public final double getRelativeError() {
+        return Math.E / width;
+    }
+
+    /**
+     * 返回估计值的误差不超过 {@link #getRelativeError()} 乘以总次数的概率 1 - e<sup>-depth</sup>。
+     *
+     * @return 误差不超过界限的概率
+     */
+    public final double getConfidence() {
+        return 1.0d - Math.exp(-depth);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     *
+     * 返回一个非空的字符串表示，适用于调试。确切的表示格式未指定，可能会在不同实现和版本之间有所不同。
+     */
+    public String toString() {
+        return String.format(
+            "%s{depth=%d, width=%d, totalCount=%d}",
+            this.getClass().getSimpleName(),
+            getDepth(),
+            getWidth(),
+            getTotalCount());
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package java.util;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Collector;
+
+/**
+ * 用固定的内存估计不同元素数（基数）的 HyperLogLog 草图。
+ *
+ * <p>草图有 2<sup>p</sup> 个寄存器，p 为精度。每个元素的 64 位哈希值的高 p 位选择一个寄存器，
+ * 寄存器记录其余的位中前导零个数加一的最大值。估计值的相对标准误差约为
+ * 1.04/&radic;(2<sup>p</sup>)，例如默认精度 14 使用 16 KB 内存，误差约为 0.81%，与不同元素数无关。
+ * 元素数很少时使用线性计数，结果接近精确值。
+ *
+ * <p>两个精度相同的草图可以用 {@link #combine} 合并，结果与把两个草图的元素记录到同一个草图中完全相同。
+ * 因此此类可以用作并行流的 {@linkplain java.util.stream.Stream#collect(Collector) 聚合}的目标，例如：
+ * <pre> {@code
+ * long visitors = events.parallelStream()
+ *                       .map(Event::getUserId)
+ *                       .collect(Collectors.approximateDistinctCount(14));
+ *
+ * HyperLogLog hll = userIds.collect(() -> new HyperLogLog(14),
+ *                                   HyperLogLog::accept,
+ *                                   HyperLogLog::combine);
+ * }</pre>
+ *
+ * <p>元素由 {@code hashCode()} 区分（{@code Long} 由它的值区分，其他原始类型的包装类还按类型区分，
+ * 例如 {@code Integer} 1 和 {@code Long} 1 是不同的元素），哈希码相同的其他不同元素被视为同一个元素；
+ * 基数接近 2<sup>32</sup> 时，对象的 32 位哈希码的冲突会使估计值偏低。
+ * 对于 {@code long} 标识符，{@link #accept(long)} 使用完整的 64 位值。
+ *
+ * @implNote 本实现不是线程安全的。但是，可以在并行流上安全地使用
+ * {@link java.util.stream.Collectors#toHyperLogLog(int) Collectors.toHyperLogLog()}，
+ * 因为每个叶任务记录到自己的草图中，然后合并。
+ *
+ * @see CountMinSketch
+ * @see BloomFilter
+ * @since 1.8
+ */
+public class HyperLogLog implements Consumer<Object>, LongConsumer {
+
+    /** 最小精度 */
+    public static final int MIN_PRECISION = 4;
+
+    /** 最大精度 */
+    public static final int MAX_PRECISION = 18;
+
+    /** 默认精度 */
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * 构造一个具有默认精度的空草图。
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * 构造一个具有给定精度的空草图，它有 2<sup>precision</sup> 个寄存器。
+     *
+     * @param precision 精度
+     * @throws IllegalArgumentException 如果 {@code precision} 小于 {@link #MIN_PRECISION}
+     *         或大于 {@link #MAX_PRECISION}
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+            throw new IllegalArgumentException("Illegal precision: " + precision);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 记录一个元素。
+     *
+     * @param o 元素，可以为 {@code null}
+     */
+    @Override
+    public void accept(Object o) {
+        addHash(SketchSupport.hash(o));
+    }
+
+    /**
+     * 记录一个 {@code long} 值。
+     *
+     * @param value 值
+     */
+    @Override
+    public void accept(long value) {
+        addHash(SketchSupport.hash(value));
+    }
+
+    private void addHash(long h) {
+        int p = precision;
+        int i = (int) (h >>> (64 - p));
+        // 保护位使得秩不超过 65 - p
+        long w = (h << p) | (1L << (p - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(w) + 1);
+        if (rank > registers[i])
+            registers[i] = rank;
+    }
+
+    /**
+     * 将另一个 {@code HyperLogLog} 的状态合并到当前实例中。
+     *
+     * @param other 另一个 {@code HyperLogLog}
+     * @throws NullPointerException 如果 {@code other} 为 null
+     * @throws IllegalArgumentException 如果两个草图的精度不同
+     */
+    public void combine(HyperLogLog other) {
+        if (other.precision != precision)
+            throw new IllegalArgumentException("Precision mismatch: " + precision + " != " + other.precision);
+        byte[] r = registers, o = other.registers;
+        for (int i = 0; i < r.length; ++i)
+            if (o[i] > r[i])
+                r[i] = o[i];
+    }
+
+    /**
+     * 返回记录的不同元素数的估计值。
+     *
+     * @return 不同元素数的估计值
+     */
+    public long getEstimate() {
+        byte[] r = registers;
+        int m = r.length;
+        double sum = 0.0d;
+        int zeros = 0;
+        for (byte b : r) {
+            sum += Math.scalb(1.0d, -b);
+            if (b == 0)
+                ++zeros;
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5d * m && zeros > 0)
+            estimate = m * Math.log((double) m / zeros);   // 线性计数
+        return Math.round(estimate);
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16: return 0.673d;
+            case 32: return 0.697d;
+            case 64: return 0.709d;
+            default: return 0.7213d / (1.0d + 1.079d / m);
+        }
+    }
+
+    /**
+     * 返回精度，即寄存器数以 2 为底的对数。
+     *
+     * @return 精度
+     */
+    public final int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * 返回估计值的相对标准误差，即 1.04/&radic;(2<sup>precision</sup>)。
+     *
+     * @return 估计值的相对标准误差
+     */
+    public final double getRelativeStandardError() {
+        return 1.04d / Math.sqrt(registers.length);
+    }
+
+    @Override
+    /**
+     * {@inheritDoc}
+     *
+     * 返回一个非空的字符串表示，适用于调试。确切的表示格式未指定，可能会在不同实现和版本之间有所不同。
+     */
+    public String toString() {
+        return String.format(
+            "%s{precision=%d, estimate=%d}",
+            this.getClass().getSimpleName(),
+            getPrecision(),
+            getEstimate());
+    }
+}
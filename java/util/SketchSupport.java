@@ -0,0 +1,98 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+
+package java.util;
+
+/**
+ * {@link HyperLogLog}、{@link CountMinSketch} 和 {@link BloomFilter} 共用的哈希函数。
+ *
+ * <p>对象的哈希值由它的 {@code hashCode()} 得到，但 {@code Long} 使用它的 {@code long} 值，
+ * 因此 {@code accept(Long)} 和 {@code accept(long)} 记录同一个元素。其他对象的哈希码再经过一次混合，
+ * 对于其他原始类型的包装类还混入类型，因此 {@code Integer} 1、{@code Short} 1 和 {@code Long} 1
+ * 这样相等性不同但哈希码相同的装箱值是不同的元素。
+ *
+ * @since 1.8
+ */
+final class SketchSupport {
+
+    private SketchSupport() { }
+
+    /** 与 {@link SplittableRandom} 相同的黄金比例增量 */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * 返回 {@code long} 值的 64 位哈希值。
+     */
+    static long hash(long x) {
+        long z = x + GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 返回对象的 64 位哈希值。{@code Long} 的哈希值与它的值的哈希值相同；
+     * {@code null} 的哈希值与哈希码为零的对象（包装类除外）相同。
+     */
+    static long hash(Object o) {
+        if (o instanceof Long)
+            return hash(((Long) o).longValue());
+        if (o == null)
+            return hash(hash(0L));
+        return hash(hash((long) o.hashCode()) ^ typeSeed(o.getClass()));
+    }
+
+    /**
+     * 返回原始类型的包装类的类型种子，其他类为零。包装类的 {@code equals} 要求类型相同，
+     * 但不同包装类的值的哈希码经常相同。
+     */
+    private static long typeSeed(Class<?> c) {
+        if (c == Integer.class)
+            return 0x243f6a8885a308d3L;
+        else if (c == Short.class)
+            return 0x13198a2e03707344L;
+        else if (c == Byte.class)
+            return 0xa4093822299f31d0L;
+        else if (c == Character.class)
+            return 0x082efa98ec4e6c89L;
+        else if (c == Double.class)
+            return 0x452821e638d01377L;
+        else if (c == Float.class)
+            return 0xbe5466cf34e90c6cL;
+        else if (c == Boolean.class)
+            return 0xc0ac29b7c97c50ddL;
+        else
+            return 0L;
+    }
+
+    /**
+     * 由一个 64 位哈希值导出第 {@code i} 个 [0, n) 中的下标。使用双重哈希，
+     * 即 {@code h1 + i * h2}，其中 h1 和 h2 分别是哈希值的低 32 位和高 32 位。
+     */
+    static int index(long hash, int i, int n) {
+        int c = (int) hash + i * (int) (hash >>> 32);
+        return (c & Integer.MAX_VALUE) % n;
+    }
+}
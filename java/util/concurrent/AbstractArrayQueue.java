@@ -0,0 +1,495 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * 一个包级类，为 {@link SpscArrayQueue} 和 {@link MpscArrayQueue} 等基于预分配环形数组的无锁有界队列
+ * 提供公共表示和机制：生产者/消费者索引、槽位访问、等待策略以及 {@link BlockingQueue} 的阻塞方法。
+ * 子类只需实现 {@code offer}、{@code poll}、{@code peek} 和 {@code drain}。
+ *
+ * @param <E> 此集合中持有的元素类型
+ */
+abstract class AbstractArrayQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E> {
+    /*
+     * 元素保存在长度为 2 的幂的数组中，槽位由单调递增的 long 索引与 mask 相与得到，因此索引永不回绕，
+     * 二者之差即为队列大小。逻辑容量 capacity 可以小于数组长度。
+     *
+     * producerIndex 与 consumerIndex 分别只（或主要）由生产者和消费者写入，通过 @sun.misc.Contended
+     * 放在不同的缓存行上，避免两端互相使缓存行失效。写入一律使用 putOrdered（即 lazySet），
+     * 只保证 store-store 顺序，开销远低于 volatile 写。
+     *
+     * 消费者总是先将槽位置为 null，再推进 consumerIndex；生产者只有在观察到 consumerIndex 越过某个槽位
+     * 上一轮的索引后才会写入该槽位。因此读取者在读到槽位 i 之后，如果 consumerIndex 仍然不大于 i，
+     * 则读到的要么是索引 i 处的元素，要么是 null，这使得弱一致的迭代器无需加锁。
+     *
+     * 阻塞方法不在 offer/poll 的快速路径上维护等待者记录（那需要在每次操作上加一次 StoreLoad 屏障），
+     * 而是采用“先自旋、再 yield、最后定时 park 且 park 时间逐步加倍”的退避方式轮询。
+     * 这样不存在丢失唤醒的问题，且完全不影响非阻塞操作的开销，代价是长时间空闲后第一次唤醒的延迟
+     * 最多为 MAX_PARK_NANOS。
+     */
+
+    /** 是否运行在多处理器上 */
+    static final boolean MP =
+        Runtime.getRuntime().availableProcessors() > 1;
+
+    /** 在 yield 之前的忙等轮数。单处理器上自旋毫无意义。 */
+    static final int SPINS = MP ? 1 << 7 : 0;
+
+    /** 在开始 park 之前的总轮数（自旋加 yield） */
+    static final int YIELDS = SPINS + (1 << 4);
+
+    /** 第一次 park 的纳秒数 */
+    static final long MIN_PARK_NANOS = 1L << 10;
+
+    /** 单次 park 的最大纳秒数（约 1 毫秒） */
+    static final long MAX_PARK_NANOS = 1L << 20;
+
+    /** 队列中的元素，长度为 2 的幂 */
+    final Object[] buffer;
+
+    /** buffer.length - 1 */
+    final int mask;
+
+    /** 逻辑容量 */
+    final int capacity;
+
+    /** 下一个要写入的索引 */
+    @sun.misc.Contended("producer") volatile long producerIndex;
+
+    /** 下一个要读取的索引 */
+    @sun.misc.Contended("consumer") volatile long consumerIndex;
+
+    /**
+     * 创建具有给定（固定）容量的队列。
+     *
+     * @param capacity 此队列的容量
+     * @throws IllegalArgumentException 如果 {@code capacity < 1} 或超过 {@code 1 << 30}
+     */
+    AbstractArrayQueue(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30))
+            throw new IllegalArgumentException();
+        int n = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new Object[n];
+        this.mask = n - 1;
+        this.capacity = capacity;
+    }
+
+    /**
+     * 如果参数为 null，则抛出 NullPointerException。
+     *
+     * @param v 元素
+     */
+    static void checkNotNull(Object v) {
+        if (v == null)
+            throw new NullPointerException();
+    }
+
+    // 索引与槽位访问
+
+    /**
+     * 返回索引 i 对应槽位在数组中的偏移量。
+     */
+    final long slotOffset(long i) {
+        return ((long)((int)i & mask) << ASHIFT) + ABASE;
+    }
+
+    /**
+     * 以 volatile 语义读取索引 i 处的槽位。
+     */
+    final Object slotAt(long i) {
+        return UNSAFE.getObjectVolatile(buffer, slotOffset(i));
+    }
+
+    /**
+     * 以有序（lazySet）语义写入索引 i 处的槽位。
+     */
+    final void lazySetSlot(long i, Object x) {
+        UNSAFE.putOrderedObject(buffer, slotOffset(i), x);
+    }
+
+    final void lazySetProducerIndex(long v) {
+        UNSAFE.putOrderedLong(this, PRODUCER_INDEX, v);
+    }
+
+    final boolean casProducerIndex(long cmp, long val) {
+        return UNSAFE.compareAndSwapLong(this, PRODUCER_INDEX, cmp, val);
+    }
+
+    final void lazySetConsumerIndex(long v) {
+        UNSAFE.putOrderedLong(this, CONSUMER_INDEX, v);
+    }
+
+    // 由子类实现的消费端批量操作
+
+    /**
+     * 移除至多 {@code limit} 个当前可用的元素，并按 FIFO 顺序依次传给给定的操作。
+     * 与反复调用 {@link #poll} 相比，此方法每批只发布一次消费者索引。
+     * 此方法只能由消费者线程调用。
+     *
+     * <p>如果操作抛出异常，该异常将被传递给调用者；已传递给操作的元素（包括引发异常的那个）
+     * 都已从队列中移除。
+     *
+     * @param action 要对每个元素执行的操作
+     * @param limit 要移除的最大元素数
+     * @return 移除的元素数
+     * @throws NullPointerException 如果操作为 null
+     */
+    public abstract int drain(Consumer<? super E> action, int limit);
+
+    /**
+     * 移除所有当前可用的元素，并按 FIFO 顺序依次传给给定的操作。
+     * 此方法只能由消费者线程调用。
+     *
+     * @param action 要对每个元素执行的操作
+     * @return 移除的元素数
+     * @throws NullPointerException 如果操作为 null
+     */
+    public int drain(Consumer<? super E> action) {
+        return drain(action, capacity);
+    }
+
+    // 等待
+
+    /**
+     * 第 k 轮等待：先忙等，再 yield，最后定时 park，park 时间逐轮加倍直到 MAX_PARK_NANOS，
+     * 且不超过 nanos。
+     */
+    final void idle(int k, long nanos) {
+        if (k < SPINS)
+            return;
+        if (k < YIELDS)
+            Thread.yield();
+        else {
+            int s = Math.min(k - YIELDS, 10);
+            long p = Math.min(MIN_PARK_NANOS << s, MAX_PARK_NANOS);
+            LockSupport.parkNanos(this, Math.min(p, nanos));
+        }
+    }
+
+    // BlockingQueue 方法
+
+    /**
+     * 将指定元素插入此队列的尾部，如果队列已满则等待空间可用。
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        for (int k = 0; !offer(e); ++k) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            idle(k, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * 将指定元素插入此队列的尾部，如果队列已满，则等待指定的等待时间以使空间可用。
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkNotNull(e);
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        for (int k = 0; !offer(e); ++k) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if ((nanos = deadline - System.nanoTime()) <= 0L)
+                return false;
+            idle(k, nanos);
+        }
+        return true;
+    }
+
+    /**
+     * 检索并移除此队列的头部，如果需要则等待元素可用。此方法只能由消费者线程调用。
+     *
+     * @throws InterruptedException {@inheritDoc}
+     */
+    public E take() throws InterruptedException {
+        E x;
+        for (int k = 0; (x = poll()) == null; ++k) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            idle(k, Long.MAX_VALUE);
+        }
+        return x;
+    }
+
+    /**
+     * 检索并移除此队列的头部，如果需要则等待指定的等待时间以使元素可用。
+     * 此方法只能由消费者线程调用。
+     *
+     * @throws InterruptedException {@inheritDoc}
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        E x;
+        for (int k = 0; (x = poll()) == null; ++k) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if ((nanos = deadline - System.nanoTime()) <= 0L)
+                return null;
+            idle(k, nanos);
+        }
+        return x;
+    }
+
+    /**
+     * 返回此队列理想情况下（在没有内存或资源限制的情况下）可以接受而不阻塞的附加元素数量。
+     * 这总是等于此队列的初始容量减去当前的 {@code size}。
+     */
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * 此方法只能由消费者线程调用。
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 此方法只能由消费者线程调用。
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        checkNotNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        return drain(c::add, maxElements);
+    }
+
+    // Collection 方法
+
+    /**
+     * 返回此队列中的元素数量。由于生产者和消费者可能并发运行，结果只是一个瞬时估计。
+     *
+     * @return 此队列中的元素数量
+     */
+    public int size() {
+        long after = consumerIndex;
+        for (;;) {
+            long before = after;
+            long p = producerIndex;
+            after = consumerIndex;
+            if (before == after) {
+                long n = p - after;
+                return (n <= 0L) ? 0 : (n >= capacity) ? capacity : (int)n;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return consumerIndex >= producerIndex;
+    }
+
+    /**
+     * 从此队列中移除指定元素的单个实例（如果存在）。此方法只能由消费者线程调用。
+     *
+     * <p>被移除元素之前的元素各向尾部移动一个槽位，然后像 {@code poll} 一样推进消费者索引，
+     * 因此耗时与该元素到队列头部的距离成正比，且不影响生产者。
+     *
+     * @param o 要从此队列中移除的元素（如果存在）
+     * @return 如果此队列因调用而发生更改，则返回 {@code true}
+     */
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        long i = indexOf(o, false);
+        if (i < 0L)
+            return false;
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * 返回 [consumerIndex, producerIndex) 中第一个与 o 相同（identity 为 true 时）或相等的元素的索引，
+     * 如果不存在则返回 -1。与 {@code poll} 一样，等待已认领但尚未发布的槽位。此方法只能由消费者线程调用。
+     */
+    final long indexOf(Object o, boolean identity) {
+        final long p = producerIndex;
+        for (long i = consumerIndex; i < p; ++i) {
+            Object x;
+            while ((x = slotAt(i)) == null) // 已认领，等待发布
+                ;
+            if (identity ? x == o : o.equals(x))
+                return i;
+        }
+        return -1L;
+    }
+
+    /**
+     * 移除索引 i 处的元素：将 [consumerIndex, i) 中的元素各向尾部移动一个槽位，
+     * 然后清空头部槽位并推进消费者索引。这些槽位都已发布，且在消费者索引越过它们之前生产者不会写入，
+     * 因此移动不需要与生产者同步。此方法只能由消费者线程调用。
+     */
+    final void removeAt(long i) {
+        final long c = consumerIndex;
+        for (long j = i; j > c; --j)
+            lazySetSlot(j, slotAt(j - 1));
+        lazySetSlot(c, null);
+        lazySetConsumerIndex(c + 1);
+    }
+
+    /**
+     * 返回此队列中元素的迭代器，按 FIFO 顺序。
+     *
+     * <p>返回的迭代器是 <a href="package-summary.html#Weakly"><i>弱一致的</i></a>。
+     * 它的 {@link Iterator#remove remove} 方法只能由消费者线程调用。
+     * 由于移除会移动其前面的元素，与移除并发的其他迭代器可能重复返回被移动的元素。
+     *
+     * @return 一个按正确顺序遍历此队列中元素的迭代器
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    /**
+     * 返回一个遍历此队列中元素的 {@link Spliterator}。
+     *
+     * <p>返回的 spliterator 是 <a href="package-summary.html#Weakly"><i>弱一致的</i></a>。
+     *
+     * <p>该 {@code Spliterator} 报告 {@link Spliterator#CONCURRENT}、
+     * {@link Spliterator#ORDERED} 和 {@link Spliterator#NONNULL}。
+     *
+     * @return 一个遍历此队列中元素的 {@code Spliterator}
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize
+            (iterator(), (Spliterator.ORDERED |
+                          Spliterator.NONNULL |
+                          Spliterator.CONCURRENT));
+    }
+
+    /**
+     * 弱一致迭代器。只读取消费者尚未越过的槽位：读到槽位 i 之后如果 consumerIndex 已经越过 i，
+     * 该槽位可能已被下一轮的元素覆盖，因此丢弃读到的值。
+     */
+    final class Itr implements Iterator<E> {
+        private long cursor;
+        private Object nextItem;
+        /** 上一次 next() 返回的元素，remove() 后为 null */
+        private Object lastItem;
+
+        Itr() {
+            cursor = consumerIndex;
+            advance();
+        }
+
+        private void advance() {
+            Object x = null;
+            while (x == null && cursor < producerIndex) {
+                long i = cursor++;
+                x = slotAt(i);
+                long c = consumerIndex;
+                if (c > i) {
+                    x = null;
+                    if (c > cursor)
+                        cursor = c;
+                }
+            }
+            nextItem = x;
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            Object x = nextItem;
+            if (x == null)
+                throw new NoSuchElementException();
+            lastItem = x;
+            advance();
+            return (E) x;
+        }
+
+        /**
+         * 移除上一次返回的元素（如果它仍在队列中）。此方法只能由消费者线程调用。
+         */
+        public void remove() {
+            Object x = lastItem;
+            if (x == null)
+                throw new IllegalStateException();
+            lastItem = null;
+            // 元素可能已被消费或被其他移除移动，因此按引用查找
+            long i = indexOf(x, true);
+            if (i >= 0L)
+                removeAt(i);
+        }
+    }
+
+    // Unsafe 机制
+    static final sun.misc.Unsafe UNSAFE;
+    private static final long PRODUCER_INDEX;
+    private static final long CONSUMER_INDEX;
+    private static final long ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = AbstractArrayQueue.class;
+            PRODUCER_INDEX = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("producerIndex"));
+            CONSUMER_INDEX = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("consumerIndex"));
+            Class<?> ak = Object[].class;
+            ABASE = UNSAFE.arrayBaseOffset(ak);
+            int scale = UNSAFE.arrayIndexScale(ak);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("数据类型比例不是2的幂");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
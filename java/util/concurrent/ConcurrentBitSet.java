@@ -0,0 +1,497 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.BitSet;
+
+/**
+ * 一个固定大小的、线程安全的位集合，其中的位可以原子地读取和更新。
+ *
+ * <p>与 {@link BitSet} 不同，此类的大小在构造时确定，不会自动增长；访问超出范围的位会抛出
+ * {@link IndexOutOfBoundsException}。位存储在一个 {@code long} 字数组中，
+ * 单个位的操作（{@link #set(int)}、{@link #clear(int)}、{@link #getAndSet(int)} 等）
+ * 是原子且无锁的，并具有 {@code volatile} 读写的内存语义。例如，多个线程并行遍历图时可以用
+ * {@code getAndSet} 原子地标记已访问的顶点，只有第一个标记的线程得到 {@code false}。
+ *
+ * <p>作用于多个位的操作（范围操作、{@link #and}、{@link #or}、{@link #andNot}、
+ * 扫描和计数）对每个字是原子的，但作为整体不是原子的：与之并发的更新可能被部分反映。
+ * 在没有并发更新时，它们的结果是准确的。
+ *
+ * @since 1.8
+ */
+public class ConcurrentBitSet implements java.io.Serializable {
+    private static final long serialVersionUID = 2634187316239802417L;
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD = 1 << ADDRESS_BITS_PER_WORD;
+    private static final long WORD_MASK = 0xffffffffffffffffL;
+
+    /** 并行计数时每个子任务处理的最少字数 */
+    private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+    /** 位的存储 */
+    private final long[] words;
+
+    /** 位的个数 */
+    private final int nbits;
+
+    /**
+     * 创建一个能容纳给定个数的位的位集合，所有位初始为 {@code false}。
+     *
+     * @param nbits 位的个数
+     * @throws NegativeArraySizeException 如果 {@code nbits} 为负数
+     */
+    public ConcurrentBitSet(int nbits) {
+        if (nbits < 0)
+            throw new NegativeArraySizeException("nbits < 0: " + nbits);
+        this.nbits = nbits;
+        this.words = new long[wordIndex(nbits - 1) + 1];
+    }
+
+    /**
+     * 创建一个与给定 {@link BitSet} 包含相同位的位集合，大小为 {@code nbits}。
+     *
+     * @param bits 要复制的位
+     * @param nbits 位的个数
+     * @throws NegativeArraySizeException 如果 {@code nbits} 为负数
+     * @throws IndexOutOfBoundsException 如果 {@code bits} 中有不小于 {@code nbits} 的位被设置
+     * @throws NullPointerException 如果 {@code bits} 为 null
+     */
+    public ConcurrentBitSet(BitSet bits, int nbits) {
+        this(nbits);
+        if (bits.length() > nbits)
+            throw new IndexOutOfBoundsException("length > nbits: " + bits.length());
+        long[] ws = bits.toLongArray();
+        // 通过最终字段保证可见性
+        System.arraycopy(ws, 0, words, 0, ws.length);
+    }
+
+    private static int wordIndex(int bitIndex) {
+        return bitIndex >> ADDRESS_BITS_PER_WORD;
+    }
+
+    private static long byteOffset(int wordIndex) {
+        return ((long) wordIndex << ASHIFT) + ABASE;
+    }
+
+    private long getWord(int wordIndex) {
+        return U.getLongVolatile(words, byteOffset(wordIndex));
+    }
+
+    private boolean casWord(int wordIndex, long cmp, long val) {
+        return U.compareAndSwapLong(words, byteOffset(wordIndex), cmp, val);
+    }
+
+    private void checkIndex(int bitIndex) {
+        if (bitIndex < 0 || bitIndex >= nbits)
+            throw new IndexOutOfBoundsException("bitIndex: " + bitIndex);
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > nbits || fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                ", toIndex: " + toIndex);
+    }
+
+    /**
+     * 返回此位集合中位的个数。
+     *
+     * @return 位的个数
+     */
+    public int size() {
+        return nbits;
+    }
+
+    /**
+     * 返回给定下标处的位的值。
+     *
+     * @param bitIndex 位的下标
+     * @return 位的值
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public boolean get(int bitIndex) {
+        checkIndex(bitIndex);
+        return (getWord(wordIndex(bitIndex)) & (1L << bitIndex)) != 0;
+    }
+
+    /**
+     * 将给定下标处的位设置为 {@code true}。
+     *
+     * @param bitIndex 位的下标
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public void set(int bitIndex) {
+        getAndSet(bitIndex);
+    }
+
+    /**
+     * 将给定下标处的位设置为给定的值。
+     *
+     * @param bitIndex 位的下标
+     * @param value 要设置的值
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            getAndSet(bitIndex);
+        else
+            getAndClear(bitIndex);
+    }
+
+    /**
+     * 原子地将给定下标处的位设置为 {@code true}，并返回之前的值。
+     *
+     * @param bitIndex 位的下标
+     * @return 之前的值
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public boolean getAndSet(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = wordIndex(bitIndex);
+        long mask = 1L << bitIndex;
+        long w;
+        do {
+            if (((w = getWord(i)) & mask) != 0)
+                return true;
+        } while (!casWord(i, w, w | mask));
+        return false;
+    }
+
+    /**
+     * 将给定下标处的位设置为 {@code false}。
+     *
+     * @param bitIndex 位的下标
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public void clear(int bitIndex) {
+        getAndClear(bitIndex);
+    }
+
+    /**
+     * 原子地将给定下标处的位设置为 {@code false}，并返回之前的值。
+     *
+     * @param bitIndex 位的下标
+     * @return 之前的值
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public boolean getAndClear(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = wordIndex(bitIndex);
+        long mask = 1L << bitIndex;
+        long w;
+        do {
+            if (((w = getWord(i)) & mask) == 0)
+                return false;
+        } while (!casWord(i, w, w & ~mask));
+        return true;
+    }
+
+    /**
+     * 原子地将给定下标处的位设置为其当前值的补码，并返回之前的值。
+     *
+     * @param bitIndex 位的下标
+     * @return 之前的值
+     * @throws IndexOutOfBoundsException 如果下标超出范围
+     */
+    public boolean getAndFlip(int bitIndex) {
+        checkIndex(bitIndex);
+        int i = wordIndex(bitIndex);
+        long mask = 1L << bitIndex;
+        long w;
+        do {} while (!casWord(i, w = getWord(i), w ^ mask));
+        return (w & mask) != 0;
+    }
+
+    /**
+     * 将从 {@code fromIndex}（包括）到 {@code toIndex}（不包括）的位设置为 {@code true}。
+     * 每个字的更新是原子的。
+     *
+     * @param fromIndex 第一个要设置的位的下标
+     * @param toIndex 最后一个要设置的位之后的下标
+     * @throws IndexOutOfBoundsException 如果范围无效
+     */
+    public void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        updateRange(fromIndex, toIndex, true);
+    }
+
+    /**
+     * 将从 {@code fromIndex}（包括）到 {@code toIndex}（不包括）的位设置为 {@code false}。
+     * 每个字的更新是原子的。
+     *
+     * @param fromIndex 第一个要清除的位的下标
+     * @param toIndex 最后一个要清除的位之后的下标
+     * @throws IndexOutOfBoundsException 如果范围无效
+     */
+    public void clear(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        updateRange(fromIndex, toIndex, false);
+    }
+
+    /**
+     * 将所有位设置为 {@code false}。每个字的更新是原子的。
+     */
+    public void clear() {
+        for (int i = 0; i < words.length; ++i)
+            U.putLongVolatile(words, byteOffset(i), 0L);
+    }
+
+    private void updateRange(int fromIndex, int toIndex, boolean value) {
+        if (fromIndex == toIndex)
+            return;
+        int startWord = wordIndex(fromIndex);
+        int endWord = wordIndex(toIndex - 1);
+        long firstMask = WORD_MASK << fromIndex;
+        long lastMask = WORD_MASK >>> -toIndex;
+        for (int i = startWord; i <= endWord; ++i) {
+            long mask = WORD_MASK;
+            if (i == startWord)
+                mask &= firstMask;
+            if (i == endWord)
+                mask &= lastMask;
+            long w, v;
+            do {
+                w = getWord(i);
+                v = value ? (w | mask) : (w & ~mask);
+            } while (w != v && !casWord(i, w, v));
+        }
+    }
+
+    /**
+     * 返回在 {@code fromIndex} 或之后第一个被设置为 {@code true} 的位的下标，
+     * 如果不存在则返回 -1。
+     *
+     * @param fromIndex 开始检查的下标（包括）
+     * @return 下一个被设置的位的下标，或 -1
+     * @throws IndexOutOfBoundsException 如果 {@code fromIndex} 为负数
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (fromIndex >= nbits)
+            return -1;
+        int i = wordIndex(fromIndex);
+        long w = getWord(i) & (WORD_MASK << fromIndex);
+        for (;;) {
+            if (w != 0) {
+                int r = (i * BITS_PER_WORD) + Long.numberOfTrailingZeros(w);
+                return (r < nbits) ? r : -1;
+            }
+            if (++i == words.length)
+                return -1;
+            w = getWord(i);
+        }
+    }
+
+    /**
+     * 返回在 {@code fromIndex} 或之后第一个被设置为 {@code false} 的位的下标，
+     * 如果不存在则返回 -1。
+     *
+     * @param fromIndex 开始检查的下标（包括）
+     * @return 下一个被清除的位的下标，或 -1
+     * @throws IndexOutOfBoundsException 如果 {@code fromIndex} 为负数
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (fromIndex >= nbits)
+            return -1;
+        int i = wordIndex(fromIndex);
+        long w = ~getWord(i) & (WORD_MASK << fromIndex);
+        for (;;) {
+            if (w != 0) {
+                int r = (i * BITS_PER_WORD) + Long.numberOfTrailingZeros(w);
+                return (r < nbits) ? r : -1;
+            }
+            if (++i == words.length)
+                return -1;
+            w = ~getWord(i);
+        }
+    }
+
+    /**
+     * 对此位集合和给定位集合执行逻辑与，结果保存在此位集合中。
+     * 每个字的更新是原子的。
+     *
+     * @param other 另一个位集合
+     * @throws IllegalArgumentException 如果两个位集合的大小不同
+     * @throws NullPointerException 如果 {@code other} 为 null
+     */
+    public void and(ConcurrentBitSet other) {
+        bulk(other, AND);
+    }
+
+    /**
+     * 对此位集合和给定位集合执行逻辑或，结果保存在此位集合中。
+     * 每个字的更新是原子的。
+     *
+     * @param other 另一个位集合
+     * @throws IllegalArgumentException 如果两个位集合的大小不同
+     * @throws NullPointerException 如果 {@code other} 为 null
+     */
+    public void or(ConcurrentBitSet other) {
+        bulk(other, OR);
+    }
+
+    /**
+     * 清除此位集合中所有在给定位集合中被设置的位。
+     * 每个字的更新是原子的。
+     *
+     * @param other 另一个位集合
+     * @throws IllegalArgumentException 如果两个位集合的大小不同
+     * @throws NullPointerException 如果 {@code other} 为 null
+     */
+    public void andNot(ConcurrentBitSet other) {
+        bulk(other, AND_NOT);
+    }
+
+    private static final int AND = 0, OR = 1, AND_NOT = 2;
+
+    private void bulk(ConcurrentBitSet other, int op) {
+        if (other.nbits != nbits)
+            throw new IllegalArgumentException("size mismatch");
+        for (int i = 0; i < words.length; ++i) {
+            long x = other.getWord(i), w, v;
+            do {
+                w = getWord(i);
+                v = (op == AND) ? (w & x) : (op == OR) ? (w | x) : (w & ~x);
+            } while (w != v && !casWord(i, w, v));
+        }
+    }
+
+    /**
+     * 如果没有位被设置为 {@code true}，则返回 {@code true}。
+     *
+     * @return 如果没有位被设置，则返回 {@code true}
+     */
+    public boolean isEmpty() {
+        for (int i = 0; i < words.length; ++i) {
+            if (getWord(i) != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 返回被设置为 {@code true} 的位的个数。
+     *
+     * @return 被设置的位的个数
+     */
+    public int cardinality() {
+        return (int) cardinality(0, words.length);
+    }
+
+    /**
+     * 返回被设置为 {@code true} 的位的个数，对于较大的位集合在
+     * {@link ForkJoinPool#commonPool()} 中并行计算。
+     *
+     * @return 被设置的位的个数
+     */
+    public int parallelCardinality() {
+        if (words.length <= PARALLEL_THRESHOLD ||
+            ForkJoinPool.getCommonPoolParallelism() <= 1)
+            return cardinality();
+        return (int) ForkJoinPool.commonPool().invoke
+            (new CardinalityTask(this, 0, words.length)).longValue();
+    }
+
+    private long cardinality(int from, int to) {
+        long sum = 0L;
+        for (int i = from; i < to; ++i)
+            sum += Long.bitCount(getWord(i));
+        return sum;
+    }
+
+    /**
+     * 对字的一个区间计数，区间较大时一分为二。
+     */
+    static final class CardinalityTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = -1529612098873152648L;
+        final ConcurrentBitSet set;
+        final int from, to;
+
+        CardinalityTask(ConcurrentBitSet set, int from, int to) {
+            this.set = set;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected Long compute() {
+            if (to - from <= PARALLEL_THRESHOLD)
+                return set.cardinality(from, to);
+            int mid = (from + to) >>> 1;
+            CardinalityTask right = new CardinalityTask(set, mid, to);
+            right.fork();
+            long left = new CardinalityTask(set, from, mid).compute();
+            return left + right.join();
+        }
+    }
+
+    /**
+     * 返回包含此位集合当前所有位的 {@link BitSet}。
+     *
+     * @return 当前位的副本
+     */
+    public BitSet toBitSet() {
+        long[] ws = new long[words.length];
+        for (int i = 0; i < ws.length; ++i)
+            ws[i] = getWord(i);
+        return BitSet.valueOf(ws);
+    }
+
+    /**
+     * 返回此位集合的字符串表示形式，格式与 {@link BitSet#toString} 相同。
+     *
+     * @return 此位集合的字符串表示形式
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append('{');
+        int i = nextSetBit(0);
+        if (i >= 0) {
+            b.append(i);
+            while ((i = nextSetBit(i + 1)) >= 0)
+                b.append(", ").append(i);
+        }
+        return b.append('}').toString();
+    }
+
+    // Unsafe 机制
+    private static final sun.misc.Unsafe U;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            U = sun.misc.Unsafe.getUnsafe();
+            ABASE = U.arrayBaseOffset(long[].class);
+            int scale = U.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("数据类型比例不是2的幂");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * 基于链接数组节点的无界线程安全 {@linkplain Queue 队列}。该队列按 FIFO（先进先出）顺序排列元素，
+ * 语义与 {@link ConcurrentLinkedQueue} 相同，但每个节点持有一段固定长度的槽位，而不是单个元素。
+ * 像大多数其他并发集合实现一样，此类不允许使用 {@code null} 元素。
+ *
+ * <p>入队和出队通过对节点内索引的 fetch-and-add 认领槽位，而不是对链接指针做 CAS，
+ * 因此在高并发下失败重试少得多；并且只有每填满一个节点才分配一次对象，
+ * 与 {@code ConcurrentLinkedQueue} 每个元素分配一个节点相比，分配量减少约两个数量级。
+ * 代价是即使队列中只有少量元素，也至少占用一个节点的内存。
+ *
+ * <p>迭代器是 <i>弱一致的</i>，返回反映在创建迭代器时或之后队列状态的元素。
+ * 它们 <em>不会</em> 抛出 {@link java.util.ConcurrentModificationException}，并且可以与
+ * 其他操作并发进行。自创建迭代器以来包含在队列中的元素将恰好返回一次。
+ *
+ * <p>请注意，与大多数集合不同，{@code size} 方法 <em>不是</em> 常量时间操作，
+ * 并且如果在遍历期间修改此集合，可能会报告不准确的结果。批量操作 <em>不是</em> 原子操作。
+ *
+ * <p>此类及其迭代器实现了 {@link Queue} 和 {@link Iterator} 接口中的所有 <em>可选</em> 方法。
+ *
+ * <p>内存一致性效果：与其他并发集合一样，一个线程在将对象放入
+ * {@code ConcurrentLinkedArrayQueue} 之前的操作
+ * <a href="package-summary.html#MemoryVisibility"><i>先于</i></a>
+ * 另一个线程从 {@code ConcurrentLinkedArrayQueue} 中访问或移除该元素的操作。
+ *
+ * <p>此类是
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a> 的成员。
+ *
+ * @since 1.8
+ * @param <E> 此集合中持有的元素类型
+ * @see ConcurrentLinkedQueue
+ */
+public class ConcurrentLinkedArrayQueue<E> extends AbstractQueue<E>
+        implements Queue<E>, java.io.Serializable {
+    private static final long serialVersionUID = -2538409377410846155L;
+
+    /*
+     * 这是一个基于 fetch-and-add 的链接数组队列。每个节点有 CHUNK 个槽位以及两个单调递增的索引：
+     * enqIdx（下一个要认领的入队槽位）和 deqIdx（下一个要认领的出队槽位）。
+     *
+     * 入队：在尾节点上 getAndIncrement(enqIdx) 得到槽位 i。如果 i < CHUNK，则 CAS 槽位 i 从 null 到元素；
+     * 成功即完成，失败说明某个出队者已经放弃了该槽位（见下），重试。如果 i >= CHUNK，节点已满，
+     * 则像 Michael & Scott 算法那样 CAS 链接一个新节点（新节点的第 0 个槽位预先放入元素），
+     * 并尝试推进 tail。
+     *
+     * 出队：在头节点上，如果 deqIdx >= enqIdx 且没有后继，则队列为空。否则 getAndIncrement(deqIdx)
+     * 得到槽位 i，并将其原子地交换为 TAKEN。如果换出的是元素，则返回它；如果换出的是 null，
+     * 说明入队者认领了该槽位但尚未写入，此时该槽位被作废（入队者的 CAS 将失败并重试），出队者重试。
+     * 如果 i >= CHUNK，头节点已耗尽，推进 head 到后继。
+     *
+     * 将槽位 CAS 为 TAKEN 可以原子地将其中的元素从队列中移除，因此 remove(Object) 和
+     * Iterator.remove 只需找到该槽位并 CAS 即可；迭代器跳过 null 和 TAKEN 槽位。
+     *
+     * 与本包中其他非阻塞算法一样，此实现依赖于垃圾回收，不存在 ABA 问题。索引在节点耗尽后
+     * 可能略微超过 CHUNK（每个线程每次重试至多超过一次），但永远不会回绕。
+     *
+     * enqIdx 和 deqIdx 由生产者和消费者分别竞争，因此通过 @sun.misc.Contended 放在不同的缓存行上。
+     */
+
+    /** 每个节点的槽位数 */
+    static final int CHUNK = 1 << 8;
+
+    /** 已被移除或作废的槽位的标记 */
+    static final Object TAKEN = new Object();
+
+    static final class Node {
+        final Object[] items;
+        @sun.misc.Contended("enq") volatile int enqIdx;
+        @sun.misc.Contended("deq") volatile int deqIdx;
+        volatile Node next;
+
+        /**
+         * 创建一个空节点。
+         */
+        Node() {
+            items = new Object[CHUNK];
+        }
+
+        /**
+         * 创建一个第 0 个槽位已放入给定元素的节点。使用普通写入，
+         * 由随后对 next 的 CAS 发布。
+         */
+        Node(Object item) {
+            items = new Object[CHUNK];
+            items[0] = item;
+            enqIdx = 1;
+        }
+
+        final Object itemAt(int i) {
+            return UNSAFE.getObjectVolatile(items, ((long)i << ASHIFT) + ABASE);
+        }
+
+        final boolean casItem(int i, Object cmp, Object val) {
+            return UNSAFE.compareAndSwapObject
+                (items, ((long)i << ASHIFT) + ABASE, cmp, val);
+        }
+
+        final Object takeItem(int i) {
+            return UNSAFE.getAndSetObject
+                (items, ((long)i << ASHIFT) + ABASE, TAKEN);
+        }
+
+        final int getAndIncrementEnqIdx() {
+            return UNSAFE.getAndAddInt(this, ENQIDX, 1);
+        }
+
+        final int getAndIncrementDeqIdx() {
+            return UNSAFE.getAndAddInt(this, DEQIDX, 1);
+        }
+
+        final boolean casNext(Node cmp, Node val) {
+            return UNSAFE.compareAndSwapObject(this, NEXT, cmp, val);
+        }
+
+        /** 返回已认领的入队槽位数，不超过 CHUNK */
+        final int limit() {
+            int n = enqIdx;
+            return (n < CHUNK) ? n : CHUNK;
+        }
+
+        // Unsafe 机制
+
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long ENQIDX;
+        private static final long DEQIDX;
+        private static final long NEXT;
+        private static final long ABASE;
+        private static final int ASHIFT;
+
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                Class<?> k = Node.class;
+                ENQIDX = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("enqIdx"));
+                DEQIDX = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("deqIdx"));
+                NEXT = UNSAFE.objectFieldOffset
+                    (k.getDeclaredField("next"));
+                Class<?> ak = Object[].class;
+                ABASE = UNSAFE.arrayBaseOffset(ak);
+                int scale = UNSAFE.arrayIndexScale(ak);
+                if ((scale & (scale - 1)) != 0)
+                    throw new Error("数据类型比例不是2的幂");
+                ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * 第一个可能仍有元素的节点。
+     */
+    private transient volatile Node head;
+
+    /**
+     * 最后一个节点或其附近的节点。
+     */
+    private transient volatile Node tail;
+
+    /**
+     * 创建一个最初为空的 {@code ConcurrentLinkedArrayQueue}。
+     */
+    public ConcurrentLinkedArrayQueue() {
+        head = tail = new Node();
+    }
+
+    /**
+     * 创建一个最初包含给定集合中元素的 {@code ConcurrentLinkedArrayQueue}，
+     * 按集合迭代器的遍历顺序添加。
+     *
+     * @param c 最初包含的元素集合
+     * @throws NullPointerException 如果指定的集合或其任何元素为 null
+     */
+    public ConcurrentLinkedArrayQueue(java.util.Collection<? extends E> c) {
+        this();
+        for (E e : c)
+            offer(e);
+    }
+
+    /**
+     * 将指定元素插入此队列的尾部。由于队列是无界的，此方法永远不会返回 {@code false}。
+     *
+     * @return {@code true}（如 {@link Queue#offer} 所指定）
+     * @throws NullPointerException 如果指定的元素为 null
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        for (;;) {
+            Node t = tail;
+            int i = t.getAndIncrementEnqIdx();
+            if (i < CHUNK) {
+                if (t.casItem(i, null, e))
+                    return true;
+            }
+            else if (t == tail) {
+                Node n = t.next;
+                if (n == null) {
+                    Node nn = new Node(e);
+                    if (t.casNext(null, nn)) {
+                        casTail(t, nn);
+                        return true;
+                    }
+                }
+                else
+                    casTail(t, n);
+            }
+        }
+    }
+
+    /**
+     * 将指定元素插入此队列的尾部。由于队列是无界的，此方法永远不会抛出
+     * {@link IllegalStateException} 或返回 {@code false}。
+     *
+     * @return {@code true}（如 {@link java.util.Collection#add} 所指定）
+     * @throws NullPointerException 如果指定的元素为 null
+     */
+    public boolean add(E e) {
+        return offer(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        for (;;) {
+            Node h = head;
+            if (h.deqIdx >= h.enqIdx && h.next == null)
+                return null;
+            int i = h.getAndIncrementDeqIdx();
+            if (i < CHUNK) {
+                Object x = h.takeItem(i);
+                if (x != null && x != TAKEN)
+                    return (E) x;
+            }
+            else {
+                Node n = h.next;
+                if (n == null)
+                    return null;
+                casHead(h, n);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        for (Node p = head; p != null; p = p.next) {
+            for (int i = p.deqIdx, n = p.limit(); i < n; ++i) {
+                Object x = p.itemAt(i);
+                if (x != null && x != TAKEN)
+                    return (E) x;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 如果此队列不包含任何元素，则返回 {@code true}。
+     *
+     * @return 如果此队列不包含任何元素，则返回 {@code true}
+     */
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * 返回此队列中的元素数量。如果此队列包含超过 {@code Integer.MAX_VALUE} 个元素，
+     * 则返回 {@code Integer.MAX_VALUE}。
+     *
+     * <p>请注意，与大多数集合不同，此方法 <em>不是</em> 常量时间操作。
+     *
+     * @return 此队列中的元素数量
+     */
+    public int size() {
+        long count = 0L;
+        for (Node p = head; p != null; p = p.next) {
+            for (int i = p.deqIdx, n = p.limit(); i < n; ++i) {
+                Object x = p.itemAt(i);
+                if (x != null && x != TAKEN)
+                    ++count;
+            }
+        }
+        return (count >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)count;
+    }
+
+    /**
+     * 如果此队列包含指定的元素，则返回 {@code true}。
+     *
+     * @param o 要检查是否包含在此队列中的对象
+     * @return 如果此队列包含指定的元素，则返回 {@code true}
+     */
+    public boolean contains(Object o) {
+        if (o == null) return false;
+        for (Node p = head; p != null; p = p.next) {
+            for (int i = p.deqIdx, n = p.limit(); i < n; ++i) {
+                Object x = p.itemAt(i);
+                if (x != null && x != TAKEN && o.equals(x))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 如果此队列中存在指定元素的一个实例，则将其移除。
+     *
+     * @param o 要从此队列中移除的元素（如果存在）
+     * @return 如果此队列因调用而改变，则返回 {@code true}
+     */
+    public boolean remove(Object o) {
+        if (o == null) return false;
+        for (Node p = head; p != null; p = p.next) {
+            for (int i = p.deqIdx, n = p.limit(); i < n; ++i) {
+                Object x = p.itemAt(i);
+                if (x != null && x != TAKEN && o.equals(x) &&
+                    p.casItem(i, x, TAKEN))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 返回此队列中元素的迭代器，按正确的顺序。
+     *
+     * <p>返回的迭代器是 <a href="package-summary.html#Weakly"><i>弱一致的</i></a>。
+     *
+     * @return 一个按正确顺序遍历此队列中元素的迭代器
+     */
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private class Itr implements Iterator<E> {
+        /** 下一个元素所在的节点和槽位 */
+        private Node nextNode;
+        private int nextIndex;
+
+        /** 下一个要返回的元素，在 hasNext 报告存在之后持有，以防其在此期间被移除 */
+        private Object nextItem;
+
+        /** 上一次返回的元素所在的节点和槽位，用于 remove */
+        private Node lastNode;
+        private int lastIndex;
+        private Object lastItem;
+
+        Itr() {
+            Node h = head;
+            nextNode = h;
+            nextIndex = h.deqIdx;
+            advance();
+        }
+
+        /**
+         * 从 (nextNode, nextIndex) 开始寻找下一个存在的元素。
+         */
+        private void advance() {
+            for (Node p = nextNode; p != null; ) {
+                int n = p.limit();
+                for (int i = Math.max(nextIndex, p.deqIdx); i < n; ++i) {
+                    Object x = p.itemAt(i);
+                    if (x != null && x != TAKEN) {
+                        nextNode = p;
+                        nextIndex = i + 1;
+                        nextItem = x;
+                        return;
+                    }
+                }
+                // 当前节点已扫描完，前进到后继
+                Node q = p.next;
+                if (q == null) {
+                    nextNode = p;
+                    nextIndex = n;
+                    break;
+                }
+                p = q;
+                nextIndex = 0;
+            }
+            nextItem = null;
+        }
+
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            Object x = nextItem;
+            if (x == null)
+                throw new NoSuchElementException();
+            lastNode = nextNode;
+            lastIndex = nextIndex - 1;
+            lastItem = x;
+            advance();
+            return (E) x;
+        }
+
+        public void remove() {
+            Node l = lastNode;
+            if (l == null)
+                throw new IllegalStateException();
+            l.casItem(lastIndex, lastItem, TAKEN);
+            lastNode = null;
+            lastItem = null;
+        }
+    }
+
+    /**
+     * 返回一个遍历此队列中元素的 {@link Spliterator}。
+     *
+     * <p>返回的 spliterator 是 <a href="package-summary.html#Weakly"><i>弱一致的</i></a>。
+     *
+     * <p>该 {@code Spliterator} 报告 {@link Spliterator#CONCURRENT}、
+     * {@link Spliterator#ORDERED} 和 {@link Spliterator#NONNULL}。
+     *
+     * @return 一个遍历此队列中元素的 {@code Spliterator}
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize
+            (iterator(), (Spliterator.ORDERED |
+                          Spliterator.NONNULL |
+                          Spliterator.CONCURRENT));
+    }
+
+    /**
+     * 将此队列保存到流中（即序列化它）。
+     *
+     * @param s 流
+     * @throws java.io.IOException 如果发生 I/O 错误
+     * @serialData 按正确顺序排列的所有元素（每个都是 {@code Object}），后跟一个 null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+
+        // 写出任何隐藏的内容
+        s.defaultWriteObject();
+
+        // 按正确顺序写出所有元素。
+        for (E e : this)
+            s.writeObject(e);
+
+        // 使用尾部的 null 作为哨兵
+        s.writeObject(null);
+    }
+
+    /**
+     * 从流中重新构建此队列（即反序列化它）。
+     * @param s 流
+     * @throws ClassNotFoundException 如果无法找到序列化对象的类
+     * @throws java.io.IOException 如果发生 I/O 错误
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        head = tail = new Node();
+        Object item;
+        while ((item = s.readObject()) != null) {
+            @SuppressWarnings("unchecked")
+            E e = (E) item;
+            offer(e);
+        }
+    }
+
+    /**
+     * 如果参数为 null，则抛出 NullPointerException。
+     *
+     * @param v 元素
+     */
+    private static void checkNotNull(Object v) {
+        if (v == null)
+            throw new NullPointerException();
+    }
+
+    private boolean casTail(Node cmp, Node val) {
+        return UNSAFE.compareAndSwapObject(this, tailOffset, cmp, val);
+    }
+
+    private boolean casHead(Node cmp, Node val) {
+        return UNSAFE.compareAndSwapObject(this, headOffset, cmp, val);
+    }
+
+    // Unsafe 机制
+
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long headOffset;
+    private static final long tailOffset;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = ConcurrentLinkedArrayQueue.class;
+            headOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("head"));
+            tailOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("tail"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -59,6 +59,11 @@ import sun.misc.SharedSecrets;
  *
  * <p>通常情况下，这种方法成本过高，但在遍历操作远多于修改操作时，可能比其他替代方案更高效。当您无法或不想同步遍历，但需要防止并发线程之间的干扰时，这种类非常有用。"快照"风格的迭代器方法使用在迭代器创建时对数组状态的引用。此数组在迭代器的生命周期内不会改变，因此不可能发生干扰，迭代器保证不会抛出 {@code ConcurrentModificationException}。迭代器不会反映自迭代器创建以来对列表的添加、删除或更改。迭代器本身上的元素更改操作（如 {@code remove}、{@code set} 和 {@code add}）不受支持。这些方法会抛出 {@code UnsupportedOperationException}。
  *
+ * <p>需要连续进行多次修改时，可以使用 {@link #mutate} 在一个副本上完成所有修改并只发布一次，
+ * 而不是为每次修改复制一次数组。对于许多线程同时写入的突发情况，可以通过
+ * {@link #setWriteCoalescing} 启用写合并模式，此时并发的 {@code add}、{@code addIfAbsent}
+ * 和 {@code remove(Object)} 调用会被合并到同一个副本中。
+ *
  * <p>所有元素都是允许的，包括 {@code null}。
  *
  * <p>内存一致性效果：与其他并发集合一样，将对象放入 {@code CopyOnWriteArrayList} 的操作 <a href="package-summary.html#MemoryVisibility"><i>先于</i></a> 在另一个线程中访问或移除此元素的操作。
@@ -81,6 +86,12 @@ public class CopyOnWriteArrayList<E>
     /** 仅通过 getArray/setArray 访问的数组。 */
     private transient volatile Object[] array;
 
+    /** 是否将并发的写操作合并到同一个副本中。 */
+    private transient volatile boolean coalesceWrites;
+
+    /** 等待被合并的写操作的栈（后进先出），在持有锁时整体取出。 */
+    private transient volatile PendingWrite pending;
+
     /**
      * 获取数组。非私有以便 CopyOnWriteArraySet 类也可以访问。
      */
@@ -271,6 +282,7 @@ public class CopyOnWriteArrayList<E>
             CopyOnWriteArrayList<E> clone =
                 (CopyOnWriteArrayList<E>) super.clone();
             clone.resetLock();
+            clone.pending = null;
             return clone;
         } catch (CloneNotSupportedException e) {
             // 这不应该发生，因为我们实现了 Cloneable
@@ -376,6 +388,8 @@ public class CopyOnWriteArrayList<E>
      * @return {@code true}（如 {@link Collection#add} 所指定）
      */
     public boolean add(E e) {
+        if (coalesceWrites)
+            return coalescedWrite(PendingWrite.ADD, e);
         final ReentrantLock lock = this.lock;
         lock.lock();
         try {
@@ -461,7 +475,9 @@ public class CopyOnWriteArrayList<E>
     public boolean remove(Object o) {
         Object[] snapshot = getArray();
         int index = indexOf(o, snapshot, 0, snapshot.length);
-        return (index < 0) ? false : remove(o, snapshot, index);
+        return (index < 0) ? false :
+            coalesceWrites ? coalescedWrite(PendingWrite.REMOVE, o) :
+            remove(o, snapshot, index);
     }
 
     /**
@@ -545,6 +561,7 @@ public class CopyOnWriteArrayList<E>
     public boolean addIfAbsent(E e) {
         Object[] snapshot = getArray();
         return indexOf(e, snapshot, 0, snapshot.length) >= 0 ? false :
+            coalesceWrites ? coalescedWrite(PendingWrite.ADD_IF_ABSENT, e) :
             addIfAbsent(e, snapshot);
     }
 
@@ -865,6 +882,139 @@ public class CopyOnWriteArrayList<E>
         }
     }
 
+    /**
+     * 在持有锁的情况下，对此列表当前内容的一个可变副本执行给定的操作，然后将结果作为新的内容一次性发布。
+     * 无论操作进行了多少次修改，都只复制和发布一次数组；在操作返回之前，其他线程的读取和迭代
+     * 只能看到修改之前的内容。如果操作抛出异常，则不发布任何修改，异常被传递给调用者。
+     *
+     * <p>传给操作的列表只在操作执行期间有效，不应保留其引用。操作不应访问此列表本身，
+     * 因为在此期间对此列表的直接修改将被覆盖。
+     *
+     * @param action 对列表副本执行的操作
+     * @throws NullPointerException 如果操作为 null
+     * @since 1.8
+     */
+    public void mutate(Consumer<? super List<E>> action) {
+        if (action == null) throw new NullPointerException();
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            @SuppressWarnings("unchecked") E[] elements = (E[]) getArray();
+            ArrayList<E> working = new ArrayList<E>(Arrays.asList(elements));
+            action.accept(working);
+            setArray(working.toArray());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 启用或禁用写合并模式。启用后，{@link #add(Object) add}、{@link #addIfAbsent addIfAbsent}
+     * 和 {@link #remove(Object) remove(Object)} 不再各自复制数组：每个写线程先登记它的操作，
+     * 然后获取锁；获得锁的线程把所有已登记的操作按登记顺序应用到同一个副本上并一次性发布，
+     * 其他操作已被完成的线程获得锁后直接返回结果。
+     *
+     * <p>在许多线程同时写入时，这将 n 次复制减少为大约每次持有锁一次复制；
+     * 在没有写争用时，每次写入多出一次小对象分配和一次 CAS。读取和迭代的快照语义不变。
+     * 此设置不会被序列化。
+     *
+     * @param enable 是否启用写合并
+     * @since 1.8
+     */
+    public void setWriteCoalescing(boolean enable) {
+        coalesceWrites = enable;
+    }
+
+    /**
+     * 如果启用了写合并模式，则返回 {@code true}。
+     *
+     * @return 如果启用了写合并模式，则返回 {@code true}
+     * @since 1.8
+     */
+    public boolean isWriteCoalescing() {
+        return coalesceWrites;
+    }
+
+    /**
+     * 写合并模式下一个已登记的写操作。result 和 done 只在持有锁时访问。
+     */
+    static final class PendingWrite {
+        static final int ADD = 0, ADD_IF_ABSENT = 1, REMOVE = 2;
+        final int op;
+        final Object item;
+        PendingWrite next;
+        boolean result;
+        boolean done;
+
+        PendingWrite(int op, Object item) {
+            this.op = op;
+            this.item = item;
+        }
+    }
+
+    /**
+     * 登记一个写操作，然后获取锁，如果该操作尚未被其他线程完成，则合并所有已登记的操作。
+     */
+    private boolean coalescedWrite(int op, Object item) {
+        PendingWrite w = new PendingWrite(op, item), h;
+        do {
+            w.next = h = pending;
+        } while (!UNSAFE.compareAndSwapObject(this, pendingOffset, h, w));
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            if (!w.done)
+                combinePendingWrites();
+            return w.result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出所有已登记的写操作，按登记顺序应用到一个副本上并发布。调用者必须持有锁。
+     */
+    private void combinePendingWrites() {
+        PendingWrite h = (PendingWrite)
+            UNSAFE.getAndSetObject(this, pendingOffset, null);
+        PendingWrite r = null;
+        int n = 0;
+        while (h != null) {                     // 反转为登记顺序
+            PendingWrite next = h.next;
+            h.next = r;
+            r = h;
+            h = next;
+            ++n;
+        }
+        Object[] elements = getArray();
+        int len = elements.length;
+        Object[] es = Arrays.copyOf(elements, len + n);
+        int size = len;
+        boolean changed = false;
+        for (PendingWrite p = r; p != null; p = p.next) {
+            Object x = p.item;
+            boolean result;
+            if (p.op == PendingWrite.ADD) {
+                es[size++] = x;
+                result = true;
+            } else if (p.op == PendingWrite.ADD_IF_ABSENT) {
+                if (result = (indexOf(x, es, 0, size) < 0))
+                    es[size++] = x;
+            } else {
+                int i = indexOf(x, es, 0, size);
+                if (result = (i >= 0)) {
+                    System.arraycopy(es, i + 1, es, i, size - i - 1);
+                    es[--size] = null;
+                }
+            }
+            changed |= result;
+            p.result = result;
+            p.done = true;
+        }
+        if (changed)
+            setArray((size == es.length) ? es : Arrays.copyOf(es, size));
+    }
+
     /**
      * 将此列表保存到流中（即序列化它）。
      *
@@ -1542,12 +1692,15 @@ public class CopyOnWriteArrayList<E>
     }
     private static final sun.misc.Unsafe UNSAFE;
     private static final long lockOffset;
+    private static final long pendingOffset;
     static {
         try {
             UNSAFE = sun.misc.Unsafe.getUnsafe();
             Class<?> k = CopyOnWriteArrayList.class;
             lockOffset = UNSAFE.objectFieldOffset
                 (k.getDeclaredField("lock"));
+            pendingOffset = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("pending"));
         } catch (Exception e) {
             throw new Error(e);
         }
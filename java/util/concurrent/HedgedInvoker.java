@@ -0,0 +1,339 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongHistogram;
+
+/**
+ * 以<em>对冲</em>方式执行任务的调用器，用于降低尾部延迟。
+ *
+ * <p>{@link #invokeAny invokeAny} 首先在给定的 {@link Executor} 中启动第一个任务（主任务）；
+ * 如果在<em>对冲延迟</em>之后仍没有任务成功完成，则启动下一个任务，依此类推，
+ * 直到某个任务成功完成、所有任务都已启动，或者同时运行的任务数达到上限。
+ * 如果某个任务失败，则不等待对冲延迟，立即启动下一个任务。返回的
+ * {@link CompletableFuture} 以第一个成功完成的任务的结果完成，其余任务随即被取消
+ * （如果正在运行则被中断）；如果所有任务都失败，则以最后一个失败的异常异常完成。
+ * 取消返回的 {@code CompletableFuture} 同样会取消所有任务。
+ * {@link #invoke invoke} 对单个任务做同样的事情，即最多重复执行该任务若干次。
+ *
+ * <p>对冲延迟可以是固定的，也可以是自适应的：使用
+ * {@link #HedgedInvoker(Executor, double, long, TimeUnit, int)} 创建的调用器记录成功任务的延迟，
+ * 并使用最近一批样本的给定百分位（例如第 95 百分位）作为对冲延迟，
+ * 因此只有明显慢于通常情况的请求才会被对冲。
+ *
+ * <p>与 {@link AbstractExecutorService#invokeAny(Collection)} 不同，此类的方法不阻塞调用者。
+ * 对冲任务只应用于幂等的操作，因为同一请求可能被执行多次。
+ *
+ * <p>例如，向两个副本发送读取请求，第二个请求只在第一个慢于第 99 百分位时发出：
+ *  <pre> {@code
+ * HedgedInvoker hedger = new HedgedInvoker(executor, 99.0, 10, TimeUnit.MILLISECONDS, 2);
+ * CompletableFuture<Value> v = hedger.invokeAny(Arrays.asList(
+ *     () -> replica1.read(key), () -> replica2.read(key)));}</pre>
+ *
+ * @since 1.8
+ */
+public class HedgedInvoker {
+
+    /** 自适应延迟每次重新计算所用的样本数 */
+    private static final int SAMPLE_WINDOW = 1 << 10;
+
+    private final Executor executor;
+    private final int maxConcurrency;
+
+    /** 自适应延迟所用的百分位；固定延迟时为 NaN */
+    private final double percentile;
+
+    /** 最近一个窗口内成功任务的延迟；固定延迟时为 null */
+    private final LongHistogram latencies;
+
+    /** 当前窗口内已记录的样本数 */
+    private final AtomicInteger samples;
+
+    /** 当前的对冲延迟（纳秒） */
+    private volatile long hedgeDelayNanos;
+
+    /**
+     * 创建一个使用固定对冲延迟的调用器。
+     *
+     * @param executor 执行任务的执行器
+     * @param hedgeDelay 启动下一个任务之前等待的时间
+     * @param unit {@code hedgeDelay} 参数的时间单位
+     * @param maxConcurrency 同时运行的任务数的上限
+     * @throws NullPointerException 如果 {@code executor} 或 {@code unit} 为 null
+     * @throws IllegalArgumentException 如果 {@code hedgeDelay} 为负数，
+     *         或 {@code maxConcurrency} 小于 1
+     */
+    public HedgedInvoker(Executor executor, long hedgeDelay, TimeUnit unit,
+                         int maxConcurrency) {
+        this(executor, Double.NaN, hedgeDelay, unit, maxConcurrency, false);
+    }
+
+    /**
+     * 创建一个使用自适应对冲延迟的调用器。对冲延迟取最近一批成功任务的延迟的给定百分位；
+     * 在收集到足够的样本之前使用 {@code initialDelay}。
+     *
+     * @param executor 执行任务的执行器
+     * @param percentile 用作对冲延迟的延迟百分位，范围为 0.0 到 100.0
+     * @param initialDelay 收集到足够样本之前的对冲延迟
+     * @param unit {@code initialDelay} 参数的时间单位
+     * @param maxConcurrency 同时运行的任务数的上限
+     * @throws NullPointerException 如果 {@code executor} 或 {@code unit} 为 null
+     * @throws IllegalArgumentException 如果 {@code percentile} 超出范围，
+     *         {@code initialDelay} 为负数，或 {@code maxConcurrency} 小于 1
+     */
+    public HedgedInvoker(Executor executor, double percentile,
+                         long initialDelay, TimeUnit unit, int maxConcurrency) {
+        this(executor, percentile, initialDelay, unit, maxConcurrency, true);
+        if (!(percentile >= 0.0 && percentile <= 100.0))
+            throw new IllegalArgumentException();
+    }
+
+    private HedgedInvoker(Executor executor, double percentile,
+                          long delay, TimeUnit unit, int maxConcurrency,
+                          boolean adaptive) {
+        if (executor == null || unit == null)
+            throw new NullPointerException();
+        if (delay < 0L || maxConcurrency < 1)
+            throw new IllegalArgumentException();
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.percentile = percentile;
+        this.latencies = adaptive ? new LongHistogram() : null;
+        this.samples = adaptive ? new AtomicInteger() : null;
+        this.hedgeDelayNanos = unit.toNanos(delay);
+    }
+
+    /**
+     * 返回当前的对冲延迟。
+     *
+     * @param unit 返回值的时间单位
+     * @return 当前的对冲延迟
+     */
+    public long getHedgeDelay(TimeUnit unit) {
+        return unit.convert(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 以对冲方式执行给定的任务，返回以第一个成功完成的任务的结果完成的
+     * {@code CompletableFuture}。任务按迭代顺序启动。
+     *
+     * @param tasks 任务的集合
+     * @param <T> 任务返回的值的类型
+     * @return 以第一个成功结果完成的 {@code CompletableFuture}
+     * @throws NullPointerException 如果 {@code tasks} 或其中任何元素为 null
+     * @throws IllegalArgumentException 如果 {@code tasks} 为空
+     */
+    public <T> CompletableFuture<T> invokeAny(Collection<? extends Callable<T>> tasks) {
+        ArrayList<Callable<T>> ts = new ArrayList<Callable<T>>(tasks);
+        if (ts.isEmpty())
+            throw new IllegalArgumentException();
+        for (Callable<T> t : ts) {
+            if (t == null)
+                throw new NullPointerException();
+        }
+        Run<T> run = new Run<T>(ts.iterator(), ts.size());
+        run.start();
+        return run.result;
+    }
+
+    /**
+     * 以对冲方式执行给定的任务：首先执行一次，此后每经过一个对冲延迟仍未成功，
+     * 或者每次失败时，再执行一次，总共最多执行 {@code maxConcurrency} 次。
+     *
+     * @param task 任务
+     * @param <T> 任务返回的值的类型
+     * @return 以第一个成功结果完成的 {@code CompletableFuture}
+     * @throws NullPointerException 如果 {@code task} 为 null
+     */
+    public <T> CompletableFuture<T> invoke(Callable<T> task) {
+        if (task == null)
+            throw new NullPointerException();
+        Run<T> run = new Run<T>(Collections.nCopies(maxConcurrency, task).iterator(),
+                                maxConcurrency);
+        run.start();
+        return run.result;
+    }
+
+    /**
+     * 记录一个成功任务的延迟，并在每个窗口结束时更新自适应对冲延迟。
+     */
+    private void recordLatency(long nanos) {
+        LongHistogram h = latencies;
+        if (h == null)
+            return;
+        h.record(Math.max(nanos, 0L));
+        if (samples.incrementAndGet() >= SAMPLE_WINDOW) {
+            samples.set(0);
+            LongHistogram.Snapshot s = h.snapshotThenReset();
+            if (s.getCount() > 0L)
+                hedgeDelayNanos = s.getValueAtPercentile(percentile);
+        }
+    }
+
+    /**
+     * 一次调用的状态。所有可变字段都在持有 this 的锁时访问。
+     */
+    final class Run<T> {
+        final CompletableFuture<T> result = new CompletableFuture<T>();
+        final Iterator<Callable<T>> tasks;
+        final ArrayList<Attempt> attempts;
+        int remaining;
+        int active;
+        ScheduledFuture<?> timer;
+
+        Run(Iterator<Callable<T>> tasks, int n) {
+            this.tasks = tasks;
+            this.remaining = n;
+            this.attempts = new ArrayList<Attempt>(Math.min(n, maxConcurrency));
+            result.whenComplete((r, x) -> cancelAll());
+        }
+
+        void start() {
+            launch();
+        }
+
+        /**
+         * 如果结果尚未完成、还有任务且未达到并发上限，则启动下一个任务，
+         * 并安排在对冲延迟之后再次尝试。
+         */
+        void launch() {
+            Attempt a;
+            synchronized (this) {
+                if (timer != null) {
+                    timer.cancel(false);
+                    timer = null;
+                }
+                if (result.isDone() || remaining == 0 || active >= maxConcurrency)
+                    return;
+                a = new Attempt(tasks.next());
+                --remaining;
+                ++active;
+                attempts.add(a);
+                if (remaining > 0)
+                    timer = Delayer.delay(this::launch, hedgeDelayNanos);
+            }
+            try {
+                executor.execute(a);
+            } catch (Throwable ex) {
+                a.setException(ex);
+            }
+        }
+
+        /**
+         * 一个任务完成时调用。
+         */
+        void attemptDone(Attempt a) {
+            if (a.isCancelled()) {
+                synchronized (this) {
+                    --active;
+                }
+                return;
+            }
+            T v;
+            try {
+                v = a.get();
+            } catch (ExecutionException ex) {
+                attemptFailed(ex.getCause());
+                return;
+            } catch (Throwable ex) {
+                attemptFailed(ex);
+                return;
+            }
+            recordLatency(System.nanoTime() - a.startNanos);
+            result.complete(v);
+        }
+
+        private void attemptFailed(Throwable ex) {
+            boolean exhausted;
+            synchronized (this) {
+                --active;
+                exhausted = (remaining == 0 && active == 0);
+            }
+            if (exhausted)
+                result.completeExceptionally(ex);
+            else
+                launch();
+        }
+
+        void cancelAll() {
+            ArrayList<Attempt> as;
+            synchronized (this) {
+                if (timer != null) {
+                    timer.cancel(false);
+                    timer = null;
+                }
+                remaining = 0;
+                as = new ArrayList<Attempt>(attempts);
+            }
+            for (Attempt a : as)
+                a.cancel(true);
+        }
+
+        /**
+         * 一次任务执行。完成时通知所属的 Run。
+         */
+        final class Attempt extends FutureTask<T> {
+            final long startNanos = System.nanoTime();
+
+            Attempt(Callable<T> task) {
+                super(task);
+            }
+
+            protected void done() {
+                attemptDone(this);
+            }
+        }
+    }
+
+    /**
+     * 用于触发对冲的单个守护线程的调度器。
+     */
+    static final class Delayer {
+        static ScheduledFuture<?> delay(Runnable command, long nanos) {
+            return delayer.schedule(command, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        static final class DaemonThreadFactory implements ThreadFactory {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("HedgedInvokerDelayScheduler");
+                return t;
+            }
+        }
+
+        static final ScheduledThreadPoolExecutor delayer;
+        static {
+            (delayer = new ScheduledThreadPoolExecutor(
+                1, new DaemonThreadFactory())).
+                setRemoveOnCancelPolicy(true);
+        }
+    }
+}
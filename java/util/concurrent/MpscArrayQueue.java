@@ -0,0 +1,167 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+import java.util.function.Consumer;
+
+/**
+ * 一个由数组支持的有界无锁<em>多生产者单消费者</em>（MPSC）队列。此队列按 FIFO（先进先出）顺序排列元素。
+ * 任意数量的线程可以并发地执行插入操作，但同一时刻最多只能有一个线程执行移除操作（{@code poll}、
+ * {@code take}、{@code peek}、{@code drain}、{@code drainTo}、{@code clear}）。违反此约定的行为是未定义的。
+ *
+ * <p>生产者通过对生产者索引的一次 CAS 认领槽位，然后以有序写发布元素；消费者不需要任何原子读-改-写操作。
+ * 入队和出队都不分配对象。生产者索引、生产者可用上限和消费者索引分别位于不同的缓存行上。
+ *
+ * <p>由于生产者先认领槽位、后写入元素，消费者可能观察到某个槽位已被认领但元素尚不可见；
+ * 此时 {@code poll} 和 {@code peek} 会短暂自旋直到该元素可见，而不会越过它返回后面的元素。
+ *
+ * <p>阻塞方法（{@code put}、{@code take} 以及带超时的 {@code offer}/{@code poll}）先自旋，
+ * 然后 yield，最后以逐步加长的定时 park 等待，不会给非阻塞操作增加任何开销。
+ *
+ * <p>{@link #drain(Consumer, int)} 方法以批量方式消费元素，每批只发布一次消费者索引。
+ *
+ * <p>此类的迭代器是弱一致的。{@link #remove(Object)} 和迭代器的 {@code remove} 只能由消费者线程调用，
+ * 耗时与被移除元素到队列头部的距离成正比。
+ *
+ * @since 1.8
+ * @param <E> 此集合中持有的元素类型
+ * @see SpscArrayQueue
+ */
+public class MpscArrayQueue<E> extends AbstractArrayQueue<E> {
+
+    /**
+     * 生产者索引的上限缓存：小于该值的索引一定有空闲槽位。只有在生产者索引追上它时才重新读取
+     * consumerIndex，从而避免每次 offer 都读取消费者的缓存行。
+     */
+    @sun.misc.Contended("limit") volatile long producerLimit;
+
+    /**
+     * 创建具有给定（固定）容量的 {@code MpscArrayQueue}。
+     *
+     * @param capacity 此队列的容量
+     * @throws IllegalArgumentException 如果 {@code capacity < 1} 或超过 {@code 1 << 30}
+     */
+    public MpscArrayQueue(int capacity) {
+        super(capacity);
+        producerLimit = capacity;
+    }
+
+    /**
+     * 如果可以立即插入而不超出队列容量，则将指定元素插入此队列的尾部，成功时返回 {@code true}，
+     * 如果队列已满则返回 {@code false}。此方法可以由任意线程并发调用。
+     *
+     * @throws NullPointerException 如果指定的元素为 null
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        long limit = producerLimit;
+        long p;
+        do {
+            p = producerIndex;
+            if (p >= limit) {
+                limit = consumerIndex + capacity;
+                if (p >= limit)
+                    return false;
+                UNSAFE.putOrderedLong(this, PRODUCER_LIMIT, limit);
+            }
+        } while (!casProducerIndex(p, p + 1));
+        lazySetSlot(p, e);
+        return true;
+    }
+
+    /**
+     * 此方法只能由消费者线程调用。
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long c = consumerIndex;
+        Object x = slotAt(c);
+        if (x == null) {
+            if (c == producerIndex)
+                return null;
+            while ((x = slotAt(c)) == null) // 已认领，等待发布
+                ;
+        }
+        lazySetSlot(c, null);
+        lazySetConsumerIndex(c + 1);
+        return (E) x;
+    }
+
+    /**
+     * 此方法只能由消费者线程调用。
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long c = consumerIndex;
+        Object x = slotAt(c);
+        if (x == null) {
+            if (c == producerIndex)
+                return null;
+            while ((x = slotAt(c)) == null)
+                ;
+        }
+        return (E) x;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>遇到已认领但尚未发布的槽位时，批次在该处结束，而不等待。
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> action, int limit) {
+        checkNotNull(action);
+        final long c = consumerIndex;
+        long k = c;
+        try {
+            for (Object x; k - c < limit && (x = slotAt(k)) != null; ) {
+                lazySetSlot(k++, null);
+                action.accept((E) x);
+            }
+        } finally {
+            if (k != c)
+                lazySetConsumerIndex(k);
+        }
+        return (int)(k - c);
+    }
+
+    /**
+     * 移除此队列中的所有元素。此方法只能由消费者线程调用。
+     */
+    public void clear() {
+        while (poll() != null)
+            ;
+    }
+
+    // Unsafe 机制
+    private static final long PRODUCER_LIMIT;
+    static {
+        try {
+            PRODUCER_LIMIT = UNSAFE.objectFieldOffset
+                (MpscArrayQueue.class.getDeclaredField("producerLimit"));
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于令牌桶的速率限制器。速率限制器以配置的速率（每秒许可数）发放许可，
+ * 每次 {@link #acquire} 在必要时阻塞，直到许可可用。与 {@link Semaphore}
+ * 不同，许可一旦获取就不需要释放；速率限制器限制的是发放许可的速率，
+ * 而不是同时持有许可的数量。
+ *
+ * <p>速率限制器不使用后台线程补充令牌。令牌桶的状态（已存储的许可数，
+ * 以及下一个许可可用的时刻）在每次获取时根据 {@link System#nanoTime}
+ * 的差值计算。在许可发放速度低于配置速率的空闲期间，未使用的许可被存储起来，
+ * 最多存储<em>突发容量</em>个，之后的请求可以立即使用它们。
+ *
+ * <p>使用 {@link #create(double, long, TimeUnit)} 创建的速率限制器带有<em>预热期</em>：
+ * 在长时间空闲之后，许可的发放速率从配置速率的三分之一开始，
+ * 在预热期内逐渐提高到配置速率。这适用于需要预热（例如建立连接或填充缓存）的资源。
+ *
+ * <p>获取许可的代价由<em>后续</em>请求承担：一个请求即使需要很多许可，
+ * 如果速率限制器此前空闲，也会立即获准，而下一个请求会相应地等待更长时间。
+ * 因此请求的许可数只影响后续请求的节流，而不影响本次请求。
+ *
+ * <p>等待的线程按到达顺序排队：每个线程在一个公平的
+ * {@link AbstractQueuedSynchronizer} 上短暂地独占令牌桶，预约它的许可并得到可用时刻，
+ * 然后在释放令牌桶之后休眠到该时刻。由于预约的时刻随到达顺序单调递增，
+ * 多个等待者按先进先出的顺序获得许可，并且休眠期间不会阻止其他线程预约。
+ *
+ * <p>例如，将提交任务的速率限制为每秒不超过两个：
+ *  <pre> {@code
+ * final RateLimiter rateLimiter = RateLimiter.create(2.0);
+ * void submitTasks(List<Runnable> tasks, Executor executor)
+ *     throws InterruptedException {
+ *   for (Runnable task : tasks) {
+ *     rateLimiter.acquire();
+ *     executor.execute(task);
+ *   }
+ * }}</pre>
+ *
+ * @since 1.8
+ */
+public class RateLimiter {
+
+    /** 冷启动时的发放间隔与稳定间隔之比 */
+    private static final double COLD_FACTOR = 3.0;
+
+    /** 所有排队机制通过这个公平互斥量实现 */
+    private final Sync sync = new Sync();
+
+    /**
+     * 保护令牌桶状态的公平互斥量。状态 0 表示未锁定，1 表示锁定。
+     * 与持有时间相比，排队的代价很小，因此不需要区分公平和非公平版本。
+     */
+    static final class Sync extends AbstractQueuedSynchronizer {
+        private static final long serialVersionUID = -7425126342283720851L;
+
+        protected boolean tryAcquire(int ignore) {
+            return getState() == 0 && !hasQueuedPredecessors() &&
+                compareAndSetState(0, 1);
+        }
+
+        protected boolean tryRelease(int ignore) {
+            setState(0);
+            return true;
+        }
+    }
+
+    /*
+     * 以下字段只在持有 sync 时访问，sync 状态的 volatile 读写提供了可见性。
+     */
+
+    /** 预热期（纳秒）；0 表示没有预热期 */
+    private final long warmupPeriodNanos;
+
+    /** 没有预热期时，以秒计的突发容量 */
+    private final double maxBurstSeconds;
+
+    /** 稳定状态下两个许可之间的间隔（纳秒） */
+    private double stableIntervalNanos;
+
+    /** 令牌桶中最多存储的许可数 */
+    private double maxPermits;
+
+    /** 令牌桶中当前存储的许可数 */
+    private double storedPermits;
+
+    /** 预热模式下，存储的许可数超过此值时许可的发放间隔开始增大 */
+    private double thresholdPermits;
+
+    /** 预热模式下，发放间隔相对于存储许可数的斜率 */
+    private double slope;
+
+    /**
+     * 下一个请求可以获准的时刻，以 System.nanoTime 为基准。
+     * 在过去时表示令牌桶空闲，在将来时表示已有请求预约了将来的许可。
+     */
+    private long nextFreeNanos;
+
+    /** 当前速率，供 getRate 在不持有 sync 时读取 */
+    private volatile double permitsPerSecond;
+
+    private RateLimiter(long warmupPeriodNanos, double maxBurstSeconds) {
+        this.warmupPeriodNanos = warmupPeriodNanos;
+        this.maxBurstSeconds = maxBurstSeconds;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * 创建一个以给定速率发放许可、突发容量为一秒内许可数的速率限制器。
+     * 新创建的速率限制器的令牌桶是满的。
+     *
+     * @param permitsPerSecond 每秒发放的许可数
+     * @return 新的速率限制器
+     * @throws IllegalArgumentException 如果 {@code permitsPerSecond}
+     *         不是正数
+     */
+    public static RateLimiter create(double permitsPerSecond) {
+        return create(permitsPerSecond, permitsPerSecond);
+    }
+
+    /**
+     * 创建一个以给定速率发放许可、具有给定突发容量的速率限制器。
+     * 新创建的速率限制器的令牌桶是满的。
+     *
+     * @param permitsPerSecond 每秒发放的许可数
+     * @param burstPermits 空闲期间最多存储、之后可以立即使用的许可数
+     * @return 新的速率限制器
+     * @throws IllegalArgumentException 如果 {@code permitsPerSecond}
+     *         不是正数，或 {@code burstPermits} 为负数
+     */
+    public static RateLimiter create(double permitsPerSecond,
+                                     double burstPermits) {
+        checkRate(permitsPerSecond);
+        if (!(burstPermits >= 0.0))
+            throw new IllegalArgumentException();
+        RateLimiter r = new RateLimiter(0L, burstPermits / permitsPerSecond);
+        r.doSetRate(permitsPerSecond, r.nextFreeNanos);
+        r.storedPermits = r.maxPermits;
+        return r;
+    }
+
+    /**
+     * 创建一个以给定速率发放许可、具有给定预热期的速率限制器。
+     * 在空闲足够长的时间之后（包括刚创建时），发放速率从 {@code permitsPerSecond}
+     * 的三分之一开始，在预热期内持续获取许可的情况下逐渐提高到 {@code permitsPerSecond}。
+     *
+     * @param permitsPerSecond 稳定状态下每秒发放的许可数
+     * @param warmupPeriod 从冷状态达到稳定速率所需的时间
+     * @param unit {@code warmupPeriod} 参数的时间单位
+     * @return 新的速率限制器
+     * @throws IllegalArgumentException 如果 {@code permitsPerSecond}
+     *         不是正数，或 {@code warmupPeriod} 为负数
+     * @throws NullPointerException 如果 {@code unit} 为 null
+     */
+    public static RateLimiter create(double permitsPerSecond,
+                                     long warmupPeriod, TimeUnit unit) {
+        checkRate(permitsPerSecond);
+        if (warmupPeriod < 0L)
+            throw new IllegalArgumentException();
+        long nanos = unit.toNanos(warmupPeriod);
+        if (nanos == 0L)
+            return create(permitsPerSecond, permitsPerSecond);
+        RateLimiter r = new RateLimiter(nanos, 0.0);
+        r.doSetRate(permitsPerSecond, r.nextFreeNanos);
+        r.storedPermits = r.maxPermits;
+        return r;
+    }
+
+    private static void checkRate(double permitsPerSecond) {
+        if (!(permitsPerSecond > 0.0) || Double.isInfinite(permitsPerSecond))
+            throw new IllegalArgumentException();
+    }
+
+    private static void checkPermits(int permits) {
+        if (permits <= 0)
+            throw new IllegalArgumentException();
+    }
+
+    /**
+     * 更新稳定速率。已存储的许可数按最大存储许可数的变化比例缩放。
+     *
+     * @param permitsPerSecond 新的每秒许可数
+     * @throws IllegalArgumentException 如果 {@code permitsPerSecond}
+     *         不是正数
+     */
+    public void setRate(double permitsPerSecond) {
+        checkRate(permitsPerSecond);
+        sync.acquire(1);
+        try {
+            doSetRate(permitsPerSecond, System.nanoTime());
+        } finally {
+            sync.release(1);
+        }
+    }
+
+    /**
+     * 返回稳定状态下每秒发放的许可数。
+     *
+     * @return 每秒许可数
+     */
+    public double getRate() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 返回空闲期间最多存储的许可数。对于带预热期的速率限制器，
+     * 这是从稳定状态到完全冷状态所对应的许可数。
+     *
+     * @return 最多存储的许可数
+     */
+    public double getBurstCapacity() {
+        sync.acquire(1);
+        try {
+            return maxPermits;
+        } finally {
+            sync.release(1);
+        }
+    }
+
+    /**
+     * 从这个速率限制器获取一个许可，必要时阻塞直到可以获准，除非线程被
+     * {@linkplain Thread#interrupt 中断}。
+     *
+     * <p>如果在等待期间被中断，已预约的许可不会被退回，后续请求的节流仍然考虑这些许可。
+     *
+     * @return 等待的时间（纳秒），如果没有等待则为 0
+     * @throws InterruptedException 如果当前线程被中断
+     */
+    public long acquire() throws InterruptedException {
+        return acquire(1);
+    }
+
+    /**
+     * 从这个速率限制器获取给定数量的许可，必要时阻塞直到可以获准，除非线程被
+     * {@linkplain Thread#interrupt 中断}。
+     *
+     * <p>如果在等待期间被中断，已预约的许可不会被退回，后续请求的节流仍然考虑这些许可。
+     *
+     * @param permits 要获取的许可数
+     * @return 等待的时间（纳秒），如果没有等待则为 0
+     * @throws InterruptedException 如果当前线程被中断
+     * @throws IllegalArgumentException 如果 {@code permits} 不是正数
+     */
+    public long acquire(int permits) throws InterruptedException {
+        checkPermits(permits);
+        sync.acquireInterruptibly(1);
+        long waitNanos;
+        try {
+            waitNanos = reserve(permits, System.nanoTime());
+        } finally {
+            sync.release(1);
+        }
+        sleepNanos(waitNanos, true);
+        return waitNanos;
+    }
+
+    /**
+     * 从这个速率限制器获取一个许可，必要时阻塞直到可以获准。
+     *
+     * <p>如果当前线程在等待时被 {@linkplain Thread#interrupt 中断}，它将继续等待。
+     * 当线程从该方法返回时，其中断状态将被设置。
+     *
+     * @return 等待的时间（纳秒），如果没有等待则为 0
+     */
+    public long acquireUninterruptibly() {
+        return acquireUninterruptibly(1);
+    }
+
+    /**
+     * 从这个速率限制器获取给定数量的许可，必要时阻塞直到可以获准。
+     *
+     * <p>如果当前线程在等待时被 {@linkplain Thread#interrupt 中断}，它将继续等待。
+     * 当线程从该方法返回时，其中断状态将被设置。
+     *
+     * @param permits 要获取的许可数
+     * @return 等待的时间（纳秒），如果没有等待则为 0
+     * @throws IllegalArgumentException 如果 {@code permits} 不是正数
+     */
+    public long acquireUninterruptibly(int permits) {
+        checkPermits(permits);
+        sync.acquire(1);
+        long waitNanos;
+        try {
+            waitNanos = reserve(permits, System.nanoTime());
+        } finally {
+            sync.release(1);
+        }
+        try {
+            sleepNanos(waitNanos, false);
+        } catch (InterruptedException cannotHappen) {
+            throw new Error(cannotHappen);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * 仅在不需要等待即可获准的情况下，从这个速率限制器获取一个许可。
+     * 此方法遵守排队顺序：如果有其他线程正在预约许可，则返回 {@code false}。
+     *
+     * @return 如果获取了许可则返回 {@code true}，否则返回 {@code false}
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 仅在不需要等待即可获准的情况下，从这个速率限制器获取给定数量的许可。
+     * 此方法遵守排队顺序：如果有其他线程正在预约许可，则返回 {@code false}。
+     *
+     * @param permits 要获取的许可数
+     * @return 如果获取了许可则返回 {@code true}，否则返回 {@code false}
+     * @throws IllegalArgumentException 如果 {@code permits} 不是正数
+     */
+    public boolean tryAcquire(int permits) {
+        checkPermits(permits);
+        if (!sync.tryAcquire(1))
+            return false;
+        try {
+            long now = System.nanoTime();
+            if (nextFreeNanos - now > 0L)
+                return false;
+            reserve(permits, now);
+            return true;
+        } finally {
+            sync.release(1);
+        }
+    }
+
+    /**
+     * 如果可以在给定的等待时间内获准，则从这个速率限制器获取一个许可，
+     * 必要时等待，除非线程被 {@linkplain Thread#interrupt 中断}。
+     *
+     * @param timeout 最大等待时间
+     * @param unit {@code timeout} 参数的时间单位
+     * @return 如果获取了许可则返回 {@code true}，否则返回 {@code false}
+     * @throws InterruptedException 如果当前线程被中断
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return tryAcquire(1, timeout, unit);
+    }
+
+    /**
+     * 如果可以在给定的等待时间内获准，则从这个速率限制器获取给定数量的许可，
+     * 必要时等待，除非线程被 {@linkplain Thread#interrupt 中断}。
+     *
+     * <p>是否可以在等待时间内获准是在预约时立即判定的：如果下一个许可可用的时刻
+     * 晚于截止时间，则此方法立即返回 {@code false}，而不会等待到截止时间。
+     * 否则许可被预约，当前线程休眠到许可可用的时刻。
+     * 如果在该休眠期间被中断，已预约的许可不会被退回。
+     *
+     * @param permits 要获取的许可数
+     * @param timeout 最大等待时间
+     * @param unit {@code timeout} 参数的时间单位
+     * @return 如果获取了许可则返回 {@code true}，否则返回 {@code false}
+     * @throws InterruptedException 如果当前线程被中断
+     * @throws IllegalArgumentException 如果 {@code permits} 不是正数
+     */
+    public boolean tryAcquire(int permits, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        checkPermits(permits);
+        long timeoutNanos = Math.max(unit.toNanos(timeout), 0L);
+        final long deadline = System.nanoTime() + timeoutNanos;
+        if (!sync.tryAcquireNanos(1, timeoutNanos))
+            return false;
+        long waitNanos;
+        try {
+            long now = System.nanoTime();
+            if (nextFreeNanos - deadline > 0L)
+                return false;
+            waitNanos = reserve(permits, now);
+        } finally {
+            sync.release(1);
+        }
+        sleepNanos(waitNanos, true);
+        return true;
+    }
+
+    /**
+     * 等待给定的纳秒数。如果 interruptible 为 false，中断被延迟到返回前重新设置。
+     */
+    private static void sleepNanos(long nanos, boolean interruptible)
+        throws InterruptedException {
+        if (nanos <= 0L)
+            return;
+        boolean interrupted = false;
+        final long deadline = System.nanoTime() + nanos;
+        do {
+            LockSupport.parkNanos(nanos);
+            if (Thread.interrupted()) {
+                if (interruptible)
+                    throw new InterruptedException();
+                interrupted = true;
+            }
+        } while ((nanos = deadline - System.nanoTime()) > 0L);
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    // 令牌桶，调用者必须持有 sync
+
+    /**
+     * 预约给定数量的许可，返回调用者需要等待的纳秒数。
+     */
+    private long reserve(int permits, long now) {
+        resync(now);
+        long waitNanos = Math.max(nextFreeNanos - now, 0L);
+        double storedToSpend = Math.min(permits, storedPermits);
+        double freshPermits = permits - storedToSpend;
+        long costNanos = storedPermitsToWaitTime(storedPermits, storedToSpend) +
+            (long) (freshPermits * stableIntervalNanos);
+        nextFreeNanos += costNanos;
+        storedPermits -= storedToSpend;
+        return waitNanos;
+    }
+
+    /**
+     * 根据自上次预约以来经过的时间补充存储的许可。
+     */
+    private void resync(long now) {
+        long idleNanos = now - nextFreeNanos;
+        if (idleNanos > 0L) {
+            double newPermits = idleNanos / coolDownIntervalNanos();
+            storedPermits = Math.min(maxPermits, storedPermits + newPermits);
+            nextFreeNanos = now;
+        }
+    }
+
+    /**
+     * 空闲期间补充一个存储许可所需的纳秒数。
+     */
+    private double coolDownIntervalNanos() {
+        return (warmupPeriodNanos == 0L) ? stableIntervalNanos :
+            warmupPeriodNanos / maxPermits;
+    }
+
+    /**
+     * 从 {@code stored} 个存储许可中取出 {@code toTake} 个的代价（纳秒）。
+     * 没有预热期时存储的许可是免费的；有预热期时，超过 thresholdPermits
+     * 的部分按从稳定间隔到冷间隔线性增长的间隔计费，即梯形面积。
+     */
+    private long storedPermitsToWaitTime(double stored, double toTake) {
+        if (warmupPeriodNanos == 0L)
+            return 0L;
+        double aboveThreshold = stored - thresholdPermits;
+        double nanos = 0.0;
+        if (aboveThreshold > 0.0) {
+            double above = Math.min(aboveThreshold, toTake);
+            double length = permitsToTime(aboveThreshold) +
+                permitsToTime(aboveThreshold - above);
+            nanos = above * length / 2.0;
+            toTake -= above;
+        }
+        nanos += stableIntervalNanos * toTake;
+        return (long) nanos;
+    }
+
+    private double permitsToTime(double permits) {
+        return stableIntervalNanos + permits * slope;
+    }
+
+    /**
+     * 设置新的速率并重新计算令牌桶的容量。
+     */
+    private void doSetRate(double permitsPerSecond, long now) {
+        resync(now);
+        double stable = TimeUnit.SECONDS.toNanos(1L) / permitsPerSecond;
+        double oldMaxPermits = maxPermits;
+        stableIntervalNanos = stable;
+        if (warmupPeriodNanos == 0L) {
+            maxPermits = maxBurstSeconds * permitsPerSecond;
+            storedPermits = (oldMaxPermits == 0.0) ? 0.0 :
+                storedPermits * maxPermits / oldMaxPermits;
+        } else {
+            double cold = stable * COLD_FACTOR;
+            thresholdPermits = 0.5 * warmupPeriodNanos / stable;
+            maxPermits = thresholdPermits +
+                2.0 * warmupPeriodNanos / (stable + cold);
+            slope = (cold - stable) / (maxPermits - thresholdPermits);
+            storedPermits = (oldMaxPermits == 0.0) ? maxPermits :
+                storedPermits * maxPermits / oldMaxPermits;
+        }
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    /**
+     * 如果有线程正在等待预约许可，则返回 {@code true}。
+     * 已经预约、正在休眠到许可可用时刻的线程不计算在内。
+     *
+     * @return 如果可能有其他线程正在等待预约许可，则返回 {@code true}
+     */
+    public final boolean hasQueuedThreads() {
+        return sync.hasQueuedThreads();
+    }
+
+    /**
+     * 返回一个标识此速率限制器及其状态的字符串。
+     * 状态，用括号表示，包括字符串 {@code "Rate ="}
+     * 后跟每秒许可数。
+     *
+     * @return 一个标识此速率限制器及其状态的字符串
+     */
+    public String toString() {
+        return super.toString() + "[Rate = " + permitsPerSecond + "]";
+    }
+}
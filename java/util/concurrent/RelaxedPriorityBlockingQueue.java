@@ -0,0 +1,603 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * 一个无界的、<em>松弛有序</em>的 {@linkplain BlockingQueue 阻塞队列}，使用与
+ * {@link PriorityBlockingQueue} 相同的排序规则，但不保证每次检索都返回全局最小的元素。
+ * 作为交换，插入和检索操作可以随线程数扩展，而不是像 {@code PriorityBlockingQueue}
+ * 那样由一个锁保护整个堆。
+ *
+ * <p>此实现采用 MultiQueue 方案：元素分布在若干个由各自的轻量锁保护的子堆中。
+ * 插入操作将元素放入一个随机选择的、当前未被锁定的子堆；检索操作随机选取两个子堆，
+ * 比较它们的堆顶元素，从较小者中移除。这样返回的元素在期望意义上的排名只比真正的最小元素
+ * 落后 O(子堆数) 位，且不会出现饥饿。子堆的数量决定了严格程度：
+ * 子堆越多，吞吐量越高，顺序越松弛；只有一个子堆时此队列是严格有序的。
+ *
+ * <p>此类适用于作业调度器等可以容忍小幅乱序、但需要在许多生产者和消费者之间扩展的场合。
+ * 需要严格优先级顺序的代码应使用 {@code PriorityBlockingQueue}。
+ *
+ * <p>{@code size} 是常量时间操作，但在并发修改时只是一个估计值。{@code peek}
+ * 返回所有子堆的堆顶中最小的一个，不加锁，因此也只是一个瞬时估计。
+ * {@link #iterator()} 返回的迭代器基于快照，不保证以任何特定顺序遍历元素。
+ *
+ * <p>此类不允许 {@code null} 元素。依赖自然排序的队列也不允许插入不可比较的对象。
+ *
+ * <p>此类及其迭代器实现了 {@link Collection} 和 {@link Iterator} 接口中的所有 <em>可选</em> 方法。
+ *
+ * <p>此类是
+ * <a href="{@docRoot}/../technotes/guides/collections/index.html">
+ * Java Collections Framework</a> 的成员。
+ *
+ * @since 1.8
+ * @param <E> 此集合中持有的元素类型
+ * @see PriorityBlockingQueue
+ */
+public class RelaxedPriorityBlockingQueue<E> extends AbstractQueue<E>
+    implements BlockingQueue<E> {
+
+    /*
+     * 每个子堆是一个 java.util.PriorityQueue，由一个基于 CAS 的 try-lock 保护，
+     * 并以 volatile 字段 top 缓存其堆顶元素，使检索操作无需加锁即可比较两个子堆。
+     * 子堆通过 @sun.misc.Contended 填充，避免相邻子堆的锁字和堆顶共享缓存行。
+     *
+     * 插入和检索都从不阻塞在子堆的锁上：tryLock 失败时只是换一个随机子堆重试。
+     * 检索在连续若干次随机选中两个空子堆后，改为顺序扫描所有子堆，以便在元素很少时
+     * 也能及时找到它们。
+     *
+     * count 是元素数量，在插入之后递增、在移除之后递减，因此可能短暂为负。
+     * 阻塞的检索者在 lock 下先增加 waiters、再重新尝试检索，然后才在 notEmpty 上等待；
+     * 插入者先（以原子操作）递增 count、再读取 waiters，因此两者中至少有一方会看到对方，
+     * 不会丢失信号。没有等待者时插入操作不会触碰 lock。
+     */
+
+    /** 检索在改为顺序扫描之前尝试随机选择的次数 */
+    private static final int RANDOM_TRIES = 4;
+
+    /** 子堆 */
+    private final Heap<E>[] heaps;
+
+    /** 排序用的比较器，如果使用自然排序则为 null */
+    private final Comparator<? super E> comparator;
+
+    /** 元素数量，可能短暂为负 */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** 阻塞检索使用的锁 */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 阻塞检索等待的条件 */
+    private final Condition notEmpty = lock.newCondition();
+
+    /** 在 notEmpty 上等待的线程数，仅在持有 lock 时修改 */
+    private volatile int waiters;
+
+    /**
+     * 一个由 try-lock 保护的子堆。
+     */
+    @sun.misc.Contended static final class Heap<E> {
+        final PriorityQueue<E> queue;
+        volatile E top;
+        volatile int locked;
+
+        Heap(Comparator<? super E> comparator) {
+            queue = new PriorityQueue<E>(11, comparator);
+        }
+
+        final boolean tryLock() {
+            return locked == 0 && UNSAFE.compareAndSwapInt(this, LOCKED, 0, 1);
+        }
+
+        final void lock() {
+            while (!tryLock())
+                Thread.yield();
+        }
+
+        /** 刷新堆顶缓存并释放锁。仅在持有锁时调用。 */
+        final void unlock() {
+            top = queue.peek();
+            locked = 0;
+        }
+
+        // Unsafe 机制
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long LOCKED;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                LOCKED = UNSAFE.objectFieldOffset
+                    (Heap.class.getDeclaredField("locked"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * 创建一个使用自然排序的 {@code RelaxedPriorityBlockingQueue}，子堆数为可用处理器数的两倍。
+     */
+    public RelaxedPriorityBlockingQueue() {
+        this(2 * Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * 创建一个根据指定比较器排序的 {@code RelaxedPriorityBlockingQueue}，子堆数为可用处理器数的两倍。
+     *
+     * @param comparator 用于对此优先队列进行排序的比较器。如果为 {@code null}，将使用元素的
+     *        {@linkplain Comparable 自然排序}
+     */
+    public RelaxedPriorityBlockingQueue(Comparator<? super E> comparator) {
+        this(2 * Runtime.getRuntime().availableProcessors(), comparator);
+    }
+
+    /**
+     * 创建一个具有指定子堆数、根据指定比较器排序的 {@code RelaxedPriorityBlockingQueue}。
+     *
+     * @param heapCount 子堆数，决定严格程度：{@code 1} 表示严格有序，
+     *        通常取并发访问线程数的一到四倍
+     * @param comparator 用于对此优先队列进行排序的比较器。如果为 {@code null}，将使用元素的
+     *        {@linkplain Comparable 自然排序}
+     * @throws IllegalArgumentException 如果 {@code heapCount} 小于 1
+     */
+    @SuppressWarnings("unchecked")
+    public RelaxedPriorityBlockingQueue(int heapCount,
+                                        Comparator<? super E> comparator) {
+        if (heapCount < 1)
+            throw new IllegalArgumentException();
+        Heap<E>[] hs = (Heap<E>[])new Heap<?>[heapCount];
+        for (int i = 0; i < heapCount; ++i)
+            hs[i] = new Heap<E>(comparator);
+        this.heaps = hs;
+        this.comparator = comparator;
+    }
+
+    /**
+     * 返回用于对此队列中的元素进行排序的比较器，如果此队列使用元素的
+     * {@linkplain Comparable 自然排序}，则返回 {@code null}。
+     *
+     * @return 用于对此队列进行排序的比较器，如果此队列使用其元素的自然排序，则返回 {@code null}
+     */
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    /**
+     * 返回此队列的子堆数。
+     *
+     * @return 子堆数
+     */
+    public int heapCount() {
+        return heaps.length;
+    }
+
+    /**
+     * 如果 a 的优先级高于 b（即 a 应先被检索），则返回 {@code true}。
+     */
+    @SuppressWarnings("unchecked")
+    private boolean before(E a, E b) {
+        Comparator<? super E> cmp = comparator;
+        return (cmp != null) ? cmp.compare(a, b) < 0 :
+            ((Comparable<? super E>) a).compareTo(b) < 0;
+    }
+
+    /**
+     * 将指定元素插入此优先队列。
+     *
+     * @param e 要添加的元素
+     * @return {@code true}（如 {@link Collection#add} 所指定）
+     * @throws ClassCastException 如果指定元素不能根据优先队列的排序与当前在优先队列中的元素进行比较
+     * @throws NullPointerException 如果指定元素为 null
+     */
+    public boolean add(E e) {
+        return offer(e);
+    }
+
+    /**
+     * 将指定元素插入此优先队列。由于队列是无界的，此方法永远不会返回 {@code false}。
+     *
+     * @param e 要添加的元素
+     * @return {@code true}（如 {@link java.util.Queue#offer} 所指定）
+     * @throws ClassCastException 如果指定元素不能根据优先队列的排序与当前在优先队列中的元素进行比较
+     * @throws NullPointerException 如果指定元素为 null
+     */
+    public boolean offer(E e) {
+        if (e == null)
+            throw new NullPointerException();
+        final Heap<E>[] hs = heaps;
+        final int n = hs.length;
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        for (;;) {
+            Heap<E> h = hs[(n == 1) ? 0 : r.nextInt(n)];
+            if (h.tryLock()) {
+                try {
+                    h.queue.offer(e);
+                } finally {
+                    h.unlock();
+                }
+                break;
+            }
+            if (n == 1)
+                Thread.yield();
+        }
+        count.getAndIncrement();
+        if (waiters != 0)
+            signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * 将指定元素插入此优先队列。由于队列是无界的，此方法永远不会阻塞。
+     *
+     * @param e 要添加的元素
+     * @throws ClassCastException 如果指定元素不能根据优先队列的排序与当前在优先队列中的元素进行比较
+     * @throws NullPointerException 如果指定元素为 null
+     */
+    public void put(E e) {
+        offer(e); // 永不需要阻塞
+    }
+
+    /**
+     * 将指定元素插入此优先队列。由于队列是无界的，此方法永远不会阻塞或返回 {@code false}。
+     *
+     * @param e 要添加的元素
+     * @param timeout 此参数被忽略，因为该方法永远不会阻塞
+     * @param unit 此参数被忽略，因为该方法永远不会阻塞
+     * @return {@code true}（如 {@link BlockingQueue#offer(Object,long,TimeUnit) BlockingQueue.offer} 所指定）
+     * @throws ClassCastException 如果指定元素不能根据优先队列的排序与当前在优先队列中的元素进行比较
+     * @throws NullPointerException 如果指定元素为 null
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e); // 永不需要阻塞
+    }
+
+    /**
+     * 唤醒等待的检索者。
+     */
+    private void signalNotEmpty() {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 检索并移除一个优先级接近最高的元素，如果此队列为空则返回 {@code null}。
+     * 在并发访问时，返回的元素不一定是全局最小的元素。
+     *
+     * @return 一个优先级接近最高的元素，如果此队列为空则返回 {@code null}
+     */
+    public E poll() {
+        final Heap<E>[] hs = heaps;
+        final int n = hs.length;
+        ThreadLocalRandom r = null;
+        int tries = 0;
+        while (count.get() > 0) {
+            Heap<E> h;
+            if (n == 1)
+                h = hs[0];
+            else if (tries < RANDOM_TRIES) {
+                if (r == null)
+                    r = ThreadLocalRandom.current();
+                Heap<E> a = hs[r.nextInt(n)], b = hs[r.nextInt(n)];
+                E ta = a.top, tb = b.top;
+                if (ta == null && tb == null) {
+                    ++tries;
+                    continue;
+                }
+                h = (ta == null) ? b : (tb == null) ? a : before(tb, ta) ? b : a;
+            }
+            else if ((h = firstNonEmpty(hs)) == null) {
+                tries = 0;
+                continue;
+            }
+            if (!h.tryLock())
+                continue;
+            E x;
+            try {
+                x = h.queue.poll();
+            } finally {
+                h.unlock();
+            }
+            if (x != null) {
+                count.getAndDecrement();
+                return x;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 返回第一个堆顶非空的子堆，如果都为空则返回 null。
+     */
+    private static <E> Heap<E> firstNonEmpty(Heap<E>[] hs) {
+        for (Heap<E> h : hs) {
+            if (h.top != null)
+                return h;
+        }
+        return null;
+    }
+
+    public E take() throws InterruptedException {
+        E x;
+        if ((x = poll()) != null)
+            return x;
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++waiters;
+            try {
+                while ((x = poll()) == null)
+                    notEmpty.await();
+            } finally {
+                --waiters;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return x;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E x;
+        if ((x = poll()) != null)
+            return x;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        try {
+            ++waiters;
+            try {
+                while ((x = poll()) == null && nanos > 0)
+                    nanos = notEmpty.awaitNanos(nanos);
+            } finally {
+                --waiters;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return x;
+    }
+
+    /**
+     * 返回所有子堆的堆顶中优先级最高的一个，不移除它；如果此队列为空，则返回 {@code null}。
+     * 此方法不加锁，在并发修改时返回的只是一个瞬时估计。
+     *
+     * @return 优先级最高的堆顶元素，如果此队列为空则返回 {@code null}
+     */
+    public E peek() {
+        E best = null;
+        for (Heap<E> h : heaps) {
+            E t = h.top;
+            if (t != null && (best == null || before(t, best)))
+                best = t;
+        }
+        return best;
+    }
+
+    public int size() {
+        int n = count.get();
+        return (n < 0) ? 0 : n;
+    }
+
+    /**
+     * 始终返回 {@code Integer.MAX_VALUE}，因为 {@code RelaxedPriorityBlockingQueue} 没有容量限制。
+     *
+     * @return {@code Integer.MAX_VALUE} 始终
+     */
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 如果此队列中存在指定元素的一个实例，则将其移除。
+     *
+     * @param o 要从此队列中移除的元素（如果存在）
+     * @return 如果此队列因调用而改变，则返回 {@code true}
+     */
+    public boolean remove(Object o) {
+        if (o == null)
+            return false;
+        for (Heap<E> h : heaps) {
+            boolean removed;
+            h.lock();
+            try {
+                removed = h.queue.remove(o);
+            } finally {
+                h.unlock();
+            }
+            if (removed) {
+                count.getAndDecrement();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 如果此队列包含指定的元素，则返回 {@code true}。
+     *
+     * @param o 要检查是否包含在此队列中的对象
+     * @return 如果此队列包含指定的元素，则返回 {@code true}
+     */
+    public boolean contains(Object o) {
+        if (o == null)
+            return false;
+        for (Heap<E> h : heaps) {
+            boolean found;
+            h.lock();
+            try {
+                found = h.queue.contains(o);
+            } finally {
+                h.unlock();
+            }
+            if (found)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * 移除此队列中的所有元素。子堆被依次清空，因此与此调用并发插入的元素可能被保留。
+     */
+    public void clear() {
+        for (Heap<E> h : heaps) {
+            int k;
+            h.lock();
+            try {
+                k = h.queue.size();
+                h.queue.clear();
+            } finally {
+                h.unlock();
+            }
+            if (k != 0)
+                count.getAndAdd(-k);
+        }
+    }
+
+    /**
+     * 返回一个包含此队列中所有元素的数组，元素顺序没有特定要求。
+     * 每个子堆在复制时被锁定，但整个数组不是一个原子快照。
+     *
+     * @return 包含此队列中所有元素的数组
+     */
+    public Object[] toArray() {
+        ArrayList<Object> list = new ArrayList<Object>(size());
+        for (Heap<E> h : heaps) {
+            h.lock();
+            try {
+                list.addAll(h.queue);
+            } finally {
+                h.unlock();
+            }
+        }
+        return list.toArray();
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 从每个子堆中成批移除元素并添加到给定集合中。与 {@link #poll} 不同，
+     * 每个子堆只加锁一次，因此元素之间的相对顺序只在同一子堆内得到保证。
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null)
+            throw new NullPointerException();
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (Heap<E> h : heaps) {
+            if (n >= maxElements)
+                break;
+            if (h.top == null)
+                continue;
+            int k = 0;
+            h.lock();
+            try {
+                for (E x; n + k < maxElements && (x = h.queue.poll()) != null; ) {
+                    c.add(x);
+                    ++k;
+                }
+            } finally {
+                h.unlock();
+                if (k != 0)
+                    count.getAndAdd(-k);
+            }
+            n += k;
+        }
+        return n;
+    }
+
+    /**
+     * 返回此队列中元素的迭代器。迭代器不会以任何特定顺序返回元素。
+     *
+     * <p>返回的迭代器基于调用时各子堆内容的快照，
+     * 是 <a href="package-summary.html#Weakly"><i>弱一致的</i></a>。
+     *
+     * @return 一个遍历此队列中元素的迭代器
+     */
+    public Iterator<E> iterator() {
+        return new Itr(toArray());
+    }
+
+    /**
+     * 快照迭代器，基于各子堆内容的副本工作。
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] array; // 所有元素的数组
+        int cursor;           // 下一个要返回的元素的索引
+        int lastRet;          // 上一个元素的索引，如果没有则为 -1
+
+        Itr(Object[] array) {
+            lastRet = -1;
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E)array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            RelaxedPriorityBlockingQueue.this.remove(array[lastRet]);
+            lastRet = -1;
+        }
+    }
+}
@@ -0,0 +1,744 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.Arrays;
+
+/**
+ * 一个预分配的<em>多播</em>环形缓冲区：单个生产者发布的每个事件都会被所有消费者看到，
+ * 消费者之间可以按依赖顺序排列（例如先记录日志、再复制、最后处理业务逻辑），并以批量方式读取事件而不复制。
+ *
+ * <p>缓冲区在构造时用给定的工厂填满事件对象，此后这些对象被重复使用：生产者通过 {@link #next} 认领一个序号，
+ * 用 {@link #get} 取得该序号对应的事件并就地填写，然后通过 {@link #publish} 发布。
+ * 每个序号只会被分配一次，槽位由 {@code sequence & (bufferSize - 1)} 得到。
+ *
+ * <p>消费者由 {@link BatchEventProcessor} 表示，它们各自持有一个 {@link Sequence}，记录已处理到的序号。
+ * 处理器通过 {@link SequenceBarrier} 等待：屏障的可用上限是游标（已发布的最大序号）与其所依赖的
+ * 其他处理器序号中的最小值。处理器一次取得所有可用事件，并在批次结束时只发布一次自己的序号。
+ * 生产者在覆盖一个槽位之前，会等待所有已注册的处理器都越过该槽位上一轮的序号。
+ *
+ * <p>当消费者需要等待时，所采用的方式由 {@link WaitStrategy} 决定：
+ * {@link WaitStrategy#busySpin() 忙等}、{@link WaitStrategy#yielding() yield} 或
+ * {@link WaitStrategy#parking() 通过 LockSupport 挂起}。前两者延迟最低，但会占用整个 CPU。
+ *
+ * <p>此类只支持<em>单个</em>生产者：{@code next}、{@code tryNext} 和 {@code publish}
+ * 必须始终由同一个线程（或以外部同步方式）调用。
+ *
+ * <p>示例用法：
+ * <pre> {@code
+ * RingBuffer<Tick> rb = new RingBuffer<>(1 << 16, Tick::new, RingBuffer.WaitStrategy.yielding());
+ * RingBuffer.BatchEventProcessor<Tick> journal = rb.newProcessor(journaller);
+ * RingBuffer.BatchEventProcessor<Tick> logic =
+ *     rb.newProcessor(strategy, journal.getSequence());
+ * executor.execute(journal);
+ * executor.execute(logic);
+ *
+ * long seq = rb.next();
+ * rb.get(seq).set(symbol, price);
+ * rb.publish(seq);}</pre>
+ *
+ * @since 1.8
+ * @param <E> 此缓冲区中持有的事件类型
+ */
+public class RingBuffer<E> {
+    /*
+     * 生产者维护两个只由它自己访问的字段：nextValue（最近认领的序号）和 cachedGatingValue
+     * （最近一次计算的所有处理器序号的最小值）。只有当新认领的序号将要越过缓存的最小值时，
+     * 才重新扫描 gatingSequences，因此在消费者跟得上时，认领一个序号只需要几条普通的算术指令。
+     *
+     * 游标 cursor 以有序写发布；事件字段的写入在其之前完成，因此读取到某个游标值的消费者
+     * 可以看到该序号之前所有事件的内容。处理器的序号同样以有序写发布，以便生产者安全地复用槽位。
+     *
+     * gatingSequences 是写时复制的数组，注册新处理器时整体替换，生产者只读取它。
+     */
+
+    /** 事件，长度为 2 的幂 */
+    private final Object[] entries;
+
+    /** entries.length - 1 */
+    private final int indexMask;
+
+    /** 已发布的最大序号 */
+    private final Sequence cursor = new Sequence();
+
+    /** 处理器等待时使用的策略 */
+    private final WaitStrategy waitStrategy;
+
+    /** 所有处理器的序号，生产者不能越过其中最小者一整圈 */
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /** 最近认领的序号，仅由生产者访问 */
+    private long nextValue = Sequence.INITIAL_VALUE;
+
+    /** 最近一次观察到的处理器序号最小值，仅由生产者访问 */
+    private long cachedGatingValue = Sequence.INITIAL_VALUE;
+
+    /**
+     * 创建一个 {@code RingBuffer}，并用给定工厂创建的事件填满它。
+     *
+     * @param bufferSize 槽位数，必须是 2 的幂
+     * @param eventFactory 用于预分配事件的工厂
+     * @param waitStrategy 处理器等待可用事件时使用的策略
+     * @throws IllegalArgumentException 如果 {@code bufferSize} 不是正的 2 的幂
+     * @throws NullPointerException 如果 {@code eventFactory} 或 {@code waitStrategy} 为 null
+     */
+    public RingBuffer(int bufferSize, Supplier<? extends E> eventFactory,
+                      WaitStrategy waitStrategy) {
+        if (bufferSize <= 0 || (bufferSize & (bufferSize - 1)) != 0)
+            throw new IllegalArgumentException();
+        if (eventFactory == null || waitStrategy == null)
+            throw new NullPointerException();
+        Object[] es = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; ++i)
+            es[i] = eventFactory.get();
+        this.entries = es;
+        this.indexMask = bufferSize - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * 返回此缓冲区的槽位数。
+     *
+     * @return 槽位数
+     */
+    public int bufferSize() {
+        return entries.length;
+    }
+
+    /**
+     * 返回给定序号对应的事件。生产者在认领序号之后、发布之前使用它来填写事件；
+     * 处理器在屏障返回的范围内使用它来读取事件。
+     *
+     * @param sequence 序号
+     * @return 该序号对应的事件
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int)sequence & indexMask];
+    }
+
+    /**
+     * 返回已发布的最大序号，如果尚未发布任何事件则返回 {@code -1}。
+     *
+     * @return 游标的当前值
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * 认领下一个序号，如果缓冲区已满（最慢的处理器落后整整一圈）则等待。
+     *
+     * @return 认领的序号
+     */
+    public long next() {
+        return next(1);
+    }
+
+    /**
+     * 认领接下来的 {@code n} 个序号，如果缓冲区没有足够的空间则等待。
+     * 调用者随后应填写 {@code [hi - n + 1, hi]} 范围内的事件，并以 {@link #publish(long, long)} 发布。
+     *
+     * @param n 要认领的序号个数
+     * @return 认领的最大序号
+     * @throws IllegalArgumentException 如果 {@code n < 1} 或大于 {@link #bufferSize()}
+     */
+    public long next(int n) {
+        if (n < 1 || n > entries.length)
+            throw new IllegalArgumentException();
+        long hi = nextValue + n;
+        long wrapPoint = hi - entries.length;
+        if (wrapPoint > cachedGatingValue) {
+            long min;
+            while (wrapPoint > (min = minimumSequence(gatingSequences, hi)))
+                LockSupport.parkNanos(this, 1L);
+            cachedGatingValue = min;
+        }
+        return nextValue = hi;
+    }
+
+    /**
+     * 如果缓冲区当前有足够的空间，则认领下一个序号；否则立即返回 {@code -1}。
+     *
+     * @return 认领的序号，如果没有空间则返回 {@code -1}
+     */
+    public long tryNext() {
+        long hi = nextValue + 1;
+        long wrapPoint = hi - entries.length;
+        if (wrapPoint > cachedGatingValue) {
+            long min = minimumSequence(gatingSequences, hi);
+            cachedGatingValue = min;
+            if (wrapPoint > min)
+                return -1L;
+        }
+        return nextValue = hi;
+    }
+
+    /**
+     * 发布给定序号（及其之前所有已认领的序号）对应的事件，使其对处理器可见。
+     *
+     * @param sequence 要发布的序号
+     */
+    public void publish(long sequence) {
+        cursor.lazySet(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * 发布 {@code [lo, hi]} 范围内的事件。对于单生产者缓冲区，这等价于 {@code publish(hi)}。
+     *
+     * @param lo 要发布的最小序号
+     * @param hi 要发布的最大序号
+     * @throws IllegalArgumentException 如果 {@code lo > hi}
+     */
+    public void publish(long lo, long hi) {
+        if (lo > hi)
+            throw new IllegalArgumentException();
+        publish(hi);
+    }
+
+    /**
+     * 返回缓冲区中剩余的可用槽位数。
+     *
+     * @return 剩余的可用槽位数
+     */
+    public long remainingCapacity() {
+        long produced = nextValue;
+        long consumed = minimumSequence(gatingSequences, produced);
+        return entries.length - (produced - consumed);
+    }
+
+    /**
+     * 创建一个序号屏障，其可用上限是游标与给定序号中的最小值。
+     *
+     * @param dependencies 屏障所依赖的处理器序号，可以为空
+     * @return 新的屏障
+     */
+    public SequenceBarrier newBarrier(Sequence... dependencies) {
+        return new SequenceBarrier(this, dependencies);
+    }
+
+    /**
+     * 创建一个批量事件处理器，它在给定序号之后处理事件，并将其注册为生产者的门控序号。
+     * 返回的处理器需要交给某个线程或 {@link Executor} 运行。
+     *
+     * @param handler 事件处理器
+     * @param dependencies 此处理器之前必须处理完每个事件的其他处理器的序号，可以为空
+     * @return 新的处理器
+     * @throws NullPointerException 如果 {@code handler} 为 null
+     */
+    public BatchEventProcessor<E> newProcessor(EventHandler<? super E> handler,
+                                               Sequence... dependencies) {
+        if (handler == null)
+            throw new NullPointerException();
+        BatchEventProcessor<E> p =
+            new BatchEventProcessor<E>(this, newBarrier(dependencies), handler);
+        p.sequence.lazySet(cursor.get());
+        addGatingSequences(p.sequence);
+        return p;
+    }
+
+    /**
+     * 添加生产者在覆盖槽位之前必须等待的序号。
+     *
+     * @param sequences 要添加的序号
+     */
+    public synchronized void addGatingSequences(Sequence... sequences) {
+        Sequence[] gs = gatingSequences;
+        int n = gs.length;
+        gs = Arrays.copyOf(gs, n + sequences.length);
+        for (Sequence s : sequences) {
+            if (s == null)
+                throw new NullPointerException();
+            gs[n++] = s;
+        }
+        gatingSequences = gs;
+    }
+
+    /**
+     * 移除一个门控序号，例如在某个处理器永久停止之后，使其不再阻止生产者。
+     *
+     * @param sequence 要移除的序号
+     * @return 如果找到并移除了该序号，则返回 {@code true}
+     */
+    public synchronized boolean removeGatingSequence(Sequence sequence) {
+        Sequence[] gs = gatingSequences;
+        int n = gs.length;
+        for (int i = 0; i < n; ++i) {
+            if (gs[i] == sequence) {
+                Sequence[] rs = new Sequence[n - 1];
+                System.arraycopy(gs, 0, rs, 0, i);
+                System.arraycopy(gs, i + 1, rs, i, n - i - 1);
+                gatingSequences = rs;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 返回给定序号中的最小值，如果数组为空则返回 {@code min}。
+     */
+    static long minimumSequence(Sequence[] sequences, long min) {
+        for (Sequence s : sequences) {
+            long v = s.get();
+            if (v < min)
+                min = v;
+        }
+        return min;
+    }
+
+    /**
+     * 一个经过填充的序号，避免与相邻的其他序号或对象共享缓存行。
+     * 生产者的游标和每个处理器的进度都以此表示。
+     */
+    public static final class Sequence {
+        /** 序号的初始值，表示尚未有任何事件 */
+        static final long INITIAL_VALUE = -1L;
+
+        @sun.misc.Contended volatile long value;
+
+        /**
+         * 创建初始值为 {@code -1} 的序号。
+         */
+        public Sequence() {
+            value = INITIAL_VALUE;
+        }
+
+        /**
+         * 创建具有给定初始值的序号。
+         *
+         * @param initialValue 初始值
+         */
+        public Sequence(long initialValue) {
+            value = initialValue;
+        }
+
+        /**
+         * 以 volatile 语义读取当前值。
+         *
+         * @return 当前值
+         */
+        public long get() {
+            return value;
+        }
+
+        /**
+         * 以 volatile 语义设置值。
+         *
+         * @param v 新值
+         */
+        public void set(long v) {
+            value = v;
+        }
+
+        /**
+         * 以有序写设置值：不会与之前的写重排序，但可能不会立即对其他线程可见。
+         *
+         * @param v 新值
+         */
+        public void lazySet(long v) {
+            UNSAFE.putOrderedLong(this, VALUE, v);
+        }
+
+        /**
+         * 如果当前值等于期望值，则原子地设置为给定的更新值。
+         *
+         * @param expect 期望值
+         * @param update 新值
+         * @return 如果成功则返回 {@code true}
+         */
+        public boolean compareAndSet(long expect, long update) {
+            return UNSAFE.compareAndSwapLong(this, VALUE, expect, update);
+        }
+
+        /**
+         * 返回当前值的字符串表示。
+         *
+         * @return 当前值的字符串表示
+         */
+        public String toString() {
+            return Long.toString(get());
+        }
+
+        // Unsafe 机制
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long VALUE;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                VALUE = UNSAFE.objectFieldOffset
+                    (Sequence.class.getDeclaredField("value"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /**
+     * 处理器用来等待事件可用的屏障。可用上限是缓冲区游标与所有依赖序号中的最小值。
+     * 屏障可以被 {@linkplain #alert 警报}，此时所有正在等待或将要等待的线程都会收到
+     * {@link CancellationException}，这用于停止处理器。
+     */
+    public static final class SequenceBarrier {
+        private final RingBuffer<?> ringBuffer;
+        private final Sequence[] dependencies;
+        private volatile boolean alerted;
+
+        SequenceBarrier(RingBuffer<?> ringBuffer, Sequence[] dependencies) {
+            for (Sequence s : dependencies)
+                if (s == null)
+                    throw new NullPointerException();
+            this.ringBuffer = ringBuffer;
+            this.dependencies = dependencies.clone();
+        }
+
+        /**
+         * 等待直到给定序号可用，并返回当前可用的最大序号，它可能大于请求的序号。
+         *
+         * @param sequence 要等待的序号
+         * @return 可用的最大序号，至少为 {@code sequence}
+         * @throws InterruptedException 如果当前线程在等待时被中断
+         * @throws CancellationException 如果屏障已被警报
+         */
+        public long waitFor(long sequence) throws InterruptedException {
+            checkAlert();
+            return ringBuffer.waitStrategy.waitFor(sequence, this);
+        }
+
+        /**
+         * 返回当前可用的最大序号，不等待。
+         *
+         * @return 当前可用的最大序号
+         */
+        public long getAvailable() {
+            Sequence[] ds = dependencies;
+            long c = ringBuffer.cursor.get();
+            return (ds.length == 0) ? c : minimumSequence(ds, c);
+        }
+
+        /**
+         * 返回缓冲区游标的当前值，供等待策略使用。
+         */
+        long cursorValue() {
+            return ringBuffer.cursor.get();
+        }
+
+        /**
+         * 警报此屏障，并唤醒所有在其上等待的线程。
+         */
+        public void alert() {
+            alerted = true;
+            ringBuffer.waitStrategy.signalAllWhenBlocking();
+        }
+
+        /**
+         * 清除警报状态。
+         */
+        public void clearAlert() {
+            alerted = false;
+        }
+
+        /**
+         * 如果此屏障已被警报，则返回 {@code true}。
+         *
+         * @return 如果此屏障已被警报，则返回 {@code true}
+         */
+        public boolean isAlerted() {
+            return alerted;
+        }
+
+        /**
+         * 如果此屏障已被警报，则抛出 {@link CancellationException}。
+         *
+         * @throws CancellationException 如果此屏障已被警报
+         */
+        public void checkAlert() {
+            if (alerted)
+                throw new CancellationException();
+        }
+    }
+
+    /**
+     * 处理器等待事件时采用的策略。实现只需在可用序号达到请求值之前以某种方式等待，
+     * 并在等待期间调用 {@link SequenceBarrier#checkAlert()}。
+     */
+    public static interface WaitStrategy {
+        /**
+         * 等待直到屏障的可用序号至少为 {@code sequence}。
+         *
+         * @param sequence 要等待的序号
+         * @param barrier 要等待的屏障
+         * @return 可用的最大序号
+         * @throws InterruptedException 如果当前线程在等待时被中断
+         * @throws CancellationException 如果屏障已被警报
+         */
+        long waitFor(long sequence, SequenceBarrier barrier)
+            throws InterruptedException;
+
+        /**
+         * 在发布事件或警报屏障之后调用，唤醒所有被挂起的等待者。
+         * 不挂起线程的策略可以什么都不做。
+         */
+        void signalAllWhenBlocking();
+
+        /**
+         * 返回一个忙等策略。延迟最低，但每个等待的处理器都会占满一个 CPU；
+         * 只适用于处理器线程数不超过空闲核心数的情况。
+         *
+         * @return 忙等策略
+         */
+        static WaitStrategy busySpin() {
+            return new SpinningWaitStrategy(Integer.MAX_VALUE);
+        }
+
+        /**
+         * 返回一个先短暂忙等、然后调用 {@link Thread#yield} 的策略。
+         * 延迟接近忙等，但在其他线程需要 CPU 时会让出。
+         *
+         * @return yield 策略
+         */
+        static WaitStrategy yielding() {
+            return new SpinningWaitStrategy(100);
+        }
+
+        /**
+         * 返回一个先短暂忙等、然后通过 {@link LockSupport#park} 挂起等待者、
+         * 由生产者在发布时唤醒的策略。空闲时不占用 CPU，但唤醒延迟较高，
+         * 且每次发布都需要一次内存屏障。等待上游处理器（而非生产者）时以 yield 代替挂起。
+         *
+         * @return 挂起策略
+         */
+        static WaitStrategy parking() {
+            return new ParkingWaitStrategy();
+        }
+    }
+
+    /**
+     * 忙等 spins 次之后改为 yield 的策略。
+     */
+    static final class SpinningWaitStrategy implements WaitStrategy {
+        private final int spins;
+
+        SpinningWaitStrategy(int spins) {
+            this.spins = spins;
+        }
+
+        public long waitFor(long sequence, SequenceBarrier barrier)
+            throws InterruptedException {
+            long available;
+            int k = spins;
+            while ((available = barrier.getAvailable()) < sequence) {
+                barrier.checkAlert();
+                if (k > 0)
+                    --k;
+                else {
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                    Thread.yield();
+                }
+            }
+            return available;
+        }
+
+        public void signalAllWhenBlocking() {
+        }
+    }
+
+    /**
+     * 先忙等再挂起的策略。等待者先将自己加入 waiters（一次 CAS），再重新检查游标后才挂起；
+     * 生产者在有序地发布游标之后先执行一次完整的内存屏障，再检查 waiters，
+     * 因此两者中至少有一方能看到另一方的写入，不会丢失唤醒。
+     *
+     * 只有游标的推进会唤醒等待者，处理器序号的推进不会（否则每个批次都要付出一次屏障和
+     * 唤醒的代价）。因此只在事件尚未发布时挂起；事件已发布而上游处理器尚未处理完时改为 yield，
+     * 这段等待的长度不超过上游处理一个批次的时间。
+     */
+    static final class ParkingWaitStrategy implements WaitStrategy {
+        private static final int SPINS = 1 << 7;
+        private final ConcurrentLinkedQueue<Thread> waiters =
+            new ConcurrentLinkedQueue<Thread>();
+
+        public long waitFor(long sequence, SequenceBarrier barrier)
+            throws InterruptedException {
+            long available;
+            for (int k = 0; k < SPINS; ++k) {
+                if ((available = barrier.getAvailable()) >= sequence)
+                    return available;
+                barrier.checkAlert();
+            }
+            if (barrier.cursorValue() < sequence) {
+                Thread w = Thread.currentThread();
+                waiters.add(w);
+                try {
+                    while (barrier.cursorValue() < sequence) {
+                        barrier.checkAlert();
+                        if (Thread.interrupted())
+                            throw new InterruptedException();
+                        LockSupport.park(this);
+                    }
+                } finally {
+                    waiters.remove(w);
+                }
+            }
+            // 事件已发布，剩下的只是等待上游处理器完成当前批次
+            while ((available = barrier.getAvailable()) < sequence) {
+                barrier.checkAlert();
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                Thread.yield();
+            }
+            return available;
+        }
+
+        public void signalAllWhenBlocking() {
+            UNSAFE.fullFence();
+            if (!waiters.isEmpty()) {
+                for (Thread w : waiters)
+                    LockSupport.unpark(w);
+            }
+        }
+
+        private static final sun.misc.Unsafe UNSAFE = sun.misc.Unsafe.getUnsafe();
+    }
+
+    /**
+     * 批量事件回调。
+     *
+     * @param <E> 事件类型
+     */
+    @FunctionalInterface
+    public static interface EventHandler<E> {
+        /**
+         * 在事件被发布之后调用。事件对象归缓冲区所有，回调返回后可能被生产者复用，
+         * 因此不应在回调之外保留对它的引用。
+         *
+         * @param event 事件
+         * @param sequence 事件的序号
+         * @param endOfBatch 如果这是当前批次中的最后一个事件，则为 {@code true}；
+         *        可用于在批次结束时刷新缓冲的 I/O
+         */
+        void onEvent(E event, long sequence, boolean endOfBatch);
+    }
+
+    /**
+     * 在自己的线程中循环等待事件、并以批量方式交给 {@link EventHandler} 的处理器。
+     * 每批事件处理完之后才发布一次自己的序号，以便依赖它的处理器和生产者继续推进。
+     *
+     * <p>{@link #halt} 会警报处理器的屏障，使 {@link #run} 在当前批次结束后返回；
+     * 在 {@code run} 开始之前调用的 {@code halt} 使下一次 {@code run} 立即返回。
+     * {@code run} 返回之后处理器可以再次运行。
+     * 如果回调抛出异常，已成功处理的事件的序号会被发布，然后 {@code run} 以该异常终止。
+     *
+     * @param <E> 事件类型
+     */
+    public static final class BatchEventProcessor<E> implements Runnable {
+        private final RingBuffer<E> ringBuffer;
+        private final SequenceBarrier barrier;
+        private final EventHandler<? super E> handler;
+        final Sequence sequence = new Sequence();
+        /** {@link #state} 的取值 */
+        private static final int IDLE = 0, RUNNING = 1, HALTED = 2;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+
+        BatchEventProcessor(RingBuffer<E> ringBuffer, SequenceBarrier barrier,
+                            EventHandler<? super E> handler) {
+            this.ringBuffer = ringBuffer;
+            this.barrier = barrier;
+            this.handler = handler;
+        }
+
+        /**
+         * 返回此处理器的序号，可以作为其他处理器的依赖。
+         *
+         * @return 此处理器的序号
+         */
+        public Sequence getSequence() {
+            return sequence;
+        }
+
+        /**
+         * 请求此处理器在当前批次结束后停止。如果处理器尚未运行，则下一次 {@link #run} 立即返回。
+         */
+        public void halt() {
+            state.set(HALTED);
+            barrier.alert();
+        }
+
+        /**
+         * 如果此处理器正在运行，则返回 {@code true}。
+         *
+         * @return 如果此处理器正在运行，则返回 {@code true}
+         */
+        public boolean isRunning() {
+            return state.get() == RUNNING;
+        }
+
+        /**
+         * 处理事件，直到被 {@linkplain #halt 停止}或所在线程被中断。
+         *
+         * @throws IllegalStateException 如果此处理器已经在运行
+         */
+        public void run() {
+            if (!state.compareAndSet(IDLE, RUNNING)) {
+                if (state.get() == RUNNING)
+                    throw new IllegalStateException();
+                // 在开始之前已被停止：消耗这次停止请求
+                state.compareAndSet(HALTED, IDLE);
+                return;
+            }
+            // 清除上一次停止留下的警报；此后的 halt 由循环条件观察到
+            barrier.clearAlert();
+            final RingBuffer<E> rb = ringBuffer;
+            final EventHandler<? super E> h = handler;
+            long next = sequence.get() + 1L;
+            try {
+                while (state.get() == RUNNING) {
+                    long available;
+                    try {
+                        available = barrier.waitFor(next);
+                    } catch (CancellationException ex) {
+                        // 清除警报后重新检查状态；如果警报不是由 halt 发出的，
+                        // 不清除它会使 waitFor 立即再次抛出而空转
+                        barrier.clearAlert();
+                        continue;
+                    }
+                    try {
+                        for (; next <= available; ++next)
+                            h.onEvent(rb.get(next), next, next == available);
+                    } finally {
+                        sequence.lazySet(next - 1L);
+                    }
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } finally {
+                state.set(IDLE);
+            }
+        }
+    }
+}
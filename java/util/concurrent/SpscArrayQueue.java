@@ -0,0 +1,156 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+import java.util.function.Consumer;
+
+/**
+ * 一个由数组支持的有界无锁<em>单生产者单消费者</em>（SPSC）队列。此队列按 FIFO（先进先出）顺序排列元素。
+ * 同一时刻最多只能有一个线程执行插入操作（{@code offer}、{@code put}、{@code add}），
+ * 且最多只能有一个线程执行移除操作（{@code poll}、{@code take}、{@code peek}、{@code drain}、
+ * {@code drainTo}、{@code clear}）；两者可以是不同的线程。违反此约定的行为是未定义的。
+ *
+ * <p>与 {@link ArrayBlockingQueue} 不同，此队列不使用锁，入队和出队都不分配对象，
+ * 每次操作只需一次有序写（lazySet），不需要 CAS。生产者和消费者的索引位于不同的缓存行上，
+ * 并各自缓存对方索引的最近一次读取值，因此在队列既不空也不满时两端几乎不产生缓存一致性流量。
+ * 这使其适用于 actor 邮箱、日志管道等每秒需要传递数百万条消息的场合。
+ *
+ * <p>阻塞方法（{@code put}、{@code take} 以及带超时的 {@code offer}/{@code poll}）先自旋，
+ * 然后 yield，最后以逐步加长的定时 park 等待，不会给非阻塞操作增加任何开销。
+ *
+ * <p>{@link #drain(Consumer, int)} 方法以批量方式消费元素，每批只发布一次消费者索引。
+ *
+ * <p>此类的迭代器是弱一致的。{@link #remove(Object)} 和迭代器的 {@code remove} 只能由消费者线程调用，
+ * 耗时与被移除元素到队列头部的距离成正比。
+ *
+ * @since 1.8
+ * @param <E> 此集合中持有的元素类型
+ * @see MpscArrayQueue
+ */
+public class SpscArrayQueue<E> extends AbstractArrayQueue<E> {
+
+    /** 生产者最近一次读到的 consumerIndex，仅由生产者访问 */
+    @sun.misc.Contended("producer") long consumerIndexCache;
+
+    /** 消费者最近一次读到的 producerIndex，仅由消费者访问 */
+    @sun.misc.Contended("consumer") long producerIndexCache;
+
+    /**
+     * 创建具有给定（固定）容量的 {@code SpscArrayQueue}。
+     *
+     * @param capacity 此队列的容量
+     * @throws IllegalArgumentException 如果 {@code capacity < 1} 或超过 {@code 1 << 30}
+     */
+    public SpscArrayQueue(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * 如果可以立即插入而不超出队列容量，则将指定元素插入此队列的尾部，成功时返回 {@code true}，
+     * 如果队列已满则返回 {@code false}。此方法只能由生产者线程调用。
+     *
+     * @throws NullPointerException 如果指定的元素为 null
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        final long p = producerIndex;
+        if (p - consumerIndexCache >= capacity) {
+            long c = consumerIndexCache = consumerIndex;
+            if (p - c >= capacity)
+                return false;
+        }
+        lazySetSlot(p, e);
+        lazySetProducerIndex(p + 1);
+        return true;
+    }
+
+    /**
+     * 此方法只能由消费者线程调用。
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long c = consumerIndex;
+        if (c >= producerIndexCache) {
+            long p = producerIndexCache = producerIndex;
+            if (c >= p)
+                return null;
+        }
+        final Object[] buffer = this.buffer;
+        final int i = (int)c & mask;
+        E x = (E) buffer[i];
+        buffer[i] = null;
+        lazySetConsumerIndex(c + 1);
+        return x;
+    }
+
+    /**
+     * 此方法只能由消费者线程调用。
+     */
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long c = consumerIndex;
+        if (c >= producerIndexCache) {
+            long p = producerIndexCache = producerIndex;
+            if (c >= p)
+                return null;
+        }
+        return (E) buffer[(int)c & mask];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> action, int limit) {
+        checkNotNull(action);
+        final long c = consumerIndex;
+        long p = producerIndexCache;
+        if (p - c < limit)
+            p = producerIndexCache = producerIndex;
+        final long end = c + Math.min(p - c, (long)Math.max(limit, 0));
+        final Object[] buffer = this.buffer;
+        final int mask = this.mask;
+        long k = c;
+        try {
+            while (k < end) {
+                int i = (int)k++ & mask;
+                E x = (E) buffer[i];
+                buffer[i] = null;
+                action.accept(x);
+            }
+        } finally {
+            if (k != c)
+                lazySetConsumerIndex(k);
+        }
+        return (int)(k - c);
+    }
+
+    /**
+     * 移除此队列中的所有元素。此方法只能由消费者线程调用。
+     */
+    public void clear() {
+        while (poll() != null)
+            ;
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一个把一组子任务的生命周期限定在一个代码块内的作用域。
+ *
+ * <p>所有者线程在作用域中 {@linkplain #fork 派生} 子任务，它们在给定的 {@link Executor}
+ * （例如 {@link ForkJoinPool} 或 {@link ThreadPoolExecutor}）中并发执行；然后所有者
+ * {@linkplain #join 等待所有子任务完成}，或者 {@linkplain #joinOrFail 等待所有子任务成功或第一个失败}。
+ * 作用域<em>关闭</em>时，所有尚未完成的子任务都被取消（如果正在运行则被中断），
+ * 并且 {@link #close} 等待正在运行的子任务退出，因此没有子任务能比作用域存活得更久，
+ * 被放弃的工作会立即停止消耗 CPU，而不需要对每个 {@link Future} 手动调用 {@code cancel}。
+ *
+ * <p>作用域可以有<em>截止时间</em>。截止时间过后，{@code join} 和 {@code joinOrFail}
+ * 关闭作用域并抛出 {@link TimeoutException}。使用 {@link #StructuredTaskScope(StructuredTaskScope)}
+ * 创建的子作用域继承父作用域的执行器和截止时间，并且在父作用域关闭时随之关闭，
+ * 因此取消和截止时间会自动传播到任意深度的子任务。如果所有者线程在等待时被中断，
+ * 作用域同样被关闭。
+ *
+ * <p>作用域通常在 try-with-resources 语句中使用：
+ *  <pre> {@code
+ * Response handle(Request req) throws Exception {
+ *   try (StructuredTaskScope<Object> scope =
+ *            new StructuredTaskScope<>(executor, 2, TimeUnit.SECONDS)) {
+ *     Future<User> user = scope.fork(() -> findUser(req));
+ *     Future<Order> order = scope.fork(() -> fetchOrder(req));
+ *     scope.joinOrFail();   // 任一失败则取消另一个
+ *     return new Response(user.get(), order.get());
+ *   }
+ * }}</pre>
+ *
+ * <p>{@code fork}、{@code join}、{@code joinOrFail} 和 {@code close} 应当只由所有者线程调用；
+ * {@link #shutdown} 可以由任何线程（包括子任务）调用。
+ *
+ * @param <T> 子任务结果的类型
+ * @since 1.8
+ */
+public class StructuredTaskScope<T> implements AutoCloseable {
+
+    private final Executor executor;
+    private final StructuredTaskScope<?> parent;
+
+    /** 截止时间，以 System.nanoTime 为基准；仅当 timed 为 true 时有效 */
+    private final long deadline;
+    private final boolean timed;
+
+    /** 保护以下所有可变字段 */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 在子任务完成、退出或作用域关闭时发出信号 */
+    private final Condition changed = lock.newCondition();
+
+    /** 所有派生的子任务 */
+    private final ArrayList<Subtask<?>> subtasks = new ArrayList<Subtask<?>>();
+
+    /** 子作用域 */
+    private final ArrayList<StructuredTaskScope<?>> children =
+        new ArrayList<StructuredTaskScope<?>>();
+
+    /** 尚未完成的子任务数 */
+    private int unfinished;
+
+    /** 正在执行 run 方法的子任务数 */
+    private int running;
+
+    /** 第一个失败的子任务的异常 */
+    private Throwable failure;
+
+    private volatile boolean shutdown;
+    private boolean closed;
+
+    /**
+     * 创建一个没有截止时间的作用域。
+     *
+     * @param executor 执行子任务的执行器
+     * @throws NullPointerException 如果 {@code executor} 为 null
+     */
+    public StructuredTaskScope(Executor executor) {
+        this(executor, null, false, 0L);
+    }
+
+    /**
+     * 创建一个在给定时间之后到达截止时间的作用域。
+     *
+     * @param executor 执行子任务的执行器
+     * @param timeout 从现在到截止时间的时间
+     * @param unit {@code timeout} 参数的时间单位
+     * @throws NullPointerException 如果 {@code executor} 或 {@code unit} 为 null
+     */
+    public StructuredTaskScope(Executor executor, long timeout, TimeUnit unit) {
+        this(executor, null, true, System.nanoTime() + unit.toNanos(timeout));
+    }
+
+    /**
+     * 创建一个子作用域，它使用父作用域的执行器，继承父作用域的截止时间，
+     * 并在父作用域关闭时随之关闭。
+     *
+     * @param parent 父作用域
+     * @throws NullPointerException 如果 {@code parent} 为 null
+     */
+    public StructuredTaskScope(StructuredTaskScope<?> parent) {
+        this(parent.executor, parent, parent.timed, parent.deadline);
+    }
+
+    /**
+     * 创建一个子作用域，它使用父作用域的执行器，截止时间为给定时间之后和父作用域截止时间中较早的一个，
+     * 并在父作用域关闭时随之关闭。
+     *
+     * @param parent 父作用域
+     * @param timeout 从现在到截止时间的时间
+     * @param unit {@code timeout} 参数的时间单位
+     * @throws NullPointerException 如果 {@code parent} 或 {@code unit} 为 null
+     */
+    public StructuredTaskScope(StructuredTaskScope<?> parent,
+                               long timeout, TimeUnit unit) {
+        this(parent.executor, parent, true,
+             earlier(parent, System.nanoTime() + unit.toNanos(timeout)));
+    }
+
+    private static long earlier(StructuredTaskScope<?> parent, long d) {
+        return (parent.timed && parent.deadline - d < 0L) ? parent.deadline : d;
+    }
+
+    private StructuredTaskScope(Executor executor, StructuredTaskScope<?> parent,
+                                boolean timed, long deadline) {
+        if (executor == null)
+            throw new NullPointerException();
+        this.executor = executor;
+        this.parent = parent;
+        this.timed = timed;
+        this.deadline = deadline;
+        if (parent != null)
+            parent.addChild(this);
+    }
+
+    private void addChild(StructuredTaskScope<?> child) {
+        boolean down;
+        lock.lock();
+        try {
+            if (!(down = shutdown))
+                children.add(child);
+        } finally {
+            lock.unlock();
+        }
+        if (down)
+            child.shutdown();
+    }
+
+    private void removeChild(StructuredTaskScope<?> child) {
+        lock.lock();
+        try {
+            children.remove(child);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在此作用域中派生一个子任务。如果作用域已经关闭，则子任务不会执行，
+     * 返回一个已被取消的 {@code Future}。
+     *
+     * @param task 子任务
+     * @param <U> 子任务结果的类型
+     * @return 子任务的 {@code Future}
+     * @throws NullPointerException 如果 {@code task} 为 null
+     * @throws IllegalStateException 如果作用域已经 {@linkplain #close 关闭}
+     * @throws RejectedExecutionException 如果执行器拒绝了子任务
+     */
+    public <U extends T> Future<U> fork(Callable<? extends U> task) {
+        if (task == null)
+            throw new NullPointerException();
+        Subtask<U> f = new Subtask<U>(task);
+        lock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("scope closed");
+            if (shutdown) {
+                f.cancel(false);
+                return f;
+            }
+            subtasks.add(f);
+            f.registered = true;
+            ++unfinished;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(f);
+        } catch (RuntimeException | Error ex) {
+            lock.lock();
+            try {
+                subtasks.remove(f);
+            } finally {
+                lock.unlock();
+            }
+            f.cancel(false);
+            throw ex;
+        }
+        return f;
+    }
+
+    /**
+     * 等待所有子任务完成（无论成功、失败还是被取消），或者作用域被关闭。
+     *
+     * @throws InterruptedException 如果当前线程在等待时被中断；此时作用域被关闭
+     * @throws TimeoutException 如果在所有子任务完成之前到达截止时间；此时作用域被关闭
+     * @throws IllegalStateException 如果作用域已经关闭
+     */
+    public void join() throws InterruptedException, TimeoutException {
+        await(false);
+    }
+
+    /**
+     * 等待所有子任务成功完成，或者第一个子任务失败。如果有子任务失败，
+     * 则关闭作用域（取消其余子任务）并抛出包装了该失败的 {@link ExecutionException}。
+     *
+     * @throws InterruptedException 如果当前线程在等待时被中断；此时作用域被关闭
+     * @throws TimeoutException 如果在所有子任务完成之前到达截止时间；此时作用域被关闭
+     * @throws ExecutionException 如果有子任务失败
+     * @throws IllegalStateException 如果作用域已经关闭
+     */
+    public void joinOrFail()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        await(true);
+        Throwable ex;
+        lock.lock();
+        try {
+            ex = failure;
+        } finally {
+            lock.unlock();
+        }
+        if (ex != null)
+            throw new ExecutionException(ex);
+    }
+
+    private void await(boolean failFast)
+        throws InterruptedException, TimeoutException {
+        boolean timedOut = false, interrupted = false;
+        lock.lock();
+        try {
+            if (closed)
+                throw new IllegalStateException("scope closed");
+            while (unfinished > 0 && !shutdown &&
+                   !(failFast && failure != null)) {
+                if (!timed)
+                    changed.await();
+                else {
+                    long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0L) {
+                        timedOut = true;
+                        break;
+                    }
+                    changed.awaitNanos(nanos);
+                }
+            }
+        } catch (InterruptedException ie) {
+            interrupted = true;
+        } finally {
+            lock.unlock();
+        }
+        if (interrupted) {
+            shutdown();
+            throw new InterruptedException();
+        }
+        if (timedOut) {
+            shutdown();
+            throw new TimeoutException();
+        }
+        if (failFast) {
+            boolean failed;
+            lock.lock();
+            try {
+                failed = (failure != null);
+            } finally {
+                lock.unlock();
+            }
+            if (failed)
+                shutdown();
+        }
+    }
+
+    /**
+     * 关闭作用域而不等待：取消所有尚未完成的子任务（如果正在运行则中断），
+     * 关闭所有子作用域，并唤醒等待的所有者。此后派生的子任务不会执行。
+     * 如果作用域已经关闭，则此方法没有效果。
+     */
+    public void shutdown() {
+        ArrayList<Subtask<?>> fs;
+        ArrayList<StructuredTaskScope<?>> cs;
+        lock.lock();
+        try {
+            if (shutdown)
+                return;
+            shutdown = true;
+            fs = new ArrayList<Subtask<?>>(subtasks);
+            cs = new ArrayList<StructuredTaskScope<?>>(children);
+            children.clear();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Subtask<?> f : fs)
+            f.cancel(true);
+        for (StructuredTaskScope<?> c : cs)
+            c.shutdown();
+    }
+
+    /**
+     * 如果作用域已经关闭（通过 {@link #shutdown}、{@link #close}、失败、超时或父作用域），
+     * 则返回 {@code true}。
+     *
+     * @return 如果作用域已经关闭，则返回 {@code true}
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * 关闭作用域，并等待所有正在运行的子任务退出。尚未开始运行的子任务不会运行。
+     * 如果当前线程在等待时被中断，则继续等待，并在返回前重新设置中断状态。
+     * 如果作用域已经关闭，则此方法没有效果。
+     */
+    public void close() {
+        shutdown();
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            while (running > 0) {
+                try {
+                    changed.await();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        if (parent != null)
+            parent.removeChild(this);
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    /**
+     * 子任务完成时调用。
+     */
+    private void subtaskDone(Subtask<?> f) {
+        lock.lock();
+        try {
+            --unfinished;
+            if (failure == null && !f.isCancelled()) {
+                try {
+                    f.get();
+                } catch (ExecutionException ex) {
+                    failure = ex.getCause();
+                } catch (InterruptedException | CancellationException ignore) {
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 子任务的 run 方法进入或退出时调用。
+     */
+    private void runningChanged(int delta) {
+        lock.lock();
+        try {
+            if ((running += delta) == 0)
+                changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 作用域中的一个子任务。
+     */
+    final class Subtask<U> extends FutureTask<U> {
+        /** 是否已计入 unfinished；由 lock 保护 */
+        boolean registered;
+
+        Subtask(Callable<? extends U> task) {
+            super(task::call);
+        }
+
+        public void run() {
+            if (isDone())
+                return;
+            runningChanged(1);
+            try {
+                super.run();
+            } finally {
+                runningChanged(-1);
+            }
+        }
+
+        protected void done() {
+            if (registered)
+                subtaskDone(this);
+        }
+    }
+}
@@ -0,0 +1,529 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent.atomic;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一个记录非负 {@code long} 值分布的并发直方图，适用于在热路径上记录延迟等统计样本。
+ *
+ * <p>值按对数-线性方式分桶：小于 2<sup>p</sup> 的值（其中 p 是构造时给定的精度位数）
+ * 各自占用一个桶；更大的值按其二进制最高位所在的 2 的幂分段，每段再线性划分为
+ * 2<sup>p</sup> 个桶。因此任意值所在桶的宽度不超过该值的 2<sup>-p</sup>，
+ * 即默认精度 5 下相对误差不超过约 3%，而覆盖整个 {@code long} 范围只需要
+ * (64 - p) &times; 2<sup>p</sup> 个桶。
+ *
+ * <p>与 {@link LongAdder} 一样，当 {@link #record} 在多个线程间发生争用时，
+ * 计数会被分散到动态增长的一组条带上（最多与 CPU 个数相当），每个条带是一个独占缓存行的
+ * 计数数组，线程按与 {@code LongAdder} 相同的探针哈希选择条带。在低争用下只使用一个条带。
+ * 作为代价，每个条带占用约 8 &times; 桶数 字节的内存。
+ *
+ * <p>{@link #snapshot} 和 {@link #snapshotThenReset} 在不阻塞记录线程的情况下汇总所有条带。
+ * 快照<em>不是</em>原子的：与之并发的记录可能被包含，也可能不被包含。
+ * {@code snapshotThenReset} 以原子方式逐桶取出并清零计数，因此每个样本恰好出现在一个快照中，
+ * 适合按时间间隔导出统计数据。
+ *
+ * @since 1.8
+ */
+public class LongHistogram {
+
+    /** 默认精度位数 */
+    private static final int DEFAULT_PRECISION = 5;
+
+    /** 精度位数的上限，限制每个条带的大小 */
+    private static final int MAX_PRECISION = 10;
+
+    /**
+     * 一个条带：桶计数数组，以及所记录值的和与最大值。
+     * 每次记录都要更新的和通过 CAS 更新以检测争用，因此即使各线程记录的值落在不同的桶中，
+     * 争用也会被发现；桶计数与最大值只在和的 CAS 成功之后更新。
+     */
+    @sun.misc.Contended static final class Stripe {
+        final long[] counts;
+        volatile long sum;
+        volatile long max;
+
+        Stripe(int buckets) {
+            counts = new long[buckets];
+        }
+
+        /**
+         * 尝试记录一个值，如果和的 CAS 因争用失败则返回 false，此时不记录任何内容。
+         */
+        final boolean tryRecord(long offset, long x) {
+            long s = sum;
+            if (!UNSAFE.compareAndSwapLong(this, SUM, s, s + x))
+                return false;
+            UNSAFE.getAndAddLong(counts, offset, 1L);
+            long m;
+            while (x > (m = max) && !UNSAFE.compareAndSwapLong(this, MAX, m, x))
+                ;
+            return true;
+        }
+
+        /**
+         * 无条件地记录一个值，用于尚未发布的新条带。
+         */
+        final void record(long offset, long x) {
+            UNSAFE.getAndAddLong(counts, offset, 1L);
+            UNSAFE.getAndAddLong(this, SUM, x);
+            long m;
+            while (x > (m = max) && !UNSAFE.compareAndSwapLong(this, MAX, m, x))
+                ;
+        }
+
+        private static final long SUM;
+        private static final long MAX;
+        static {
+            try {
+                Class<?> k = Stripe.class;
+                SUM = UNSAFE.objectFieldOffset(k.getDeclaredField("sum"));
+                MAX = UNSAFE.objectFieldOffset(k.getDeclaredField("max"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** 精度位数 p */
+    private final int precision;
+
+    /** 桶的个数 */
+    private final int bucketCount;
+
+    /** 在没有争用时使用的条带 */
+    private final Stripe base;
+
+    /** 条带表。当非 null 时，大小是 2 的幂。 */
+    private transient volatile Stripe[] stripes;
+
+    /** 自旋锁（通过 CAS 锁定）用于调整大小和/或创建条带 */
+    private transient volatile int stripesBusy;
+
+    /**
+     * 创建一个使用默认精度（5 位，相对误差约 3%）的空直方图。
+     */
+    public LongHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * 创建一个使用给定精度的空直方图。
+     *
+     * @param precisionBits 每个 2 的幂区间划分的桶数的以 2 为底的对数，
+     *        范围为 0 到 10；相对误差不超过 2<sup>-precisionBits</sup>
+     * @throws IllegalArgumentException 如果 {@code precisionBits} 超出范围
+     */
+    public LongHistogram(int precisionBits) {
+        if (precisionBits < 0 || precisionBits > MAX_PRECISION)
+            throw new IllegalArgumentException();
+        this.precision = precisionBits;
+        this.bucketCount = (64 - precisionBits) << precisionBits;
+        this.base = new Stripe(bucketCount);
+    }
+
+    /**
+     * 返回给定值所在的桶的下标。
+     */
+    private int bucketIndex(long x) {
+        int p = precision;
+        if (x < (1L << p))
+            return (int) x;
+        int shift = 63 - Long.numberOfLeadingZeros(x) - p;
+        return ((shift + 1) << p) + (int) (x >>> shift) - (1 << p);
+    }
+
+    /**
+     * 返回给定桶中的最小值。
+     */
+    static long lowestValue(int precision, int bucket) {
+        int q = bucket >>> precision;
+        if (q == 0)
+            return bucket;
+        long sub = bucket & ((1 << precision) - 1);
+        return ((1L << precision) + sub) << (q - 1);
+    }
+
+    /**
+     * 返回给定桶中的最大值。
+     */
+    static long highestValue(int precision, int bucket) {
+        int q = bucket >>> precision;
+        long width = (q == 0) ? 1L : 1L << (q - 1);
+        return lowestValue(precision, bucket) + (width - 1L);
+    }
+
+    /**
+     * 记录一个值。
+     *
+     * @param x 要记录的值
+     * @throws IllegalArgumentException 如果 {@code x} 为负数
+     */
+    public void record(long x) {
+        if (x < 0L)
+            throw new IllegalArgumentException();
+        long offset = ((long) bucketIndex(x) << ASHIFT) + ABASE;
+        Stripe[] as; Stripe a; int m;
+        if ((as = stripes) != null || !base.tryRecord(offset, x)) {
+            boolean uncontended = true;
+            if (as == null || (m = as.length - 1) < 0 ||
+                (a = as[Striped64.getProbe() & m]) == null ||
+                !(uncontended = a.tryRecord(offset, x)))
+                recordContended(offset, x, uncontended);
+        }
+    }
+
+    /**
+     * 处理涉及初始化、调整大小、创建新条带和/或争用的记录。
+     * 改编自 {@link Striped64#longAccumulate}，参见其中的解释。
+     */
+    private void recordContended(long offset, long x, boolean wasUncontended) {
+        int h;
+        if ((h = Striped64.getProbe()) == 0) {
+            ThreadLocalRandom.current(); // 强制初始化
+            h = Striped64.getProbe();
+            wasUncontended = true;
+        }
+        boolean collide = false;                // 如果最后一个槽非空，则为true
+        for (;;) {
+            Stripe[] as; Stripe a; int n;
+            if ((as = stripes) != null && (n = as.length) > 0) {
+                if ((a = as[(n - 1) & h]) == null) {
+                    if (stripesBusy == 0) {     // 尝试附加新条带
+                        Stripe r = new Stripe(bucketCount);
+                        if (stripesBusy == 0 && casStripesBusy()) {
+                            boolean created = false;
+                            try {               // 在锁下重新检查
+                                Stripe[] rs; int m, j;
+                                if ((rs = stripes) != null &&
+                                    (m = rs.length) > 0 &&
+                                    rs[j = (m - 1) & h] == null) {
+                                    rs[j] = r;
+                                    created = true;
+                                }
+                            } finally {
+                                stripesBusy = 0;
+                            }
+                            if (created) {
+                                r.record(offset, x);
+                                break;
+                            }
+                            continue;           // 槽现在非空
+                        }
+                    }
+                    collide = false;
+                }
+                else if (!wasUncontended)       // CAS已知失败
+                    wasUncontended = true;      // 重新哈希后继续
+                else if (a.tryRecord(offset, x))
+                    break;
+                else if (n >= Striped64.NCPU || stripes != as)
+                    collide = false;            // 达到最大大小或过时
+                else if (!collide)
+                    collide = true;
+                else if (stripesBusy == 0 && casStripesBusy()) {
+                    try {
+                        if (stripes == as) {    // 除非过时，否则扩展表
+                            Stripe[] rs = new Stripe[n << 1];
+                            for (int i = 0; i < n; ++i)
+                                rs[i] = as[i];
+                            stripes = rs;
+                        }
+                    } finally {
+                        stripesBusy = 0;
+                    }
+                    collide = false;
+                    continue;                   // 使用扩展表重试
+                }
+                h = Striped64.advanceProbe(h);
+            }
+            else if (stripesBusy == 0 && stripes == as && casStripesBusy()) {
+                boolean init = false;
+                try {                           // 初始化表
+                    if (stripes == as) {
+                        Stripe[] rs = new Stripe[2];
+                        Stripe r = new Stripe(bucketCount);
+                        r.record(offset, x);
+                        rs[h & 1] = r;
+                        stripes = rs;
+                        init = true;
+                    }
+                } finally {
+                    stripesBusy = 0;
+                }
+                if (init)
+                    break;
+            }
+            else if (base.tryRecord(offset, x))
+                break;                          // 回退到使用base
+        }
+    }
+
+    private boolean casStripesBusy() {
+        return UNSAFE.compareAndSwapInt(this, STRIPESBUSY, 0, 1);
+    }
+
+    /**
+     * 返回所有已记录值的快照。返回的快照<em>不是</em>原子的；
+     * 在没有并发记录的情况下调用时返回准确的结果。
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        return collect(false);
+    }
+
+    /**
+     * 返回所有已记录值的快照并清零。每个桶的计数被原子地取出并清零，
+     * 因此与之并发的每个记录要么出现在返回的快照中，要么保留到下一个快照中。
+     * 和与最大值与计数分开取出，因此在并发记录时可能与计数略有出入。
+     *
+     * @return 清零之前的快照
+     */
+    public Snapshot snapshotThenReset() {
+        return collect(true);
+    }
+
+    /**
+     * 清零所有已记录的值。等效于丢弃 {@link #snapshotThenReset} 的结果。
+     */
+    public void reset() {
+        collect(true);
+    }
+
+    private Snapshot collect(boolean reset) {
+        long[] counts = new long[bucketCount];
+        long[] summary = new long[2];           // sum, max
+        drainStripe(base, counts, summary, reset);
+        Stripe[] as = stripes; Stripe a;
+        if (as != null) {
+            for (int i = 0; i < as.length; ++i) {
+                if ((a = as[i]) != null)
+                    drainStripe(a, counts, summary, reset);
+            }
+        }
+        return new Snapshot(precision, counts, summary[0], summary[1]);
+    }
+
+    private static void drainStripe(Stripe a, long[] counts, long[] summary,
+                                    boolean reset) {
+        long[] cs = a.counts;
+        for (int i = 0; i < counts.length; ++i) {
+            long offset = ((long) i << ASHIFT) + ABASE;
+            counts[i] += reset ? UNSAFE.getAndSetLong(cs, offset, 0L) :
+                UNSAFE.getLongVolatile(cs, offset);
+        }
+        if (reset) {
+            summary[0] += UNSAFE.getAndSetLong(a, Stripe.SUM, 0L);
+            summary[1] = Math.max(summary[1],
+                                  UNSAFE.getAndSetLong(a, Stripe.MAX, 0L));
+        } else {
+            summary[0] += a.sum;
+            summary[1] = Math.max(summary[1], a.max);
+        }
+    }
+
+    /**
+     * 返回当前快照的字符串表示形式。
+     * @return 当前快照的字符串表示形式
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * {@link LongHistogram} 在某一时刻的不可变汇总。
+     *
+     * @since 1.8
+     */
+    public static final class Snapshot {
+        private final int precision;
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(int precision, long[] counts, long sum, long max) {
+            long c = 0L;
+            for (long x : counts)
+                c += x;
+            this.precision = precision;
+            this.counts = counts;
+            this.count = c;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * 返回记录的值的个数。
+         *
+         * @return 记录的值的个数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 返回记录的值的和。溢出时按 {@code long} 运算回绕。
+         *
+         * @return 记录的值的和
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * 返回记录的最大值，如果没有记录任何值则返回 0。
+         *
+         * @return 记录的最大值
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 返回记录的最小值所在桶的最小值，如果没有记录任何值则返回 0。
+         *
+         * @return 记录的最小值的近似值
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; ++i) {
+                if (counts[i] != 0L)
+                    return lowestValue(precision, i);
+            }
+            return 0L;
+        }
+
+        /**
+         * 返回记录的值的算术平均值，如果没有记录任何值则返回 0.0。
+         *
+         * @return 平均值
+         */
+        public double getMean() {
+            return (count == 0L) ? 0.0 : (double) sum / count;
+        }
+
+        /**
+         * 返回给定百分位上的值，即不小于至少 {@code percentile}% 的已记录值的最小桶的最大值
+         * （但不超过 {@link #getMax}）。如果没有记录任何值则返回 0。
+         *
+         * @param percentile 百分位，范围为 0.0 到 100.0
+         * @return 该百分位上的值，相对误差不超过直方图的精度
+         * @throws IllegalArgumentException 如果 {@code percentile} 超出范围
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0 && percentile <= 100.0))
+                throw new IllegalArgumentException();
+            if (count == 0L)
+                return 0L;
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; ++i) {
+                if ((seen += counts[i]) >= rank)
+                    return Math.min(highestValue(precision, i), max);
+            }
+            return max;
+        }
+
+        /**
+         * 返回桶的个数。
+         *
+         * @return 桶的个数
+         */
+        public int getBucketCount() {
+            return counts.length;
+        }
+
+        /**
+         * 返回给定桶中的计数。
+         *
+         * @param bucket 桶的下标
+         * @return 计数
+         * @throws IndexOutOfBoundsException 如果下标超出范围
+         */
+        public long getCountAtBucket(int bucket) {
+            return counts[bucket];
+        }
+
+        /**
+         * 返回给定桶所覆盖的最小值。
+         *
+         * @param bucket 桶的下标
+         * @return 桶所覆盖的最小值
+         * @throws IndexOutOfBoundsException 如果下标超出范围
+         */
+        public long getBucketLowerBound(int bucket) {
+            if (bucket < 0 || bucket >= counts.length)
+                throw new IndexOutOfBoundsException("索引 " + bucket);
+            return lowestValue(precision, bucket);
+        }
+
+        /**
+         * 返回给定桶所覆盖的最大值。
+         *
+         * @param bucket 桶的下标
+         * @return 桶所覆盖的最大值
+         * @throws IndexOutOfBoundsException 如果下标超出范围
+         */
+        public long getBucketUpperBound(int bucket) {
+            if (bucket < 0 || bucket >= counts.length)
+                throw new IndexOutOfBoundsException("索引 " + bucket);
+            return highestValue(precision, bucket);
+        }
+
+        /**
+         * 返回此快照的摘要的字符串表示形式。
+         * @return 此快照的摘要的字符串表示形式
+         */
+        public String toString() {
+            return "[count=" + count +
+                ", mean=" + getMean() +
+                ", p50=" + getValueAtPercentile(50.0) +
+                ", p99=" + getValueAtPercentile(99.0) +
+                ", max=" + max + "]";
+        }
+    }
+
+    // Unsafe 机制
+    private static final sun.misc.Unsafe UNSAFE;
+    private static final long STRIPESBUSY;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    static {
+        try {
+            UNSAFE = sun.misc.Unsafe.getUnsafe();
+            Class<?> k = LongHistogram.class;
+            STRIPESBUSY = UNSAFE.objectFieldOffset
+                (k.getDeclaredField("stripesBusy"));
+            ABASE = UNSAFE.arrayBaseOffset(long[].class);
+            int scale = UNSAFE.arrayIndexScale(long[].class);
+            if ((scale & (scale - 1)) != 0)
+                throw new Error("数据类型比例不是2的幂");
+            ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        } catch (Exception e) {
+            throw new Error(e);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent.atomic;
+import java.util.function.LongUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import sun.misc.Unsafe;
+
+/**
+ * 一个 {@code long} 数组，其中的元素可以原子地更新，并且每个元素独占缓存行。
+ *
+ * <p>此类具有与 {@link AtomicLongArray} 相同的方法和内存语义。不同之处在于，
+ * {@code AtomicLongArray} 中相邻的元素位于同一缓存行中，当不同线程频繁更新相邻元素
+ * （例如每个分片一个计数器）时会发生伪共享；而此类将每个元素放在单独的
+ * 128 字节区域中（覆盖相邻缓存行预取的范围），数组两端也留有同样的填充。
+ * 作为代价，每个元素占用 128 字节的内存，因此此类只适用于元素较少、争用较多的数组。
+ *
+ * @since 1.8
+ * @see PaddedAtomicLong
+ */
+public class PaddedAtomicLongArray implements java.io.Serializable {
+    private static final long serialVersionUID = -4513672817541329473L;
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static final int base = unsafe.arrayBaseOffset(long[].class);
+    private static final int shift;
+
+    /** 每个元素占用的数组槽数的以 2 为底的对数；16 个 long 即 128 字节 */
+    private static final int LOG_STRIDE = 4;
+
+    /** 可以分配的最大元素个数，包括两端的填充 */
+    private static final int MAX_LENGTH =
+        ((Integer.MAX_VALUE - 8) >>> LOG_STRIDE) - 2;
+
+    /** 填充后的存储；元素 i 位于下标 (i + 1) << LOG_STRIDE 处 */
+    private final long[] array;
+
+    /** 元素个数 */
+    private final int length;
+
+    static {
+        int scale = unsafe.arrayIndexScale(long[].class);
+        if ((scale & (scale - 1)) != 0)
+            throw new Error("数据类型比例不是2的幂");
+        shift = 31 - Integer.numberOfLeadingZeros(scale);
+    }
+
+    private long checkedByteOffset(int i) {
+        if (i < 0 || i >= length)
+            throw new IndexOutOfBoundsException("索引 " + i);
+
+        return byteOffset(i);
+    }
+
+    private static long byteOffset(int i) {
+        return ((long) (i + 1) << (shift + LOG_STRIDE)) + base;
+    }
+
+    /**
+     * 创建一个新的给定长度的 PaddedAtomicLongArray，所有元素初始值为零。
+     *
+     * @param length 数组的长度
+     * @throws NegativeArraySizeException 如果长度为负数
+     * @throws OutOfMemoryError 如果填充后的长度超出数组的限制
+     */
+    public PaddedAtomicLongArray(int length) {
+        this.array = new long[paddedLength(length)];
+        this.length = length;
+    }
+
+    /**
+     * 创建一个新的 PaddedAtomicLongArray，长度与给定数组相同，并且所有元素从给定数组复制。
+     *
+     * @param array 要复制元素的数组
+     * @throws NullPointerException 如果数组为 null
+     * @throws OutOfMemoryError 如果填充后的长度超出数组的限制
+     */
+    public PaddedAtomicLongArray(long[] array) {
+        int n = array.length;
+        long[] a = new long[paddedLength(n)];
+        for (int i = 0; i < n; ++i)
+            a[(i + 1) << LOG_STRIDE] = array[i];
+        // 通过最终字段保证可见性
+        this.array = a;
+        this.length = n;
+    }
+
+    private static int paddedLength(int length) {
+        if (length < 0)
+            throw new NegativeArraySizeException();
+        if (length > MAX_LENGTH)
+            throw new OutOfMemoryError("Requested array size exceeds VM limit");
+        return (length + 2) << LOG_STRIDE;
+    }
+
+    /**
+     * 返回数组的长度。
+     *
+     * @return 数组的长度
+     */
+    public final int length() {
+        return length;
+    }
+
+    /**
+     * 获取位置 {@code i} 的当前值。
+     *
+     * @param i 索引
+     * @return 当前值
+     */
+    public final long get(int i) {
+        return getRaw(checkedByteOffset(i));
+    }
+
+    private long getRaw(long offset) {
+        return unsafe.getLongVolatile(array, offset);
+    }
+
+    /**
+     * 将位置 {@code i} 的元素设置为给定值。
+     *
+     * @param i 索引
+     * @param newValue 新值
+     */
+    public final void set(int i, long newValue) {
+        unsafe.putLongVolatile(array, checkedByteOffset(i), newValue);
+    }
+
+    /**
+     * 最终将位置 {@code i} 的元素设置为给定值。
+     *
+     * @param i 索引
+     * @param newValue 新值
+     */
+    public final void lazySet(int i, long newValue) {
+        unsafe.putOrderedLong(array, checkedByteOffset(i), newValue);
+    }
+
+    /**
+     * 原子地将位置 {@code i} 的元素设置为给定值，并返回旧值。
+     *
+     * @param i 索引
+     * @param newValue 新值
+     * @return 旧值
+     */
+    public final long getAndSet(int i, long newValue) {
+        return unsafe.getAndSetLong(array, checkedByteOffset(i), newValue);
+    }
+
+    /**
+     * 如果当前值 {@code ==} 期望值，则原子地将位置 {@code i} 的元素设置为给定的更新值。
+     *
+     * @param i 索引
+     * @param expect 期望值
+     * @param update 新值
+     * @return 如果成功则返回 {@code true}。返回 {@code false} 表示实际值不等于期望值。
+     */
+    public final boolean compareAndSet(int i, long expect, long update) {
+        return compareAndSetRaw(checkedByteOffset(i), expect, update);
+    }
+
+    private boolean compareAndSetRaw(long offset, long expect, long update) {
+        return unsafe.compareAndSwapLong(array, offset, expect, update);
+    }
+
+    /**
+     * 如果当前值 {@code ==} 期望值，则原子地将位置 {@code i} 的元素设置为给定的更新值。
+     *
+     * <p><a href="package-summary.html#weakCompareAndSet">可能会无故失败，并且不提供顺序保证</a>，因此很少是 {@code compareAndSet} 的合适替代方案。
+     *
+     * @param i 索引
+     * @param expect 期望值
+     * @param update 新值
+     * @return 如果成功则返回 {@code true}
+     */
+    public final boolean weakCompareAndSet(int i, long expect, long update) {
+        return compareAndSet(i, expect, update);
+    }
+
+    /**
+     * 原子地将索引 {@code i} 处的元素加一。
+     *
+     * @param i 索引
+     * @return 旧值
+     */
+    public final long getAndIncrement(int i) {
+        return getAndAdd(i, 1);
+    }
+
+    /**
+     * 原子地将索引 {@code i} 处的元素减一。
+     *
+     * @param i 索引
+     * @return 旧值
+     */
+    public final long getAndDecrement(int i) {
+        return getAndAdd(i, -1);
+    }
+
+    /**
+     * 原子地将给定值加到索引 {@code i} 处的元素。
+     *
+     * @param i 索引
+     * @param delta 要加的值
+     * @return 旧值
+     */
+    public final long getAndAdd(int i, long delta) {
+        return unsafe.getAndAddLong(array, checkedByteOffset(i), delta);
+    }
+
+    /**
+     * 原子地将索引 {@code i} 处的元素加一。
+     *
+     * @param i 索引
+     * @return 更新后的值
+     */
+    public final long incrementAndGet(int i) {
+        return getAndAdd(i, 1) + 1;
+    }
+
+    /**
+     * 原子地将索引 {@code i} 处的元素减一。
+     *
+     * @param i 索引
+     * @return 更新后的值
+     */
+    public final long decrementAndGet(int i) {
+        return getAndAdd(i, -1) - 1;
+    }
+
+    /**
+     * 原子地将给定值加到索引 {@code i} 处的元素。
+     *
+     * @param i 索引
+     * @param delta 要加的值
+     * @return 更新后的值
+     */
+    public long addAndGet(int i, long delta) {
+        return getAndAdd(i, delta) + delta;
+    }
+
+    /**
+     * 原子地使用给定函数的结果更新索引 {@code i} 处的元素，返回旧值。该函数应该是无副作用的，因为当线程间竞争导致尝试更新失败时，它可能会被重新应用。
+     *
+     * @param i 索引
+     * @param updateFunction 无副作用的函数
+     * @return 旧值
+     */
+    public final long getAndUpdate(int i, LongUnaryOperator updateFunction) {
+        long offset = checkedByteOffset(i);
+        long prev, next;
+        do {
+            prev = getRaw(offset);
+            next = updateFunction.applyAsLong(prev);
+        } while (!compareAndSetRaw(offset, prev, next));
+        return prev;
+    }
+
+    /**
+     * 原子地使用给定函数的结果更新索引 {@code i} 处的元素，返回更新后的值。该函数应该是无副作用的，因为当线程间竞争导致尝试更新失败时，它可能会被重新应用。
+     *
+     * @param i 索引
+     * @param updateFunction 无副作用的函数
+     * @return 更新后的值
+     */
+    public final long updateAndGet(int i, LongUnaryOperator updateFunction) {
+        long offset = checkedByteOffset(i);
+        long prev, next;
+        do {
+            prev = getRaw(offset);
+            next = updateFunction.applyAsLong(prev);
+        } while (!compareAndSetRaw(offset, prev, next));
+        return next;
+    }
+
+    /**
+     * 原子地使用给定函数的结果更新索引 {@code i} 处的元素，返回旧值。该函数应该是无副作用的，因为当线程间竞争导致尝试更新失败时，它可能会被重新应用。该函数应用于索引 {@code i} 处的当前值作为第一个参数，给定更新作为第二个参数。
+     *
+     * @param i 索引
+     * @param x 更新值
+     * @param accumulatorFunction 无副作用的二元函数
+     * @return 旧值
+     */
+    public final long getAndAccumulate(int i, long x,
+                                      LongBinaryOperator accumulatorFunction) {
+        long offset = checkedByteOffset(i);
+        long prev, next;
+        do {
+            prev = getRaw(offset);
+            next = accumulatorFunction.applyAsLong(prev, x);
+        } while (!compareAndSetRaw(offset, prev, next));
+        return prev;
+    }
+
+    /**
+     * 原子地使用给定函数的结果更新索引 {@code i} 处的元素，返回更新后的值。该函数应该是无副作用的，因为当线程间竞争导致尝试更新失败时，它可能会被重新应用。该函数应用于索引 {@code i} 处的当前值作为第一个参数，给定更新作为第二个参数。
+     *
+     * @param i 索引
+     * @param x 更新值
+     * @param accumulatorFunction 无副作用的二元函数
+     * @return 更新后的值
+     */
+    public final long accumulateAndGet(int i, long x,
+                                      LongBinaryOperator accumulatorFunction) {
+        long offset = checkedByteOffset(i);
+        long prev, next;
+        do {
+            prev = getRaw(offset);
+            next = accumulatorFunction.applyAsLong(prev, x);
+        } while (!compareAndSetRaw(offset, prev, next));
+        return next;
+    }
+
+    /**
+     * 返回数组当前值的字符串表示形式。
+     * @return 数组当前值的字符串表示形式
+     */
+    public String toString() {
+        int iMax = length - 1;
+        if (iMax == -1)
+            return "[]";
+
+        StringBuilder b = new StringBuilder();
+        b.append('[');
+        for (int i = 0; ; i++) {
+            b.append(getRaw(byteOffset(i)));
+            if (i == iMax)
+                return b.append(']').toString();
+            b.append(',').append(' ');
+        }
+    }
+
+}
@@ -105,6 +105,10 @@
  * {@link java.util.concurrent.atomic.AtomicLongArray} 和
  * {@link java.util.concurrent.atomic.AtomicReferenceArray} 类进一步扩展了对这些类型数组的原子操作支持。这些类还值得注意的是，它们为数组元素提供了 {@code volatile} 访问语义，而普通数组不支持这一点。
  *
+ * <p>{@link java.util.concurrent.atomic.PaddedAtomicLong} 和
+ * {@link java.util.concurrent.atomic.PaddedAtomicLongArray} 提供与 {@code AtomicLong} 和
+ * {@code AtomicLongArray} 相同的操作，但将每个值填充到单独的缓存行上，以避免不同线程频繁更新相邻的值时发生伪共享。
+ *
  * <p id="weakCompareAndSet">原子类还支持方法
  * {@code weakCompareAndSet}，其适用范围有限。在某些平台上，弱版本可能在正常情况下比 {@code
  * compareAndSet} 更高效，但不同之处在于任何给定的 {@code weakCompareAndSet} 方法调用都可能 <em>无缘无故地</em> 返回 {@code
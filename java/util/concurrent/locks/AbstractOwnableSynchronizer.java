@@ -61,11 +61,14 @@ public abstract class AbstractOwnableSynchronizer
     /**
      * 设置当前拥有独占访问权限的线程。
      * {@code null} 参数表示没有线程拥有访问权限。
-     * 此方法不强制执行任何同步或 {@code volatile} 字段访问。
+     * 除了读取 {@link LockContentionProfiler} 的启用标志以外，此方法不强制执行任何同步或
+     * {@code volatile} 字段访问；启用争用分析时，它为发生过争用的同步器采样持有者的获取调用点。
      * @param thread 拥有线程
      */
     protected final void setExclusiveOwnerThread(Thread thread) {
         exclusiveOwnerThread = thread;
+        if (LockContentionProfiler.enabled)
+            LockContentionProfiler.ownerChanged(this, thread);
     }
 
     /**
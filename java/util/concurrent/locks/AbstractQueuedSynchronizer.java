@@ -361,6 +361,18 @@ public abstract class AbstractQueuedSynchronizer
      */
     private volatile int state;
 
+    /**
+     * 排队线程在挂起前自旋重试 tryAcquire 的次数上限，按最近的自旋结果自适应调整：
+     * 自旋期间获取成功（说明持有时间短于挂起/唤醒的代价）则加倍，失败则减半。
+     * 0 表示尚未调整，此时使用 INITIAL_SPINS。竞争写入是无害的。
+     */
+    private transient int spinLimit;
+
+    /**
+     * 争用统计，仅在启用 {@link LockContentionProfiler} 后惰性创建。
+     */
+    transient volatile LockContentionProfiler.Stats contentionStats;
+
     /**
      * 返回同步状态的当前值。
      * 此操作具有{@code volatile}读取的内存语义。
@@ -400,6 +412,15 @@ public abstract class AbstractQueuedSynchronizer
      */
     static final long spinForTimeoutThreshold = 1000L;
 
+    /** 是否为多处理器；单处理器上自旋没有意义 */
+    private static final boolean MP =
+        Runtime.getRuntime().availableProcessors() > 1;
+
+    /** 挂起前自旋次数上限的初始值、下界和上界 */
+    private static final int INITIAL_SPINS = 1 << 6;
+    private static final int MIN_SPINS     = 1 << 2;
+    private static final int MAX_SPINS     = 1 << 10;
+
     /**
      * 将节点插入队列，必要时初始化。参见上图。
      * @param node 要插入的节点
@@ -659,6 +680,49 @@ public abstract class AbstractQueuedSynchronizer
         return Thread.interrupted();
     }
 
+    /**
+     * 队首的等待线程在挂起前调用，自旋重试 tryAcquire 至多 spinLimit 次，
+     * 并根据结果调整 spinLimit。对于持有时间很短的锁，这避免了一次挂起/唤醒；
+     * 对于持有时间较长的锁，上限会迅速收缩到 MIN_SPINS。
+     *
+     * @param arg 获取参数
+     * @return {@code true} 如果在自旋期间获取成功
+     */
+    private boolean spinForAcquire(int arg) {
+        if (!MP)
+            return false;
+        int limit = spinLimit;
+        if (limit == 0)
+            limit = INITIAL_SPINS;
+        for (int i = 0; i < limit; ++i) {
+            if (tryAcquire(arg)) {
+                if (limit < MAX_SPINS)
+                    spinLimit = limit << 1;
+                return true;
+            }
+        }
+        spinLimit = (limit > MIN_SPINS) ? limit >>> 1 : MIN_SPINS;
+        return false;
+    }
+
+    /**
+     * 如果启用了争用分析，记录一次争用的开始，并返回当前时间作为排队获取的起点；否则返回 0。
+     */
+    private long profileStart() {
+        if (!LockContentionProfiler.enabled)
+            return 0L;
+        LockContentionProfiler.contended(this);
+        return System.nanoTime() | 1L;
+    }
+
+    /**
+     * 记录从 {@code start}（由 profileStart 返回）开始的一次排队获取。
+     */
+    private void profileEnd(long start) {
+        if (start != 0L)
+            LockContentionProfiler.record(this, start);
+    }
+
     /*
      * 各种形式的获取方法，独占/共享和控制模式不同。每个方法大致相同，但略有不同。由于异常机制（包括确保在 tryAcquire 抛出异常时取消）和其他控制的交互，只能进行少量的重构，否则会严重影响性能。
      */
@@ -672,6 +736,7 @@ public abstract class AbstractQueuedSynchronizer
      */
     final boolean acquireQueued(final Node node, int arg) {
         boolean failed = true;
+        final long start = profileStart();
         try {
             boolean interrupted = false;
             for (;;) {
@@ -680,11 +745,20 @@ public abstract class AbstractQueuedSynchronizer
                     setHead(node);
                     p.next = null; // 帮助垃圾回收
                     failed = false;
+                    profileEnd(start);
                     return interrupted;
                 }
-                if (shouldParkAfterFailedAcquire(p, node) &&
-                    parkAndCheckInterrupt())
-                    interrupted = true;
+                if (shouldParkAfterFailedAcquire(p, node)) {
+                    if (p == head && spinForAcquire(arg)) {
+                        setHead(node);
+                        p.next = null; // 帮助垃圾回收
+                        failed = false;
+                        profileEnd(start);
+                        return interrupted;
+                    }
+                    if (parkAndCheckInterrupt())
+                        interrupted = true;
+                }
             }
         } finally {
             if (failed)
@@ -700,6 +774,7 @@ public abstract class AbstractQueuedSynchronizer
         throws InterruptedException {
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        final long start = profileStart();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -707,11 +782,20 @@ public abstract class AbstractQueuedSynchronizer
                     setHead(node);
                     p.next = null; // 帮助垃圾回收
                     failed = false;
+                    profileEnd(start);
                     return;
                 }
-                if (shouldParkAfterFailedAcquire(p, node) &&
-                    parkAndCheckInterrupt())
-                    throw new InterruptedException();
+                if (shouldParkAfterFailedAcquire(p, node)) {
+                    if (p == head && spinForAcquire(arg)) {
+                        setHead(node);
+                        p.next = null; // 帮助垃圾回收
+                        failed = false;
+                        profileEnd(start);
+                        return;
+                    }
+                    if (parkAndCheckInterrupt())
+                        throw new InterruptedException();
+                }
             }
         } finally {
             if (failed)
@@ -733,6 +817,7 @@ public abstract class AbstractQueuedSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.EXCLUSIVE);
         boolean failed = true;
+        final long start = profileStart();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -740,14 +825,24 @@ public abstract class AbstractQueuedSynchronizer
                     setHead(node);
                     p.next = null; // 帮助垃圾回收
                     failed = false;
+                    profileEnd(start);
                     return true;
                 }
                 nanosTimeout = deadline - System.nanoTime();
                 if (nanosTimeout <= 0L)
                     return false;
                 if (shouldParkAfterFailedAcquire(p, node) &&
-                    nanosTimeout > spinForTimeoutThreshold)
-                    LockSupport.parkNanos(this, nanosTimeout);
+                    nanosTimeout > spinForTimeoutThreshold) {
+                    if (p == head && spinForAcquire(arg)) {
+                        setHead(node);
+                        p.next = null; // 帮助垃圾回收
+                        failed = false;
+                        profileEnd(start);
+                        return true;
+                    }
+                    // 自旋消耗了部分剩余时间
+                    LockSupport.parkNanos(this, deadline - System.nanoTime());
+                }
                 if (Thread.interrupted())
                     throw new InterruptedException();
             }
@@ -764,6 +859,7 @@ public abstract class AbstractQueuedSynchronizer
     private void doAcquireShared(int arg) {
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final long start = profileStart();
         try {
             boolean interrupted = false;
             for (;;) {
@@ -776,6 +872,7 @@ public abstract class AbstractQueuedSynchronizer
                         if (interrupted)
                             selfInterrupt();
                         failed = false;
+                        profileEnd(start);
                         return;
                     }
                 }
@@ -797,6 +894,7 @@ public abstract class AbstractQueuedSynchronizer
         throws InterruptedException {
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final long start = profileStart();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -806,6 +904,7 @@ public abstract class AbstractQueuedSynchronizer
                         setHeadAndPropagate(node, r);
                         p.next = null; // 帮助垃圾回收
                         failed = false;
+                        profileEnd(start);
                         return;
                     }
                 }
@@ -833,6 +932,7 @@ public abstract class AbstractQueuedSynchronizer
         final long deadline = System.nanoTime() + nanosTimeout;
         final Node node = addWaiter(Node.SHARED);
         boolean failed = true;
+        final long start = profileStart();
         try {
             for (;;) {
                 final Node p = node.predecessor();
@@ -842,6 +942,7 @@ public abstract class AbstractQueuedSynchronizer
                         setHeadAndPropagate(node, r);
                         p.next = null; // 帮助垃圾回收
                         failed = false;
+                        profileEnd(start);
                         return true;
                     }
                 }
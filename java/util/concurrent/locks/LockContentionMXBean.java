@@ -0,0 +1,137 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent.locks;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link AbstractQueuedSynchronizer} 锁争用分析器的管理接口。
+ *
+ * <p>存在一个全局的 {@code LockContentionMXBean} 实例，可以通过
+ * {@link LockContentionProfiler#getMXBean} 获取，并以
+ * {@link LockContentionProfiler#LOCK_CONTENTION_MXBEAN_NAME java.util.concurrent.locks:type=LockContention}
+ * 为名注册到 {@linkplain java.lang.management.ManagementFactory#getPlatformMBeanServer 平台 MBeanServer}。
+ *
+ * <p>分析器启用后，每个发生过争用的同步器都以一个名称标识，其形式为同步器的类名、
+ * {@code '@'} 和其身份哈希码的十六进制表示。下面以名称为参数的方法在该名称未知时
+ * 返回零、空数组或空映射。
+ *
+ * @since 1.8
+ * @see LockContentionProfiler
+ */
+public interface LockContentionMXBean {
+
+    /**
+     * 如果争用分析已启用，则返回 {@code true}。
+     *
+     * @return 如果争用分析已启用，则返回 {@code true}
+     */
+    boolean isEnabled();
+
+    /**
+     * 启用或禁用争用分析。禁用后已收集的数据仍然保留，直到调用 {@link #reset}。
+     *
+     * @param enabled 是否启用
+     * @throws SecurityException 如果存在安全管理器且调用者没有
+     *         {@code ManagementPermission("control")}
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * 返回所有已记录争用且仍可达的同步器的名称。
+     *
+     * @return 同步器名称的列表
+     */
+    List<String> getSynchronizerNames();
+
+    /**
+     * 返回给定同步器上需要排队等待的获取次数。
+     *
+     * @param name 同步器名称
+     * @return 争用获取的次数
+     */
+    long getContendedAcquireCount(String name);
+
+    /**
+     * 返回给定同步器上所有争用获取的等待时间之和（纳秒）。
+     *
+     * @param name 同步器名称
+     * @return 总等待时间（纳秒）
+     */
+    long getTotalWaitNanos(String name);
+
+    /**
+     * 返回给定同步器上单次争用获取的最长等待时间（纳秒）。
+     *
+     * @param name 同步器名称
+     * @return 最长等待时间（纳秒）
+     */
+    long getMaxWaitNanos(String name);
+
+    /**
+     * 返回给定同步器上等待时间的直方图。下标为 {@code i} 的元素是等待时间落在
+     * [2<sup>i</sup>, 2<sup>i+1</sup>) 纳秒内的争用获取次数（下标 0 也包括小于 1 纳秒的等待）。
+     *
+     * @param name 同步器名称
+     * @return 长度为 64 的直方图，如果名称未知则为空数组
+     */
+    long[] getWaitTimeHistogram(String name);
+
+    /**
+     * 返回给定同步器上发生争用获取的调用点（调用 {@code java.util.concurrent.locks}
+     * 包内的获取方法的帧）及其采样次数。调用点是<em>等待者</em>的调用点；
+     * 造成争用的持有者的调用点见 {@link #getOwnerCallSites}。每 {@code 32} 次争用获取只采样一次，
+     * 因此次数大约是实际次数的 1/32，只适合比较各调用点的相对频率。
+     * 每个同步器最多记录有限个不同的调用点，其余的计入键 {@code "<other>"}。
+     *
+     * @param name 同步器名称
+     * @return 调用点到采样的争用获取次数的映射
+     */
+    Map<String, Long> getContendedCallSites(String name);
+
+    /**
+     * 返回给定同步器上造成争用的<em>持有者</em>的获取调用点（持有者获取锁时调用
+     * {@code java.util.concurrent.locks} 包内的获取方法的帧）及其采样次数。
+     * 每次争用获取开始排队时，如果当前独占持有者的那次获取被采样，则计入该持有者的调用点。
+     * 持有者的获取每 {@code 32} 次采样一次，并且只在同步器第一次发生争用之后开始采样，
+     * 因此次数大约是实际次数的 1/32，只适合比较各调用点的相对频率。
+     * 只有通过 {@link AbstractOwnableSynchronizer#setExclusiveOwnerThread} 记录所有者的独占持有者
+     * 被记录；共享模式的持有者（例如读锁）不被记录。
+     * 每个同步器最多记录有限个不同的调用点，其余的计入键 {@code "<other>"}。
+     *
+     * @param name 同步器名称
+     * @return 持有者的调用点到采样的争用次数的映射
+     */
+    Map<String, Long> getOwnerCallSites(String name);
+
+    /**
+     * 丢弃所有已收集的数据。
+     *
+     * @throws SecurityException 如果存在安全管理器且调用者没有
+     *         {@code ManagementPermission("control")}
+     */
+    void reset();
+}
@@ -0,0 +1,369 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent.locks;
+
+import java.lang.management.ManagementPermission;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link AbstractQueuedSynchronizer} 的可选锁争用分析器。
+ *
+ * <p>分析默认是禁用的，此时同步器的获取路径上只多出对一个 volatile 标志的读取，
+ * 并且只发生在获取失败、线程需要排队的慢速路径上。启用后（通过 {@link #setEnabled}
+ * 或系统属性 {@code java.util.concurrent.locks.profileContention=true}），
+ * 每次需要排队的获取都会记录从排队到获取成功的等待时间。
+ * 分析器记录两类调用点：
+ * <ul>
+ * <li>等待者的调用点，每 {@code 32} 次争用获取采样一次：捕获调用栈开销较大，
+ * 而记录发生在获取成功之后，即在持有锁期间，采样把这部分持有时间的增加平摊到很小；
+ * <li>持有者的调用点：同步器第一次发生争用之后，它的独占持有者每 {@code 32} 次获取
+ * （在 {@link AbstractOwnableSynchronizer#setExclusiveOwnerThread} 中）采样一次获取调用点，
+ * 之后开始排队的等待者把这次争用计入当前持有者被采样的调用点。
+ * </ul>
+ * 启用后，发生过争用的同步器的每次独占获取和释放都多出几次字段读写，
+ * 因此分析只适合在诊断时短期启用。
+ *
+ * <p>收集到的数据通过 {@link LockContentionMXBean} 暴露，例如：
+ * <pre> {@code
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     LockContentionProfiler.getMXBean(),
+ *     new ObjectName(LockContentionProfiler.LOCK_CONTENTION_MXBEAN_NAME));}</pre>
+ *
+ * <p>分析器只弱引用被分析的同步器，不会阻止其被垃圾回收。
+ * {@link AbstractQueuedLongSynchronizer} 不参与分析。
+ *
+ * @since 1.8
+ */
+public final class LockContentionProfiler {
+
+    private LockContentionProfiler() {}
+
+    /**
+     * {@link LockContentionMXBean} 的 {@link javax.management.ObjectName} 的字符串表示形式。
+     */
+    public static final String LOCK_CONTENTION_MXBEAN_NAME =
+        "java.util.concurrent.locks:type=LockContention";
+
+    /** 每多少次争用获取采样一次调用点，必须是 2 的幂 */
+    private static final int CALL_SITE_SAMPLE_INTERVAL = 32;
+
+    /** 每个同步器最多记录的不同调用点个数 */
+    private static final int MAX_CALL_SITES = 64;
+
+    /** 超出 MAX_CALL_SITES 的调用点计入的键 */
+    private static final String OTHER_CALL_SITES = "<other>";
+
+    /** 调用栈中需要跳过的包前缀 */
+    private static final String LOCKS_PACKAGE = "java.util.concurrent.locks.";
+
+    /** 是否启用分析；由 AbstractQueuedSynchronizer 在慢速路径上读取 */
+    static volatile boolean enabled =
+        Boolean.getBoolean("java.util.concurrent.locks.profileContention");
+
+    /** 所有已创建的统计记录，加锁访问 */
+    private static final List<Stats> registry = new ArrayList<>();
+
+    private static final LockContentionMXBean mxbean = new MXBeanImpl();
+
+    /**
+     * 单个同步器的争用统计。由 AbstractQueuedSynchronizer 惰性创建并持有。
+     */
+    static final class Stats {
+        final WeakReference<AbstractQueuedSynchronizer> sync;
+        final String name;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(64);
+        final ConcurrentHashMap<String, AtomicLong> callSites =
+            new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, AtomicLong> ownerSites =
+            new ConcurrentHashMap<>();
+
+        /**
+         * 当前独占持有者的获取调用点，如果那次获取没有被采样或者没有持有者则为 null。
+         * 和 ownerAcquires 一样只由持有者在持有锁时写入；等待者的读取可能看到稍旧的值，这是无害的。
+         */
+        String ownerSite;
+        int ownerAcquires;
+
+        Stats(AbstractQueuedSynchronizer sync) {
+            this.sync = new WeakReference<>(sync);
+            this.name = sync.getClass().getName() + "@" +
+                Integer.toHexString(System.identityHashCode(sync));
+        }
+
+        void record(long waitNanos) {
+            if (waitNanos < 0L)
+                waitNanos = 0L;
+            long n = count.incrementAndGet();
+            totalNanos.addAndGet(waitNanos);
+            long m;
+            while (waitNanos > (m = maxNanos.get()) &&
+                   !maxNanos.compareAndSet(m, waitNanos))
+                ;
+            int b = (waitNanos == 0L) ? 0 :
+                63 - Long.numberOfLeadingZeros(waitNanos);
+            histogram.incrementAndGet(b);
+            // 捕获调用栈会增加持有时间，因此只采样，包括第一次争用获取
+            if ((n & (CALL_SITE_SAMPLE_INTERVAL - 1)) == 1L)
+                countSite(callSites, callSite());
+        }
+
+        /**
+         * 由持有者在获取（{@code acquired} 为 true）或释放同步器时调用。
+         */
+        void ownerChanged(boolean acquired) {
+            if (!acquired)
+                ownerSite = null;
+            else
+                ownerSite = ((++ownerAcquires & (CALL_SITE_SAMPLE_INTERVAL - 1)) == 1)
+                    ? callSite() : null;
+        }
+
+        /**
+         * 由等待者在开始排队时调用，把争用计入当前持有者被采样的调用点。
+         */
+        void contended() {
+            String site = ownerSite;
+            if (site != null)
+                countSite(ownerSites, site);
+        }
+
+        void clear() {
+            count.set(0L);
+            totalNanos.set(0L);
+            maxNanos.set(0L);
+            for (int i = 0; i < 64; ++i)
+                histogram.set(i, 0L);
+            callSites.clear();
+            ownerSites.clear();
+        }
+    }
+
+    /**
+     * 把调用点的次数加一；不同调用点过多时计入 OTHER_CALL_SITES。
+     */
+    private static void countSite(ConcurrentHashMap<String, AtomicLong> sites,
+                                  String site) {
+        AtomicLong c = sites.get(site);
+        if (c == null) {
+            if (sites.size() >= MAX_CALL_SITES)
+                site = OTHER_CALL_SITES;
+            c = sites.computeIfAbsent(site, k -> new AtomicLong());
+        }
+        c.incrementAndGet();
+    }
+
+    /**
+     * 返回调用栈中最后一个 java.util.concurrent.locks 包内的帧的调用者。
+     * 同步器的获取方法会回调子类的 {@code tryAcquire} 等方法，
+     * 因此跳过夹在包内帧之间的子类帧，返回调用获取方法的帧。
+     */
+    private static String callSite() {
+        StackTraceElement[] st = new Throwable().getStackTrace();
+        int i = st.length;
+        while (i > 0 && !st[i - 1].getClassName().startsWith(LOCKS_PACKAGE))
+            --i;
+        return (i > 0 && i < st.length) ? st[i].toString() : OTHER_CALL_SITES;
+    }
+
+    /**
+     * 记录同步器上一次从 {@code startNanos} 开始的争用获取。
+     * 由 AbstractQueuedSynchronizer 在获取成功后调用。
+     */
+    static void record(AbstractQueuedSynchronizer sync, long startNanos) {
+        long waitNanos = System.nanoTime() - startNanos;
+        stats(sync).record(waitNanos);
+    }
+
+    /**
+     * 记录同步器上一次争用获取的开始。由 AbstractQueuedSynchronizer 在线程开始排队时调用。
+     */
+    static void contended(AbstractQueuedSynchronizer sync) {
+        stats(sync).contended();
+    }
+
+    /**
+     * 记录同步器的独占持有者的变化。由 {@link AbstractOwnableSynchronizer#setExclusiveOwnerThread}
+     * 在启用分析时调用；只有已经发生过争用的同步器才采样持有者的调用点。
+     */
+    static void ownerChanged(AbstractOwnableSynchronizer sync, Thread owner) {
+        if (sync instanceof AbstractQueuedSynchronizer) {
+            Stats s = ((AbstractQueuedSynchronizer) sync).contentionStats;
+            if (s != null)
+                s.ownerChanged(owner != null);
+        }
+    }
+
+    /**
+     * 返回同步器的统计记录，必要时创建。
+     */
+    private static Stats stats(AbstractQueuedSynchronizer sync) {
+        Stats s = sync.contentionStats;
+        if (s == null) {
+            synchronized (registry) {
+                if ((s = sync.contentionStats) == null) {
+                    s = new Stats(sync);
+                    registry.add(s);
+                    sync.contentionStats = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    /**
+     * 返回仍可达的同步器的统计记录，同时清除已被回收的同步器的记录。
+     */
+    private static List<Stats> liveStats() {
+        synchronized (registry) {
+            for (Iterator<Stats> it = registry.iterator(); it.hasNext();) {
+                if (it.next().sync.get() == null)
+                    it.remove();
+            }
+            return new ArrayList<>(registry);
+        }
+    }
+
+    private static Stats find(String name) {
+        for (Stats s : liveStats()) {
+            if (s.name.equals(name))
+                return s;
+        }
+        return null;
+    }
+
+    private static void checkControl() {
+        SecurityManager sm = System.getSecurityManager();
+        if (sm != null)
+            sm.checkPermission(new ManagementPermission("control"));
+    }
+
+    /**
+     * 如果争用分析已启用，则返回 {@code true}。
+     *
+     * @return 如果争用分析已启用，则返回 {@code true}
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 启用或禁用争用分析。
+     *
+     * @param enable 是否启用
+     * @throws SecurityException 如果存在安全管理器且调用者没有
+     *         {@code ManagementPermission("control")}
+     */
+    public static void setEnabled(boolean enable) {
+        checkControl();
+        enabled = enable;
+    }
+
+    /**
+     * 返回争用分析器的管理接口。
+     *
+     * @return 全局的 {@link LockContentionMXBean} 实例
+     */
+    public static LockContentionMXBean getMXBean() {
+        return mxbean;
+    }
+
+    static final class MXBeanImpl implements LockContentionMXBean {
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enable) {
+            LockContentionProfiler.setEnabled(enable);
+        }
+
+        public List<String> getSynchronizerNames() {
+            List<Stats> live = liveStats();
+            List<String> names = new ArrayList<>(live.size());
+            for (Stats s : live)
+                names.add(s.name);
+            return names;
+        }
+
+        public long getContendedAcquireCount(String name) {
+            Stats s = find(name);
+            return (s == null) ? 0L : s.count.get();
+        }
+
+        public long getTotalWaitNanos(String name) {
+            Stats s = find(name);
+            return (s == null) ? 0L : s.totalNanos.get();
+        }
+
+        public long getMaxWaitNanos(String name) {
+            Stats s = find(name);
+            return (s == null) ? 0L : s.maxNanos.get();
+        }
+
+        public long[] getWaitTimeHistogram(String name) {
+            Stats s = find(name);
+            if (s == null)
+                return new long[0];
+            long[] h = new long[64];
+            for (int i = 0; i < 64; ++i)
+                h[i] = s.histogram.get(i);
+            return h;
+        }
+
+        public Map<String, Long> getContendedCallSites(String name) {
+            Stats s = find(name);
+            return (s == null) ? Collections.emptyMap() : snapshot(s.callSites);
+        }
+
+        public Map<String, Long> getOwnerCallSites(String name) {
+            Stats s = find(name);
+            return (s == null) ? Collections.emptyMap() : snapshot(s.ownerSites);
+        }
+
+        private static Map<String, Long> snapshot(Map<String, AtomicLong> sites) {
+            Map<String, Long> m = new HashMap<>();
+            for (Map.Entry<String, AtomicLong> e : sites.entrySet())
+                m.put(e.getKey(), e.getValue().get());
+            return m;
+        }
+
+        public void reset() {
+            checkControl();
+            for (Stats s : liveStats())
+                s.clear();
+        }
+    }
+}
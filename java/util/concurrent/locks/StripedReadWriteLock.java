@@ -0,0 +1,493 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.concurrent.locks;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个偏向读取者的 {@link ReadWriteLock}，用于读多写少、且读取线程分布在许多处理器上的场合。
+ *
+ * <p>{@link ReentrantReadWriteLock} 和 {@link StampedLock} 的每次读取获取都要 CAS 同一个状态字，
+ * 因此在多核机器上，即使只有读取者，该状态字所在的缓存行也会在处理器之间来回传递。
+ * 此类改为将读取者记录在一组分条的计数器（<em>读取指示器</em>）中，每个计数器位于自己的缓存行上，
+ * 线程按其身份哈希选择计数器。没有写入者时，读取获取和释放只修改本线程所在的计数器，
+ * 读取吞吐量随处理器数线性扩展。
+ *
+ * <p>写入者的代价相应更高：它先获取一个内部的 {@link ReentrantLock} 以排斥其他写入者，
+ * 然后设置写入标志以<em>撤销读取偏向</em>（此后新的读取者会退出并等待），
+ * 最后等待所有分条计数器归零，即已进入的读取者全部离开。写入者释放锁时清除写入标志。
+ * 因此当读写冲突时，此锁偏向写入者，不会出现写入者饥饿。
+ *
+ * <p>此类与 {@code ReentrantReadWriteLock} 的主要区别：
+ *
+ * <ul>
+ * <li>读取锁<em>不可重入</em>：在持有读取锁时再次获取读取锁，如果期间有写入者到来，
+ * 将导致死锁（与 {@link StampedLock} 相同）。写入锁可重入。
+ * <li>持有写入锁的线程可以获取读取锁（降级），但持有读取锁的线程不能获取写入锁（升级）。
+ * <li>两种锁都不支持 {@link Condition}，{@code newCondition()} 抛出 {@code UnsupportedOperationException}。
+ * <li>不提供公平性选项；读取者在写入者之间的进入顺序是未指定的。
+ * <li>每个锁实例占用的内存与处理器数成正比，因此不适合创建大量细粒度的锁。
+ * </ul>
+ *
+ * <p>示例用法：
+ * <pre> {@code
+ * class Registry {
+ *   private final StripedReadWriteLock rwl = new StripedReadWriteLock();
+ *   private final Map<String, Data> map = new HashMap<>();
+ *
+ *   Data get(String key) {
+ *     Lock r = rwl.readLock();
+ *     r.lock();
+ *     try { return map.get(key); }
+ *     finally { r.unlock(); }
+ *   }
+ *
+ *   void put(String key, Data value) {
+ *     Lock w = rwl.writeLock();
+ *     w.lock();
+ *     try { map.put(key, value); }
+ *     finally { w.unlock(); }
+ *   }
+ * }}</pre>
+ *
+ * @since 1.8
+ * @see ReentrantReadWriteLock
+ * @see StampedLock
+ */
+public class StripedReadWriteLock implements ReadWriteLock {
+    /*
+     * 读取获取：对本线程的计数器原子加一（完整的内存屏障），然后读取 writing。如果没有写入者，
+     * 获取成功；否则减一撤回，并通过获取再释放 writerLock 等待当前写入者完成，然后重试。
+     *
+     * 写入获取：获取 writerLock，记录 writerThread，以 volatile 写设置 writing，然后读取所有计数器
+     * 直到它们的和为零。读取者“先加一再读 writing”、写入者“先写 writing 再读计数器”，
+     * 两者都是顺序一致的，因此至少有一方会看到另一方：要么读取者退出，要么写入者等待它。
+     *
+     * 读取释放：对计数器减一，然后如果 writing 已设置，则 unpark 写入者。写入者等待计数器归零时
+     * 先短暂自旋再 park；LockSupport 的许可语义保证在写入者检查与 park 之间发生的释放不会丢失。
+     *
+     * 线程到计数器的映射使用 System.identityHashCode，它在线程的生命期内不变，
+     * 所以释放时无需任何线程本地状态即可找到获取时使用的计数器。多个线程可能共享一个计数器，
+     * 这只会带来争用，不影响正确性。
+     */
+
+    /** CPU 数量，用于确定计数器的数量 */
+    static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** 写入者等待读取者离开时，在 park 之前的自旋次数 */
+    private static final int SPINS = (NCPU > 1) ? 1 << 6 : 0;
+
+    /**
+     * 一个填充的读取计数器。
+     */
+    @sun.misc.Contended static final class Cell {
+        volatile long value;
+
+        final long getAndAdd(long x) {
+            return UNSAFE.getAndAddLong(this, VALUE, x);
+        }
+
+        // Unsafe 机制
+        private static final sun.misc.Unsafe UNSAFE;
+        private static final long VALUE;
+        static {
+            try {
+                UNSAFE = sun.misc.Unsafe.getUnsafe();
+                VALUE = UNSAFE.objectFieldOffset
+                    (Cell.class.getDeclaredField("value"));
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    /** 读取指示器，长度为 2 的幂 */
+    private final Cell[] cells;
+
+    /** 排斥写入者，并供读取者等待当前写入者完成 */
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    /** 如果有写入者持有或正在获取写入锁，则为 true */
+    private volatile boolean writing;
+
+    /** 持有或正在获取写入锁的线程 */
+    private volatile Thread writerThread;
+
+    /** 内部类提供的读取锁 */
+    private final ReadLock readerLock = new ReadLock();
+
+    /** 内部类提供的写入锁 */
+    private final WriteLock writeLock = new WriteLock();
+
+    /**
+     * 创建一个新的 {@code StripedReadWriteLock}，其读取指示器的数量为不小于可用处理器数两倍的 2 的幂。
+     */
+    public StripedReadWriteLock() {
+        int n = Math.max(2, NCPU << 1);
+        n = Integer.highestOneBit(n - 1) << 1;
+        Cell[] cs = new Cell[n];
+        for (int i = 0; i < n; ++i)
+            cs[i] = new Cell();
+        this.cells = cs;
+    }
+
+    public Lock readLock()  { return readerLock; }
+    public Lock writeLock() { return writeLock; }
+
+    /**
+     * 返回当前线程对应的读取指示器。
+     */
+    final Cell readerCell() {
+        int h = System.identityHashCode(Thread.currentThread());
+        h ^= h >>> 16;
+        final Cell[] cs = cells;
+        return cs[h & (cs.length - 1)];
+    }
+
+    /**
+     * 返回所有读取指示器之和。
+     */
+    final long readerSum() {
+        long sum = 0L;
+        for (Cell c : cells)
+            sum += c.value;
+        return sum;
+    }
+
+    /**
+     * 尝试在本线程的计数器上登记一个读取者。如果有其他线程的写入者则撤回并返回 false。
+     */
+    final boolean tryEnterRead(Cell c) {
+        c.getAndAdd(1L);
+        if (!writing || writerThread == Thread.currentThread())
+            return true;
+        c.getAndAdd(-1L);
+        wakeWriter();
+        return false;
+    }
+
+    /**
+     * 在撤回或释放读取登记之后调用：如果写入者正在等待读取者离开，则唤醒它。
+     */
+    final void wakeWriter() {
+        if (writing) {
+            Thread w = writerThread;
+            if (w != null)
+                LockSupport.unpark(w);
+        }
+    }
+
+    /**
+     * 在持有 writerLock 之后调用，设置写入标志并等待所有读取者离开。
+     * 如果超时或被中断，则撤销写入标志并返回 false（中断时保留中断状态）。
+     */
+    final boolean revokeAndDrain(boolean interruptible, boolean timed,
+                                 long nanos) {
+        writerThread = Thread.currentThread();
+        writing = true;
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        boolean interrupted = false;
+        for (int k = 0; readerSum() != 0L; ++k) {
+            if (k < SPINS)
+                continue;
+            if (Thread.interrupted()) {
+                interrupted = true;
+                if (interruptible) {
+                    Thread.currentThread().interrupt();
+                    restoreBias();
+                    return false;
+                }
+            }
+            if (timed) {
+                if ((nanos = deadline - System.nanoTime()) <= 0L) {
+                    restoreBias();
+                    return false;
+                }
+                LockSupport.parkNanos(this, nanos);
+            }
+            else
+                LockSupport.park(this);
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return true;
+    }
+
+    /**
+     * 清除写入标志，使读取者重新走快速路径。仅在持有 writerLock 时调用。
+     */
+    final void restoreBias() {
+        writing = false;
+        writerThread = null;
+    }
+
+    /**
+     * 查询此锁持有的读取锁的数量。此方法设计用于监控系统状态，而不是用于同步控制。
+     *
+     * @return 持有的读取锁的数量
+     */
+    public int getReadLockCount() {
+        long n = readerSum();
+        return (n <= 0L) ? 0 : (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int)n;
+    }
+
+    /**
+     * 查询写入锁是否被任何线程持有（或正在被获取）。此方法设计用于监控系统状态，而不是用于同步控制。
+     *
+     * @return 如果任何线程持有写入锁，则返回 {@code true}；否则返回 {@code false}
+     */
+    public boolean isWriteLocked() {
+        return writing;
+    }
+
+    /**
+     * 查询写入锁是否被当前线程持有。
+     *
+     * @return 如果当前线程持有写入锁，则返回 {@code true}；否则返回 {@code false}
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return writerLock.isHeldByCurrentThread();
+    }
+
+    /**
+     * 返回一个标识此锁及其锁状态的字符串。括号中的状态包括字符串 {@code "Write locked = "}
+     * 后跟写入锁是否被持有，以及字符串 {@code "Read locks = "} 后跟持有的读取锁的数量。
+     *
+     * @return 一个标识此锁及其锁状态的字符串
+     */
+    public String toString() {
+        return super.toString() +
+            "[Write locked = " + writing +
+            ", Read locks = " + getReadLockCount() + "]";
+    }
+
+    /**
+     * 由方法 {@link StripedReadWriteLock#readLock} 返回的锁。
+     */
+    final class ReadLock implements Lock {
+        /**
+         * 获取读取锁。如果没有其他线程持有或正在获取写入锁，则立即获取读取锁并返回；
+         * 否则当前线程等待该写入者释放写入锁后重试。
+         */
+        public void lock() {
+            final Cell c = readerCell();
+            while (!tryEnterRead(c)) {
+                writerLock.lock();      // 等待当前写入者完成
+                writerLock.unlock();
+            }
+        }
+
+        /**
+         * 获取读取锁，除非当前线程被 {@linkplain Thread#interrupt 中断}。
+         *
+         * @throws InterruptedException 如果当前线程被中断
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            final Cell c = readerCell();
+            while (!tryEnterRead(c)) {
+                writerLock.lockInterruptibly();
+                writerLock.unlock();
+            }
+        }
+
+        /**
+         * 仅当在调用时没有其他线程持有或正在获取写入锁时才获取读取锁。
+         *
+         * @return 如果获取了读取锁，则返回 {@code true}
+         */
+        public boolean tryLock() {
+            return tryEnterRead(readerCell());
+        }
+
+        /**
+         * 如果在给定的等待时间内没有其他线程持有写入锁且当前线程未被中断，则获取读取锁。
+         *
+         * @param timeout 等待读取锁的时间
+         * @param unit 超时参数的时间单位
+         * @return 如果获取了读取锁，则返回 {@code true}
+         * @throws InterruptedException 如果当前线程被中断
+         * @throws NullPointerException 如果时间单位为 null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            final long deadline = System.nanoTime() + nanos;
+            final Cell c = readerCell();
+            while (!tryEnterRead(c)) {
+                if ((nanos = deadline - System.nanoTime()) <= 0L ||
+                    !writerLock.tryLock(nanos, TimeUnit.NANOSECONDS))
+                    return false;
+                writerLock.unlock();
+            }
+            return true;
+        }
+
+        /**
+         * 尝试释放此锁。
+         *
+         * @throws IllegalMonitorStateException 如果可以确定当前线程并未持有读取锁
+         */
+        public void unlock() {
+            Cell c = readerCell();
+            if (c.getAndAdd(-1L) <= 0L) {
+                c.getAndAdd(1L);
+                throw new IllegalMonitorStateException();
+            }
+            wakeWriter();
+        }
+
+        /**
+         * 抛出 {@code UnsupportedOperationException}，因为 {@code ReadLocks} 不支持条件。
+         *
+         * @throws UnsupportedOperationException 始终
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * 返回一个标识此锁及其锁状态的字符串。
+         *
+         * @return 一个标识此锁及其锁状态的字符串
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * 由方法 {@link StripedReadWriteLock#writeLock} 返回的锁。
+     */
+    final class WriteLock implements Lock {
+        /**
+         * 获取写入锁。阻止新的读取者进入，并等待已进入的读取者全部离开。
+         * 如果当前线程已经持有写入锁，则持有计数加一并立即返回。
+         */
+        public void lock() {
+            writerLock.lock();
+            if (writerLock.getHoldCount() == 1)
+                revokeAndDrain(false, false, 0L);
+        }
+
+        /**
+         * 获取写入锁，除非当前线程被 {@linkplain Thread#interrupt 中断}。
+         *
+         * @throws InterruptedException 如果当前线程被中断
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            writerLock.lockInterruptibly();
+            if (writerLock.getHoldCount() == 1 &&
+                !revokeAndDrain(true, false, 0L)) {
+                writerLock.unlock();
+                Thread.interrupted();
+                throw new InterruptedException();
+            }
+        }
+
+        /**
+         * 仅当在调用时没有其他线程持有读取锁或写入锁时才获取写入锁。
+         *
+         * @return 如果获取了写入锁，则返回 {@code true}
+         */
+        public boolean tryLock() {
+            if (!writerLock.tryLock())
+                return false;
+            if (writerLock.getHoldCount() == 1) {
+                writerThread = Thread.currentThread();
+                writing = true;
+                if (readerSum() != 0L) {
+                    restoreBias();
+                    writerLock.unlock();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 如果在给定的等待时间内可以获取写入锁且当前线程未被中断，则获取写入锁。
+         *
+         * @param timeout 等待写入锁的时间
+         * @param unit 超时参数的时间单位
+         * @return 如果获取了写入锁，则返回 {@code true}
+         * @throws InterruptedException 如果当前线程被中断
+         * @throws NullPointerException 如果时间单位为 null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final long deadline = System.nanoTime() + nanos;
+            if (!writerLock.tryLock(nanos, TimeUnit.NANOSECONDS))
+                return false;
+            if (writerLock.getHoldCount() == 1 &&
+                !revokeAndDrain(true, true, deadline - System.nanoTime())) {
+                writerLock.unlock();
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * 尝试释放此锁。如果当前线程是此锁的持有者，则持有计数减一；如果持有计数变为零，
+         * 则恢复读取偏向并释放锁。
+         *
+         * @throws IllegalMonitorStateException 如果当前线程不持有此锁
+         */
+        public void unlock() {
+            if (!writerLock.isHeldByCurrentThread())
+                throw new IllegalMonitorStateException();
+            if (writerLock.getHoldCount() == 1)
+                restoreBias();
+            writerLock.unlock();
+        }
+
+        /**
+         * 抛出 {@code UnsupportedOperationException}，因为此写入锁不支持条件。
+         *
+         * @throws UnsupportedOperationException 始终
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * 返回一个标识此锁及其锁状态的字符串。
+         *
+         * @return 一个标识此锁及其锁状态的字符串
+         */
+        public String toString() {
+            Thread o = writerThread;
+            return super.toString() + ((o == null) ?
+                                       "[Unlocked]" :
+                                       "[Locked by thread " + o.getName() + "]");
+        }
+    }
+}
@@ -70,10 +70,15 @@
  * <p>类 {@link java.util.concurrent.ForkJoinPool} 提供了一个主要设计用于处理 {@link
  * java.util.concurrent.ForkJoinTask} 及其子类的执行器。这些类使用了一个工作窃取调度器，可以为符合限制的任务实现高吞吐量，这些限制通常在计算密集型并行处理中成立。
  *
+ * <p>类 {@link java.util.concurrent.StructuredTaskScope} 把一组子任务的生命周期限定在一个代码块内：
+ * 作用域关闭、第一个子任务失败或到达截止时间时，其余子任务（包括嵌套作用域中的子任务）被自动取消。
+ *
  * <h2>队列</h2>
  *
  * {@link java.util.concurrent.ConcurrentLinkedQueue} 类提供了一个高效、可扩展的线程安全非阻塞 FIFO 队列。
  * {@link java.util.concurrent.ConcurrentLinkedDeque} 类类似，但还支持 {@link java.util.Deque} 接口。
+ * {@link java.util.concurrent.ConcurrentLinkedArrayQueue} 类与 {@code ConcurrentLinkedQueue} 语义相同，
+ * 但每个节点持有一段槽位并通过 fetch-and-add 认领，大大减少了分配和 CAS 重试。
  *
  * <p>在 {@code java.util.concurrent} 中有五个实现支持扩展的 {@link java.util.concurrent.BlockingQueue}
  * 接口，该接口定义了阻塞版本的 put 和 take：
@@ -90,6 +95,12 @@
  * <p>{@link java.util.concurrent.BlockingDeque} 接口扩展了 {@code BlockingQueue} 以支持 FIFO 和 LIFO
  * （基于栈）操作。类 {@link java.util.concurrent.LinkedBlockingDeque} 提供了实现。
  *
+ * <p>类 {@link java.util.concurrent.SpscArrayQueue} 和 {@link java.util.concurrent.MpscArrayQueue}
+ * 提供了基于预分配数组的有界无锁 {@code BlockingQueue}，分别用于单生产者单消费者和多生产者单消费者场景，
+ * 入队和出队均不分配对象，并支持批量消费。
+ * 类 {@link java.util.concurrent.RingBuffer} 提供了一个预分配的多播环形缓冲区，单个生产者发布的事件由多个
+ * 按依赖顺序排列的消费者以批量方式读取，且不复制事件。
+ *
  * <h2>计时</h2>
  *
  * {@link java.util.concurrent.TimeUnit} 类提供了多种粒度（包括纳秒）来指定和控制基于超时的操作。大多数包中的类都包含基于超时的操作，除了无限期等待。
@@ -99,7 +110,7 @@
  *
  * <h2>同步器</h2>
  *
- * 五类辅助常见的特殊用途同步模式。
+ * 六类辅助常见的特殊用途同步模式。
  * <ul>
  *
  * <li>{@link java.util.concurrent.Semaphore} 是一个经典的并发工具。
@@ -112,6 +123,8 @@
  *
  * <li>{@link java.util.concurrent.Exchanger} 允许两个线程在会合点交换对象，适用于某些管道设计。
  *
+ * <li>{@link java.util.concurrent.RateLimiter} 以令牌桶语义限制许可的发放速率，支持突发容量和预热期。
+ *
  * </ul>
  *
  * <h2>并发集合</h2>
@@ -125,6 +138,7 @@
  * 当预期许多线程将访问给定集合时，通常 {@code ConcurrentHashMap} 比同步的 {@code HashMap} 更可取，
  * 而 {@code ConcurrentSkipListMap} 比同步的 {@code TreeMap} 更可取。
  * 当预期读取和遍历次数大大超过列表的更新次数时，{@code CopyOnWriteArrayList} 比同步的 {@code ArrayList} 更可取。
+ * 固定大小的 {@link java.util.concurrent.ConcurrentBitSet} 支持无锁地原子设置和清除单个位，可以代替同步的 {@code BitSet}。
  *
  * <p>此包中使用“并发”前缀的一些类与类似的“同步”类有所不同。例如 {@code java.util.Hashtable} 和
  * {@code Collections.synchronizedMap(new HashMap())} 是同步的。但 {@link
@@ -27,6 +27,10 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -112,6 +116,21 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
      */
     private boolean parallel;
 
+    /**
+     * 执行并行终端操作的池；如果为 null，则使用公共池。仅对源阶段有效。
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * 创建此阶段的操作名，由 {@link StreamProfiler} 在启用剖析时记录；否则为 null。
+     */
+    private final String opName;
+
+    /**
+     * 正在进行的终端评估的剖析状态；如果没有剖析，则为 null。仅对源阶段有效。
+     */
+    private StreamProfiler.Profile profile;
+
     /**
      * 构造流管道的头部。
      *
@@ -130,6 +149,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.combinedFlags = (~(sourceOrOpFlags << 1)) & StreamOpFlag.INITIAL_OPS_VALUE;
         this.depth = 0;
         this.parallel = parallel;
+        this.opName = null;
     }
 
     /**
@@ -150,6 +170,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         this.combinedFlags = (~(sourceOrOpFlags << 1)) & StreamOpFlag.INITIAL_OPS_VALUE;
         this.depth = 0;
         this.parallel = parallel;
+        this.opName = null;
     }
 
     /**
@@ -171,6 +192,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         if (opIsStateful())
             sourceStage.sourceAnyStateful = true;
         this.depth = previousStage.depth + 1;
+        this.opName = StreamProfiler.enabled ? StreamProfiler.operationName() : null;
     }
 
 
@@ -189,9 +211,93 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        if (StreamProfiler.enabled)
+            return profiled(() -> evaluateTerminal(terminalOp));
+        return evaluateTerminal(terminalOp);
+    }
+
+    private <R> R evaluateTerminal(TerminalOp<E_OUT, R> terminalOp) {
+        if (!isParallel())
+            return terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        return inBoundPool(() -> terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags())));
+    }
+
+    /**
+     * 在 {@link StreamProfiler} 的剖析下执行给定的终端评估，并在评估成功完成后报告结果。
+     * 如果当前线程已经在剖析另一次评估，则直接执行。
+     */
+    @SuppressWarnings("rawtypes")
+    private <R> R profiled(Supplier<R> evaluation) {
+        int n = 0;
+        for (AbstractPipeline p = this; p != null; p = p.previousStage)
+            ++n;
+        AbstractPipeline<?, ?, ?>[] stages = new AbstractPipeline<?, ?, ?>[n];
+        String[] names = new String[n];
+        for (AbstractPipeline p = this; p != null; p = p.previousStage) {
+            stages[--n] = p;
+            names[n] = p.opName;
+        }
+        StreamProfiler.Profile prof = StreamProfiler.start(stages, names, isParallel());
+        if (prof == null)
+            return evaluation.get();
+        sourceStage.profile = prof;
+        boolean completed = false;
+        try {
+            R result = evaluation.get();
+            completed = true;
+            return result;
+        } finally {
+            sourceStage.profile = null;
+            prof.finish(completed);
+        }
+    }
+
+    /**
+     * 返回正在进行的终端评估的剖析状态；如果没有剖析，则返回 null。
+     */
+    final StreamProfiler.Profile profile() {
+        return sourceStage.profile;
+    }
+
+    /**
+     * 如果管道是并行的并且绑定到一个池，而当前线程不是该池的工作线程，
+     * 则在该池中执行给定的计算并等待其结果；否则在当前线程中直接执行。
+     * 在池中执行时，计算内部通过 {@code invoke} 或 {@code fork} 派生的任务都会进入该池。
+     */
+    private <R> R inBoundPool(Supplier<R> action) {
+        ForkJoinPool p = sourceStage.pool;
+        if (p != null && isParallel()) {
+            Thread t = Thread.currentThread();
+            if (!(t instanceof ForkJoinWorkerThread) ||
+                ((ForkJoinWorkerThread) t).getPool() != p)
+                return p.invoke(new PoolEvaluation<>(action));
+        }
+        return action.get();
+    }
+
+    /**
+     * 在绑定的池中执行管道评估的任务。
+     */
+    @SuppressWarnings("serial")
+    private static final class PoolEvaluation<R> extends RecursiveTask<R> {
+        private final Supplier<R> action;
+
+        PoolEvaluation(Supplier<R> action) {
+            this.action = action;
+        }
+
+        @Override
+        protected R compute() {
+            return action.get();
+        }
+    }
+
+    /**
+     * 按并行度共享的池，由 {@link #parallel(int)} 使用；首次使用时初始化。
+     */
+    private static final class SharedPools {
+        static final ConcurrentHashMap<Integer, ForkJoinPool> pools =
+                new ConcurrentHashMap<>();
     }
 
     /**
@@ -206,15 +312,18 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        // 如果最后一个中间操作是状态操作，则直接评估以避免额外的收集步骤
-        if (isParallel() && previousStage != null && opIsStateful()) {
-            // 将此最后一个管道阶段的深度设置为零，以切分管道，使此操作不包含在上游切片中，上游操作也不包含在此切片中
-            depth = 0;
-            return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
-        }
-        else {
-            return evaluate(sourceSpliterator(0), true, generator);
-        }
+        Supplier<Node<E_OUT>> evaluation = () -> inBoundPool(() -> {
+            // 如果最后一个中间操作是状态操作，则直接评估以避免额外的收集步骤
+            if (isParallel() && previousStage != null && opIsStateful()) {
+                // 将此最后一个管道阶段的深度设置为零，以切分管道，使此操作不包含在上游切片中，上游操作也不包含在此切片中
+                depth = 0;
+                return opEvaluateParallel(previousStage, previousStage.sourceSpliterator(0), generator);
+            }
+            else {
+                return evaluate(sourceSpliterator(0), true, generator);
+            }
+        });
+        return StreamProfiler.enabled ? profiled(evaluation) : evaluation.get();
     }
 
     /**
@@ -255,6 +364,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S sequential() {
         sourceStage.parallel = false;
+        sourceStage.pool = null;
         return (S) this;
     }
 
@@ -262,9 +372,29 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S parallel() {
         sourceStage.parallel = true;
+        sourceStage.pool = null;
         return (S) this;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        sourceStage.parallel = true;
+        sourceStage.pool = pool;
+        return (S) this;
+    }
+
+    @Override
+    public final S parallel(int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException();
+        ForkJoinPool p = SharedPools.pools.get(parallelism);
+        if (p == null)
+            p = SharedPools.pools.computeIfAbsent(parallelism, ForkJoinPool::new);
+        return parallel(p);
+    }
+
     @Override
     public void close() {
         linkedOrConsumed = true;
@@ -315,7 +445,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             }
         }
         else {
-            return wrap(this, () -> sourceSpliterator(0), isParallel());
+            return wrap(this, () -> inBoundPool(() -> sourceSpliterator(0)), isParallel());
         }
     }
 
@@ -458,8 +588,16 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     final <P_IN> Sink<P_IN> wrapSink(Sink<E_OUT> sink) {
         Objects.requireNonNull(sink);
 
+        StreamProfiler.Profile prof = sourceStage.profile;
+        StreamProfiler.Chain chain = null;
+        if (prof != null) {
+            chain = prof.newChain();
+            sink = prof.wrapOutput(this, getOutputShape(), sink, chain);
+        }
         for ( @SuppressWarnings("rawtypes") AbstractPipeline p=AbstractPipeline.this; p.depth > 0; p=p.previousStage) {
             sink = p.opWrapSink(p.previousStage.combinedFlags, sink);
+            if (prof != null)
+                sink = prof.wrapInput(p, p.previousStage.getOutputShape(), sink, chain);
         }
         return (Sink<P_IN>) sink;
     }
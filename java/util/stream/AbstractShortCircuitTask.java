@@ -99,7 +99,7 @@ abstract class AbstractShortCircuitTask<P_IN, P_OUT, R,
                 break;
             }
             if (sizeEstimate <= sizeThreshold || (ls = rs.trySplit()) == null) {
-                result = task.doLeaf();
+                result = task.computeLeaf();
                 break;
             }
             K leftChild, rightChild, taskToFork;
@@ -24,6 +24,7 @@
  */
 package java.util.stream;
 
+import java.util.ArrayList;
 import java.util.Spliterator;
 import java.util.concurrent.CountedCompleter;
 import java.util.concurrent.ForkJoinPool;
@@ -161,6 +162,23 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      */
     protected abstract R doLeaf();
 
+    /**
+     * 调用 {@link #doLeaf}；如果正在剖析管道的评估，则把此叶任务的大小估计、深度和耗时记录到
+     * {@link StreamProfiler} 中。
+     *
+     * @return 叶节点计算的结果
+     */
+    final R computeLeaf() {
+        StreamProfiler.Profile prof = StreamProfiler.profileOf(helper);
+        if (prof == null)
+            return doLeaf();
+        long size = spliterator.estimateSize();
+        long start = System.nanoTime();
+        R result = doLeaf();
+        prof.leaf(this, size, System.nanoTime() - start);
+        return result;
+    }
+
     /**
      * 根据初始大小估计返回建议的目标叶大小。
      *
@@ -251,11 +269,19 @@ abstract class AbstractTask<P_IN, P_OUT, R,
      * 决定是否进一步拆分任务或直接计算。如果直接计算，调用 {@code doLeaf} 并将结果传递给 {@code setRawResult}。否则拆分子任务，分叉一个并继续另一个。
      *
      * <p> 该方法旨在在各种用途中节省资源。当拆分时，循环继续一个子任务，以避免深度递归。为了应对可能偏向左重或右重拆分的 {@code Spliterator}，我们在循环中交替分叉和继续子任务。
+     *
+     * <p>如果 {@link StreamCostModel} 已启用，并且这是一个大小已知、尚未设置目标大小的根任务，
+     * 则改由 {@link #computeAdaptive} 根据样本决定如何处理。
      */
     @Override
     public void compute() {
         Spliterator<P_IN> rs = spliterator, ls; // 右、左拆分器
         long sizeEstimate = rs.estimateSize();
+        if (targetSize == 0L && StreamCostModel.enabled &&
+            sizeEstimate != Long.MAX_VALUE && isRoot()) {
+            computeAdaptive(sizeEstimate);
+            return;
+        }
         long sizeThreshold = getTargetSize(sizeEstimate);
         boolean forkRight = false;
         @SuppressWarnings("unchecked") K task = (K) this;
@@ -278,8 +304,52 @@ abstract class AbstractTask<P_IN, P_OUT, R,
             taskToFork.fork();
             sizeEstimate = rs.estimateSize();
         }
-        task.setLocalResult(task.doLeaf());
+        task.setLocalResult(task.computeLeaf());
+        task.tryComplete();
+    }
+
+    /**
+     * 根任务的自适应计算。沿最左路径拆分（不分叉右兄弟）直到得到一个不超过样本大小的前缀，
+     * 顺序计算该前缀并计时，然后由 {@link StreamCostModel#decide} 选择其余部分的叶大小：
+     * 顺序执行时在当前线程中依次完成所有被推迟的右兄弟，否则以选定的目标大小分叉它们。
+     * 样本叶任务的结果照常参与合并，因此树的形状和结果与普通拆分没有区别。
+     */
+    private void computeAdaptive(long sizeEstimate) {
+        int leafTarget = getLeafTarget();
+        long sampleSize = StreamCostModel.sampleSize(sizeEstimate, leafTarget);
+        Spliterator<P_IN> rs = spliterator, ls;
+        long est = sizeEstimate;
+        ArrayList<K> deferred = new ArrayList<>(); // 被推迟的右兄弟，从右到左
+        @SuppressWarnings("unchecked") K task = (K) this;
+        while (est > sampleSize && (ls = rs.trySplit()) != null) {
+            K leftChild, rightChild;
+            task.leftChild  = leftChild = task.makeChild(ls);
+            task.rightChild = rightChild = task.makeChild(rs);
+            task.setPendingCount(1);
+            deferred.add(rightChild);
+            task = leftChild;
+            rs = ls;
+            est = rs.estimateSize();
+        }
+        long start = System.nanoTime();
+        task.setLocalResult(task.computeLeaf());
+        long elapsed = System.nanoTime() - start;
         task.tryComplete();
+        long leafSize = StreamCostModel.decide(sizeEstimate, est, elapsed, leafTarget);
+        int n = deferred.size();
+        if (n == 0)
+            return;
+        for (int i = 0; i < n; ++i)
+            deferred.get(i).targetSize = leafSize;
+        if (leafSize == Long.MAX_VALUE) {
+            for (int i = n - 1; i >= 0; --i)
+                deferred.get(i).compute();
+        }
+        else {
+            for (int i = 0; i < n - 1; ++i)
+                deferred.get(i).fork();
+            deferred.get(n - 1).compute();
+        }
     }
 
     /**
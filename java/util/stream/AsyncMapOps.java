@@ -0,0 +1,249 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package java.util.stream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * 用于创建异步映射操作的工厂方法，映射函数返回 {@link CompletionStage}，
+ * 操作最多同时保持给定数量的未完成结果，并把完成的结果推送到下游。
+ *
+ * <p>异步映射是一个无状态操作：每个 {@link Sink}（顺序评估时只有一个，并行评估时每个叶任务一个）
+ * 独立地维护自己的一组未完成结果，并在 {@code end()} 时等待并推送剩余的结果。
+ * 因此并行评估时，同时未完成的结果数最多为叶任务数乘以 {@code maxInFlight}。
+ *
+ * <p>有序变体按输入的遇到顺序推送结果，必要时等待最早的未完成结果；
+ * 无序变体在任何结果完成时推送它，并清除流的 {@code ORDERED} 标志。
+ * 等待使用 {@link CompletableFuture#join}，因此在 {@code ForkJoinPool} 工作线程中等待时会得到补偿。
+ *
+ * <p>如果某个结果异常完成，则取消此 {@code Sink} 中其余未完成的结果，
+ * 并抛出 {@code join} 抛出的 {@link java.util.concurrent.CompletionException}。
+ * 如果下游请求取消（短路），剩余的未完成结果被取消而不被推送。
+ *
+ * @since 1.8
+ */
+final class AsyncMapOps {
+
+    private AsyncMapOps() { }
+
+    /**
+     * 向提供的引用流附加一个异步映射操作。
+     *
+     * @param <T> 输入元素的类型
+     * @param <R> 输出元素的类型
+     * @param upstream 具有元素类型 T 的引用流
+     * @param mapper 返回每个元素的异步结果的函数
+     * @param maxInFlight 每个 {@code Sink} 最多同时未完成的结果数
+     * @param ordered 是否按遇到顺序推送结果
+     */
+    static <T, R> Stream<R> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                    Function<? super T, ? extends CompletionStage<? extends R>> mapper,
+                                    int maxInFlight, boolean ordered) {
+        Objects.requireNonNull(mapper);
+        if (maxInFlight <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxInFlight));
+        int flags = StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT |
+                    (ordered ? 0 : StreamOpFlag.NOT_ORDERED);
+        return new ReferencePipeline.StatelessOp<T, R>(upstream, StreamShape.REFERENCE, flags) {
+            @Override
+            Sink<T> opWrapSink(int flags, Sink<R> sink) {
+                return ordered
+                       ? new OrderedSink<>(sink, mapper, maxInFlight)
+                       : new UnorderedSink<>(sink, mapper, maxInFlight);
+            }
+        };
+    }
+
+    /**
+     * 对元素应用映射函数并返回其结果的 {@code CompletableFuture}。
+     */
+    @SuppressWarnings("unchecked")
+    static <T, R> CompletableFuture<R> start(
+            Function<? super T, ? extends CompletionStage<? extends R>> mapper, T t) {
+        return (CompletableFuture<R>) Objects.requireNonNull(mapper.apply(t))
+                                             .toCompletableFuture();
+    }
+
+    /**
+     * 按遇到顺序推送结果的 {@link Sink}。未完成的结果按输入顺序保存在一个队列中。
+     */
+    private static final class OrderedSink<T, R> extends Sink.ChainedReference<T, R> {
+        private final Function<? super T, ? extends CompletionStage<? extends R>> mapper;
+        private final int maxInFlight;
+        private ArrayDeque<CompletableFuture<R>> inFlight;
+
+        OrderedSink(Sink<? super R> downstream,
+                    Function<? super T, ? extends CompletionStage<? extends R>> mapper,
+                    int maxInFlight) {
+            super(downstream);
+            this.mapper = mapper;
+            this.maxInFlight = maxInFlight;
+        }
+
+        @Override
+        public void begin(long size) {
+            inFlight = new ArrayDeque<>(Math.min(maxInFlight, 16));
+            downstream.begin(size);
+        }
+
+        @Override
+        public void accept(T t) {
+            ArrayDeque<CompletableFuture<R>> q = inFlight;
+            try {
+                // 推送已经完成的最前面的结果，并在已满时等待最早的结果
+                CompletableFuture<R> f;
+                while ((f = q.peekFirst()) != null &&
+                       (f.isDone() || q.size() >= maxInFlight)) {
+                    q.pollFirst();
+                    downstream.accept(f.join());
+                }
+                q.addLast(start(mapper, t));
+            } catch (RuntimeException | Error ex) {
+                cancelAll();
+                throw ex;
+            }
+        }
+
+        @Override
+        public void end() {
+            ArrayDeque<CompletableFuture<R>> q = inFlight;
+            try {
+                CompletableFuture<R> f;
+                while ((f = q.pollFirst()) != null) {
+                    if (downstream.cancellationRequested()) {
+                        f.cancel(true);
+                        cancelAll();
+                        break;
+                    }
+                    downstream.accept(f.join());
+                }
+            } catch (RuntimeException | Error ex) {
+                cancelAll();
+                throw ex;
+            }
+            inFlight = null;
+            downstream.end();
+        }
+
+        private void cancelAll() {
+            CompletableFuture<R> f;
+            while ((f = inFlight.pollFirst()) != null)
+                f.cancel(true);
+        }
+    }
+
+    /**
+     * 按完成顺序推送结果的 {@link Sink}。
+     */
+    private static final class UnorderedSink<T, R> extends Sink.ChainedReference<T, R> {
+        private final Function<? super T, ? extends CompletionStage<? extends R>> mapper;
+        private final int maxInFlight;
+        private ArrayList<CompletableFuture<R>> inFlight;
+
+        UnorderedSink(Sink<? super R> downstream,
+                      Function<? super T, ? extends CompletionStage<? extends R>> mapper,
+                      int maxInFlight) {
+            super(downstream);
+            this.mapper = mapper;
+            this.maxInFlight = maxInFlight;
+        }
+
+        @Override
+        public void begin(long size) {
+            inFlight = new ArrayList<>(Math.min(maxInFlight, 16));
+            downstream.begin(size);
+        }
+
+        @Override
+        public void accept(T t) {
+            try {
+                drainCompleted();
+                if (inFlight.size() >= maxInFlight) {
+                    awaitAny();
+                    drainCompleted();
+                }
+                inFlight.add(start(mapper, t));
+            } catch (RuntimeException | Error ex) {
+                cancelAll();
+                throw ex;
+            }
+        }
+
+        @Override
+        public void end() {
+            try {
+                while (!inFlight.isEmpty()) {
+                    if (downstream.cancellationRequested()) {
+                        cancelAll();
+                        break;
+                    }
+                    awaitAny();
+                    drainCompleted();
+                }
+            } catch (RuntimeException | Error ex) {
+                cancelAll();
+                throw ex;
+            }
+            inFlight = null;
+            downstream.end();
+        }
+
+        /**
+         * 等待至少一个未完成的结果完成。
+         */
+        private void awaitAny() {
+            CompletableFuture.anyOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+        }
+
+        /**
+         * 移除并推送所有已完成的结果。
+         */
+        private void drainCompleted() {
+            ArrayList<CompletableFuture<R>> fs = inFlight;
+            for (int i = 0; i < fs.size(); ) {
+                CompletableFuture<R> f = fs.get(i);
+                if (f.isDone()) {
+                    // 用最后一个元素填补空位；顺序无关紧要
+                    int last = fs.size() - 1;
+                    fs.set(i, fs.get(last));
+                    fs.remove(last);
+                    downstream.accept(f.join());
+                }
+                else
+                    ++i;
+            }
+        }
+
+        private void cancelAll() {
+            for (CompletableFuture<R> f : inFlight)
+                f.cancel(true);
+            inFlight.clear();
+        }
+    }
+}
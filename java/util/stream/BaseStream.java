@@ -30,7 +30,9 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Spliterator;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -106,6 +108,55 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S parallel();
 
+    /**
+     * 返回一个等效的并行流，其终端操作在给定的 {@link ForkJoinPool} 中执行，
+     * 而不是在 {@link ForkJoinPool#commonPool()} 中执行。这可以把不同负载的并行流相互隔离，
+     * 并通过池的 {@linkplain ForkJoinPool#getParallelism 并行度} 限制每个负载使用的线程数。
+     * 叶任务的划分也以该池的并行度为准。可能返回自身。
+     *
+     * <p>终端操作的调用者会阻塞，直到池中的计算完成；如果调用者本身就是该池的工作线程，
+     * 则计算直接在调用者中进行。随后调用 {@link #parallel()} 会把流重新绑定到公共池，
+     * 调用 {@link #sequential()} 则解除绑定。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">中间
+     * 操作</a>。
+     *
+     * @implSpec
+     * 默认实现检查 {@code pool} 不为 null，然后忽略它并返回 {@link #parallel()} 的结果。
+     * 流库提供的所有流都覆盖了此方法。
+     *
+     * @param pool 执行终端操作的池
+     * @return 绑定到给定池的并行流
+     * @throws NullPointerException 如果 {@code pool} 为 null
+     */
+    default S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        return parallel();
+    }
+
+    /**
+     * 返回一个等效的并行流，其终端操作在一个具有给定并行度的共享 {@link ForkJoinPool} 中执行。
+     * 具有相同并行度的流共享同一个池，该池与公共池以及其他并行度的池相互独立。
+     * 除此之外与 {@link #parallel(ForkJoinPool)} 相同。可能返回自身。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">中间
+     * 操作</a>。
+     *
+     * @implSpec
+     * 默认实现检查 {@code parallelism} 的范围，然后忽略它并返回 {@link #parallel()} 的结果。
+     * 流库提供的所有流都覆盖了此方法。
+     *
+     * @param parallelism 最多同时执行终端操作的线程数
+     * @return 绑定到具有给定并行度的池的并行流
+     * @throws IllegalArgumentException 如果 {@code parallelism} 小于等于零，
+     *         或者大于 {@code ForkJoinPool} 支持的上限
+     */
+    default S parallel(int parallelism) {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException();
+        return parallel();
+    }
+
     /**
      * 返回一个等效的无序流。可能返回自身，因为流已经是无序的，或者底层流状态已被修改为无序的。
      *
@@ -32,6 +32,9 @@ import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Supplier;
 
 /**
@@ -243,4 +246,180 @@ public interface Collector<T, A, R> {
          */
         IDENTITY_FINISH
     }
+
+    /**
+     * 专门用于 {@code int} 值的 {@code Collector}。元素以 {@code int} 值传递给 {@link #intAccumulator()}，
+     * 因此 {@link IntStream#collect(Collector.OfInt)} 可以直接把元素累积到原始类型的结果容器中而不装箱。
+     * 它也可以作为普通的 {@code Collector<Integer, A, R>} 使用，此时元素被拆箱后传递给 {@code intAccumulator()}。
+     *
+     * @param <A> 归约操作的可变累积类型（通常作为实现细节隐藏）
+     * @param <R> 归约操作的结果类型
+     * @see IntStream#collect(Collector.OfInt)
+     * @since 1.8
+     */
+    interface OfInt<A, R> extends Collector<Integer, A, R> {
+
+        /**
+         * 将 {@code int} 值折叠到可变结果容器中的函数。
+         *
+         * @return 将值折叠到可变结果容器中的函数
+         */
+        ObjIntConsumer<A> intAccumulator();
+
+        /**
+         * {@inheritDoc}
+         *
+         * @implSpec
+         * 默认实现拆箱元素并传递给 {@link #intAccumulator()} 返回的函数。
+         */
+        @Override
+        default BiConsumer<A, Integer> accumulator() {
+            ObjIntConsumer<A> accumulator = intAccumulator();
+            return accumulator::accept;
+        }
+
+        /**
+         * 返回由给定的 {@code supplier}、{@code accumulator}、{@code combiner} 和 {@code finisher} 函数描述的新 {@code Collector.OfInt}。
+         *
+         * @param supplier 新收集器的供应函数
+         * @param accumulator 新收集器的累积函数
+         * @param combiner 新收集器的组合函数
+         * @param finisher 新收集器的最终转换函数
+         * @param characteristics 新收集器的收集器特性
+         * @param <A> 新收集器的中间累积类型
+         * @param <R> 新收集器的最终结果类型
+         * @throws NullPointerException 如果任何参数为 null
+         * @return 新的 {@code Collector.OfInt}
+         */
+        public static<A, R> Collector.OfInt<A, R> of(Supplier<A> supplier,
+                                                     ObjIntConsumer<A> accumulator,
+                                                     BinaryOperator<A> combiner,
+                                                     Function<A, R> finisher,
+                                                     Characteristics... characteristics) {
+            Objects.requireNonNull(supplier);
+            Objects.requireNonNull(accumulator);
+            Objects.requireNonNull(combiner);
+            Objects.requireNonNull(finisher);
+            return new Collectors.IntCollectorImpl<>(supplier, accumulator, combiner, finisher,
+                                                     Collectors.characteristicsOf(characteristics));
+        }
+    }
+
+    /**
+     * 专门用于 {@code long} 值的 {@code Collector}。元素以 {@code long} 值传递给 {@link #longAccumulator()}，
+     * 因此 {@link LongStream#collect(Collector.OfLong)} 可以直接把元素累积到原始类型的结果容器中而不装箱。
+     * 它也可以作为普通的 {@code Collector<Long, A, R>} 使用，此时元素被拆箱后传递给 {@code longAccumulator()}。
+     *
+     * @param <A> 归约操作的可变累积类型（通常作为实现细节隐藏）
+     * @param <R> 归约操作的结果类型
+     * @see LongStream#collect(Collector.OfLong)
+     * @since 1.8
+     */
+    interface OfLong<A, R> extends Collector<Long, A, R> {
+
+        /**
+         * 将 {@code long} 值折叠到可变结果容器中的函数。
+         *
+         * @return 将值折叠到可变结果容器中的函数
+         */
+        ObjLongConsumer<A> longAccumulator();
+
+        /**
+         * {@inheritDoc}
+         *
+         * @implSpec
+         * 默认实现拆箱元素并传递给 {@link #longAccumulator()} 返回的函数。
+         */
+        @Override
+        default BiConsumer<A, Long> accumulator() {
+            ObjLongConsumer<A> accumulator = longAccumulator();
+            return accumulator::accept;
+        }
+
+        /**
+         * 返回由给定的 {@code supplier}、{@code accumulator}、{@code combiner} 和 {@code finisher} 函数描述的新 {@code Collector.OfLong}。
+         *
+         * @param supplier 新收集器的供应函数
+         * @param accumulator 新收集器的累积函数
+         * @param combiner 新收集器的组合函数
+         * @param finisher 新收集器的最终转换函数
+         * @param characteristics 新收集器的收集器特性
+         * @param <A> 新收集器的中间累积类型
+         * @param <R> 新收集器的最终结果类型
+         * @throws NullPointerException 如果任何参数为 null
+         * @return 新的 {@code Collector.OfLong}
+         */
+        public static<A, R> Collector.OfLong<A, R> of(Supplier<A> supplier,
+                                                      ObjLongConsumer<A> accumulator,
+                                                      BinaryOperator<A> combiner,
+                                                      Function<A, R> finisher,
+                                                      Characteristics... characteristics) {
+            Objects.requireNonNull(supplier);
+            Objects.requireNonNull(accumulator);
+            Objects.requireNonNull(combiner);
+            Objects.requireNonNull(finisher);
+            return new Collectors.LongCollectorImpl<>(supplier, accumulator, combiner, finisher,
+                                                      Collectors.characteristicsOf(characteristics));
+        }
+    }
+
+    /**
+     * 能够按已知的元素数预先分配结果容器的 {@code Collector}。
+     *
+     * <p>当流管道知道将要传递给一个结果容器的确切元素数时（例如源具有
+     * {@link java.util.Spliterator#SIZED SIZED} 特性，并且中间操作都保持元素数不变），
+     * 流实现调用 {@link #sizedSupplier()} 返回的函数而不是 {@link #supplier()} 来创建该容器，
+     * 因此容器可以一次分配到合适的容量，而不需要在累积时反复扩容。
+     * 并行执行时，每个叶任务的容器按该叶任务的元素数创建。
+     * 元素数未知或过大时使用 {@code supplier()}。
+     *
+     * <p>两个函数创建的容器必须是等价的：除了初始容量以外，结果不应取决于使用了哪一个函数。
+     *
+     * @param <T> 归约操作的输入元素类型
+     * @param <A> 归约操作的可变累积类型（通常作为实现细节隐藏）
+     * @param <R> 归约操作的结果类型
+     * @see Collectors#toList()
+     * @since 1.8
+     */
+    interface SizeAware<T, A, R> extends Collector<T, A, R> {
+
+        /**
+         * 一个按预期的元素数创建并返回新的可变结果容器的函数。参数是将要累积到容器中的确切元素数，
+         * 但实现不应依赖它的准确性来保证正确性。
+         *
+         * @return 按预期的元素数返回新的可变结果容器的函数
+         */
+        IntFunction<A> sizedSupplier();
+
+        /**
+         * 返回由给定的 {@code supplier}、{@code sizedSupplier}、{@code accumulator}、{@code combiner}
+         * 和 {@code finisher} 函数描述的新 {@code Collector.SizeAware}。
+         *
+         * @param supplier 新收集器的供应函数
+         * @param sizedSupplier 新收集器的按元素数的供应函数
+         * @param accumulator 新收集器的累积函数
+         * @param combiner 新收集器的组合函数
+         * @param finisher 新收集器的最终转换函数
+         * @param characteristics 新收集器的收集器特性
+         * @param <T> 新收集器的输入元素类型
+         * @param <A> 新收集器的中间累积类型
+         * @param <R> 新收集器的最终结果类型
+         * @throws NullPointerException 如果任何参数为 null
+         * @return 新的 {@code Collector.SizeAware}
+         */
+        public static<T, A, R> Collector.SizeAware<T, A, R> of(Supplier<A> supplier,
+                                                               IntFunction<A> sizedSupplier,
+                                                               BiConsumer<A, T> accumulator,
+                                                               BinaryOperator<A> combiner,
+                                                               Function<A, R> finisher,
+                                                               Characteristics... characteristics) {
+            Objects.requireNonNull(supplier);
+            Objects.requireNonNull(sizedSupplier);
+            Objects.requireNonNull(accumulator);
+            Objects.requireNonNull(combiner);
+            Objects.requireNonNull(finisher);
+            return new Collectors.SizedCollectorImpl<>(supplier, sizedSupplier, accumulator, combiner, finisher,
+                                                       Collectors.characteristicsOf(characteristics));
+        }
+    }
 }
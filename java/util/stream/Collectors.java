@@ -29,13 +29,16 @@ import java.util.AbstractMap;
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BloomFilter;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.CountMinSketch;
 import java.util.DoubleSummaryStatistics;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HyperLogLog;
 import java.util.IntSummaryStatistics;
 import java.util.Iterator;
 import java.util.List;
@@ -51,7 +54,16 @@ import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -113,6 +125,8 @@ public final class Collectors {
     static final Set<Collector.Characteristics> CH_UNORDERED_ID
             = Collections.unmodifiableSet(EnumSet.of(Collector.Characteristics.UNORDERED,
                                                      Collector.Characteristics.IDENTITY_FINISH));
+    static final Set<Collector.Characteristics> CH_UNORDERED_NOID
+            = Collections.unmodifiableSet(EnumSet.of(Collector.Characteristics.UNORDERED));
     static final Set<Collector.Characteristics> CH_NOID = Collections.emptySet();
 
     private Collectors() { }
@@ -193,6 +207,120 @@ public final class Collectors {
         }
     }
 
+    /**
+     * {@code Collector.OfInt} 的简单实现类。
+     *
+     * @param <A> 中间累积类型
+     * @param <R> 结果类型
+     */
+    static class IntCollectorImpl<A, R> extends CollectorImpl<Integer, A, R>
+            implements Collector.OfInt<A, R> {
+        private final ObjIntConsumer<A> intAccumulator;
+
+        IntCollectorImpl(Supplier<A> supplier,
+                         ObjIntConsumer<A> intAccumulator,
+                         BinaryOperator<A> combiner,
+                         Function<A, R> finisher,
+                         Set<Characteristics> characteristics) {
+            super(supplier, intAccumulator::accept, combiner, finisher, characteristics);
+            this.intAccumulator = intAccumulator;
+        }
+
+        @Override
+        public ObjIntConsumer<A> intAccumulator() {
+            return intAccumulator;
+        }
+    }
+
+    /**
+     * {@code Collector.OfLong} 的简单实现类。
+     *
+     * @param <A> 中间累积类型
+     * @param <R> 结果类型
+     */
+    static class LongCollectorImpl<A, R> extends CollectorImpl<Long, A, R>
+            implements Collector.OfLong<A, R> {
+        private final ObjLongConsumer<A> longAccumulator;
+
+        LongCollectorImpl(Supplier<A> supplier,
+                          ObjLongConsumer<A> longAccumulator,
+                          BinaryOperator<A> combiner,
+                          Function<A, R> finisher,
+                          Set<Characteristics> characteristics) {
+            super(supplier, longAccumulator::accept, combiner, finisher, characteristics);
+            this.longAccumulator = longAccumulator;
+        }
+
+        @Override
+        public ObjLongConsumer<A> longAccumulator() {
+            return longAccumulator;
+        }
+    }
+
+    /**
+     * {@code Collector.SizeAware} 的简单实现类。
+     *
+     * @param <T> 要收集的元素类型
+     * @param <A> 中间累积类型
+     * @param <R> 结果类型
+     */
+    static class SizedCollectorImpl<T, A, R> extends CollectorImpl<T, A, R>
+            implements Collector.SizeAware<T, A, R> {
+        private final IntFunction<A> sizedSupplier;
+
+        SizedCollectorImpl(Supplier<A> supplier,
+                           IntFunction<A> sizedSupplier,
+                           BiConsumer<A, T> accumulator,
+                           BinaryOperator<A> combiner,
+                           Function<A, R> finisher,
+                           Set<Characteristics> characteristics) {
+            super(supplier, accumulator, combiner, finisher, characteristics);
+            this.sizedSupplier = sizedSupplier;
+        }
+
+        SizedCollectorImpl(Supplier<A> supplier,
+                           IntFunction<A> sizedSupplier,
+                           BiConsumer<A, T> accumulator,
+                           BinaryOperator<A> combiner,
+                           Set<Characteristics> characteristics) {
+            this(supplier, sizedSupplier, accumulator, combiner, castingIdentity(), characteristics);
+        }
+
+        @Override
+        public IntFunction<A> sizedSupplier() {
+            return sizedSupplier;
+        }
+    }
+
+    /**
+     * 按元素数预先分配的基于哈希的容器的最大元素数。{@link #toSet()} 等收集器的元素可能大量重复，
+     * 按全部元素数分配的哈希表可能远大于结果，因此只预先分配到此大小，更多的元素仍按需扩容。
+     */
+    static final int MAX_HASH_PRESIZE = 1 << 20;
+
+    /**
+     * 返回能够容纳 {@code n} 个映射而不需要扩容的 {@code HashMap} 的初始容量。
+     */
+    static int hashCapacity(int n) {
+        return (int) Math.min((long) n * 4 / 3 + 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 返回由给定特性组成的不可变集合。
+     *
+     * @throws NullPointerException 如果 {@code characteristics} 为 null
+     */
+    static Set<Collector.Characteristics> characteristicsOf(Collector.Characteristics... characteristics) {
+        Objects.requireNonNull(characteristics);
+        Set<Collector.Characteristics> cs = CH_NOID;
+        if (characteristics.length > 0) {
+            cs = EnumSet.noneOf(Collector.Characteristics.class);
+            Collections.addAll(cs, characteristics);
+            cs = Collections.unmodifiableSet(cs);
+        }
+        return cs;
+    }
+
     /**
      * 返回一个 {@code Collector}，将输入元素累积到一个新的 {@code Collection} 中，按遇到顺序。{@code Collection} 由提供的工厂创建。
      *
@@ -211,14 +339,19 @@ public final class Collectors {
     /**
      * 返回一个 {@code Collector}，将输入元素累积到一个新的 {@code List} 中。返回的 {@code List} 的类型、可变性、可序列化性或线程安全性没有保证；如果需要对返回的 {@code List} 进行更多控制，请使用 {@link #toCollection(Supplier)}。
      *
+     * @implNote
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：如果流知道确切的元素数，
+     * 列表按该元素数一次分配。
+     *
      * @param <T> 输入元素的类型
      * @return 一个 {@code Collector}，将所有输入元素累积到一个 {@code List} 中，按遇到顺序
      */
     public static <T>
     Collector<T, ?, List<T>> toList() {
-        return new CollectorImpl<>((Supplier<List<T>>) ArrayList::new, List::add,
-                                   (left, right) -> { left.addAll(right); return left; },
-                                   CH_ID);
+        return new SizedCollectorImpl<>((Supplier<List<T>>) ArrayList::new,
+                                        (IntFunction<List<T>>) ArrayList::new, List::add,
+                                        (left, right) -> { left.addAll(right); return left; },
+                                        CH_ID);
     }
 
     /**
@@ -227,14 +360,92 @@ public final class Collectors {
      *
      * <p>这是一个 {@link Collector.Characteristics#UNORDERED 无序} 的 {@code Collector}。
      *
+     * @implNote
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：如果流知道确切的元素数，
+     * 集合按该元素数预先分配，但因为元素可能重复，最多预先分配 2<sup>20</sup> 个元素的容量。
+     *
      * @param <T> 输入元素的类型
      * @return 一个 {@code Collector}，将所有输入元素累积到一个 {@code Set} 中
      */
     public static <T>
     Collector<T, ?, Set<T>> toSet() {
-        return new CollectorImpl<>((Supplier<Set<T>>) HashSet::new, Set::add,
-                                   (left, right) -> { left.addAll(right); return left; },
-                                   CH_UNORDERED_ID);
+        return new SizedCollectorImpl<>((Supplier<Set<T>>) HashSet::new,
+                                        n -> new HashSet<>(hashCapacity(Math.min(n, MAX_HASH_PRESIZE))),
+                                        Set::add,
+                                        (left, right) -> { left.addAll(right); return left; },
+                                        CH_UNORDERED_ID);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，将输入元素应用整数值函数后的结果按遇到顺序累积到一个新的 {@code int[]} 中。
+     * 结果直接存储在原始类型的缓冲区中，不为每个元素装箱。
+     *
+     * @implNote
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：如果流知道确切的元素数，
+     * 缓冲区按该元素数一次分配。
+     *
+     * @param <T> 输入元素的类型
+     * @param mapper 提取要收集的属性的函数
+     * @return 一个 {@code Collector}，将所有输入元素的属性按遇到顺序累积到一个 {@code int[]} 中
+     */
+    public static <T>
+    Collector<T, ?, int[]> toIntArray(ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new SizedCollectorImpl<T, SpinedBuffer.OfInt, int[]>(
+                SpinedBuffer.OfInt::new,
+                SpinedBuffer.OfInt::new,
+                (b, t) -> b.accept(mapper.applyAsInt(t)),
+                (left, right) -> { right.forEach((IntConsumer) left); return left; },
+                SpinedBuffer.OfInt::asPrimitiveArray,
+                CH_NOID);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，将输入元素应用长整型值函数后的结果按遇到顺序累积到一个新的 {@code long[]} 中。
+     * 结果直接存储在原始类型的缓冲区中，不为每个元素装箱。
+     *
+     * @implNote
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：如果流知道确切的元素数，
+     * 缓冲区按该元素数一次分配。
+     *
+     * @param <T> 输入元素的类型
+     * @param mapper 提取要收集的属性的函数
+     * @return 一个 {@code Collector}，将所有输入元素的属性按遇到顺序累积到一个 {@code long[]} 中
+     */
+    public static <T>
+    Collector<T, ?, long[]> toLongArray(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new SizedCollectorImpl<T, SpinedBuffer.OfLong, long[]>(
+                SpinedBuffer.OfLong::new,
+                SpinedBuffer.OfLong::new,
+                (b, t) -> b.accept(mapper.applyAsLong(t)),
+                (left, right) -> { right.forEach((LongConsumer) left); return left; },
+                SpinedBuffer.OfLong::asPrimitiveArray,
+                CH_NOID);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，将输入元素应用双精度浮点数值函数后的结果按遇到顺序累积到一个新的 {@code double[]} 中。
+     * 结果直接存储在原始类型的缓冲区中，不为每个元素装箱。
+     *
+     * @implNote
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：如果流知道确切的元素数，
+     * 缓冲区按该元素数一次分配。
+     *
+     * @param <T> 输入元素的类型
+     * @param mapper 提取要收集的属性的函数
+     * @return 一个 {@code Collector}，将所有输入元素的属性按遇到顺序累积到一个 {@code double[]} 中
+     */
+    public static <T>
+    Collector<T, ?, double[]> toDoubleArray(ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        return new SizedCollectorImpl<T, SpinedBuffer.OfDouble, double[]>(
+                SpinedBuffer.OfDouble::new,
+                SpinedBuffer.OfDouble::new,
+                (b, t) -> b.accept(mapper.applyAsDouble(t)),
+                (left, right) -> { right.forEach((DoubleConsumer) left); return left; },
+                SpinedBuffer.OfDouble::asPrimitiveArray,
+                CH_NOID);
     }
 
     /**
@@ -317,8 +528,15 @@ public final class Collectors {
     Collector<T, ?, R> mapping(Function<? super T, ? extends U> mapper,
                                Collector<? super U, A, R> downstream) {
         BiConsumer<A, ? super U> downstreamAccumulator = downstream.accumulator();
-        return new CollectorImpl<>(downstream.supplier(),
-                                   (r, t) -> downstreamAccumulator.accept(r, mapper.apply(t)),
+        BiConsumer<A, T> accumulator = (r, t) -> downstreamAccumulator.accept(r, mapper.apply(t));
+        if (downstream instanceof Collector.SizeAware) {
+            // 每个输入元素恰好产生一个下游元素，因此元素数不变
+            return new SizedCollectorImpl<>(downstream.supplier(),
+                                            ((Collector.SizeAware<?, A, ?>) downstream).sizedSupplier(),
+                                            accumulator, downstream.combiner(), downstream.finisher(),
+                                            downstream.characteristics());
+        }
+        return new CollectorImpl<>(downstream.supplier(), accumulator,
                                    downstream.combiner(), downstream.finisher(),
                                    downstream.characteristics());
     }
@@ -351,6 +569,14 @@ public final class Collectors {
                 characteristics = Collections.unmodifiableSet(characteristics);
             }
         }
+        if (downstream instanceof Collector.SizeAware) {
+            return new SizedCollectorImpl<>(downstream.supplier(),
+                                            ((Collector.SizeAware<T, A, R>) downstream).sizedSupplier(),
+                                            downstream.accumulator(),
+                                            downstream.combiner(),
+                                            downstream.finisher().andThen(finisher),
+                                            characteristics);
+        }
         return new CollectorImpl<>(downstream.supplier(),
                                    downstream.accumulator(),
                                    downstream.combiner(),
@@ -368,12 +594,74 @@ public final class Collectors {
      *     reducing(0L, e -> 1L, Long::sum)
      * }</pre>
      *
+     * @implNote
+     * 计数累积在一个原始类型的 {@code long} 中，只有在完成时装箱一次，
+     * 因此 {@code groupingBy(classifier, counting())} 和 {@code partitioningBy(predicate, counting())}
+     * 不会为每个元素分配一个 {@code Long}。
+     *
      * @param <T> 输入元素的类型
      * @return 一个计算输入元素数量的 {@code Collector}
      */
     public static <T> Collector<T, ?, Long>
     counting() {
-        return reducing(0L, e -> 1L, Long::sum);
+        return summingLong(e -> 1L);
+    }
+
+    /**
+     * 返回一个计算输入的 {@code int} 值的数量的 {@code Collector.OfInt}。如果没有元素，则结果为 0。
+     *
+     * @return 一个计算输入值数量的 {@code Collector.OfInt}
+     * @see #groupingByInt(IntFunction, Collector.OfInt)
+     */
+    public static Collector.OfInt<?, Long> intCounting() {
+        return new IntCollectorImpl<long[], Long>(
+                () -> new long[1],
+                (a, t) -> a[0]++,
+                (a, b) -> { a[0] += b[0]; return a; },
+                a -> a[0], CH_NOID);
+    }
+
+    /**
+     * 返回一个计算输入的 {@code int} 值的总和的 {@code Collector.OfInt}。总和累积在 {@code long} 中，
+     * 因此不会因为 {@code int} 溢出而回绕。如果没有元素，则结果为 0。
+     *
+     * @return 一个计算输入值总和的 {@code Collector.OfInt}
+     * @see #groupingByInt(IntFunction, Collector.OfInt)
+     */
+    public static Collector.OfInt<?, Long> intSumming() {
+        return new IntCollectorImpl<long[], Long>(
+                () -> new long[1],
+                (a, t) -> a[0] += t,
+                (a, b) -> { a[0] += b[0]; return a; },
+                a -> a[0], CH_NOID);
+    }
+
+    /**
+     * 返回一个计算输入的 {@code long} 值的数量的 {@code Collector.OfLong}。如果没有元素，则结果为 0。
+     *
+     * @return 一个计算输入值数量的 {@code Collector.OfLong}
+     * @see #groupingByLong(LongFunction, Collector.OfLong)
+     */
+    public static Collector.OfLong<?, Long> longCounting() {
+        return new LongCollectorImpl<long[], Long>(
+                () -> new long[1],
+                (a, t) -> a[0]++,
+                (a, b) -> { a[0] += b[0]; return a; },
+                a -> a[0], CH_NOID);
+    }
+
+    /**
+     * 返回一个计算输入的 {@code long} 值的总和的 {@code Collector.OfLong}。如果没有元素，则结果为 0。
+     *
+     * @return 一个计算输入值总和的 {@code Collector.OfLong}
+     * @see #groupingByLong(LongFunction, Collector.OfLong)
+     */
+    public static Collector.OfLong<?, Long> longSumming() {
+        return new LongCollectorImpl<long[], Long>(
+                () -> new long[1],
+                (a, t) -> a[0] += t,
+                (a, b) -> { a[0] += b[0]; return a; },
+                a -> a[0], CH_NOID);
     }
 
     /**
@@ -412,6 +700,65 @@ public final class Collectors {
         return reducing(BinaryOperator.maxBy(comparator));
     }
 
+    /**
+     * 返回一个根据给定的 {@code Comparator} 产生最小的 {@code k} 个元素的 {@code Collector}，
+     * 结果是按升序排列的 {@code List}。比较器认为相等的元素按遇到顺序排列。
+     * 如果元素少于 {@code k} 个，则列表包含所有元素。
+     *
+     * <p>收集器只保留一个大小不超过 {@code k} 的有界堆，因此处理 n 个元素需要 O(n log k) 时间
+     * 和 O(k) 空间。并行收集时每个叶任务保留自己的前 {@code k} 个元素，然后合并。
+     *
+     * @implSpec
+     * 对于有序流，这产生的结果等价于：
+     * <pre>{@code
+     *     stream.sorted(comparator).limit(k).collect(toList())
+     * }</pre>
+     *
+     * @param <T> 输入元素的类型
+     * @param k 要保留的元素数
+     * @param comparator 用于比较元素的 {@code Comparator}
+     * @return 一个产生最小的 {@code k} 个元素的 {@code Collector}
+     * @throws IllegalArgumentException 如果 {@code k} 为负数
+     * @throws NullPointerException 如果 {@code comparator} 为 null
+     *
+     * @see #topK(int, Comparator)
+     */
+    public static <T> Collector<T, ?, List<T>>
+    bottomK(int k, Comparator<? super T> comparator) {
+        Objects.requireNonNull(comparator);
+        if (k < 0)
+            throw new IllegalArgumentException(Integer.toString(k));
+        return new CollectorImpl<T, TopKHeap<T>, List<T>>(
+                () -> new TopKHeap<>(k, comparator),
+                TopKHeap::add, TopKHeap::addAll,
+                TopKHeap::toList, CH_NOID);
+    }
+
+    /**
+     * 返回一个根据给定的 {@code Comparator} 产生最大的 {@code k} 个元素的 {@code Collector}，
+     * 结果是按降序排列的 {@code List}。比较器认为相等的元素按遇到顺序排列。
+     * 如果元素少于 {@code k} 个，则列表包含所有元素。
+     *
+     * @implSpec
+     * 这产生的结果等价于：
+     * <pre>{@code
+     *     bottomK(k, Collections.reverseOrder(comparator))
+     * }</pre>
+     *
+     * @param <T> 输入元素的类型
+     * @param k 要保留的元素数
+     * @param comparator 用于比较元素的 {@code Comparator}
+     * @return 一个产生最大的 {@code k} 个元素的 {@code Collector}
+     * @throws IllegalArgumentException 如果 {@code k} 为负数
+     * @throws NullPointerException 如果 {@code comparator} 为 null
+     *
+     * @see #bottomK(int, Comparator)
+     */
+    public static <T> Collector<T, ?, List<T>>
+    topK(int k, Comparator<? super T> comparator) {
+        return bottomK(k, Collections.reverseOrder(Objects.requireNonNull(comparator)));
+    }
+
     /**
      * 返回一个产生输入元素应用整数值函数后总和的 {@code Collector}。如果没有元素，则结果为 0。
      *
@@ -925,6 +1272,388 @@ public final class Collectors {
         }
     }
 
+    /**
+     * 返回一个 {@code Collector}，根据分类函数对输入元素进行分组，并计算每组的元素数。
+     *
+     * <p>这产生的结果与 {@code groupingBy(classifier, counting())} 相同，但每个键只有一个原始类型的
+     * {@code long} 计数器，只有在完成时为每个键装箱一次。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @return 计算每组的元素数的 {@code Collector}
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #shardedCountingBy(Function)
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>>
+    countingBy(Function<? super T, ? extends K> classifier) {
+        return groupedLongSum(HashMap::new, Collectors::mapMerger, classifier, t -> 1L);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，根据分类函数对输入元素进行分组，并计算每组的元素应用长整型值函数后的总和。
+     *
+     * <p>这产生的结果与 {@code groupingBy(classifier, summingLong(mapper))} 相同，但每个键只有一个原始类型的
+     * {@code long} 累加器，只有在完成时为每个键装箱一次。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @param mapper 提取要被求和属性的函数
+     * @return 计算每组的总和的 {@code Collector}
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #shardedSummingLongBy(Function, ToLongFunction)
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>>
+    summingLongBy(Function<? super T, ? extends K> classifier,
+                  ToLongFunction<? super T> mapper) {
+        return groupedLongSum(HashMap::new, Collectors::mapMerger, classifier, mapper);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，根据分类函数对输入元素进行分组，并计算每组的元素应用双精度浮点数值函数后的总和。
+     *
+     * <p>这产生的结果与 {@code groupingBy(classifier, summingDouble(mapper))} 相同，使用相同的补偿求和，
+     * 但每个键的总和累积在原始类型的 {@code double} 中，只有在完成时为每个键装箱一次。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @param mapper 提取要被求和属性的函数
+     * @return 计算每组的总和的 {@code Collector}
+     *
+     * @see #groupingBy(Function, Collector)
+     * @see #shardedSummingDoubleBy(Function, ToDoubleFunction)
+     */
+    public static <T, K> Collector<T, ?, Map<K, Double>>
+    summingDoubleBy(Function<? super T, ? extends K> classifier,
+                    ToDoubleFunction<? super T> mapper) {
+        return groupedDoubleSum(HashMap::new, Collectors::mapMerger, classifier, mapper);
+    }
+
+    /**
+     * 返回一个 {@code Collector.OfInt} 实现对 {@code int} 值的级联 "group by" 操作，根据分类函数对值进行分组，
+     * 然后使用指定的下游 {@code Collector.OfInt} 对与给定键关联的值执行归约操作。
+     * 值以 {@code int} 直接传递给下游收集器，不装箱。
+     *
+     * <p>例如，要计算每个余数的出现次数：
+     * <pre>{@code
+     *     Map<Integer, Long> counts
+     *         = ints.collect(groupingByInt(i -> i % 10, intCounting()));
+     * }</pre>
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <K> 键的类型
+     * @param <A> 下游收集器的中间累积类型
+     * @param <D> 下游归约的结果类型
+     * @param classifier 映射值到键的分类函数
+     * @param downstream 实现下游归约的 {@code Collector.OfInt}
+     * @return 实现级联 group-by 操作的 {@code Collector.OfInt}
+     *
+     * @see IntStream#collect(Collector.OfInt)
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <K, A, D>
+    Collector.OfInt<?, Map<K, D>> groupingByInt(IntFunction<? extends K> classifier,
+                                                Collector.OfInt<A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        ObjIntConsumer<A> downstreamAccumulator = downstream.intAccumulator();
+        ObjIntConsumer<Map<K, A>> accumulator = (m, t) -> {
+            K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            A container = m.computeIfAbsent(key, k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<Map<K, A>> merger = Collectors.<K, A, Map<K, A>>mapMerger(downstream.combiner());
+        return new IntCollectorImpl<>(HashMap::new, accumulator, merger,
+                                      groupingFinisher(downstream),
+                                      groupingCharacteristics(downstream));
+    }
+
+    /**
+     * 返回一个 {@code Collector.OfLong} 实现对 {@code long} 值的级联 "group by" 操作，根据分类函数对值进行分组，
+     * 然后使用指定的下游 {@code Collector.OfLong} 对与给定键关联的值执行归约操作。
+     * 值以 {@code long} 直接传递给下游收集器，不装箱。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <K> 键的类型
+     * @param <A> 下游收集器的中间累积类型
+     * @param <D> 下游归约的结果类型
+     * @param classifier 映射值到键的分类函数
+     * @param downstream 实现下游归约的 {@code Collector.OfLong}
+     * @return 实现级联 group-by 操作的 {@code Collector.OfLong}
+     *
+     * @see LongStream#collect(Collector.OfLong)
+     * @see #groupingBy(Function, Collector)
+     */
+    public static <K, A, D>
+    Collector.OfLong<?, Map<K, D>> groupingByLong(LongFunction<? extends K> classifier,
+                                                  Collector.OfLong<A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        ObjLongConsumer<A> downstreamAccumulator = downstream.longAccumulator();
+        ObjLongConsumer<Map<K, A>> accumulator = (m, t) -> {
+            K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            A container = m.computeIfAbsent(key, k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<Map<K, A>> merger = Collectors.<K, A, Map<K, A>>mapMerger(downstream.combiner());
+        return new LongCollectorImpl<>(HashMap::new, accumulator, merger,
+                                       groupingFinisher(downstream),
+                                       groupingCharacteristics(downstream));
+    }
+
+    /**
+     * 返回把中间映射的值原地替换为下游收集器的结果的完成函数；如果下游收集器的完成函数是恒等函数，则返回恒等函数。
+     */
+    private static <K, A, D> Function<Map<K, A>, Map<K, D>>
+    groupingFinisher(Collector<?, A, D> downstream) {
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH))
+            return castingIdentity();
+        @SuppressWarnings("unchecked")
+        Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+        return intermediate -> {
+            intermediate.replaceAll((k, v) -> downstreamFinisher.apply(v));
+            @SuppressWarnings("unchecked")
+            Map<K, D> castResult = (Map<K, D>) (Map<K, ?>) intermediate;
+            return castResult;
+        };
+    }
+
+    private static Set<Collector.Characteristics> groupingCharacteristics(Collector<?, ?, ?> downstream) {
+        return downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? CH_ID : CH_NOID;
+    }
+
+    /**
+     * 返回一个 {@code Collector} 实现对类型为 {@code T} 的输入元素的 "group by" 操作，根据分类函数对元素进行分组，
+     * 并按键的哈希值把结果分片，以便并行合并。
+     *
+     * <p>分类函数将元素映射到某些键类型 {@code K}。收集器生成一个 {@code Map<K, List<T>>}，其键是应用分类函数到输入元素后得到的值，对应的值是 {@code List}，按遇到顺序包含映射到关联键下的输入元素。
+     *
+     * <p>返回的 {@code Map} 或 {@code List} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     * @implSpec
+     * 这产生的结果类似于：
+     * <pre>{@code
+     *     shardedGroupingBy(classifier, toList());
+     * }</pre>
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @return 实现 group-by 操作的 {@code Collector}
+     *
+     * @see #shardedGroupingBy(Function, Collector)
+     * @see #groupingBy(Function)
+     */
+    public static <T, K> Collector<T, ?, Map<K, List<T>>>
+    shardedGroupingBy(Function<? super T, ? extends K> classifier) {
+        return shardedGroupingBy(classifier, toList());
+    }
+
+    /**
+     * 返回一个 {@code Collector} 实现对类型为 {@code T} 的输入元素的级联 "group by" 操作，根据分类函数对元素进行分组，
+     * 然后使用指定的下游 {@code Collector} 对与给定键关联的值执行归约操作，并按键的哈希值把结果分片，以便并行合并。
+     *
+     * <p>分类函数将元素映射到某些键类型 {@code K}。下游收集器对类型为 {@code T} 的元素进行操作，并生成类型为 {@code D} 的结果。生成的收集器生成一个 {@code Map<K, D>}。
+     * 与 {@link #groupingBy(Function, Collector)} 一样，元素按遇到顺序呈现给下游收集器。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @implNote
+     * 返回的 {@code Collector} 不是并发的。每个中间结果是一个按键的哈希值分成若干个分片的映射，
+     * 分片数取决于公共池的并行度。对于并行流管道，{@code combiner} 函数把两个中间结果的对应分片两两合并，
+     * 较大的结果的各分片在 {@code ForkJoinPool} 中并行合并，而不是像 {@link #groupingBy(Function, Collector)}
+     * 那样由一个线程把一个映射中的所有键合并到另一个映射中；
+     * 与 {@link #groupingByConcurrent(Function, Collector)} 不同，累积时各线程不会争用同一个映射。
+     * 结果直接由各分片组成，不会在完成时复制到一个新的映射中。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param <A> 下游收集器的中间累积类型
+     * @param <D> 下游归约的结果类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @param downstream 实现下游归约的 {@code Collector}
+     * @return 实现级联 group-by 操作的 {@code Collector}
+     *
+     * @see #shardedGroupingBy(Function)
+     * @see #groupingBy(Function, Collector)
+     * @see #groupingByConcurrent(Function, Collector)
+     */
+    public static <T, K, A, D>
+    Collector<T, ?, Map<K, D>> shardedGroupingBy(Function<? super T, ? extends K> classifier,
+                                                 Collector<? super T, A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        BiConsumer<ShardedMap<K, A>, T> accumulator = (m, t) -> {
+            K key = Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            A container = m.computeIfAbsent(key, k -> downstreamSupplier.get());
+            downstreamAccumulator.accept(container, t);
+        };
+        BinaryOperator<ShardedMap<K, A>> merger = (m1, m2) -> m1.mergeAll(m2, downstreamCombiner);
+
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)) {
+            return new CollectorImpl<>(ShardedMap<K, A>::new, accumulator, merger, CH_ID);
+        }
+        else {
+            @SuppressWarnings("unchecked")
+            Function<A, A> downstreamFinisher = (Function<A, A>) downstream.finisher();
+            Function<ShardedMap<K, A>, Map<K, D>> finisher = intermediate -> {
+                intermediate.replaceAll((k, v) -> downstreamFinisher.apply(v));
+                @SuppressWarnings("unchecked")
+                Map<K, D> castResult = (Map<K, D>) (Map<K, ?>) intermediate;
+                return castResult;
+            };
+            return new CollectorImpl<>(ShardedMap<K, A>::new, accumulator, merger, finisher, CH_NOID);
+        }
+    }
+
+    /**
+     * 返回一个 {@code Collector}，根据分类函数对输入元素进行分组，并计算每组的元素数，
+     * 并按键的哈希值把结果分片，以便并行合并。
+     *
+     * <p>这产生的结果与 {@code shardedGroupingBy(classifier, counting())} 相同，但每个键的计数累积在一个原始类型的
+     * {@code long} 中，而不是为每个元素装箱一个 {@code Long}；只有在完成时为每个键装箱一次。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @return 计算每组的元素数的 {@code Collector}
+     *
+     * @see #shardedGroupingBy(Function, Collector)
+     * @see #counting()
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>>
+    shardedCountingBy(Function<? super T, ? extends K> classifier) {
+        return groupedLongSum(ShardedMap::new, op -> (m1, m2) -> m1.mergeAll(m2, op),
+                              classifier, t -> 1L);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，根据分类函数对输入元素进行分组，并计算每组的元素应用长整型值函数后的总和，
+     * 并按键的哈希值把结果分片，以便并行合并。
+     *
+     * <p>这产生的结果与 {@code shardedGroupingBy(classifier, summingLong(mapper))} 相同，但每个键的总和累积在一个原始类型的
+     * {@code long} 中，而不是为每个元素装箱一个 {@code Long}；只有在完成时为每个键装箱一次。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @param mapper 提取要被求和属性的函数
+     * @return 计算每组的总和的 {@code Collector}
+     *
+     * @see #shardedGroupingBy(Function, Collector)
+     * @see #summingLong(ToLongFunction)
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>>
+    shardedSummingLongBy(Function<? super T, ? extends K> classifier,
+                         ToLongFunction<? super T> mapper) {
+        return groupedLongSum(ShardedMap::new, op -> (m1, m2) -> m1.mergeAll(m2, op),
+                              classifier, mapper);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，根据分类函数对输入元素进行分组，并计算每组的元素应用双精度浮点数值函数后的总和，
+     * 并按键的哈希值把结果分片，以便并行合并。
+     *
+     * <p>这产生的结果与 {@code shardedGroupingBy(classifier, summingDouble(mapper))} 相同，使用相同的补偿求和，
+     * 但每个键的总和累积在原始类型的 {@code double} 中，而不是为每个元素装箱；只有在完成时为每个键装箱一次。
+     *
+     * <p>返回的 {@code Map} 对象的类型、可变性、可序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param <K> 键的类型
+     * @param classifier 映射输入元素到键的分类函数
+     * @param mapper 提取要被求和属性的函数
+     * @return 计算每组的总和的 {@code Collector}
+     *
+     * @see #shardedGroupingBy(Function, Collector)
+     * @see #summingDouble(ToDoubleFunction)
+     */
+    public static <T, K> Collector<T, ?, Map<K, Double>>
+    shardedSummingDoubleBy(Function<? super T, ? extends K> classifier,
+                           ToDoubleFunction<? super T> mapper) {
+        return groupedDoubleSum(ShardedMap::new, op -> (m1, m2) -> m1.mergeAll(m2, op),
+                                classifier, mapper);
+    }
+
+    /**
+     * {@link #countingBy}、{@link #summingLongBy} 及其分片版本的公共实现：
+     * 每个键有一个原始类型的 {@code long} 累加器，只有在完成时为每个键装箱一次。
+     *
+     * @param mapFactory 创建中间映射的函数
+     * @param mapMerger 给定两个累加器的合并函数，返回两个中间映射的合并函数
+     */
+    private static <T, K, M extends Map<K, long[]>> Collector<T, ?, Map<K, Long>>
+    groupedLongSum(Supplier<M> mapFactory,
+                   Function<BinaryOperator<long[]>, BinaryOperator<M>> mapMerger,
+                   Function<? super T, ? extends K> classifier,
+                   ToLongFunction<? super T> mapper) {
+        return new CollectorImpl<T, M, Map<K, Long>>(
+                mapFactory,
+                (m, t) -> m.computeIfAbsent(
+                        Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key"),
+                        k -> new long[1])[0] += mapper.applyAsLong(t),
+                mapMerger.apply((a, b) -> { a[0] += b[0]; return a; }),
+                m -> unboxedValues(m, a -> a[0]),
+                CH_NOID);
+    }
+
+    /**
+     * {@link #summingDoubleBy} 及其分片版本的公共实现：每个键的总和用补偿求和累积在原始类型的
+     * {@code double} 中，只有在完成时为每个键装箱一次。
+     *
+     * @param mapFactory 创建中间映射的函数
+     * @param mapMerger 给定两个累加器的合并函数，返回两个中间映射的合并函数
+     */
+    private static <T, K, M extends Map<K, double[]>> Collector<T, ?, Map<K, Double>>
+    groupedDoubleSum(Supplier<M> mapFactory,
+                     Function<BinaryOperator<double[]>, BinaryOperator<M>> mapMerger,
+                     Function<? super T, ? extends K> classifier,
+                     ToDoubleFunction<? super T> mapper) {
+        // 每个键的数组的布局与 summingDouble 相同
+        return new CollectorImpl<T, M, Map<K, Double>>(
+                mapFactory,
+                (m, t) -> {
+                    double[] a = m.computeIfAbsent(
+                            Objects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key"),
+                            k -> new double[3]);
+                    double d = mapper.applyAsDouble(t);
+                    sumWithCompensation(a, d);
+                    a[2] += d;
+                },
+                mapMerger.apply((a, b) -> {
+                    sumWithCompensation(a, b[0]);
+                    a[2] += b[2];
+                    return sumWithCompensation(a, b[1]);
+                }),
+                m -> unboxedValues(m, a -> computeFinalSum(a)),
+                CH_NOID);
+    }
+
+    /**
+     * 把原始类型的累积容器原地替换为其结果，并返回同一个映射。
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, A, R> Map<K, R> unboxedValues(Map<K, A> m, Function<A, R> result) {
+        Map<K, Object> raw = (Map<K, Object>) (Map<K, ?>) m;
+        raw.replaceAll((k, v) -> result.apply((A) v));
+        return (Map<K, R>) (Map<K, ?>) raw;
+    }
+
     /**
      * 返回一个 {@code Collector}，根据 {@code Predicate} 将输入元素分区，并将它们组织成
      * {@code Map<Boolean, List<T>>}。
@@ -981,6 +1710,108 @@ public final class Collectors {
         }
     }
 
+    /**
+     * 返回一个 {@code Collector}，根据 {@code Predicate} 将输入元素分区，并计算每个分区的元素数，
+     * 组织成 {@code Map<Boolean, Long>}。
+     *
+     * <p>这产生的结果与 {@code partitioningBy(predicate, counting())} 相同，但两个计数保存在同一个
+     * {@code long[]} 中，不为每个元素装箱。
+     *
+     * <p>返回的 {@code Map} 类型、可变性、序列化性或线程安全性没有保证。
+     *
+     * @param <T> 输入元素的类型
+     * @param predicate 用于分类输入元素的谓词
+     * @return 计算每个分区的元素数的 {@code Collector}
+     *
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <T>
+    Collector<T, ?, Map<Boolean, Long>> partitioningByCounting(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+        return new CollectorImpl<T, long[], Map<Boolean, Long>>(
+                () -> new long[2],
+                (a, t) -> a[predicate.test(t) ? 1 : 0]++,
+                (a, b) -> { a[0] += b[0]; a[1] += b[1]; return a; },
+                a -> new Partition<>(a[1], a[0]),
+                CH_NOID);
+    }
+
+    /**
+     * 返回一个 {@code Collector.OfInt}，根据 {@code IntPredicate} 将 {@code int} 值分区，
+     * 使用另一个 {@code Collector.OfInt} 对每个分区中的值进行规约，并将它们组织成 {@code Map<Boolean, D>}。
+     * 值以 {@code int} 直接传递给下游收集器，不装箱。
+     *
+     * <p>返回的 {@code Map} 类型、可变性、序列化性或线程安全性没有保证。
+     *
+     * @param <A> 下游收集器的中间累加类型
+     * @param <D> 下游规约的结果类型
+     * @param predicate 用于分类值的谓词
+     * @param downstream 实现下游规约的 {@code Collector.OfInt}
+     * @return 实现级联分区操作的 {@code Collector.OfInt}
+     *
+     * @see IntStream#collect(Collector.OfInt)
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <A, D>
+    Collector.OfInt<?, Map<Boolean, D>> partitioningByInt(IntPredicate predicate,
+                                                          Collector.OfInt<A, D> downstream) {
+        Objects.requireNonNull(predicate);
+        ObjIntConsumer<A> downstreamAccumulator = downstream.intAccumulator();
+        ObjIntConsumer<Partition<A>> accumulator = (result, t) ->
+                downstreamAccumulator.accept(predicate.test(t) ? result.forTrue : result.forFalse, t);
+        return new IntCollectorImpl<>(partitionSupplier(downstream), accumulator,
+                                      partitionMerger(downstream.combiner()),
+                                      partitionFinisher(downstream),
+                                      groupingCharacteristics(downstream));
+    }
+
+    /**
+     * 返回一个 {@code Collector.OfLong}，根据 {@code LongPredicate} 将 {@code long} 值分区，
+     * 使用另一个 {@code Collector.OfLong} 对每个分区中的值进行规约，并将它们组织成 {@code Map<Boolean, D>}。
+     * 值以 {@code long} 直接传递给下游收集器，不装箱。
+     *
+     * <p>返回的 {@code Map} 类型、可变性、序列化性或线程安全性没有保证。
+     *
+     * @param <A> 下游收集器的中间累加类型
+     * @param <D> 下游规约的结果类型
+     * @param predicate 用于分类值的谓词
+     * @param downstream 实现下游规约的 {@code Collector.OfLong}
+     * @return 实现级联分区操作的 {@code Collector.OfLong}
+     *
+     * @see LongStream#collect(Collector.OfLong)
+     * @see #partitioningBy(Predicate, Collector)
+     */
+    public static <A, D>
+    Collector.OfLong<?, Map<Boolean, D>> partitioningByLong(LongPredicate predicate,
+                                                            Collector.OfLong<A, D> downstream) {
+        Objects.requireNonNull(predicate);
+        ObjLongConsumer<A> downstreamAccumulator = downstream.longAccumulator();
+        ObjLongConsumer<Partition<A>> accumulator = (result, t) ->
+                downstreamAccumulator.accept(predicate.test(t) ? result.forTrue : result.forFalse, t);
+        return new LongCollectorImpl<>(partitionSupplier(downstream), accumulator,
+                                       partitionMerger(downstream.combiner()),
+                                       partitionFinisher(downstream),
+                                       groupingCharacteristics(downstream));
+    }
+
+    private static <A> Supplier<Partition<A>> partitionSupplier(Collector<?, A, ?> downstream) {
+        Supplier<A> supplier = downstream.supplier();
+        return () -> new Partition<>(supplier.get(), supplier.get());
+    }
+
+    private static <A> BinaryOperator<Partition<A>> partitionMerger(BinaryOperator<A> op) {
+        return (left, right) -> new Partition<>(op.apply(left.forTrue, right.forTrue),
+                                                op.apply(left.forFalse, right.forFalse));
+    }
+
+    private static <A, D> Function<Partition<A>, Map<Boolean, D>>
+    partitionFinisher(Collector<?, A, D> downstream) {
+        if (downstream.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH))
+            return castingIdentity();
+        Function<A, D> finisher = downstream.finisher();
+        return par -> new Partition<>(finisher.apply(par.forTrue), finisher.apply(par.forFalse));
+    }
+
     /**
      * 返回一个 {@code Collector}，将元素累积到一个 {@code Map} 中，其键和值是通过应用提供的映射函数到输入元素得到的结果。
      *
@@ -1005,6 +1836,8 @@ public final class Collectors {
      * @implNote
      * 返回的 {@code Collector} 不是并发的。对于并行流管道，组合函数通过将一个映射中的键合并到另一个映射中来操作，这可能是一个昂贵的操作。如果不要求结果按遇到的顺序插入到 {@code Map} 中，使用 {@link #toConcurrentMap(Function, Function)}
      * 可能会提供更好的并行性能。
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：因为键不能重复，如果流知道确切的元素数，
+     * 映射按该元素数一次分配。
      *
      * @param <T> 输入元素的类型
      * @param <K> 键映射函数的输出类型
@@ -1020,7 +1853,7 @@ public final class Collectors {
     public static <T, K, U>
     Collector<T, ?, Map<K,U>> toMap(Function<? super T, ? extends K> keyMapper,
                                     Function<? super T, ? extends U> valueMapper) {
-        return toMap(keyMapper, valueMapper, throwingMerger(), HashMap::new);
+        return toHashMap(keyMapper, valueMapper, throwingMerger(), Integer.MAX_VALUE);
     }
 
     /**
@@ -1040,6 +1873,8 @@ public final class Collectors {
      * @implNote
      * 返回的 {@code Collector} 不是并发的。对于并行流管道，组合函数通过将一个映射中的键合并到另一个映射中来操作，这可能是一个昂贵的操作。如果不要求结果按遇到的顺序合并到 {@code Map} 中，使用 {@link #toConcurrentMap(Function, Function, BinaryOperator)}
      * 可能会提供更好的并行性能。
+     * 返回的 {@code Collector} 是一个 {@link Collector.SizeAware}：如果流知道确切的元素数，
+     * 映射按该元素数预先分配，但因为键可能重复，最多预先分配 2<sup>20</sup> 个映射的容量。
      *
      * @param <T> 输入元素的类型
      * @param <K> 键映射函数的输出类型
@@ -1057,7 +1892,7 @@ public final class Collectors {
     Collector<T, ?, Map<K,U>> toMap(Function<? super T, ? extends K> keyMapper,
                                     Function<? super T, ? extends U> valueMapper,
                                     BinaryOperator<U> mergeFunction) {
-        return toMap(keyMapper, valueMapper, mergeFunction, HashMap::new);
+        return toHashMap(keyMapper, valueMapper, mergeFunction, MAX_HASH_PRESIZE);
     }
 
     /**
@@ -1094,6 +1929,23 @@ public final class Collectors {
         return new CollectorImpl<>(mapSupplier, accumulator, mapMerger(mergeFunction), CH_ID);
     }
 
+    /**
+     * 与 {@code toMap(keyMapper, valueMapper, mergeFunction, HashMap::new)} 相同，
+     * 但流知道确切的元素数时，按该元素数（不超过 {@code maxPresize}）预先分配映射。
+     */
+    private static <T, K, U>
+    Collector<T, ?, Map<K,U>> toHashMap(Function<? super T, ? extends K> keyMapper,
+                                        Function<? super T, ? extends U> valueMapper,
+                                        BinaryOperator<U> mergeFunction,
+                                        int maxPresize) {
+        BiConsumer<Map<K, U>, T> accumulator
+                = (map, element) -> map.merge(keyMapper.apply(element),
+                                              valueMapper.apply(element), mergeFunction);
+        return new SizedCollectorImpl<>((Supplier<Map<K, U>>) HashMap::new,
+                                        n -> new HashMap<>(hashCapacity(Math.min(n, maxPresize))),
+                                        accumulator, mapMerger(mergeFunction), CH_ID);
+    }
+
     /**
      * 返回一个并发的 {@code Collector}，将元素累积到一个 {@code ConcurrentMap} 中，其键和值是通过应用提供的映射函数到输入元素得到的结果。
      *
@@ -1279,6 +2131,113 @@ public final class Collectors {
                 (l, r) -> { l.combine(r); return l; }, CH_ID);
     }
 
+    /**
+     * 返回一个 {@code Collector}，该收集器把输入元素记录到一个具有给定精度的
+     * {@link HyperLogLog} 中，用于估计不同元素的个数。
+     *
+     * <p>这是一个 {@link Collector.Characteristics#UNORDERED 无序}收集器，
+     * 它的内存占用为 2<sup>precision</sup> 字节，与元素数无关。
+     * 结果可以继续记录元素，或者与其他 {@code HyperLogLog} 合并。
+     *
+     * @param <T> 输入元素的类型
+     * @param precision 精度，即选择寄存器的哈希位数
+     * @return 把输入元素记录到 {@code HyperLogLog} 中的 {@code Collector}
+     * @throws IllegalArgumentException 如果 {@code precision} 小于
+     *         {@link HyperLogLog#MIN_PRECISION} 或大于 {@link HyperLogLog#MAX_PRECISION}
+     *
+     * @see #approximateDistinctCount(int)
+     */
+    public static <T>
+    Collector<T, ?, HyperLogLog> toHyperLogLog(int precision) {
+        checkPrecision(precision);
+        return new CollectorImpl<T, HyperLogLog, HyperLogLog>(
+                () -> new HyperLogLog(precision),
+                HyperLogLog::accept,
+                (l, r) -> { l.combine(r); return l; }, CH_UNORDERED_ID);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，该收集器用一个具有给定精度的 {@link HyperLogLog}
+     * 估计输入元素中不同元素的个数。元素由 {@code hashCode()} 区分。
+     *
+     * <p>估计值的相对标准误差约为 1.04/&radic;2<sup>precision</sup>，例如精度为 14 时约为 0.81%，
+     * 内存占用为 2<sup>precision</sup> 字节，而 {@code distinct().count()} 需要保存所有不同的元素。
+     *
+     * @param <T> 输入元素的类型
+     * @param precision 精度，即选择寄存器的哈希位数
+     * @return 估计不同元素个数的 {@code Collector}
+     * @throws IllegalArgumentException 如果 {@code precision} 小于
+     *         {@link HyperLogLog#MIN_PRECISION} 或大于 {@link HyperLogLog#MAX_PRECISION}
+     *
+     * @see #toHyperLogLog(int)
+     */
+    public static <T>
+    Collector<T, ?, Long> approximateDistinctCount(int precision) {
+        checkPrecision(precision);
+        return new CollectorImpl<T, HyperLogLog, Long>(
+                () -> new HyperLogLog(precision),
+                HyperLogLog::accept,
+                (l, r) -> { l.combine(r); return l; },
+                HyperLogLog::getEstimate, CH_UNORDERED_NOID);
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION)
+            throw new IllegalArgumentException(Integer.toString(precision));
+    }
+
+    /**
+     * 返回一个 {@code Collector}，该收集器把输入元素记录到一个具有给定行数和列数的
+     * {@link CountMinSketch} 中，用于估计每个元素出现的次数。
+     *
+     * <p>这是一个 {@link Collector.Characteristics#UNORDERED 无序}收集器，
+     * 它的内存占用为 {@code depth * width} 个 {@code long}，与不同元素的个数无关，
+     * 而 {@code groupingBy(identity(), counting())} 需要为每个不同的元素保存一个条目。
+     *
+     * @param <T> 输入元素的类型
+     * @param depth 行数，即每个元素使用的计数器数
+     * @param width 列数
+     * @return 把输入元素记录到 {@code CountMinSketch} 中的 {@code Collector}
+     * @throws IllegalArgumentException 如果 {@code depth} 或 {@code width} 不是正数，
+     *         或者计数器数超过最大数组大小
+     *
+     * @see CountMinSketch#withErrorBounds(double, double)
+     */
+    public static <T>
+    Collector<T, ?, CountMinSketch> toCountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0 || (long) depth * width > Nodes.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(depth + " x " + width);
+        return new CollectorImpl<T, CountMinSketch, CountMinSketch>(
+                () -> new CountMinSketch(depth, width),
+                CountMinSketch::accept,
+                (l, r) -> { l.combine(r); return l; }, CH_UNORDERED_ID);
+    }
+
+    /**
+     * 返回一个 {@code Collector}，该收集器把输入元素记录到一个 {@link BloomFilter} 中，
+     * 记录 {@code expectedInsertions} 个不同的元素后，它的假阳性率约为 {@code fpp}。
+     *
+     * <p>这是一个 {@link Collector.Characteristics#UNORDERED 无序}收集器。
+     * 位数和哈希函数数在调用此方法时由 {@link BloomFilter#optimalNumBits} 和
+     * {@link BloomFilter#optimalNumHashes} 选择，因此所有叶任务的过滤器都可以合并。
+     *
+     * @param <T> 输入元素的类型
+     * @param expectedInsertions 预期的不同元素数
+     * @param fpp 预期的假阳性率，在 (0, 1) 中
+     * @return 把输入元素记录到 {@code BloomFilter} 中的 {@code Collector}
+     * @throws IllegalArgumentException 如果 {@code expectedInsertions} 不是正数，
+     *         或者 {@code fpp} 不在 (0, 1) 中
+     */
+    public static <T>
+    Collector<T, ?, BloomFilter> toBloomFilter(long expectedInsertions, double fpp) {
+        int numBits = BloomFilter.optimalNumBits(expectedInsertions, fpp);
+        int numHashes = BloomFilter.optimalNumHashes(expectedInsertions, numBits);
+        return new CollectorImpl<T, BloomFilter, BloomFilter>(
+                () -> new BloomFilter(numBits, numHashes),
+                BloomFilter::accept,
+                (l, r) -> { l.combine(r); return l; }, CH_UNORDERED_ID);
+    }
+
     /**
      * 由 partitioningBy 使用的实现类。
      */
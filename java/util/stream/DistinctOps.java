@@ -24,24 +24,35 @@
  */
 package java.util.stream;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
+import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Spliterator;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 import java.util.function.IntFunction;
 
 /**
  * 用于将流转换为无重复元素的流的工厂方法，使用 {@link Object#equals(Object)} 来确定相等性。
  *
+ * <p>已知源大小的并行去重由 {@link Shards} 完成：元素按哈希值分片，每个叶任务先在自己的各分片集合中去重，
+ * 然后各分片独立地并行合并，不使用所有线程共享的集合，也不逐层合并整个集合。
+ *
  * @since 1.8
  */
 final class DistinctOps {
 
     private DistinctOps() { }
 
+    /** 并行去重时的分片数，是 2 的幂 */
+    static final int SHARDS = ShardedMap.DEFAULT_SHARDS;
+
+    /** 用于 {@link ShardedMap#shardIndex} 的移位数 */
+    private static final int SHARD_SHIFT = Integer.numberOfLeadingZeros(SHARDS) + 1;
+
     /**
      * 向提供的流追加一个“去重”操作，并返回新的流。
      *
@@ -53,12 +64,12 @@ final class DistinctOps {
         return new ReferencePipeline.StatefulOp<T, T>(upstream, StreamShape.REFERENCE,
                                                       StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
 
-            <P_IN> Node<T> reduce(PipelineHelper<T> helper, Spliterator<P_IN> spliterator) {
-                // 如果流是排序的，那么它也应该是有序的，因此以下操作也会保留排序顺序
-                TerminalOp<T, LinkedHashSet<T>> reduceOp
-                        = ReduceOps.<T, LinkedHashSet<T>>makeRef(LinkedHashSet::new, LinkedHashSet::add,
-                                                                 LinkedHashSet::addAll);
-                return Nodes.node(reduceOp.evaluateParallel(helper, spliterator));
+            <P_IN> Node<T> reduce(PipelineHelper<T> helper, Spliterator<P_IN> spliterator, boolean ordered) {
+                // 如果流是排序的，那么它也应该是有序的，因此按遇到顺序去重也会保留排序顺序
+                TerminalOp<T, RefShards<T>> reduceOp
+                        = ReduceOps.<T, RefShards<T>>makeRef(() -> new RefShards<>(ordered),
+                                                             RefShards::accept, RefShards::addAll);
+                return reduceOp.evaluateParallel(helper, spliterator).toNode(ordered);
             }
 
             @Override
@@ -69,29 +80,9 @@ final class DistinctOps {
                     // 无操作
                     return helper.evaluate(spliterator, false, generator);
                 }
-                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
-                    return reduce(helper, spliterator);
-                }
                 else {
-                    // 由于 ConcurrentHashMap 不支持 null 值，因此使用 AtomicBoolean 作为 null 状态的持有者
-                    AtomicBoolean seenNull = new AtomicBoolean(false);
-                    ConcurrentHashMap<T, Boolean> map = new ConcurrentHashMap<>();
-                    TerminalOp<T, Void> forEachOp = ForEachOps.makeRef(t -> {
-                        if (t == null)
-                            seenNull.set(true);
-                        else
-                            map.putIfAbsent(t, Boolean.TRUE);
-                    }, false);
-                    forEachOp.evaluateParallel(helper, spliterator);
-
-                    // 如果已看到 null，则将键集复制到支持 null 值的 HashSet 中，并添加 null
-                    Set<T> keys = map.keySet();
-                    if (seenNull.get()) {
-                        // TODO 实现一个更高效的集合并集视图，而不是复制
-                        keys = new HashSet<>(keys);
-                        keys.add(null);
-                    }
-                    return Nodes.node(keys);
+                    return reduce(helper, spliterator,
+                                  StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags()));
                 }
             }
 
@@ -103,10 +94,14 @@ final class DistinctOps {
                 }
                 else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
                     // 非懒惰，需要屏障以保留顺序
-                    return reduce(helper, spliterator).spliterator();
+                    return reduce(helper, spliterator, true).spliterator();
+                }
+                else if (spliterator.getExactSizeIfKnown() >= 0) {
+                    // 源是有限的，使用屏障分片去重
+                    return reduce(helper, spliterator, false).spliterator();
                 }
                 else {
-                    // 懒惰
+                    // 懒惰，源可能是无限的
                     return new StreamSpliterators.DistinctSpliterator<>(helper.wrapSpliterator(spliterator));
                 }
             }
@@ -176,4 +171,623 @@ final class DistinctOps {
             }
         };
     }
+
+    /**
+     * 向提供的 {@code IntStream} 追加一个“去重”操作，并返回新的流。元素保存在
+     * {@link PrimitiveHashSet.OfInt} 中，不装箱。
+     *
+     * @param upstream 具有元素类型 int 的流
+     * @return 新的流
+     */
+    static IntStream makeInt(AbstractPipeline<?, Integer, ?> upstream) {
+        return new IntPipeline.StatefulOp<Integer>(upstream, StreamShape.INT_VALUE,
+                                                   StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Integer> reduce(PipelineHelper<Integer> helper, Spliterator<P_IN> spliterator,
+                                        boolean ordered) {
+                TerminalOp<Integer, IntShards> reduceOp
+                        = ReduceOps.makeInt(() -> new IntShards(ordered), IntShards::accept,
+                                            (left, right) -> { left.addAll(right); return left; });
+                return reduceOp.evaluateParallel(helper, spliterator).toNode(ordered);
+            }
+
+            @Override
+            <P_IN> Node<Integer> opEvaluateParallel(PipelineHelper<Integer> helper,
+                                                    Spliterator<P_IN> spliterator,
+                                                    IntFunction<Integer[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // 无操作
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else {
+                    return reduce(helper, spliterator,
+                                  StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags()));
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Integer> opEvaluateParallelLazy(PipelineHelper<Integer> helper,
+                                                               Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // 无操作
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
+                    // 非懒惰，需要屏障以保留顺序
+                    return reduce(helper, spliterator, true).spliterator();
+                }
+                else if (spliterator.getExactSizeIfKnown() >= 0) {
+                    // 源是有限的，使用屏障分片去重
+                    return reduce(helper, spliterator, false).spliterator();
+                }
+                else {
+                    // 懒惰，源可能是无限的；装箱并使用引用流的懒惰去重
+                    return StreamSupport.stream(helper.wrapSpliterator(spliterator), true)
+                                        .unordered().distinct()
+                                        .mapToInt(Integer::intValue).spliterator();
+                }
+            }
+
+            @Override
+            Sink<Integer> opWrapSink(int flags, Sink<Integer> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        boolean seenAny;
+                        int lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (!seenAny || t != lastSeen) {
+                                seenAny = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedInt<Integer>(sink) {
+                        PrimitiveHashSet.OfInt seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new PrimitiveHashSet.OfInt();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(int t) {
+                            if (seen.add(t))
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * 向提供的 {@code LongStream} 追加一个“去重”操作，并返回新的流。元素保存在
+     * {@link PrimitiveHashSet.OfLong} 中，不装箱。
+     *
+     * @param upstream 具有元素类型 long 的流
+     * @return 新的流
+     */
+    static LongStream makeLong(AbstractPipeline<?, Long, ?> upstream) {
+        return new LongPipeline.StatefulOp<Long>(upstream, StreamShape.LONG_VALUE,
+                                                 StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED) {
+
+            <P_IN> Node<Long> reduce(PipelineHelper<Long> helper, Spliterator<P_IN> spliterator,
+                                     boolean ordered) {
+                TerminalOp<Long, LongShards> reduceOp
+                        = ReduceOps.makeLong(() -> new LongShards(ordered), LongShards::accept,
+                                             (left, right) -> { left.addAll(right); return left; });
+                return reduceOp.evaluateParallel(helper, spliterator).toNode(ordered);
+            }
+
+            @Override
+            <P_IN> Node<Long> opEvaluateParallel(PipelineHelper<Long> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<Long[]> generator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // 无操作
+                    return helper.evaluate(spliterator, false, generator);
+                }
+                else {
+                    return reduce(helper, spliterator,
+                                  StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags()));
+                }
+            }
+
+            @Override
+            <P_IN> Spliterator<Long> opEvaluateParallelLazy(PipelineHelper<Long> helper,
+                                                            Spliterator<P_IN> spliterator) {
+                if (StreamOpFlag.DISTINCT.isKnown(helper.getStreamAndOpFlags())) {
+                    // 无操作
+                    return helper.wrapSpliterator(spliterator);
+                }
+                else if (StreamOpFlag.ORDERED.isKnown(helper.getStreamAndOpFlags())) {
+                    // 非懒惰，需要屏障以保留顺序
+                    return reduce(helper, spliterator, true).spliterator();
+                }
+                else if (spliterator.getExactSizeIfKnown() >= 0) {
+                    // 源是有限的，使用屏障分片去重
+                    return reduce(helper, spliterator, false).spliterator();
+                }
+                else {
+                    // 懒惰，源可能是无限的；装箱并使用引用流的懒惰去重
+                    return StreamSupport.stream(helper.wrapSpliterator(spliterator), true)
+                                        .unordered().distinct()
+                                        .mapToLong(Long::longValue).spliterator();
+                }
+            }
+
+            @Override
+            Sink<Long> opWrapSink(int flags, Sink<Long> sink) {
+                Objects.requireNonNull(sink);
+
+                if (StreamOpFlag.DISTINCT.isKnown(flags)) {
+                    return sink;
+                } else if (StreamOpFlag.SORTED.isKnown(flags)) {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        boolean seenAny;
+                        long lastSeen;
+
+                        @Override
+                        public void begin(long size) {
+                            seenAny = false;
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (!seenAny || t != lastSeen) {
+                                seenAny = true;
+                                downstream.accept(lastSeen = t);
+                            }
+                        }
+                    };
+                } else {
+                    return new Sink.ChainedLong<Long>(sink) {
+                        PrimitiveHashSet.OfLong seen;
+
+                        @Override
+                        public void begin(long size) {
+                            seen = new PrimitiveHashSet.OfLong();
+                            downstream.begin(-1);
+                        }
+
+                        @Override
+                        public void end() {
+                            seen = null;
+                            downstream.end();
+                        }
+
+                        @Override
+                        public void accept(long t) {
+                            if (seen.add(t))
+                                downstream.accept(t);
+                        }
+                    };
+                }
+            }
+        };
+    }
+
+    /**
+     * 并行去重的累积容器。每个叶任务把元素累积到自己的一组按哈希值分片的集合中，有序时还按遇到顺序记录
+     * 在该叶任务中第一次出现的元素；合并两个容器时只按遇到顺序连接它们的叶任务列表，不合并集合。
+     *
+     * <p>最后由 {@link #toNode} 并行地处理各分片。无序时，合并所有叶任务的同一分片的集合，结果是各分片的并集。
+     * 有序时，按遇到顺序找出每个分片中已经在之前的叶任务中出现过的元素，然后并行地从各叶任务记录的元素中去掉它们，
+     * 按遇到顺序连接的结果就是每个元素第一次出现的位置。
+     * 因此每个元素在叶任务中只插入集合一次，合并时最多再插入一次，并且不同的分片之间没有竞争。
+     *
+     * @param <T> 元素的类型
+     * @param <L> 叶任务累积状态的类型
+     */
+    private abstract static class Shards<T, L> {
+        /** 各叶任务的累积状态，按遇到顺序 */
+        final ArrayList<L> leaves = new ArrayList<>(1);
+
+        /**
+         * 把另一个容器的叶任务添加到此容器的叶任务之后。
+         */
+        final void addAll(Shards<T, L> other) {
+            leaves.addAll(other.leaves);
+        }
+
+        abstract StreamShape shape();
+
+        /**
+         * 合并各叶任务的第 {@code s} 个分片，返回包含它们的并集的节点；如果所有叶任务的该分片都为空，则返回 {@code null}。
+         */
+        abstract Node<T> unionShard(int s);
+
+        /**
+         * 按遇到顺序记录第 {@code s} 个分片中在之前的叶任务中已经出现过的元素。
+         */
+        abstract void markDuplicates(int s);
+
+        /**
+         * 返回第 {@code j} 个叶任务中按遇到顺序第一次出现的元素组成的节点；
+         * 如果 {@code filter} 为 {@code false}，则不去掉之前的叶任务中出现过的元素。
+         */
+        abstract Node<T> leafNode(int j, boolean filter);
+
+        /**
+         * 完成去重并返回结果。此后容器不应再被使用。
+         */
+        @SuppressWarnings("unchecked")
+        final Node<T> toNode(boolean ordered) {
+            Node<T>[] nodes;
+            if (ordered) {
+                int n = leaves.size();
+                nodes = (Node<T>[]) new Node<?>[n];
+                if (n > 1)
+                    forEachIndex(SHARDS, this::markDuplicates);
+                // 第一个叶任务的元素都是第一次出现
+                forEachIndex(n, j -> nodes[j] = leafNode(j, j > 0));
+            }
+            else {
+                nodes = (Node<T>[]) new Node<?>[SHARDS];
+                forEachIndex(SHARDS, s -> nodes[s] = unionShard(s));
+            }
+            int n = 0;
+            for (Node<T> node : nodes)
+                if (node != null && node.count() > 0)
+                    nodes[n++] = node;
+            return (n == 0) ? Nodes.emptyNode(shape()) : conc(nodes, 0, n);
+        }
+
+        private Node<T> conc(Node<T>[] nodes, int lo, int hi) {
+            if (hi - lo == 1)
+                return nodes[lo];
+            int mid = (lo + hi) >>> 1;
+            return Nodes.conc(shape(), conc(nodes, lo, mid), conc(nodes, mid, hi));
+        }
+    }
+
+    /**
+     * 引用流的 {@link Shards}。
+     */
+    private static final class RefShards<T> extends Shards<T, RefShards.Leaf<T>> {
+        private final Leaf<T> leaf;
+
+        RefShards(boolean ordered) {
+            leaves.add(leaf = new Leaf<>(ordered));
+        }
+
+        static int shardOf(Object t) {
+            return ShardedMap.shardIndex((t == null) ? 0 : t.hashCode(), SHARD_SHIFT);
+        }
+
+        static final class Leaf<T> {
+            @SuppressWarnings("unchecked")
+            final HashSet<T>[] sets = (HashSet<T>[]) new HashSet<?>[SHARDS];
+            /** 有序时，此叶任务中第一次出现的元素，按遇到顺序 */
+            final ArrayList<T> firsts;
+
+            Leaf(boolean ordered) {
+                firsts = ordered ? new ArrayList<>() : null;
+            }
+        }
+
+        void accept(T t) {
+            Leaf<T> l = leaf;
+            int s = shardOf(t);
+            HashSet<T> set = l.sets[s];
+            if (set == null)
+                l.sets[s] = set = new HashSet<>();
+            if (set.add(t) && l.firsts != null)
+                l.firsts.add(t);
+        }
+
+        @Override
+        StreamShape shape() {
+            return StreamShape.REFERENCE;
+        }
+
+        @Override
+        Node<T> unionShard(int s) {
+            HashSet<T> union = null;
+            for (Leaf<T> l : leaves) {
+                HashSet<T> set = l.sets[s];
+                if (set != null && (union == null || set.size() > union.size()))
+                    union = set;
+            }
+            if (union == null)
+                return null;
+            for (Leaf<T> l : leaves) {
+                HashSet<T> set = l.sets[s];
+                if (set != null && set != union)
+                    union.addAll(set);
+            }
+            return Nodes.node(union);
+        }
+
+        @Override
+        void markDuplicates(int s) {
+            // 第一个非空的集合的元素都是第一次出现，用它记录之前出现过的元素；
+            // 之后的集合中已经出现过的元素被移除
+            HashSet<T> seen = null;
+            for (Leaf<T> l : leaves) {
+                HashSet<T> set = l.sets[s];
+                if (set == null)
+                    continue;
+                if (seen == null)
+                    seen = set;
+                else {
+                    for (Iterator<T> it = set.iterator(); it.hasNext(); )
+                        if (!seen.add(it.next()))
+                            it.remove();
+                }
+            }
+        }
+
+        @Override
+        Node<T> leafNode(int j, boolean filter) {
+            Leaf<T> l = leaves.get(j);
+            ArrayList<T> firsts = l.firsts;
+            if (filter)
+                firsts.removeIf(t -> !l.sets[shardOf(t)].contains(t));
+            return Nodes.node(firsts);
+        }
+    }
+
+    /**
+     * {@code int} 流的 {@link Shards}。
+     */
+    private static final class IntShards extends Shards<Integer, IntShards.Leaf> {
+        private final Leaf leaf;
+
+        IntShards(boolean ordered) {
+            leaves.add(leaf = new Leaf(ordered));
+        }
+
+        static int shardOf(int t) {
+            return ShardedMap.shardIndex(Integer.hashCode(t), SHARD_SHIFT);
+        }
+
+        static final class Leaf {
+            final PrimitiveHashSet.OfInt[] sets = new PrimitiveHashSet.OfInt[SHARDS];
+            /** 有序时，此叶任务中第一次出现的元素，按遇到顺序 */
+            final SpinedBuffer.OfInt firsts;
+            /** 有序时，各分片中在之前的叶任务中已经出现过的元素 */
+            final PrimitiveHashSet.OfInt[] duplicates;
+
+            Leaf(boolean ordered) {
+                firsts = ordered ? new SpinedBuffer.OfInt() : null;
+                duplicates = ordered ? new PrimitiveHashSet.OfInt[SHARDS] : null;
+            }
+
+            boolean isDuplicate(int t) {
+                PrimitiveHashSet.OfInt d = duplicates[shardOf(t)];
+                return d != null && d.contains(t);
+            }
+        }
+
+        void accept(int t) {
+            Leaf l = leaf;
+            int s = shardOf(t);
+            PrimitiveHashSet.OfInt set = l.sets[s];
+            if (set == null)
+                l.sets[s] = set = new PrimitiveHashSet.OfInt();
+            if (set.add(t) && l.firsts != null)
+                l.firsts.accept(t);
+        }
+
+        @Override
+        StreamShape shape() {
+            return StreamShape.INT_VALUE;
+        }
+
+        @Override
+        Node<Integer> unionShard(int s) {
+            PrimitiveHashSet.OfInt union = null;
+            for (Leaf l : leaves) {
+                PrimitiveHashSet.OfInt set = l.sets[s];
+                if (set != null && (union == null || set.size() > union.size()))
+                    union = set;
+            }
+            if (union == null)
+                return null;
+            for (Leaf l : leaves) {
+                PrimitiveHashSet.OfInt set = l.sets[s];
+                if (set != null && set != union)
+                    union.addAll(set);
+            }
+            return Nodes.node(union.toArray());
+        }
+
+        @Override
+        void markDuplicates(int s) {
+            PrimitiveHashSet.OfInt seen = null;
+            for (Leaf l : leaves) {
+                PrimitiveHashSet.OfInt set = l.sets[s];
+                if (set == null)
+                    continue;
+                if (seen == null)
+                    seen = set;
+                else {
+                    PrimitiveHashSet.OfInt dups = new PrimitiveHashSet.OfInt();
+                    PrimitiveHashSet.OfInt target = seen;
+                    set.forEach((int t) -> {
+                        if (!target.add(t))
+                            dups.add(t);
+                    });
+                    if (dups.size() > 0)
+                        l.duplicates[s] = dups;
+                }
+            }
+        }
+
+        @Override
+        Node<Integer> leafNode(int j, boolean filter) {
+            Leaf l = leaves.get(j);
+            int[] a = l.firsts.asPrimitiveArray();
+            if (filter) {
+                int n = 0;
+                for (int t : a)
+                    if (!l.isDuplicate(t))
+                        a[n++] = t;
+                if (n < a.length)
+                    a = Arrays.copyOf(a, n);
+            }
+            return Nodes.node(a);
+        }
+    }
+
+    /**
+     * {@code long} 流的 {@link Shards}。
+     */
+    private static final class LongShards extends Shards<Long, LongShards.Leaf> {
+        private final Leaf leaf;
+
+        LongShards(boolean ordered) {
+            leaves.add(leaf = new Leaf(ordered));
+        }
+
+        static int shardOf(long t) {
+            return ShardedMap.shardIndex(Long.hashCode(t), SHARD_SHIFT);
+        }
+
+        static final class Leaf {
+            final PrimitiveHashSet.OfLong[] sets = new PrimitiveHashSet.OfLong[SHARDS];
+            /** 有序时，此叶任务中第一次出现的元素，按遇到顺序 */
+            final SpinedBuffer.OfLong firsts;
+            /** 有序时，各分片中在之前的叶任务中已经出现过的元素 */
+            final PrimitiveHashSet.OfLong[] duplicates;
+
+            Leaf(boolean ordered) {
+                firsts = ordered ? new SpinedBuffer.OfLong() : null;
+                duplicates = ordered ? new PrimitiveHashSet.OfLong[SHARDS] : null;
+            }
+
+            boolean isDuplicate(long t) {
+                PrimitiveHashSet.OfLong d = duplicates[shardOf(t)];
+                return d != null && d.contains(t);
+            }
+        }
+
+        void accept(long t) {
+            Leaf l = leaf;
+            int s = shardOf(t);
+            PrimitiveHashSet.OfLong set = l.sets[s];
+            if (set == null)
+                l.sets[s] = set = new PrimitiveHashSet.OfLong();
+            if (set.add(t) && l.firsts != null)
+                l.firsts.accept(t);
+        }
+
+        @Override
+        StreamShape shape() {
+            return StreamShape.LONG_VALUE;
+        }
+
+        @Override
+        Node<Long> unionShard(int s) {
+            PrimitiveHashSet.OfLong union = null;
+            for (Leaf l : leaves) {
+                PrimitiveHashSet.OfLong set = l.sets[s];
+                if (set != null && (union == null || set.size() > union.size()))
+                    union = set;
+            }
+            if (union == null)
+                return null;
+            for (Leaf l : leaves) {
+                PrimitiveHashSet.OfLong set = l.sets[s];
+                if (set != null && set != union)
+                    union.addAll(set);
+            }
+            return Nodes.node(union.toArray());
+        }
+
+        @Override
+        void markDuplicates(int s) {
+            PrimitiveHashSet.OfLong seen = null;
+            for (Leaf l : leaves) {
+                PrimitiveHashSet.OfLong set = l.sets[s];
+                if (set == null)
+                    continue;
+                if (seen == null)
+                    seen = set;
+                else {
+                    PrimitiveHashSet.OfLong dups = new PrimitiveHashSet.OfLong();
+                    PrimitiveHashSet.OfLong target = seen;
+                    set.forEach((long t) -> {
+                        if (!target.add(t))
+                            dups.add(t);
+                    });
+                    if (dups.size() > 0)
+                        l.duplicates[s] = dups;
+                }
+            }
+        }
+
+        @Override
+        Node<Long> leafNode(int j, boolean filter) {
+            Leaf l = leaves.get(j);
+            long[] a = l.firsts.asPrimitiveArray();
+            if (filter) {
+                int n = 0;
+                for (long t : a)
+                    if (!l.isDuplicate(t))
+                        a[n++] = t;
+                if (n < a.length)
+                    a = Arrays.copyOf(a, n);
+            }
+            return Nodes.node(a);
+        }
+    }
+
+    /**
+     * 对 [0, n) 中的每个下标并行执行给定的操作，并等待它们全部完成。
+     */
+    static void forEachIndex(int n, IntConsumer action) {
+        if (n == 1)
+            action.accept(0);
+        else if (n > 1)
+            new IndexTask(action, 0, n).invoke();
+    }
+
+    /**
+     * 对一段下标执行操作的任务。
+     */
+    @SuppressWarnings("serial")
+    private static final class IndexTask extends RecursiveAction {
+        private final IntConsumer action;
+        private final int lo, hi;
+
+        IndexTask(IntConsumer action, int lo, int hi) {
+            this.action = action;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1)
+                action.accept(lo);
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new IndexTask(action, lo, mid),
+                          new IndexTask(action, mid, hi));
+            }
+        }
+    }
 }
@@ -266,7 +266,14 @@ final class ForEachOps {
             while (!isShortCircuit || !taskSink.cancellationRequested()) {
                 if (sizeEstimate <= sizeThreshold ||
                     (leftSplit = rightSplit.trySplit()) == null) {
-                    task.helper.copyInto(taskSink, rightSplit);
+                    StreamProfiler.Profile prof = StreamProfiler.profileOf(helper);
+                    if (prof == null)
+                        task.helper.copyInto(taskSink, rightSplit);
+                    else {
+                        long start = System.nanoTime();
+                        task.helper.copyInto(taskSink, rightSplit);
+                        prof.leaf(task, sizeEstimate, System.nanoTime() - start);
+                    }
                     break;
                 }
                 ForEachTask<S, T> leftTask = new ForEachTask<>(task, leftSplit);
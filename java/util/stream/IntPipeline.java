@@ -401,6 +401,21 @@ abstract class IntPipeline<E_IN>
             return SliceOps.makeInt(this, n, -1);
     }
 
+    @Override
+    public final Stream<int[]> chunked(int size) {
+        return WindowOps.makeIntChunked(this, size);
+    }
+
+    @Override
+    public final Stream<int[]> windowed(int size) {
+        return WindowOps.makeIntSliding(this, size, 1);
+    }
+
+    @Override
+    public final Stream<int[]> sliding(int size, int step) {
+        return WindowOps.makeIntSliding(this, size, step);
+    }
+
     @Override
     public final IntStream sorted() {
         return SortedOps.makeInt(this);
@@ -409,9 +424,7 @@ abstract class IntPipeline<E_IN>
 
                 @Override
     public final IntStream distinct() {
-        // 虽然功能性和快速实现，但这种方法效率不高。
-        // 高效版本需要一个特定于 int 的映射/集合实现。
-        return boxed().distinct().mapToInt(i -> i);
+        return DistinctOps.makeInt(this);
     }
 
     // IntStream 的终端操作
@@ -490,6 +503,17 @@ abstract class IntPipeline<E_IN>
         return evaluate(ReduceOps.makeInt(supplier, accumulator, operator));
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public final <A, R> R collect(Collector.OfInt<A, R> collector) {
+        A container = evaluate(ReduceOps.makeInt(collector.supplier(),
+                                                 collector.intAccumulator(),
+                                                 collector.combiner()));
+        return collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? (R) container
+               : collector.finisher().apply(container);
+    }
+
     @Override
     public final boolean anyMatch(IntPredicate predicate) {
         return evaluate(MatchOps.makeInt(predicate, MatchOps.MatchKind.ANY));
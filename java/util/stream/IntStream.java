@@ -34,6 +34,7 @@ import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.IntBinaryOperator;
 import java.util.function.IntConsumer;
@@ -210,6 +211,73 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
      */
     IntStream skip(long n);
 
+    /**
+     * 返回一个由此流的元素按遇到顺序分成的分块组成的流。每个分块是一个包含 {@code size} 个连续元素的新数组，
+     * 最后一个分块可能包含少于 {@code size} 个元素。空流产生空流。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">有状态的中间操作</a>。
+     *
+     * @apiNote
+     * 在顺序流管道中，分块在元素经过管道时逐个产生，只缓冲当前分块。
+     *
+     * @implSpec
+     * 默认实现检查 {@code size}，然后用此流的 {@link #spliterator()} 构造一个流库提供的流
+     * （关闭时关闭此流），并返回对它调用 {@code chunked(size)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param size 每个分块的元素数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code size} 不为正数
+     * @see Stream#chunked(int)
+     */
+    default Stream<int[]> chunked(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size: " + size);
+        return StreamSupport.intStream(spliterator(), isParallel()).onClose(this::close).chunked(size);
+    }
+
+    /**
+     * 返回一个由此流中每 {@code size} 个连续元素组成的滑动窗口构成的流，相邻窗口的起点相隔一个元素。
+     * 这等价于 {@code sliding(size, 1)}。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">有状态的中间操作</a>。
+     *
+     * @implSpec
+     * 默认实现返回 {@code sliding(size, 1)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param size 每个窗口的元素数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code size} 不为正数
+     * @see #sliding(int, int)
+     */
+    default Stream<int[]> windowed(int size) {
+        return sliding(size, 1);
+    }
+
+    /**
+     * 返回一个由此流的滑动窗口构成的流。第 <em>i</em> 个窗口是一个新数组，
+     * 包含从第 <em>i</em>&nbsp;*&nbsp;{@code step} 个元素开始的 {@code size} 个连续元素。
+     * 只产生完整的窗口。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">有状态的中间操作</a>。
+     *
+     * @implSpec
+     * 默认实现检查 {@code size} 和 {@code step}，然后用此流的 {@link #spliterator()} 构造一个流库提供的流
+     * （关闭时关闭此流），并返回对它调用 {@code sliding(size, step)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param size 每个窗口的元素数
+     * @param step 相邻窗口起点之间的元素数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code size} 或 {@code step} 不为正数
+     * @see Stream#sliding(int, int)
+     */
+    default Stream<int[]> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size: " + size);
+        if (step <= 0)
+            throw new IllegalArgumentException("step: " + step);
+        return StreamSupport.intStream(spliterator(), isParallel()).onClose(this::close).sliding(size, step);
+    }
+
     /**
      * 对此流中的每个元素执行一个操作。
      *
@@ -353,6 +421,48 @@ public interface IntStream extends BaseStream<Integer, IntStream> {
                   ObjIntConsumer<R> accumulator,
                   BiConsumer<R, R> combiner);
 
+    /**
+     * 使用 {@code Collector.OfInt} 对此流的元素执行一个<a href="package-summary.html#MutableReduction">可变归约</a>操作。
+     * 元素以 {@code int} 直接传递给收集器的 {@link Collector.OfInt#intAccumulator() intAccumulator}，不装箱；
+     * 这产生的结果等同于：
+     * <pre>{@code
+     *     A container = collector.supplier().get();
+     *     for (int element : this stream)
+     *         collector.intAccumulator().accept(container, element);
+     *     return collector.finisher().apply(container);
+     * }</pre>
+     *
+     * <p>像{@link #collect(Supplier, ObjIntConsumer, BiConsumer)}一样，{@code collect}操作可以并行化而不需要额外的同步。
+     *
+     * <p>这是一个<a href="package-summary.html#StreamOps">终结操作</a>。
+     *
+     * @implSpec
+     * 默认实现把收集器的中间结果放在一个单元素数组中，通过
+     * {@link #collect(Supplier, ObjIntConsumer, BiConsumer)} 执行归约，
+     * 因为收集器的 {@code combiner} 可能返回一个新的中间结果而不是修改左边的那个；
+     * 然后根据 {@link Collector.Characteristics#IDENTITY_FINISH IDENTITY_FINISH} 特性决定是否应用
+     * {@code finisher}。流库提供的所有流都覆盖了此方法。
+     *
+     * @param <A> 收集器的中间累积类型
+     * @param <R> 结果的类型
+     * @param collector 描述归约的 {@code Collector.OfInt}
+     * @return 归约的结果
+     * @see Collectors#groupingByInt
+     * @see Collectors#partitioningByInt
+     */
+    @SuppressWarnings("unchecked")
+    default <A, R> R collect(Collector.OfInt<A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        ObjIntConsumer<A> accumulator = collector.intAccumulator();
+        BinaryOperator<A> combiner = collector.combiner();
+        Object[] box = collect(() -> new Object[] { supplier.get() },
+                               (b, t) -> accumulator.accept((A) b[0], t),
+                               (l, r) -> l[0] = combiner.apply((A) l[0], (A) r[0]));
+        return collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? (R) box[0]
+               : collector.finisher().apply((A) box[0]);
+    }
+
     /**
      * 返回此流中元素的和。这是一个<a href="package-summary.html#Reduction">归约</a>的特殊情况
      * 并等同于：
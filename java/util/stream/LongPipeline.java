@@ -390,9 +390,7 @@ abstract class LongPipeline<E_IN>
 
     @Override
     public final LongStream distinct() {
-        // 虽然功能实现简单且快速，但这种方法效率不高。
-        // 高效的版本需要一个特定于 long 的 map/set 实现。
-        return boxed().distinct().mapToLong(i -> (long) i);
+        return DistinctOps.makeLong(this);
     }
 
     // 终端操作
@@ -473,6 +471,17 @@ abstract class LongPipeline<E_IN>
         return evaluate(ReduceOps.makeLong(supplier, accumulator, operator));
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public final <A, R> R collect(Collector.OfLong<A, R> collector) {
+        A container = evaluate(ReduceOps.makeLong(collector.supplier(),
+                                                  collector.longAccumulator(),
+                                                  collector.combiner()));
+        return collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? (R) container
+               : collector.finisher().apply(container);
+    }
+
     @Override
     public final boolean anyMatch(LongPredicate predicate) {
         return evaluate(MatchOps.makeLong(predicate, MatchOps.MatchKind.ANY));
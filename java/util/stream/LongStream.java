@@ -39,6 +39,7 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.LongBinaryOperator;
 import java.util.function.LongConsumer;
@@ -352,6 +353,48 @@ public interface LongStream extends BaseStream<Long, LongStream> {
                   ObjLongConsumer<R> accumulator,
                   BiConsumer<R, R> combiner);
 
+    /**
+     * 使用 {@code Collector.OfLong} 对此流的元素执行一个<a href="package-summary.html#MutableReduction">可变归约</a>操作。
+     * 元素以 {@code long} 直接传递给收集器的 {@link Collector.OfLong#longAccumulator() longAccumulator}，不装箱；
+     * 这产生的结果等同于：
+     * <pre>{@code
+     *     A container = collector.supplier().get();
+     *     for (long element : this stream)
+     *         collector.longAccumulator().accept(container, element);
+     *     return collector.finisher().apply(container);
+     * }</pre>
+     *
+     * <p>像{@link #collect(Supplier, ObjLongConsumer, BiConsumer)}一样，{@code collect}操作可以并行化而不需要额外的同步。
+     *
+     * <p>这是一个<a href="package-summary.html#StreamOps">终结操作</a>。
+     *
+     * @implSpec
+     * 默认实现把收集器的中间结果放在一个单元素数组中，通过
+     * {@link #collect(Supplier, ObjLongConsumer, BiConsumer)} 执行归约，
+     * 因为收集器的 {@code combiner} 可能返回一个新的中间结果而不是修改左边的那个；
+     * 然后根据 {@link Collector.Characteristics#IDENTITY_FINISH IDENTITY_FINISH} 特性决定是否应用
+     * {@code finisher}。流库提供的所有流都覆盖了此方法。
+     *
+     * @param <A> 收集器的中间累积类型
+     * @param <R> 结果的类型
+     * @param collector 描述归约的 {@code Collector.OfLong}
+     * @return 归约的结果
+     * @see Collectors#groupingByLong
+     * @see Collectors#partitioningByLong
+     */
+    @SuppressWarnings("unchecked")
+    default <A, R> R collect(Collector.OfLong<A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        ObjLongConsumer<A> accumulator = collector.longAccumulator();
+        BinaryOperator<A> combiner = collector.combiner();
+        Object[] box = collect(() -> new Object[] { supplier.get() },
+                               (b, t) -> accumulator.accept((A) b[0], t),
+                               (l, r) -> l[0] = combiner.apply((A) l[0], (A) r[0]));
+        return collector.characteristics().contains(Collector.Characteristics.IDENTITY_FINISH)
+               ? (R) box[0]
+               : collector.finisher().apply((A) box[0]);
+    }
+
     /**
      * 返回此流中元素的和。这是一个<a href="package-summary.html#Reduction">归约</a>的特殊情况
      * 并等同于：
@@ -0,0 +1,298 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.stream;
+
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * 存储原始类型值的开放寻址哈希集合，用于原始类型流的去重，不为每个元素装箱。
+ *
+ * <p>使用线性探测，表的大小总是 2 的幂，装载因子不超过 1/2。零用作空槽的标记，
+ * 因此值零单独记录。元素只能添加，不能移除。
+ *
+ * <p>槽由值混合后的哈希码的低位选择；{@link ShardedMap#shardIndex} 使用未混合的哈希码乘以一个常数后的高位选择分片，
+ * 因此同一个分片中的值仍然均匀地分布在表中。
+ *
+ * <p>此类不是线程安全的。
+ *
+ * @since 1.8
+ */
+abstract class PrimitiveHashSet {
+
+    /** 初始的表大小 */
+    static final int INITIAL_CAPACITY = 16;
+
+    /** 最大的表大小 */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** 元素数，包括零 */
+    int size;
+
+    /** 集合是否包含零 */
+    boolean containsZero;
+
+    /** 表大小减一 */
+    int mask;
+
+    /** 元素数超过此值时扩容 */
+    int threshold;
+
+    PrimitiveHashSet() {
+        setCapacity(INITIAL_CAPACITY);
+    }
+
+    final void setCapacity(int capacity) {
+        mask = capacity - 1;
+        threshold = (capacity == MAXIMUM_CAPACITY) ? Integer.MAX_VALUE : capacity >>> 1;
+    }
+
+    /**
+     * 返回元素数。
+     */
+    final int size() {
+        return size;
+    }
+
+    /**
+     * 专门用于 {@code int} 值的哈希集合。
+     */
+    static final class OfInt extends PrimitiveHashSet {
+        private int[] table = new int[INITIAL_CAPACITY];
+
+        private static int hash(int x) {
+            int h = x * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * 如果集合中还没有此值则添加它。
+         *
+         * @return 如果集合中还没有此值，则为 {@code true}
+         */
+        boolean add(int x) {
+            if (x == 0) {
+                if (containsZero)
+                    return false;
+                containsZero = true;
+                ++size;
+                return true;
+            }
+            int[] t = table;
+            int m = mask;
+            for (int i = hash(x) & m; ; i = (i + 1) & m) {
+                int k = t[i];
+                if (k == 0) {
+                    t[i] = x;
+                    if (++size > threshold)
+                        resize();
+                    return true;
+                }
+                if (k == x)
+                    return false;
+            }
+        }
+
+        boolean contains(int x) {
+            if (x == 0)
+                return containsZero;
+            int[] t = table;
+            int m = mask;
+            for (int i = hash(x) & m; ; i = (i + 1) & m) {
+                int k = t[i];
+                if (k == 0)
+                    return false;
+                if (k == x)
+                    return true;
+            }
+        }
+
+        private void resize() {
+            int[] old = table;
+            int n = old.length << 1;
+            int[] t = new int[n];
+            int m = n - 1;
+            for (int k : old) {
+                if (k != 0) {
+                    int i = hash(k) & m;
+                    while (t[i] != 0)
+                        i = (i + 1) & m;
+                    t[i] = k;
+                }
+            }
+            table = t;
+            setCapacity(n);
+        }
+
+        /**
+         * 添加另一个集合的所有元素。
+         *
+         * @return 此集合
+         */
+        OfInt addAll(OfInt other) {
+            if (other.containsZero)
+                add(0);
+            for (int k : other.table)
+                if (k != 0)
+                    add(k);
+            return this;
+        }
+
+        /**
+         * 对每个元素执行给定的操作，顺序不确定。
+         */
+        void forEach(IntConsumer action) {
+            if (containsZero)
+                action.accept(0);
+            for (int k : table)
+                if (k != 0)
+                    action.accept(k);
+        }
+
+        /**
+         * 返回包含所有元素的数组，顺序不确定。
+         */
+        int[] toArray() {
+            int[] a = new int[size];
+            int n = 0;
+            if (containsZero)
+                a[n++] = 0;
+            for (int k : table)
+                if (k != 0)
+                    a[n++] = k;
+            return a;
+        }
+    }
+
+    /**
+     * 专门用于 {@code long} 值的哈希集合。
+     */
+    static final class OfLong extends PrimitiveHashSet {
+        private long[] table = new long[INITIAL_CAPACITY];
+
+        private static int hash(long x) {
+            long h = x * 0x9e3779b97f4a7c15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        /**
+         * 如果集合中还没有此值则添加它。
+         *
+         * @return 如果集合中还没有此值，则为 {@code true}
+         */
+        boolean add(long x) {
+            if (x == 0L) {
+                if (containsZero)
+                    return false;
+                containsZero = true;
+                ++size;
+                return true;
+            }
+            long[] t = table;
+            int m = mask;
+            for (int i = hash(x) & m; ; i = (i + 1) & m) {
+                long k = t[i];
+                if (k == 0L) {
+                    t[i] = x;
+                    if (++size > threshold)
+                        resize();
+                    return true;
+                }
+                if (k == x)
+                    return false;
+            }
+        }
+
+        boolean contains(long x) {
+            if (x == 0L)
+                return containsZero;
+            long[] t = table;
+            int m = mask;
+            for (int i = hash(x) & m; ; i = (i + 1) & m) {
+                long k = t[i];
+                if (k == 0L)
+                    return false;
+                if (k == x)
+                    return true;
+            }
+        }
+
+        private void resize() {
+            long[] old = table;
+            int n = old.length << 1;
+            long[] t = new long[n];
+            int m = n - 1;
+            for (long k : old) {
+                if (k != 0L) {
+                    int i = hash(k) & m;
+                    while (t[i] != 0L)
+                        i = (i + 1) & m;
+                    t[i] = k;
+                }
+            }
+            table = t;
+            setCapacity(n);
+        }
+
+        /**
+         * 添加另一个集合的所有元素。
+         *
+         * @return 此集合
+         */
+        OfLong addAll(OfLong other) {
+            if (other.containsZero)
+                add(0L);
+            for (long k : other.table)
+                if (k != 0L)
+                    add(k);
+            return this;
+        }
+
+        /**
+         * 对每个元素执行给定的操作，顺序不确定。
+         */
+        void forEach(LongConsumer action) {
+            if (containsZero)
+                action.accept(0L);
+            for (long k : table)
+                if (k != 0L)
+                    action.accept(k);
+        }
+
+        /**
+         * 返回包含所有元素的数组，顺序不确定。
+         */
+        long[] toArray() {
+            long[] a = new long[size];
+            int n = 0;
+            if (containsZero)
+                a[n++] = 0L;
+            for (long k : table)
+                if (k != 0L)
+                    a[n++] = k;
+            return a;
+        }
+    }
+}
@@ -37,6 +37,7 @@ import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.IntBinaryOperator;
+import java.util.function.IntFunction;
 import java.util.function.LongBinaryOperator;
 import java.util.function.ObjDoubleConsumer;
 import java.util.function.ObjIntConsumer;
@@ -152,11 +153,17 @@ final class ReduceOps {
         Supplier<I> supplier = Objects.requireNonNull(collector).supplier();
         BiConsumer<I, ? super T> accumulator = collector.accumulator();
         BinaryOperator<I> combiner = collector.combiner();
+        IntFunction<I> sizedSupplier = (collector instanceof Collector.SizeAware)
+                                       ? ((Collector.SizeAware<? super T, I, ?>) collector).sizedSupplier()
+                                       : null;
         class ReducingSink extends Box<I>
                 implements AccumulatingSink<T, I, ReducingSink> {
             @Override
             public void begin(long size) {
-                state = supplier.get();
+                // 已知确切的元素数时按该元素数创建容器
+                state = (sizedSupplier != null && size >= 0 && size < Nodes.MAX_ARRAY_SIZE)
+                        ? sizedSupplier.apply((int) size)
+                        : supplier.get();
             }
 
             @Override
@@ -27,10 +27,12 @@ package java.util.stream;
 
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletionStage;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
@@ -194,6 +196,18 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         };
     }
 
+    @Override
+    public final <R> Stream<R> mapAsync(Function<? super P_OUT, ? extends CompletionStage<? extends R>> mapper,
+                                        int maxInFlight) {
+        return AsyncMapOps.makeRef(this, mapper, maxInFlight, true);
+    }
+
+    @Override
+    public final <R> Stream<R> mapAsyncUnordered(Function<? super P_OUT, ? extends CompletionStage<? extends R>> mapper,
+                                                 int maxInFlight) {
+        return AsyncMapOps.makeRef(this, mapper, maxInFlight, false);
+    }
+
     @Override
     public final IntStream mapToInt(ToIntFunction<? super P_OUT> mapper) {
         Objects.requireNonNull(mapper);
@@ -461,7 +475,10 @@ abstract class ReferencePipeline<P_IN, P_OUT>
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
             throw new IllegalArgumentException(Long.toString(maxSize));
-        return SliceOps.makeRef(this, 0, maxSize);
+        Stream<P_OUT> slice = SliceOps.makeRef(this, 0, maxSize);
+        // 只有在链接成功之后，此阶段的下游才确定是这个 limit
+        SortedOps.limitHint(this, maxSize);
+        return slice;
     }
 
     @Override
@@ -474,6 +491,21 @@ abstract class ReferencePipeline<P_IN, P_OUT>
             return SliceOps.makeRef(this, n, -1);
     }
 
+    @Override
+    public final Stream<List<P_OUT>> chunked(int size) {
+        return WindowOps.makeRefChunked(this, size);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> windowed(int size) {
+        return WindowOps.makeRefSliding(this, size, 1);
+    }
+
+    @Override
+    public final Stream<List<P_OUT>> sliding(int size, int step) {
+        return WindowOps.makeRefSliding(this, size, step);
+    }
+
     // 终端操作
 
     @Override
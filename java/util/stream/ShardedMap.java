@@ -0,0 +1,301 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.stream;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * 按键的哈希值分成若干个分片的 {@code Map}，每个分片是一个独立的 {@link HashMap}，
+ * 用作分片分组收集器的累积容器及其结果。
+ *
+ * <p>并行收集时，每个叶任务累积到自己的 {@code ShardedMap} 中；合并两个结果时，
+ * 对应的分片两两合并，互不相关，因此当结果较大并且在 {@code ForkJoinPool} 中合并时，
+ * 各分片的合并作为独立的子任务并行执行，而不是由一个线程把整个映射合并到另一个映射中。
+ * 合并一个分片时，较小的映射被合并到较大的映射中，但值的合并函数总是以左侧（遇到顺序在前）的值为第一个参数。
+ *
+ * <p>分片由键的哈希码乘以一个常数后的高位选择，而 {@code HashMap} 使用哈希码的低位选择桶，
+ * 因此同一个分片中的键不会集中在少数的桶中。分片在第一次使用时创建。
+ *
+ * <p>此类不是线程安全的。它支持 {@code null} 键和值（但分组收集器不产生 {@code null} 键）。
+ *
+ * @param <K> 键的类型
+ * @param <V> 值的类型
+ * @since 1.8
+ */
+final class ShardedMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * 默认的分片数：不小于公共池并行度的四倍的 2 的幂，限制在 [2, 256] 内。
+     */
+    static final int DEFAULT_SHARDS;
+    static {
+        int n = Math.max(2, Math.min(256, ForkJoinPool.getCommonPoolParallelism() << 2));
+        DEFAULT_SHARDS = Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * 另一个映射的大小不小于此值时，并行合并各分片。
+     */
+    static final int PARALLEL_MERGE_THRESHOLD = 1 << 13;
+
+    private final HashMap<K, V>[] shards;
+    private final int shift;
+
+    ShardedMap() {
+        this(DEFAULT_SHARDS);
+    }
+
+    /**
+     * @param n 分片数，必须是不小于 2 的 2 的幂
+     */
+    @SuppressWarnings("unchecked")
+    ShardedMap(int n) {
+        this.shards = (HashMap<K, V>[]) new HashMap<?, ?>[n];
+        this.shift = Integer.numberOfLeadingZeros(n) + 1;
+    }
+
+    /**
+     * 返回哈希码为 {@code hash} 的键所在的分片下标，分片数为 2 的幂 n，
+     * {@code shift} 为 {@code Integer.numberOfLeadingZeros(n) + 1}。
+     */
+    static int shardIndex(int hash, int shift) {
+        return (hash * 0x9e3779b9) >>> shift;
+    }
+
+    private int indexFor(Object key) {
+        return shardIndex((key == null) ? 0 : key.hashCode(), shift);
+    }
+
+    private HashMap<K, V> shardFor(Object key) {
+        return shards[indexFor(key)];
+    }
+
+    private HashMap<K, V> createShardFor(Object key) {
+        int i = indexFor(key);
+        HashMap<K, V> m = shards[i];
+        if (m == null)
+            shards[i] = m = new HashMap<>();
+        return m;
+    }
+
+    @Override
+    public int size() {
+        int n = 0;
+        for (HashMap<K, V> m : shards)
+            if (m != null)
+                n += m.size();
+        return n;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (HashMap<K, V> m : shards)
+            if (m != null && !m.isEmpty())
+                return false;
+        return true;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        HashMap<K, V> m = shardFor(key);
+        return m != null && m.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        HashMap<K, V> m = shardFor(key);
+        return (m == null) ? null : m.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return createShardFor(key).put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        HashMap<K, V> m = shardFor(key);
+        return (m == null) ? null : m.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        for (HashMap<K, V> m : shards)
+            if (m != null)
+                m.clear();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return createShardFor(key).computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (HashMap<K, V> m : shards)
+            if (m != null)
+                m.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        for (HashMap<K, V> m : shards)
+            if (m != null)
+                m.replaceAll(function);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return ShardedMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                ShardedMap.this.clear();
+            }
+        };
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int next;
+        private Iterator<Map.Entry<K, V>> current, last;
+
+        @Override
+        public boolean hasNext() {
+            while (current == null || !current.hasNext()) {
+                if (next >= shards.length)
+                    return false;
+                HashMap<K, V> m = shards[next++];
+                current = (m == null) ? null : m.entrySet().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            last = current;
+            return current.next();
+        }
+
+        @Override
+        public void remove() {
+            if (last == null)
+                throw new IllegalStateException();
+            last.remove();
+            last = null;
+        }
+    }
+
+    /**
+     * 把另一个映射的所有映射关系合并到此映射中；两个映射都有的键的值由 {@code merger} 合并，
+     * 此映射的值作为第一个参数。另一个映射必须具有相同的分片数，并且此后不应再被使用。
+     *
+     * @return 此映射
+     */
+    ShardedMap<K, V> mergeAll(ShardedMap<K, V> other, BinaryOperator<V> merger) {
+        int n = shards.length;
+        if (ForkJoinTask.inForkJoinPool() && other.size() >= PARALLEL_MERGE_THRESHOLD)
+            new MergeTask<>(this, other, merger, 0, n).invoke();
+        else {
+            for (int i = 0; i < n; ++i)
+                mergeShard(other, merger, i);
+        }
+        return this;
+    }
+
+    private void mergeShard(ShardedMap<K, V> other, BinaryOperator<V> merger, int i) {
+        HashMap<K, V> a = shards[i], b = other.shards[i];
+        if (b == null || b.isEmpty())
+            return;
+        if (a == null || a.isEmpty()) {
+            shards[i] = b;
+            return;
+        }
+        if (a.size() >= b.size()) {
+            for (Map.Entry<K, V> e : b.entrySet())
+                a.merge(e.getKey(), e.getValue(), merger);
+        }
+        else {
+            // 合并到较大的映射中，但保持合并函数的参数顺序
+            BiFunction<V, V, V> reversed = (r, l) -> merger.apply(l, r);
+            for (Map.Entry<K, V> e : a.entrySet())
+                b.merge(e.getKey(), e.getValue(), reversed);
+            shards[i] = b;
+        }
+    }
+
+    /**
+     * 并行合并一段分片的任务。
+     */
+    @SuppressWarnings("serial")
+    private static final class MergeTask<K, V> extends RecursiveAction {
+        private final ShardedMap<K, V> target, source;
+        private final BinaryOperator<V> merger;
+        private final int lo, hi;
+
+        MergeTask(ShardedMap<K, V> target, ShardedMap<K, V> source,
+                  BinaryOperator<V> merger, int lo, int hi) {
+            this.target = target;
+            this.source = source;
+            this.merger = merger;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1)
+                target.mergeShard(source, merger, lo);
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new MergeTask<>(target, source, merger, lo, mid),
+                          new MergeTask<>(target, source, merger, mid, hi));
+            }
+        }
+    }
+}
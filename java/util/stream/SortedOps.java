@@ -64,6 +64,20 @@ final class SortedOps {
         return new OfRef<>(upstream, comparator);
     }
 
+    /**
+     * 如果 {@code stage} 是一个引用流的排序阶段，则通知它下游紧跟着一个 {@code limit(maxSize)}，
+     * 只需要输出排序后最前面的 {@code maxSize} 个元素。排序阶段随后使用有界堆代替完整排序。
+     * 必须在 {@code limit} 阶段成功链接到 {@code stage} 之后调用，否则链接失败时
+     * 会改变 {@code stage} 已有的下游分支的结果。
+     *
+     * @param stage 已经附加了 {@code limit} 操作的阶段
+     * @param maxSize 限制的元素数
+     */
+    static void limitHint(AbstractPipeline<?, ?, ?> stage, long maxSize) {
+        if (stage instanceof OfRef && maxSize < Nodes.MAX_ARRAY_SIZE)
+            ((OfRef<?>) stage).topK = (int) maxSize;
+    }
+
     /**
      * 向提供的流附加一个“排序”操作。
      *
@@ -104,6 +118,11 @@ final class SortedOps {
         private final boolean isNaturalSort;
         private final Comparator<? super T> comparator;
 
+        /**
+         * 如果下游紧跟着 {@code limit}，则为需要输出的元素数，否则为 -1
+         */
+        int topK = -1;
+
         /**
          * 使用 T 的自然顺序进行排序，T 必须是 Comparable。
          */
@@ -136,6 +155,8 @@ final class SortedOps {
             // 如果输入已经是自然排序且此操作也是自然排序，则这是一个无操作
             if (StreamOpFlag.SORTED.isKnown(flags) && isNaturalSort)
                 return sink;
+            else if (topK >= 0)
+                return new TopKRefSortingSink<>(sink, comparator, topK);
             else if (StreamOpFlag.SIZED.isKnown(flags))
                 return new SizedRefSortingSink<>(sink, comparator);
             else
@@ -150,6 +171,15 @@ final class SortedOps {
             if (StreamOpFlag.SORTED.isKnown(helper.getStreamAndOpFlags()) && isNaturalSort) {
                 return helper.evaluate(spliterator, false, generator);
             }
+            else if (topK >= 0) {
+                // 每个叶任务保留自己的前 k 个元素，再按遇到顺序两两合并
+                int k = topK;
+                TopKHeap<T> heap = ReduceOps.<T, TopKHeap<T>>makeRef(
+                        () -> new TopKHeap<>(k, comparator),
+                        TopKHeap::add, TopKHeap::addAll)
+                        .evaluateParallel(helper, spliterator);
+                return Nodes.node(heap.toArray(generator));
+            }
             else {
                 // @@@ 弱两步并行实现；并行收集，平行排序
                 T[] flattenedData = helper.evaluate(spliterator, true, generator).asArray(generator);
@@ -394,6 +424,52 @@ final class SortedOps {
         }
     }
 
+    /**
+     * 用于在下游紧跟 {@code limit(k)} 的引用流上实现排序的 {@link Sink}。
+     * 只用有界堆保留排序后最前面的 k 个元素，而不是缓冲所有元素。
+     */
+    private static final class TopKRefSortingSink<T> extends AbstractRefSortingSink<T> {
+        private final int k;
+        private TopKHeap<T> heap;
+
+        TopKRefSortingSink(Sink<? super T> sink, Comparator<? super T> comparator, int k) {
+            super(sink, comparator);
+            this.k = k;
+        }
+
+        @Override
+        public void begin(long size) {
+            heap = new TopKHeap<>(k, comparator);
+        }
+
+        @Override
+        public void end() {
+            int n = heap.size();
+            Object[] array = heap.drainSorted();
+            downstream.begin(n);
+            if (!cancellationRequestedCalled) {
+                for (int i = 0; i < n; i++)
+                    downstream.accept(elementAt(array, i));
+            }
+            else {
+                for (int i = 0; i < n && !downstream.cancellationRequested(); i++)
+                    downstream.accept(elementAt(array, i));
+            }
+            downstream.end();
+            heap = null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T elementAt(Object[] array, int i) {
+            return (T) array[i];
+        }
+
+        @Override
+        public void accept(T t) {
+            heap.add(t);
+        }
+    }
+
     /**
      * 抽象 {@link Sink}，用于实现 int 流的排序。
      */
@@ -32,10 +32,12 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -145,6 +147,74 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     <R> Stream<R> map(Function<? super T, ? extends R> mapper);
 
+    /**
+     * 返回一个由将给定的异步函数应用于此流元素所得结果组成的流，按遇到顺序排列。
+     * 每个元素的映射函数返回一个 {@link CompletionStage}；最多同时有 {@code maxInFlight}
+     * 个结果未完成，当达到上限时，流在推送下一个元素之前等待最早的结果完成。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">中间操作</a>。
+     *
+     * @apiNote
+     * 此方法使 I/O 密集型管道可以用少量线程获得较高的并发度，例如：
+     * <pre>{@code
+     *     List<Profile> profiles = userIds.stream()
+     *         .mapAsync(id -> client.fetchProfile(id), 64)
+     *         .collect(Collectors.toList());
+     * }</pre>
+     * 如果某个结果异常完成，则其余未完成的结果被取消，终端操作抛出
+     * {@link java.util.concurrent.CompletionException}。如果终端操作短路，剩余未完成的结果被取消。
+     * 在并行流中，每个并行处理的部分各自最多保持 {@code maxInFlight} 个未完成的结果。
+     *
+     * @implSpec
+     * 默认实现检查参数，然后用此流的 {@link #spliterator()} 构造一个流库提供的流（关闭时关闭此流），
+     * 并返回对它调用 {@code mapAsync(mapper, maxInFlight)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param <R> 新流的元素类型
+     * @param mapper 一个 <a href="package-summary.html#NonInterference">无干扰的</a>，
+     *               <a href="package-summary.html#Statelessness">无状态的</a>
+     *               函数，应用于每个元素，返回非 null 的 {@code CompletionStage}
+     * @param maxInFlight 最多同时未完成的结果数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code maxInFlight} 不为正数
+     * @see #mapAsyncUnordered(Function, int)
+     */
+    default <R> Stream<R> mapAsync(Function<? super T, ? extends CompletionStage<? extends R>> mapper,
+                                   int maxInFlight) {
+        Objects.requireNonNull(mapper);
+        if (maxInFlight <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxInFlight));
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close)
+                            .mapAsync(mapper, maxInFlight);
+    }
+
+    /**
+     * 返回一个由将给定的异步函数应用于此流元素所得结果组成的流，按结果完成的顺序排列。
+     * 与 {@link #mapAsync(Function, int)} 相同，但任何结果一旦完成就被推送，不必等待更早的元素，
+     * 因此一个慢速结果不会阻塞其他结果。结果流是无序的。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">中间操作</a>。
+     *
+     * @implSpec
+     * 默认实现检查参数，然后用此流的 {@link #spliterator()} 构造一个流库提供的流（关闭时关闭此流），
+     * 并返回对它调用 {@code mapAsyncUnordered(mapper, maxInFlight)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param <R> 新流的元素类型
+     * @param mapper 一个 <a href="package-summary.html#NonInterference">无干扰的</a>，
+     *               <a href="package-summary.html#Statelessness">无状态的</a>
+     *               函数，应用于每个元素，返回非 null 的 {@code CompletionStage}
+     * @param maxInFlight 最多同时未完成的结果数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code maxInFlight} 不为正数
+     */
+    default <R> Stream<R> mapAsyncUnordered(Function<? super T, ? extends CompletionStage<? extends R>> mapper,
+                                            int maxInFlight) {
+        Objects.requireNonNull(mapper);
+        if (maxInFlight <= 0)
+            throw new IllegalArgumentException(Integer.toString(maxInFlight));
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close)
+                            .mapAsyncUnordered(mapper, maxInFlight);
+    }
+
     /**
      * 返回一个由将给定函数应用于此流元素的结果组成的 {@code IntStream}。
      *
@@ -372,6 +442,85 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> skip(long n);
 
+    /**
+     * 返回一个由此流的元素按遇到顺序分成的分块组成的流。每个分块是一个包含 {@code size} 个连续元素的新
+     * {@code List}，最后一个分块可能包含少于 {@code size} 个元素。空流产生空流。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">有状态的
+     * 中间操作</a>。
+     *
+     * @apiNote
+     * 在顺序流管道中，分块在元素经过管道时逐个产生，只缓冲当前分块，因此可以用于在有界内存中
+     * 成批处理任意长的流，例如：
+     * <pre>{@code
+     *     records.stream()
+     *            .chunked(500)
+     *            .forEach(batch -> dao.insertAll(batch));
+     * }</pre>
+     * 在并行流管道中，上游元素先被收集，然后并行构造各个分块。
+     *
+     * @implSpec
+     * 默认实现检查 {@code size}，然后用此流的 {@link #spliterator()} 构造一个流库提供的流
+     * （关闭时关闭此流），并返回对它调用 {@code chunked(size)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param size 每个分块的元素数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code size} 不为正数
+     */
+    default Stream<List<T>> chunked(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size: " + size);
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close).chunked(size);
+    }
+
+    /**
+     * 返回一个由此流中每 {@code size} 个连续元素组成的滑动窗口构成的流，相邻窗口的起点相隔一个元素。
+     * 这等价于 {@code sliding(size, 1)}。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">有状态的
+     * 中间操作</a>。
+     *
+     * @implSpec
+     * 默认实现返回 {@code sliding(size, 1)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param size 每个窗口的元素数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code size} 不为正数
+     * @see #sliding(int, int)
+     */
+    default Stream<List<T>> windowed(int size) {
+        return sliding(size, 1);
+    }
+
+    /**
+     * 返回一个由此流的滑动窗口构成的流。第 <em>i</em> 个窗口是一个新的 {@code List}，
+     * 按遇到顺序包含从第 <em>i</em>&nbsp;*&nbsp;{@code step} 个元素开始的 {@code size} 个连续元素。
+     * 只产生完整的窗口；如果流包含的元素少于 {@code size} 个，则结果为空流。
+     * 当 {@code step} 大于 {@code size} 时，窗口之间的元素被丢弃。
+     *
+     * <p>这是一个 <a href="package-summary.html#StreamOps">有状态的
+     * 中间操作</a>。
+     *
+     * @apiNote
+     * 在顺序流管道中只缓冲最近的 {@code size} 个元素。
+     *
+     * @implSpec
+     * 默认实现检查 {@code size} 和 {@code step}，然后用此流的 {@link #spliterator()} 构造一个流库提供的流
+     * （关闭时关闭此流），并返回对它调用 {@code sliding(size, step)} 的结果。流库提供的所有流都覆盖了此方法。
+     *
+     * @param size 每个窗口的元素数
+     * @param step 相邻窗口起点之间的元素数
+     * @return 新的流
+     * @throws IllegalArgumentException 如果 {@code size} 或 {@code step} 不为正数
+     */
+    default Stream<List<T>> sliding(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size: " + size);
+        if (step <= 0)
+            throw new IllegalArgumentException("step: " + step);
+        return StreamSupport.stream(spliterator(), isParallel()).onClose(this::close).sliding(size, step);
+    }
+
     /**
      * 对该流中的每个元素执行一个操作。
      *
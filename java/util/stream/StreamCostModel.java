@@ -0,0 +1,187 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.stream;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import sun.util.logging.PlatformLogger;
+
+/**
+ * 并行流的代价模型，决定一个并行终端操作是顺序执行、以较大的叶任务执行，还是完全并行拆分。
+ *
+ * <p>默认情况下，并行评估把输入拆分为大约每个处理器四个叶任务，而不考虑每个元素的处理代价，
+ * 因此对于元素较少或每个元素代价很低的管道，拆分和调度的开销可能超过并行带来的收益。
+ * 启用代价模型时，并行的 reduce、collect 和 toArray 等终端操作首先顺序处理输入的一小段前缀（<em>样本</em>），
+ * 测量每个元素的平均代价，然后据此估计剩余的工作量：
+ * <ul>
+ * <li>如果剩余的工作量低于 {@value #SEQUENTIAL_THRESHOLD_NANOS} 纳秒，则在当前线程中顺序处理其余部分
+ * （{@link Decision#SEQUENTIAL}）；
+ * <li>否则，如果默认大小的叶任务所含的工作量低于 {@value #MIN_LEAF_NANOS} 纳秒，
+ * 则增大叶任务，使每个叶任务至少包含这么多工作（{@link Decision#COARSENED}）；
+ * <li>否则按默认方式拆分（{@link Decision#PARALLEL}）。
+ * </ul>
+ * 样本的结果是最终结果的一部分，不会重复计算。大小未知的输入不经过代价模型。
+ * 短路操作（例如 {@code findFirst} 和 {@code anyMatch}）以及 {@code forEach} 不受影响。
+ *
+ * <p>代价模型默认禁用；可以通过把系统属性 {@code java.util.stream.costModel} 设置为 {@code true}
+ * 或调用 {@link #setEnabled} 来启用。因为决策只基于输入开头的样本，对于每个元素的代价分布不均匀的输入
+ * （例如代价集中在输入的后部），它可能选择顺序执行或过大的叶任务，因此只应在确认输入的代价大致均匀时启用。
+ * 禁用时除了一次 volatile 读取以外没有额外开销。每次决策都被计数（见 {@link #getDecisionCount}），
+ * 并在日志记录器 {@code java.util.stream.StreamCostModel} 的 {@code FINE} 级别下记录样本大小、
+ * 每个元素的代价和选择的叶大小。
+ *
+ * @since 1.8
+ */
+public final class StreamCostModel {
+
+    private StreamCostModel() { }
+
+    /**
+     * 代价模型对一次并行评估的决策。
+     */
+    public enum Decision {
+        /** 在当前线程中顺序处理其余输入 */
+        SEQUENTIAL,
+        /** 并行拆分，但叶任务大于默认大小 */
+        COARSENED,
+        /** 按默认叶大小并行拆分 */
+        PARALLEL
+    }
+
+    /**
+     * 估计的剩余工作量（纳秒）低于此值时顺序执行。
+     */
+    public static final long SEQUENTIAL_THRESHOLD_NANOS = 200_000L;
+
+    /**
+     * 每个叶任务至少应包含的估计工作量（纳秒）。
+     */
+    public static final long MIN_LEAF_NANOS = 50_000L;
+
+    /** 样本的最小和最大元素数 */
+    private static final long MIN_SAMPLE = 16L;
+    private static final long MAX_SAMPLE = 1024L;
+
+    private static final String PROPERTY = "java.util.stream.costModel";
+
+    static volatile boolean enabled = Boolean.parseBoolean(
+            AccessController.doPrivileged(
+                    (PrivilegedAction<String>) () -> System.getProperty(PROPERTY)));
+
+    private static final LongAdder[] counts;
+    static {
+        Decision[] ds = Decision.values();
+        counts = new LongAdder[ds.length];
+        for (int i = 0; i < ds.length; ++i)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * 如果代价模型已启用，则返回 {@code true}。
+     *
+     * @return 如果代价模型已启用，则返回 {@code true}
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 启用或禁用代价模型。只影响此后开始的并行评估。
+     *
+     * @param enable 是否启用代价模型
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * 返回自启动或上次 {@link #resetDecisionCounts} 以来作出给定决策的次数。
+     *
+     * @param decision 决策
+     * @return 作出该决策的次数
+     * @throws NullPointerException 如果 {@code decision} 为 null
+     */
+    public static long getDecisionCount(Decision decision) {
+        return counts[decision.ordinal()].sum();
+    }
+
+    /**
+     * 将所有决策计数重置为零。
+     */
+    public static void resetDecisionCounts() {
+        for (LongAdder a : counts)
+            a.reset();
+    }
+
+    /**
+     * 返回给定大小估计的输入的样本大小：大约一个默认叶任务的四分之一，限制在 [16, 1024] 内。
+     */
+    static long sampleSize(long sizeEstimate, int leafTarget) {
+        long s = sizeEstimate / ((long) leafTarget << 2);
+        return Math.max(MIN_SAMPLE, Math.min(MAX_SAMPLE, s));
+    }
+
+    /**
+     * 根据样本的测量结果选择叶大小。
+     *
+     * @param sizeEstimate 整个输入的大小估计
+     * @param sampled 样本的大小估计
+     * @param elapsedNanos 处理样本所用的时间
+     * @param leafTarget 默认的叶任务数
+     * @return 其余输入的目标叶大小；顺序执行时为 {@code Long.MAX_VALUE}
+     */
+    static long decide(long sizeEstimate, long sampled, long elapsedNanos,
+                       int leafTarget) {
+        double cost = (double) Math.max(0L, elapsedNanos) / Math.max(1L, sampled);
+        double work = cost * Math.max(0L, sizeEstimate - sampled);
+        long defaultLeaf = Math.max(1L, sizeEstimate / leafTarget);
+        Decision d;
+        long leaf;
+        if (work < SEQUENTIAL_THRESHOLD_NANOS) {
+            d = Decision.SEQUENTIAL;
+            leaf = Long.MAX_VALUE;
+        }
+        else {
+            double minLeaf = Math.ceil(MIN_LEAF_NANOS / cost);
+            if (minLeaf > defaultLeaf) {
+                d = Decision.COARSENED;
+                leaf = (long) minLeaf;
+            }
+            else {
+                d = Decision.PARALLEL;
+                leaf = defaultLeaf;
+            }
+        }
+        counts[d.ordinal()].increment();
+        PlatformLogger log = PlatformLogger.getLogger(StreamCostModel.class.getName());
+        if (log.isLoggable(PlatformLogger.Level.FINE))
+            log.fine(d + ": sampled " + sampled + " of " + sizeEstimate +
+                     " elements at " + cost + " ns/element, leaf size " +
+                     (leaf == Long.MAX_VALUE ? sizeEstimate : leaf));
+        return leaf;
+    }
+}
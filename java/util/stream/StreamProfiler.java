@@ -0,0 +1,918 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.stream;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import sun.util.logging.PlatformLogger;
+
+/**
+ * 流管道的剖析器，记录每个阶段的元素数和耗时，并在终端操作完成后报告。
+ *
+ * <p>启用剖析时，每次终端评估都在管道的每个阶段的 {@link Sink} 之前插入一个探针，记录：
+ * <ul>
+ * <li>进入和离开每个阶段的元素数；
+ * <li>每个阶段花费的时间（不包括下游阶段的时间）。每个探针测量它对下游的调用的耗时，
+ * 减去其中嵌套的下游探针测得的耗时，就是该阶段自身的耗时。为了降低开销，每个 {@code Sink} 链
+ * 只对最前面的 64 个源元素逐个计时，此后只对每 64 个源元素中的一个计时，并按采样间隔外推；
+ * 是否计时在链的入口决定，被选中的元素在整条链上计时，因此各阶段的时间之和等于被计时的调用的总耗时；
+ * 如果外推的总耗时超过从 {@code begin} 到 {@code end} 实际测得的时间，则各阶段的时间按比例缩小。
+ * {@code begin} 和 {@code end} 总是计时，在其中推送的元素也都计时，因此在 {@code end} 中完成主要工作的
+ * 有状态操作（例如 {@code sorted}）也能被正确计入；
+ * <li>每个阶段的 {@code Sink} 报告取消请求（短路）的次数，每个 {@code Sink} 最多一次。
+ * 取消请求从下游传播到上游，因此计数不为零的最下游阶段就是发出短路的阶段；
+ * <li>并行评估的拆分树的形状：叶任务数、最大拆分深度，以及叶任务的大小估计和耗时的范围，
+ * 后者可以用来发现负载不均衡。
+ * </ul>
+ * 终端操作成功完成后，在调用终端操作的线程中把一个 {@link Report} 交给通过 {@link #setListener}
+ * 设置的监听器；如果没有设置监听器，则在日志记录器 {@code java.util.stream.StreamProfiler} 的
+ * {@code INFO} 级别下记录报告。终端操作抛出异常时不报告。
+ *
+ * <p>剖析默认禁用；可以通过把系统属性 {@code java.util.stream.profile} 设置为 {@code true}
+ * 或调用 {@link #setEnabled} 来启用。启用时，创建每个中间阶段以及开始每次终端评估时都会获取一次调用栈，
+ * 以确定操作的名称和调用位置；每个元素在每个阶段的额外开销是一次计数器递增和几次字段读写。
+ * 禁用时除了一次 volatile 读取以外没有额外开销。
+ *
+ * <p>剖析是近似的：
+ * <ul>
+ * <li>并行评估有状态操作时，该操作的主要工作不在 {@code Sink} 中完成，
+ * 因此该阶段的时间只包括接收其输入所花费的时间，并且其输出的元素数未知；
+ * 如果其输入也不经过 {@code Sink}（例如 {@code sorted()} 之后的 {@code limit()}），
+ * 则该阶段的输入元素数和时间也未知；
+ * <li>不经过终端评估的遍历（{@link BaseStream#iterator} 和 {@link BaseStream#spliterator}）不被剖析；
+ * <li>在被剖析的管道的操作中评估的其他管道，如果在调用终端操作的线程中评估则不被剖析，
+ * 否则单独报告。
+ * </ul>
+ *
+ * @since 1.8
+ */
+public final class StreamProfiler {
+
+    private StreamProfiler() { }
+
+    /** 计时的采样间隔，必须是 2 的幂 */
+    static final int SAMPLE_INTERVAL = 64;
+
+    private static final String PROPERTY = "java.util.stream.profile";
+
+    private static final String PACKAGE = "java.util.stream.";
+
+    static volatile boolean enabled = Boolean.parseBoolean(
+            AccessController.doPrivileged(
+                    (PrivilegedAction<String>) () -> System.getProperty(PROPERTY)));
+
+    private static volatile Consumer<? super Report> listener;
+
+    /**
+     * 当前线程正在剖析或报告的评估；此时开始的嵌套评估不被剖析。
+     */
+    private static final ThreadLocal<Profile> current = new ThreadLocal<>();
+
+    /**
+     * 如果剖析已启用，则返回 {@code true}。
+     *
+     * @return 如果剖析已启用，则返回 {@code true}
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 启用或禁用剖析。只影响此后开始的终端评估；阶段的名称只对启用后创建的阶段记录。
+     *
+     * @param enable 是否启用剖析
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * 设置接收报告的监听器。监听器可能在多个线程中同时被调用，并且应当尽快返回；
+     * 监听器抛出的异常传播给终端操作的调用者。监听器中评估的管道不被剖析。
+     *
+     * @param l 监听器；如果为 {@code null}，则把报告记录到日志中
+     */
+    public static void setListener(Consumer<? super Report> l) {
+        listener = l;
+    }
+
+    /**
+     * 一个阶段的剖析结果。
+     */
+    public static final class Stage {
+        private final String name;
+        private final long elementsIn;
+        private final long elementsOut;
+        private final long nanos;
+        private final long shortCircuits;
+
+        Stage(String name, long elementsIn, long elementsOut, long nanos,
+              long shortCircuits) {
+            this.name = name;
+            this.elementsIn = elementsIn;
+            this.elementsOut = elementsOut;
+            this.nanos = nanos;
+            this.shortCircuits = shortCircuits;
+        }
+
+        /**
+         * 返回阶段的名称，即创建该阶段的方法名（例如 {@code "map"}），
+         * 对于源为 {@code "source"}，对于终端操作为终端操作的方法名。
+         *
+         * @return 阶段的名称
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 返回进入此阶段的元素数；对于源或者输入元素数未知时为 -1。
+         *
+         * @return 进入此阶段的元素数
+         */
+        public long getElementsIn() {
+            return elementsIn;
+        }
+
+        /**
+         * 返回离开此阶段的元素数；对于终端操作或者输出的元素数未知时为 -1。
+         *
+         * @return 离开此阶段的元素数
+         */
+        public long getElementsOut() {
+            return elementsOut;
+        }
+
+        /**
+         * 返回此阶段花费的估计时间（纳秒），不包括下游阶段的时间；对于源或者时间未知时为 -1。
+         * 并行评估时是所有线程的时间之和。
+         *
+         * @return 此阶段花费的估计时间
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * 返回此阶段的 {@code Sink} 报告取消请求的次数；对于源或者没有观察到此阶段的输入时为 -1。
+         *
+         * @return 此阶段报告取消请求的次数
+         */
+        public long getShortCircuits() {
+            return shortCircuits;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s %12s %12s %12s %8s", name,
+                                 count(elementsIn), count(elementsOut),
+                                 nanos < 0L ? "-" : millis(nanos),
+                                 count(shortCircuits));
+        }
+    }
+
+    /**
+     * 一次终端评估的剖析报告。
+     */
+    public static final class Report {
+        private final String operation;
+        private final String callSite;
+        private final boolean parallel;
+        private final long elapsedNanos;
+        private final List<Stage> stages;
+        private final long leafCount;
+        private final int maxSplitDepth;
+        private final long minLeafSize, maxLeafSize;
+        private final long minLeafNanos, maxLeafNanos;
+
+        Report(String operation, String callSite, boolean parallel,
+               long elapsedNanos, List<Stage> stages, long leafCount,
+               int maxSplitDepth, long minLeafSize, long maxLeafSize,
+               long minLeafNanos, long maxLeafNanos) {
+            this.operation = operation;
+            this.callSite = callSite;
+            this.parallel = parallel;
+            this.elapsedNanos = elapsedNanos;
+            this.stages = stages;
+            this.leafCount = leafCount;
+            this.maxSplitDepth = maxSplitDepth;
+            this.minLeafSize = minLeafSize;
+            this.maxLeafSize = maxLeafSize;
+            this.minLeafNanos = minLeafNanos;
+            this.maxLeafNanos = maxLeafNanos;
+        }
+
+        /**
+         * 返回终端操作的方法名，例如 {@code "collect"}。
+         *
+         * @return 终端操作的方法名
+         */
+        public String getOperation() {
+            return operation;
+        }
+
+        /**
+         * 返回调用终端操作的位置；如果无法确定，则返回 {@code null}。
+         *
+         * @return 调用终端操作的位置，或 {@code null}
+         */
+        public String getCallSite() {
+            return callSite;
+        }
+
+        /**
+         * 如果评估是并行的，则返回 {@code true}。
+         *
+         * @return 如果评估是并行的，则返回 {@code true}
+         */
+        public boolean isParallel() {
+            return parallel;
+        }
+
+        /**
+         * 返回终端评估所用的时间（纳秒）。
+         *
+         * @return 终端评估所用的时间
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 返回从源到终端操作的各阶段的剖析结果。
+         *
+         * @return 不可修改的阶段列表
+         */
+        public List<Stage> getStages() {
+            return stages;
+        }
+
+        /**
+         * 返回并行评估的叶任务数；顺序评估时为 0。
+         *
+         * @return 叶任务数
+         */
+        public long getLeafCount() {
+            return leafCount;
+        }
+
+        /**
+         * 返回从根任务到叶任务的最大拆分次数；如果没有叶任务，则返回 0。
+         *
+         * @return 最大拆分深度
+         */
+        public int getMaxSplitDepth() {
+            return maxSplitDepth;
+        }
+
+        /**
+         * 返回叶任务的最小大小估计；如果没有叶任务，则返回 0。
+         *
+         * @return 叶任务的最小大小估计
+         */
+        public long getMinLeafSize() {
+            return minLeafSize;
+        }
+
+        /**
+         * 返回叶任务的最大大小估计；如果没有叶任务，则返回 0。
+         *
+         * @return 叶任务的最大大小估计
+         */
+        public long getMaxLeafSize() {
+            return maxLeafSize;
+        }
+
+        /**
+         * 返回叶任务的最短耗时（纳秒）；如果没有叶任务，则返回 0。
+         *
+         * @return 叶任务的最短耗时
+         */
+        public long getMinLeafNanos() {
+            return minLeafNanos;
+        }
+
+        /**
+         * 返回叶任务的最长耗时（纳秒）；如果没有叶任务，则返回 0。
+         *
+         * @return 叶任务的最长耗时
+         */
+        public long getMaxLeafNanos() {
+            return maxLeafNanos;
+        }
+
+        @Override
+        public String toString() {
+            String nl = System.lineSeparator();
+            StringBuilder sb = new StringBuilder();
+            sb.append(operation);
+            if (callSite != null)
+                sb.append(" at ").append(callSite);
+            sb.append(parallel ? " (parallel): " : " (sequential): ")
+              .append(millis(elapsedNanos)).append(" ms").append(nl);
+            sb.append(String.format("%-16s %12s %12s %12s %8s", "stage", "in", "out",
+                                    "time (ms)", "cancels"));
+            for (Stage s : stages)
+                sb.append(nl).append(s);
+            if (leafCount > 0L)
+                sb.append(nl).append("split tree: ").append(leafCount)
+                  .append(" leaves, max depth ").append(maxSplitDepth)
+                  .append(", leaf size ").append(minLeafSize).append("..").append(maxLeafSize)
+                  .append(", leaf time ").append(millis(minLeafNanos)).append("..")
+                  .append(millis(maxLeafNanos)).append(" ms");
+            return sb.toString();
+        }
+    }
+
+    static String count(long n) {
+        return n < 0L ? "-" : Long.toString(n);
+    }
+
+    static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    /**
+     * 返回栈中第一个不属于流实现的帧的下标。
+     */
+    private static int callerFrame(StackTraceElement[] st) {
+        int i = 0;
+        for (String cn; i < st.length &&
+                        (cn = st[i].getClassName()).startsWith(PACKAGE) &&
+                        cn.indexOf('.', PACKAGE.length()) < 0; ++i) { }
+        return i;
+    }
+
+    /**
+     * 返回调用者之前最后一个流实现的方法名，即调用者直接调用的流方法。
+     */
+    private static String operation(StackTraceElement[] st, int caller) {
+        for (int i = caller - 1; i >= 0; --i) {
+            String m = st[i].getMethodName();
+            if (!m.startsWith("<") && !m.startsWith("lambda$"))
+                return m;
+        }
+        return null;
+    }
+
+    /**
+     * 返回正在创建的中间阶段的操作名；如果当前线程正在剖析一次评估，则返回 {@code null}。
+     */
+    static String operationName() {
+        if (current.get() != null)
+            return null;
+        StackTraceElement[] st = new Throwable().getStackTrace();
+        return operation(st, callerFrame(st));
+    }
+
+    /**
+     * 开始剖析一次终端评估。
+     *
+     * @param stages 从源到最后一个中间阶段的管道阶段
+     * @param names 各阶段创建时记录的操作名，可能为 {@code null}
+     * @param parallel 评估是否是并行的
+     * @return 剖析状态；如果当前线程已经在剖析一次评估，则返回 {@code null}
+     */
+    static Profile start(AbstractPipeline<?, ?, ?>[] stages, String[] names,
+                         boolean parallel) {
+        if (current.get() != null)
+            return null;
+        StackTraceElement[] st = new Throwable().getStackTrace();
+        int caller = callerFrame(st);
+        String op = operation(st, caller);
+        Profile p = new Profile(stages, names, parallel,
+                                op != null ? op : "evaluate",
+                                caller < st.length ? st[caller].toString() : null);
+        current.set(p);
+        return p;
+    }
+
+    /**
+     * 返回给定管道正在进行的评估的剖析状态；如果没有剖析，则返回 {@code null}。
+     */
+    static Profile profileOf(PipelineHelper<?> helper) {
+        return (helper instanceof AbstractPipeline)
+               ? ((AbstractPipeline<?, ?, ?>) helper).profile()
+               : null;
+    }
+
+    /**
+     * 一个阶段的输入的计数器。所有字段都可能被多个线程同时更新。
+     */
+    static final class StageStats {
+        /** 是否为此阶段的输入插入过探针 */
+        volatile boolean probed;
+        final LongAdder count = new LongAdder();
+        /** 此阶段自身的耗时，已按采样权重外推 */
+        final LongAdder selfNanos = new LongAdder();
+        final LongAdder shortCircuits = new LongAdder();
+    }
+
+    /**
+     * 一个 {@code Sink} 链上的所有探针共享的计时状态，由 {@link AbstractPipeline#wrapSink} 为每个链创建。
+     *
+     * <p>{@code weight} 是当前正在计时的探针调用的权重：最外层（链的入口）的调用在开始时决定是否计时
+     * 以及权重，嵌套的调用继承它，因此同一个元素在整条链上要么都计时，要么都不计时。
+     * {@code inner} 累计当前调用中嵌套的探针调用的耗时，用于从当前调用的耗时中扣除。
+     *
+     * <p>链通常只在一个线程中使用；在多个线程中共享的链（例如并行的 {@code forEach}）
+     * 为其他线程各自创建一个状态。
+     */
+    static final class Chain {
+        /** 没有正在进行的探针调用 */
+        static final long IDLE = -1L;
+
+        final Thread owner = Thread.currentThread();
+        final Profile profile;
+        private final ThreadLocal<Chain> others;
+
+        long weight = IDLE;
+        long inner;
+        /** 链的入口已接收的元素数 */
+        long tick;
+        /** 最外层的 {@code begin} 开始的时间，没有进行中的 {@code begin}...{@code end} 时为 0 */
+        long spanStart;
+        /** 自 {@code spanStart} 以来最外层的被计时调用的耗时之和，已按采样权重外推 */
+        long spanNanos;
+
+        Chain(Profile profile) {
+            this.profile = profile;
+            this.others = ThreadLocal.withInitial(() -> new Chain(profile, null));
+        }
+
+        private Chain(Profile profile, ThreadLocal<Chain> others) {
+            this.profile = profile;
+            this.others = others;
+        }
+
+        /**
+         * 返回当前线程的状态。
+         */
+        Chain current() {
+            return (others == null || owner == Thread.currentThread()) ? this : others.get();
+        }
+
+        /**
+         * 返回链的入口接收的下一个元素的权重：最前面的元素为 1，此后每 {@code SAMPLE_INTERVAL}
+         * 个元素中的一个为 {@code SAMPLE_INTERVAL}，其余为 0（不计时）。
+         */
+        long nextWeight() {
+            long k = tick++;
+            return (k < SAMPLE_INTERVAL) ? 1L
+                   : ((k & (SAMPLE_INTERVAL - 1)) == 0L) ? SAMPLE_INTERVAL : 0L;
+        }
+    }
+
+    /**
+     * 一次终端评估的剖析状态。
+     *
+     * <p>{@code stats[i]}（{@code 1 <= i < stages.length}）记录阶段 {@code stages[i]} 的输入，
+     * {@code stats[stages.length]} 记录终端操作的输入；阶段 {@code i} 的输出就是 {@code stats[i + 1]} 的输入。
+     */
+    static final class Profile {
+        private final AbstractPipeline<?, ?, ?>[] stages;
+        private final String[] names;
+        private final boolean parallel;
+        private final String operation;
+        private final String callSite;
+        private final long startNanos;
+        private final StageStats[] stats;
+
+        /** 链的入口的被计时调用的耗时之和，已按采样权重外推 */
+        private final LongAdder rootNanos = new LongAdder();
+        /** 从最外层的 {@code begin} 到 {@code end} 实际测得的时间之和 */
+        private final LongAdder spanElapsed = new LongAdder();
+        /** 这些区间中 {@code rootNanos} 的部分 */
+        private final LongAdder spanEstimated = new LongAdder();
+
+        private final LongAdder leaves = new LongAdder();
+        private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0L);
+        private final LongAccumulator minLeafSize = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxLeafSize = new LongAccumulator(Math::max, 0L);
+        private final LongAccumulator minLeafNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxLeafNanos = new LongAccumulator(Math::max, 0L);
+
+        Profile(AbstractPipeline<?, ?, ?>[] stages, String[] names, boolean parallel,
+                String operation, String callSite) {
+            this.stages = stages;
+            this.names = names;
+            this.parallel = parallel;
+            this.operation = operation;
+            this.callSite = callSite;
+            this.stats = new StageStats[stages.length + 1];
+            for (int i = 1; i < stats.length; ++i)
+                stats[i] = new StageStats();
+            this.startNanos = System.nanoTime();
+        }
+
+        private int indexOf(AbstractPipeline<?, ?, ?> stage) {
+            for (int i = 0; i < stages.length; ++i)
+                if (stages[i] == stage)
+                    return i;
+            return -1;
+        }
+
+        /**
+         * 为一个 {@code Sink} 链创建共享的计时状态。
+         */
+        Chain newChain() {
+            return new Chain(this);
+        }
+
+        /**
+         * 在给定阶段的输入 {@code Sink} 之前插入探针。
+         *
+         * @param shape 阶段的输入形状
+         */
+        <T> Sink<T> wrapInput(AbstractPipeline<?, ?, ?> stage, StreamShape shape,
+                              Sink<T> sink, Chain chain) {
+            int i = indexOf(stage);
+            return (i > 0) ? probe(stats[i], shape, sink, chain) : sink;
+        }
+
+        /**
+         * 在接收给定阶段的输出的 {@code Sink} 之前插入探针。
+         *
+         * @param shape 阶段的输出形状
+         */
+        <T> Sink<T> wrapOutput(AbstractPipeline<?, ?, ?> stage, StreamShape shape,
+                               Sink<T> sink, Chain chain) {
+            int i = indexOf(stage);
+            return (i >= 0) ? probe(stats[i + 1], shape, sink, chain) : sink;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Sink<T> probe(StageStats s, StreamShape shape, Sink<T> sink,
+                                         Chain chain) {
+            Sink<T> p;
+            switch (shape) {
+                case REFERENCE:
+                    p = new RefProbe<>(sink, s, chain);
+                    break;
+                case INT_VALUE:
+                    p = (sink instanceof Sink.OfInt)
+                        ? (Sink<T>) new IntProbe((Sink.OfInt) sink, s, chain) : sink;
+                    break;
+                case LONG_VALUE:
+                    p = (sink instanceof Sink.OfLong)
+                        ? (Sink<T>) new LongProbe((Sink.OfLong) sink, s, chain) : sink;
+                    break;
+                case DOUBLE_VALUE:
+                    p = (sink instanceof Sink.OfDouble)
+                        ? (Sink<T>) new DoubleProbe((Sink.OfDouble) sink, s, chain) : sink;
+                    break;
+                default:
+                    p = sink;
+            }
+            if (p != sink)
+                s.probed = true;
+            return p;
+        }
+
+        /**
+         * 记录一个叶任务。
+         *
+         * @param task 叶任务
+         * @param size 叶任务的大小估计
+         * @param nanos 叶任务的耗时
+         */
+        void leaf(CountedCompleter<?> task, long size, long nanos) {
+            int depth = 0;
+            for (CountedCompleter<?> c = task.getCompleter(); c != null; c = c.getCompleter())
+                ++depth;
+            leaves.increment();
+            maxDepth.accumulate(depth);
+            minLeafSize.accumulate(size);
+            maxLeafSize.accumulate(size);
+            minLeafNanos.accumulate(nanos);
+            maxLeafNanos.accumulate(nanos);
+        }
+
+        /**
+         * 结束剖析；如果评估成功完成，则报告结果。
+         */
+        void finish(boolean completed) {
+            try {
+                if (completed) {
+                    Report r = report(System.nanoTime() - startNanos);
+                    Consumer<? super Report> l = listener;
+                    if (l != null)
+                        l.accept(r);
+                    else {
+                        PlatformLogger log = PlatformLogger.getLogger(StreamProfiler.class.getName());
+                        if (log.isLoggable(PlatformLogger.Level.INFO))
+                            log.info(r.toString());
+                    }
+                }
+            } finally {
+                current.remove();
+            }
+        }
+
+        private String name(int i) {
+            if (names[i] != null)
+                return names[i];
+            String cn = stages[i].getClass().getName();
+            return cn.substring(cn.lastIndexOf('.') + 1);
+        }
+
+        private Report report(long elapsed) {
+            int n = stages.length;
+            long[] self = new long[n + 1];
+            long total = 0L;
+            for (int i = 1; i <= n; ++i) {
+                self[i] = stats[i].probed ? stats[i].selfNanos.sum() : -1L;
+                if (self[i] > 0L)
+                    total += self[i];
+            }
+            // 各阶段自身的时间由同一批被计时的调用分解而来，其和不超过这些调用的总耗时
+            assert total <= rootNanos.sum();
+            // 计时本身的开销会被外推放大；如果外推的时间超过实际测得的时间，则按比例缩小
+            long estimated = spanEstimated.sum(), measured = spanElapsed.sum();
+            if (estimated > measured) {
+                double scale = (double) measured / estimated;
+                for (int i = 1; i <= n; ++i)
+                    if (self[i] > 0L)
+                        self[i] = (long) (self[i] * scale);
+            }
+            List<Stage> list = new ArrayList<>(n + 1);
+            list.add(new Stage("source", -1L, count(1), -1L, -1L));
+            for (int i = 1; i <= n; ++i) {
+                long sc = stats[i].probed ? stats[i].shortCircuits.sum() : -1L;
+                if (i < n) {
+                    // 并行评估有状态操作时，其输出不是在其输入的调用中推送的
+                    boolean chained = !(parallel && stages[i].opIsStateful());
+                    list.add(new Stage(name(i), count(i), chained ? count(i + 1) : -1L,
+                                       self[i], sc));
+                }
+                else
+                    list.add(new Stage(operation, count(i), -1L, self[i], sc));
+            }
+            long k = leaves.sum();
+            return new Report(operation, callSite, parallel, elapsed,
+                              Collections.unmodifiableList(list), k,
+                              (int) maxDepth.get(),
+                              k == 0L ? 0L : minLeafSize.get(), maxLeafSize.get(),
+                              k == 0L ? 0L : minLeafNanos.get(), maxLeafNanos.get());
+        }
+
+        /**
+         * 返回进入 {@code stats[i]} 的元素数；如果没有观察到，则返回 -1。
+         */
+        private long count(int i) {
+            return stats[i].probed ? stats[i].count.sum() : -1L;
+        }
+    }
+
+    /**
+     * 探针的基类，转发 {@code begin}、{@code end} 和 {@code cancellationRequested} 并计时。
+     *
+     * <p>每个被计时的调用测量对下游的调用的耗时，减去其中嵌套的下游探针的调用的耗时，
+     * 把差乘以权重计入此阶段，并把耗时计入外层的调用；最外层的调用把耗时计入剖析的总耗时。
+     * {@code cancelled} 在 {@code Sink} 被多个线程共享时（例如并行的 {@code forEach}）可能有竞争，
+     * 这只影响短路的计数。
+     */
+    abstract static class Probe<T> implements Sink<T> {
+        final Sink<?> sink;
+        final StageStats stats;
+        final Chain chain;
+        boolean cancelled;
+
+        Probe(Sink<?> sink, StageStats stats, Chain chain) {
+            this.sink = sink;
+            this.stats = stats;
+            this.chain = chain;
+        }
+
+        /**
+         * 开始一个探针调用，返回外层调用的权重，由 {@link #exit} 恢复。
+         *
+         * @param c 当前线程的链状态
+         * @param rootWeight 如果这是最外层的调用，则为它的权重
+         */
+        static long enter(Chain c, long rootWeight) {
+            long outer = c.weight;
+            c.weight = (outer == Chain.IDLE) ? rootWeight : outer;
+            return outer;
+        }
+
+        /**
+         * 结束一个不计时的探针调用。
+         */
+        static void exit(Chain c, long outer) {
+            c.weight = outer;
+        }
+
+        /**
+         * 结束一个被计时的探针调用。
+         *
+         * @param outer {@link #enter} 返回的外层调用的权重
+         * @param inner 调用开始前的 {@code c.inner}
+         * @param nanos 调用的耗时
+         */
+        final void exit(Chain c, long outer, long inner, long nanos) {
+            long w = c.weight;
+            stats.selfNanos.add((nanos - c.inner) * w);
+            c.weight = outer;
+            if (outer == Chain.IDLE) {
+                c.inner = 0L;
+                c.spanNanos += nanos * w;
+                c.profile.rootNanos.add(nanos * w);
+            }
+            else
+                c.inner = inner + nanos;
+        }
+
+        @Override
+        public void begin(long size) {
+            Chain c = chain.current();
+            long outer = enter(c, 1L);
+            if (c.weight == 0L) {
+                sink.begin(size);
+                exit(c, outer);
+            }
+            else {
+                long inner = c.inner;
+                c.inner = 0L;
+                long start = System.nanoTime();
+                if (outer == Chain.IDLE) {
+                    c.spanStart = start;
+                    c.spanNanos = 0L;
+                }
+                sink.begin(size);
+                exit(c, outer, inner, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void end() {
+            Chain c = chain.current();
+            long outer = enter(c, 1L);
+            if (c.weight == 0L) {
+                sink.end();
+                exit(c, outer);
+            }
+            else {
+                long inner = c.inner;
+                c.inner = 0L;
+                long start = System.nanoTime();
+                sink.end();
+                long now = System.nanoTime();
+                exit(c, outer, inner, now - start);
+                if (outer == Chain.IDLE && c.spanStart != 0L) {
+                    c.profile.spanElapsed.add(now - c.spanStart);
+                    c.profile.spanEstimated.add(c.spanNanos);
+                    c.spanStart = 0L;
+                }
+            }
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            boolean c = sink.cancellationRequested();
+            if (c && !cancelled) {
+                cancelled = true;
+                stats.shortCircuits.increment();
+            }
+            return c;
+        }
+    }
+
+    static final class RefProbe<T> extends Probe<T> {
+        private final Sink<T> downstream;
+
+        RefProbe(Sink<T> downstream, StageStats stats, Chain chain) {
+            super(downstream, stats, chain);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void accept(T t) {
+            stats.count.increment();
+            Chain c = chain.current();
+            long outer = enter(c, (c.weight == Chain.IDLE) ? c.nextWeight() : 0L);
+            if (c.weight == 0L) {
+                downstream.accept(t);
+                exit(c, outer);
+            }
+            else {
+                long inner = c.inner;
+                c.inner = 0L;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                exit(c, outer, inner, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static final class IntProbe extends Probe<Integer> implements Sink.OfInt {
+        private final Sink.OfInt downstream;
+
+        IntProbe(Sink.OfInt downstream, StageStats stats, Chain chain) {
+            super(downstream, stats, chain);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void accept(int t) {
+            stats.count.increment();
+            Chain c = chain.current();
+            long outer = enter(c, (c.weight == Chain.IDLE) ? c.nextWeight() : 0L);
+            if (c.weight == 0L) {
+                downstream.accept(t);
+                exit(c, outer);
+            }
+            else {
+                long inner = c.inner;
+                c.inner = 0L;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                exit(c, outer, inner, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static final class LongProbe extends Probe<Long> implements Sink.OfLong {
+        private final Sink.OfLong downstream;
+
+        LongProbe(Sink.OfLong downstream, StageStats stats, Chain chain) {
+            super(downstream, stats, chain);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void accept(long t) {
+            stats.count.increment();
+            Chain c = chain.current();
+            long outer = enter(c, (c.weight == Chain.IDLE) ? c.nextWeight() : 0L);
+            if (c.weight == 0L) {
+                downstream.accept(t);
+                exit(c, outer);
+            }
+            else {
+                long inner = c.inner;
+                c.inner = 0L;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                exit(c, outer, inner, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static final class DoubleProbe extends Probe<Double> implements Sink.OfDouble {
+        private final Sink.OfDouble downstream;
+
+        DoubleProbe(Sink.OfDouble downstream, StageStats stats, Chain chain) {
+            super(downstream, stats, chain);
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void accept(double t) {
+            stats.count.increment();
+            Chain c = chain.current();
+            long outer = enter(c, (c.weight == Chain.IDLE) ? c.nextWeight() : 0L);
+            if (c.weight == 0L) {
+                downstream.accept(t);
+                exit(c, outer);
+            }
+            else {
+                long inner = c.inner;
+                c.inner = 0L;
+                long start = System.nanoTime();
+                downstream.accept(t);
+                exit(c, outer, inner, System.nanoTime() - start);
+            }
+        }
+    }
+}
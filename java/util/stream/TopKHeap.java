@@ -0,0 +1,208 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 保留按比较器排序后最前面的 {@code k} 个元素的有界堆，用于 {@code sorted().limit(k)}
+ * 以及 top-k 收集器。
+ *
+ * <p>这是一个大小不超过 {@code k} 的最大堆，堆顶是当前保留的元素中最“大”的一个。
+ * 新元素只有在小于堆顶时才替换堆顶，因此处理 n 个元素需要 O(n log k) 时间和 O(k) 空间，
+ * 而不是先缓冲并排序全部 n 个元素。
+ *
+ * <p>为了与稳定的 {@code sorted()} 保持一致，每个元素都带有一个遇到顺序的序号，
+ * 比较器认为相等的元素按序号排序：较早遇到的元素优先保留，并且在输出中排在前面。
+ * {@link #addAll} 把另一个堆的所有元素视为在此堆的所有元素之后遇到，
+ * 因此按遇到顺序从左到右合并叶任务的结果可以保持稳定性。
+ *
+ * @param <T> 元素的类型
+ * @since 1.8
+ */
+final class TopKHeap<T> {
+
+    /** 初始容量；堆按需增长到 k */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Comparator<? super T> comparator;
+    private final int k;
+
+    /** 堆中的元素及其序号，在 [0, size) 中按 (comparator, seq) 构成最大堆 */
+    private Object[] elements;
+    private long[] seqs;
+    private int size;
+
+    /** 下一个元素的序号 */
+    private long nextSeq;
+
+    /**
+     * 创建一个保留最前面 {@code k} 个元素的堆。
+     *
+     * @throws IllegalArgumentException 如果 {@code k} 为负数或不小于最大数组大小
+     */
+    TopKHeap(int k, Comparator<? super T> comparator) {
+        if (k < 0 || k >= Nodes.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(Integer.toString(k));
+        this.k = k;
+        this.comparator = comparator;
+        int cap = Math.min(k, INITIAL_CAPACITY);
+        this.elements = new Object[cap];
+        this.seqs = new long[cap];
+    }
+
+    /**
+     * 如果 (a, sa) 排在 (b, sb) 之后，则返回 {@code true}。
+     */
+    @SuppressWarnings("unchecked")
+    private boolean after(Object a, long sa, Object b, long sb) {
+        int c = comparator.compare((T) a, (T) b);
+        return c > 0 || (c == 0 && sa > sb);
+    }
+
+    /**
+     * 按遇到顺序添加下一个元素。
+     */
+    void add(T t) {
+        offer(t, nextSeq++);
+    }
+
+    private void offer(Object t, long seq) {
+        int n = size;
+        if (n < k) {
+            if (n >= elements.length) {
+                int cap = (n > (k >>> 1)) ? k : n << 1;
+                elements = Arrays.copyOf(elements, cap);
+                seqs = Arrays.copyOf(seqs, cap);
+            }
+            siftUp(n, t, seq);
+            size = n + 1;
+        }
+        else if (n > 0 && after(elements[0], seqs[0], t, seq)) {
+            siftDown(0, t, seq, n);
+        }
+    }
+
+    /**
+     * 把另一个堆的所有元素添加到此堆中，它们被视为在此堆已有的所有元素之后遇到。
+     * 另一个堆不应再被使用。
+     *
+     * @return 此堆
+     */
+    TopKHeap<T> addAll(TopKHeap<T> other) {
+        long base = nextSeq;
+        Object[] es = other.elements;
+        long[] ss = other.seqs;
+        for (int i = 0, n = other.size; i < n; ++i)
+            offer(es[i], base + ss[i]);
+        nextSeq = base + other.nextSeq;
+        return this;
+    }
+
+    private void siftUp(int i, Object t, long seq) {
+        Object[] es = elements;
+        long[] ss = seqs;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Object e = es[parent];
+            if (!after(t, seq, e, ss[parent]))
+                break;
+            es[i] = e;
+            ss[i] = ss[parent];
+            i = parent;
+        }
+        es[i] = t;
+        ss[i] = seq;
+    }
+
+    private void siftDown(int i, Object t, long seq, int n) {
+        Object[] es = elements;
+        long[] ss = seqs;
+        int half = n >>> 1;
+        while (i < half) {
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if (right < n && after(es[right], ss[right], es[child], ss[child]))
+                child = right;
+            if (!after(es[child], ss[child], t, seq))
+                break;
+            es[i] = es[child];
+            ss[i] = ss[child];
+            i = child;
+        }
+        es[i] = t;
+        ss[i] = seq;
+    }
+
+    /**
+     * 返回保留的元素数。
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 原地堆排序，之后 [0, size) 中的元素按 (comparator, seq) 升序排列，
+     * 并返回内部数组。此后堆不应再被使用。
+     */
+    Object[] drainSorted() {
+        Object[] es = elements;
+        long[] ss = seqs;
+        for (int n = size - 1; n > 0; --n) {
+            Object t = es[n];
+            long seq = ss[n];
+            es[n] = es[0];
+            ss[n] = ss[0];
+            siftDown(0, t, seq, n);
+        }
+        return es;
+    }
+
+    /**
+     * 按顺序返回保留的元素组成的数组。此后堆不应再被使用。
+     */
+    T[] toArray(IntFunction<T[]> generator) {
+        Object[] es = drainSorted();
+        T[] a = generator.apply(size);
+        System.arraycopy(es, 0, a, 0, size);
+        return a;
+    }
+
+    /**
+     * 按顺序返回保留的元素组成的列表。此后堆不应再被使用。
+     */
+    @SuppressWarnings("unchecked")
+    List<T> toList() {
+        Object[] es = drainSorted();
+        ArrayList<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i)
+            list.add((T) es[i]);
+        return list;
+    }
+}
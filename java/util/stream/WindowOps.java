@@ -0,0 +1,442 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.IntFunction;
+
+/**
+ * 用于将流的元素分组为分块或滑动窗口的工厂方法。
+ *
+ * <p>分块（{@code chunked}）把连续的 {@code size} 个元素分为一组，最后一组可能不足 {@code size} 个元素。
+ * 滑动窗口（{@code sliding}）从第 0 个元素开始，每隔 {@code step} 个元素开始一个包含 {@code size}
+ * 个连续元素的窗口，只产生完整的窗口。
+ *
+ * <p>顺序评估时，窗口在元素经过管道时逐个产生，只需缓冲一个窗口的元素，因此可以在有界内存中
+ * 处理任意长的流。缓冲区不按 {@code size} 预先分配，而是按已知的元素数或一个较小的初始容量分配，
+ * 然后按需增长到 {@code size}，因此很大的 {@code size} 不会为较短的流分配大量内存。
+ * 并行评估时，先按遇到顺序收集上游元素，然后以窗口为单位并行构造各个窗口。
+ *
+ * @since 1.8
+ */
+final class WindowOps {
+
+    private WindowOps() { }
+
+    private static final int FLAGS = StreamOpFlag.NOT_SIZED | StreamOpFlag.NOT_SORTED |
+                                     StreamOpFlag.NOT_DISTINCT;
+
+    /** 元素数未知时缓冲区的初始容量；缓冲区按需增长到窗口大小 */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 返回缓冲区的初始容量：不超过 {@code size}，也不超过已知的元素数 {@code n}（为负时未知）。
+     */
+    static int initialCapacity(long n, int size) {
+        return (int) Math.min(size, (n >= 0) ? n : INITIAL_CAPACITY);
+    }
+
+    /**
+     * 返回容量为 {@code cap} 的已满缓冲区的新容量，不超过 {@code size}。
+     */
+    static int grow(int cap, int size) {
+        return (int) Math.min(size, Math.max(2L * cap, INITIAL_CAPACITY));
+    }
+
+    /**
+     * 检查窗口参数。
+     */
+    private static void checkArguments(int size, int step) {
+        if (size <= 0)
+            throw new IllegalArgumentException("size: " + size);
+        if (step <= 0)
+            throw new IllegalArgumentException("step: " + step);
+    }
+
+    /**
+     * 返回 {@code n} 个元素产生的窗口数；如果 {@code n} 为负（未知），则返回 -1。
+     */
+    static long windowCount(long n, int size, int step, boolean partial) {
+        if (n < 0)
+            return -1;
+        else if (partial)
+            return (n + size - 1) / size;
+        else
+            return (n < size) ? 0 : (n - size) / step + 1;
+    }
+
+    /**
+     * 从 [from, to) 范围构造一个窗口的函数。
+     */
+    interface WindowFactory<E> {
+        E make(int from, int to);
+    }
+
+    /**
+     * 并行构造 {@code length} 个已收集元素的所有窗口，每个窗口由 {@code factory} 从其元素范围构造。
+     * 生成器可能实际上产生 {@code Object[]}，因此数组的元素类型只作为类型变量出现。
+     */
+    static <E> Node<E> windowNode(IntFunction<E[]> generator, int length,
+                                  int size, int step, boolean partial,
+                                  WindowFactory<? extends E> factory) {
+        long count = windowCount(length, size, step, partial);
+        if (count >= Nodes.MAX_ARRAY_SIZE)
+            throw new IllegalArgumentException(Nodes.BAD_SIZE);
+        E[] windows = generator.apply((int) count);
+        Arrays.parallelSetAll(windows, i -> {
+            int from = i * step; // 不会溢出：from 小于 length
+            return factory.make(from, Math.min(from + size, length));
+        });
+        return Nodes.node(windows);
+    }
+
+    /**
+     * 向提供的引用流附加一个分块操作。
+     *
+     * @param <T> 输入元素的类型
+     * @param upstream 具有元素类型 T 的引用流
+     * @param size 每个分块的元素数
+     */
+    static <T> Stream<List<T>> makeRefChunked(AbstractPipeline<?, T, ?> upstream, int size) {
+        checkArguments(size, size);
+        return new OfRef<>(upstream, size, size, true);
+    }
+
+    /**
+     * 向提供的引用流附加一个滑动窗口操作。
+     *
+     * @param <T> 输入元素的类型
+     * @param upstream 具有元素类型 T 的引用流
+     * @param size 每个窗口的元素数
+     * @param step 相邻窗口起点之间的元素数
+     */
+    static <T> Stream<List<T>> makeRefSliding(AbstractPipeline<?, T, ?> upstream,
+                                              int size, int step) {
+        checkArguments(size, step);
+        return new OfRef<>(upstream, size, step, false);
+    }
+
+    /**
+     * 向提供的 int 流附加一个分块操作。
+     *
+     * @param upstream 一个 int 流
+     * @param size 每个分块的元素数
+     */
+    static Stream<int[]> makeIntChunked(AbstractPipeline<?, Integer, ?> upstream, int size) {
+        checkArguments(size, size);
+        return new OfInt(upstream, size, size, true);
+    }
+
+    /**
+     * 向提供的 int 流附加一个滑动窗口操作。
+     *
+     * @param upstream 一个 int 流
+     * @param size 每个窗口的元素数
+     * @param step 相邻窗口起点之间的元素数
+     */
+    static Stream<int[]> makeIntSliding(AbstractPipeline<?, Integer, ?> upstream,
+                                        int size, int step) {
+        checkArguments(size, step);
+        return new OfInt(upstream, size, step, false);
+    }
+
+    /**
+     * 用于引用流的窗口操作。
+     */
+    private static final class OfRef<T> extends ReferencePipeline.StatefulOp<T, List<T>> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        OfRef(AbstractPipeline<?, T, ?> upstream, int size, int step, boolean partial) {
+            super(upstream, StreamShape.REFERENCE, FLAGS);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        public Sink<T> opWrapSink(int flags, Sink<List<T>> sink) {
+            Objects.requireNonNull(sink);
+            return partial
+                   ? new RefChunkingSink<>(sink, size)
+                   : new RefSlidingSink<>(sink, size, step);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <P_IN> Node<List<T>> opEvaluateParallel(PipelineHelper<List<T>> helper,
+                                                       Spliterator<P_IN> spliterator,
+                                                       IntFunction<List<T>[]> generator) {
+            // 辅助对象实际上是上游的，其输出元素类型为 T
+            PipelineHelper<T> upstream = (PipelineHelper<T>) (PipelineHelper<?>) helper;
+            Object[] content = upstream.evaluate(spliterator, true, n -> (T[]) new Object[n])
+                                       .asArray(n -> (T[]) new Object[n]);
+            return windowNode(generator, content.length, size, step, partial,
+                              (from, to) -> windowList(content, from, to));
+        }
+    }
+
+    /**
+     * 用于 int 流的窗口操作。
+     */
+    private static final class OfInt extends ReferencePipeline.StatefulOp<Integer, int[]> {
+        private final int size;
+        private final int step;
+        private final boolean partial;
+
+        OfInt(AbstractPipeline<?, Integer, ?> upstream, int size, int step, boolean partial) {
+            super(upstream, StreamShape.INT_VALUE, FLAGS);
+            this.size = size;
+            this.step = step;
+            this.partial = partial;
+        }
+
+        @Override
+        public Sink<Integer> opWrapSink(int flags, Sink<int[]> sink) {
+            Objects.requireNonNull(sink);
+            return partial
+                   ? new IntChunkingSink(sink, size)
+                   : new IntSlidingSink(sink, size, step);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <P_IN> Node<int[]> opEvaluateParallel(PipelineHelper<int[]> helper,
+                                                     Spliterator<P_IN> spliterator,
+                                                     IntFunction<int[][]> generator) {
+            // 辅助对象实际上是上游的，其输出形状为 INT_VALUE
+            PipelineHelper<Integer> upstream = (PipelineHelper<Integer>) (PipelineHelper<?>) helper;
+            int[] content = ((Node.OfInt) upstream.evaluate(spliterator, true, Integer[]::new))
+                    .asPrimitiveArray();
+            return windowNode(generator, content.length, size, step, partial,
+                              (from, to) -> Arrays.copyOfRange(content, from, to));
+        }
+    }
+
+    /**
+     * 返回数组 [from, to) 中元素组成的新列表。
+     */
+    @SuppressWarnings("unchecked")
+    static <T> List<T> windowList(Object[] a, int from, int to) {
+        ArrayList<T> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++)
+            list.add((T) a[i]);
+        return list;
+    }
+
+    /**
+     * 用于对引用流分块的 {@link Sink}。每当收集满 {@code size} 个元素时向下游推送一个分块，
+     * 在 {@code end()} 时推送剩余的不完整分块（除非下游已请求取消）。
+     */
+    private static final class RefChunkingSink<T> extends Sink.ChainedReference<T, List<T>> {
+        private final int size;
+        private int initial;
+        private int capacity;
+        private ArrayList<T> chunk;
+
+        RefChunkingSink(Sink<? super List<T>> downstream, int size) {
+            super(downstream);
+            this.size = size;
+        }
+
+        @Override
+        public void begin(long n) {
+            chunk = null;
+            initial = initialCapacity(n, size);
+            downstream.begin(windowCount(n, size, size, true));
+        }
+
+        @Override
+        public void accept(T t) {
+            ArrayList<T> c = chunk;
+            if (c == null)
+                chunk = c = new ArrayList<>(capacity = initial);
+            else if (c.size() == capacity)
+                c.ensureCapacity(capacity = grow(capacity, size));
+            c.add(t);
+            if (c.size() == size) {
+                chunk = null;
+                initial = size; // 流至少有一个完整的分块，此后的分块按完整大小分配
+                downstream.accept(c);
+            }
+        }
+
+        @Override
+        public void end() {
+            ArrayList<T> c = chunk;
+            chunk = null;
+            if (c != null && !downstream.cancellationRequested()) {
+                c.trimToSize();
+                downstream.accept(c);
+            }
+            downstream.end();
+        }
+    }
+
+    /**
+     * 用于在引用流上产生滑动窗口的 {@link Sink}。最近的 {@code size} 个元素保存在一个环形缓冲区中。
+     */
+    private static final class RefSlidingSink<T> extends Sink.ChainedReference<T, List<T>> {
+        private final int size;
+        private final int step;
+        private Object[] ring;
+        private long count;
+
+        RefSlidingSink(Sink<? super List<T>> downstream, int size, int step) {
+            super(downstream);
+            this.size = size;
+            this.step = step;
+        }
+
+        @Override
+        public void begin(long n) {
+            ring = new Object[initialCapacity(n, size)];
+            count = 0;
+            downstream.begin(windowCount(n, size, step, false));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void accept(T t) {
+            Object[] r = ring;
+            long c = count;
+            // 在收集满第一个窗口之前环形缓冲区还没有回绕，可以直接增长
+            if (c == r.length && c < size)
+                ring = r = Arrays.copyOf(r, grow(r.length, size));
+            r[(int) (c % size)] = t;
+            count = ++c;
+            if (c >= size && (c - size) % step == 0) {
+                ArrayList<T> w = new ArrayList<>(size);
+                for (long i = c - size; i < c; i++)
+                    w.add((T) r[(int) (i % size)]);
+                downstream.accept(w);
+            }
+        }
+
+        @Override
+        public void end() {
+            ring = null;
+            downstream.end();
+        }
+    }
+
+    /**
+     * 用于对 int 流分块的 {@link Sink}。
+     */
+    private static final class IntChunkingSink extends Sink.ChainedInt<int[]> {
+        private final int size;
+        private int initial;
+        private int[] chunk;
+        private int fill;
+
+        IntChunkingSink(Sink<? super int[]> downstream, int size) {
+            super(downstream);
+            this.size = size;
+        }
+
+        @Override
+        public void begin(long n) {
+            chunk = null;
+            fill = 0;
+            initial = initialCapacity(n, size);
+            downstream.begin(windowCount(n, size, size, true));
+        }
+
+        @Override
+        public void accept(int t) {
+            int[] c = chunk;
+            if (c == null)
+                chunk = c = new int[Math.max(initial, 1)];
+            else if (fill == c.length)
+                chunk = c = Arrays.copyOf(c, grow(c.length, size));
+            c[fill++] = t;
+            if (fill == size) {
+                chunk = null;
+                fill = 0;
+                initial = size; // 流至少有一个完整的分块，此后的分块按完整大小分配
+                downstream.accept(c);
+            }
+        }
+
+        @Override
+        public void end() {
+            int[] c = chunk;
+            chunk = null;
+            if (c != null && !downstream.cancellationRequested())
+                downstream.accept((fill == c.length) ? c : Arrays.copyOf(c, fill));
+            downstream.end();
+        }
+    }
+
+    /**
+     * 用于在 int 流上产生滑动窗口的 {@link Sink}。
+     */
+    private static final class IntSlidingSink extends Sink.ChainedInt<int[]> {
+        private final int size;
+        private final int step;
+        private int[] ring;
+        private long count;
+
+        IntSlidingSink(Sink<? super int[]> downstream, int size, int step) {
+            super(downstream);
+            this.size = size;
+            this.step = step;
+        }
+
+        @Override
+        public void begin(long n) {
+            ring = new int[initialCapacity(n, size)];
+            count = 0;
+            downstream.begin(windowCount(n, size, step, false));
+        }
+
+        @Override
+        public void accept(int t) {
+            int[] r = ring;
+            long c = count;
+            // 在收集满第一个窗口之前环形缓冲区还没有回绕，可以直接增长
+            if (c == r.length && c < size)
+                ring = r = Arrays.copyOf(r, grow(r.length, size));
+            r[(int) (c % size)] = t;
+            count = ++c;
+            if (c >= size && (c - size) % step == 0) {
+                int[] w = new int[size];
+                for (long i = c - size; i < c; i++)
+                    w[(int) (i - (c - size))] = r[(int) (i % size)];
+                downstream.accept(w);
+            }
+        }
+
+        @Override
+        public void end() {
+            ring = null;
+            downstream.end();
+        }
+    }
+}